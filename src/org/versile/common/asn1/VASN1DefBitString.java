@@ -60,57 +60,57 @@ public class VASN1DefBitString extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("Incomplete data");
 
 		int tot_length = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x03)
+			if (data[offset] != (byte)0x03)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 		}
 
-		DecodedLength dec_len = VASN1Definition.berDecLength(data);
-		byte[] content;
+		DecodedLength dec_len = VASN1Definition.berDecLength(data, offset, length);
+		int c_off;
+		int c_len;
 		if (dec_len != null) {
 			int _bread = dec_len.getBytesRead();
-			tot_length = _bread + dec_len.getDecodedLength().getValue().intValue();
-			content = new byte[tot_length-_bread];
-			for (int i = 0; i < content.length; i++)
-				content[i] = data[_bread+i];
+			c_off = offset + _bread;
+			c_len = dec_len.getContentLength();
+			if (c_len > length - _bread)
+				throw new VASN1Exception("Incomplete data");
+			tot_length = _bread + c_len;
 		}
 		else {
-			tot_length += 1;
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			DecodedContent _cdec = VASN1Definition.berDecContentIndefinite(_data);
-			content = _cdec.getContent();
-			tot_length += _cdec.getBytesRead();
+			c_off = offset + 1;
+			c_len = VASN1Definition.berDecIndefiniteLength(data, c_off, length-1);
+			tot_length += 1 + c_len + 2;
 		}
-		if (content.length == 0)
+		if (c_len == 0)
 			throw new VASN1Exception("Incomplete data");
 
 		VASN1BitString dec_value;
-		if (content.length == 1) {
-			if (content[0] == (byte)0x00)
+		if (c_len == 1) {
+			if (data[c_off] == (byte)0x00)
 				dec_value = new VASN1BitString(new VBitfield(new BitSet(), 0));
 			else
 				throw new VASN1Exception("Invalid encoding");
 		}
 		else {
-			if (data.length < tot_length)
-				throw new VASN1Exception("Incomplete data");
-			int pad_len = content[0] & 0xff;
+			int pad_len = data[c_off] & 0xff;
 			if (pad_len > 7)
 				throw new VASN1Exception("Invalid encoding");
 			BitSet _bstr = new BitSet();
 			int pos = 0;
-			for (int i = 1; i < content.length; i++) {
-				byte c_byte = content[i];
+			for (int i = 1; i < c_len; i++) {
+				byte c_byte = data[c_off+i];
 				for (int j = 0; j < 8; j++) {
 					int mask = 0x80 >>> j;
 					if ((c_byte & mask) != 0)
@@ -41,24 +41,28 @@ public class VASN1DefBoolean extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int num_read = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x01)
+			if (data[offset] != (byte)0x01)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			num_read += 1;
 		}
-		if (data.length < 2)
+		if (length < 2)
 			throw new VASN1Exception("Incomplete data");
-		if (data[0] != (byte)0x01)
+		if (data[offset] != (byte)0x01)
 			throw new VASN1Exception("Invalid encoding");
 		num_read += 2;
-		if (data[1] == (byte)0x00)
+		if (data[offset+1] == (byte)0x00)
 			return new ParseResult(new VASN1Boolean(false), num_read);
 		else
 			return new ParseResult(new VASN1Boolean(true), num_read);
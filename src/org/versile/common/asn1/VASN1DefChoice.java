@@ -117,13 +117,19 @@ public class VASN1DefChoice extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
 		if (!withTag)
 			throw new VASN1Exception("ASN.1 Choice cannot parse from implicit representation");
-		Decoded t_dec = VASN1Tag.fromDER(data);
+		Decoded t_dec = VASN1Tag.fromDER(data, offset, length);
 		VASN1Definition def = defs.get(t_dec.getTag());
 		if (def == null)
 			throw new VASN1Exception("Choice value's tag not recognized");
-		return def.parseDER(data, withTag);
+		return def.parseDER(data, offset, length, withTag);
 	}
 
 	/**
@@ -41,19 +41,23 @@ public class VASN1DefEnumerated extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("Empty data");
 		int tot_read = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x0a)
+			if (data[offset] != (byte)0x0a)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_read += 1;
 		}
-		ParseResult i_dec = new VASN1DefInteger().parseDER(data, false);
+		ParseResult i_dec = new VASN1DefInteger().parseDER(data, offset, length, false);
 		tot_read += i_dec.getNumRead();
 		VASN1Integer as_int = (VASN1Integer)i_dec.getResult();
 		return new ParseResult(new VASN1Enumerated(as_int.getValue()), tot_read);
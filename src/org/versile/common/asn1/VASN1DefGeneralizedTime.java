@@ -43,19 +43,23 @@ public class VASN1DefGeneralizedTime extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("Empty data");
 		int tot_read = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x18)
+			if (data[offset] != (byte)0x18)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_read += 1;
 		}
-		ParseResult o_dec = new VASN1DefOctetString().parseDER(data, false);
+		ParseResult o_dec = new VASN1DefOctetString().parseDER(data, offset, length, false);
 		byte[] str_bytes = ((VASN1OctetString)o_dec.getResult()).value;
 		tot_read += o_dec.getNumRead();
 		String str;
@@ -21,6 +21,7 @@
 package org.versile.common.asn1;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import org.versile.orb.entity.VInteger;
 
@@ -55,38 +56,47 @@ public class VASN1DefInteger extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int num_read = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x02)
+			if (data[offset] != (byte)0x02)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			num_read += 1;
 		}
-		if (data.length == 0)
+		if (length == 0)
 			throw new VASN1Exception("Incomplete data");
-		DecodedLength ldec = VASN1Definition.berDecLength(data);
+		DecodedLength ldec = VASN1Definition.berDecLength(data, offset, length);
 		if (ldec == null)
 			throw new VASN1Exception("Indefinite representation not supported");
 		if (ldec.getDecodedLength().getBigIntegerValue().compareTo(BigInteger.ONE) < 0)
 			throw new VASN1Exception("Decoded length must be positive");
 		int _nread = ldec.getBytesRead();
-		int tot_length = _nread + ldec.getDecodedLength().getValue().intValue();
-		if (data.length < tot_length)
+		int c_len = ldec.getContentLength();
+		if (c_len > length - _nread)
 			throw new VASN1Exception("Incomplete data");
-		byte[] content = new byte[tot_length-_nread];
-		for (int i = 0; i < content.length; i++)
-			content[i] = data[_nread+i];
+		int tot_length = _nread + c_len;
 		num_read += tot_length;
-		BigInteger _val = new VInteger(VInteger.bytes_to_posint(content)).getBigIntegerValue();
-		if ((content[0] & 0x80) != 0) {
-			_val = _val.subtract(BigInteger.ONE.shiftLeft(8*content.length));
+		int c_off = offset + _nread;
+		VInteger value;
+		if (c_len <= 8) {
+			// Two's complement value which fits in a long
+			long _val = data[c_off];
+			for (int i = 1; i < c_len; i++)
+				_val = (_val << 8) | (data[c_off+i] & 0xff);
+			value = new VInteger(_val);
 		}
-		return new ParseResult(new VASN1Integer(new VInteger(_val)), num_read);
+		else
+			value = new VInteger(new BigInteger(Arrays.copyOfRange(data, c_off, c_off+c_len)));
+		return new ParseResult(new VASN1Integer(value), num_read);
 	}
 
 }
@@ -36,16 +36,18 @@ public class VASN1DefNull extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int num_read = 0;
 		if (withTag) {
-			if ((data[0] & 0xff) != 0x05)
+			if ((data[offset] & 0xff) != 0x05)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] tmp = new byte[data.length-1];
-			for (int i = 0; i < tmp.length; i++)
-				tmp[i] = data[i+1];
-			data = tmp;
 			num_read += 1;
 		}
 		return new ParseResult(new VASN1Null(), num_read);
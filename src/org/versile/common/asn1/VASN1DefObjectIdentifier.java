@@ -48,46 +48,54 @@ public class VASN1DefObjectIdentifier extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("Incomplete data");
 		int tot_length = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x06)
+			if (data[offset] != (byte)0x06)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_length += 1;
 		}
-		if (data.length == 0)
+		if (length == 0)
 			throw new VASN1Exception("Incomplete data");
-		DecodedLength dec_len = VASN1Definition.berDecLength(data);
+		DecodedLength dec_len = VASN1Definition.berDecLength(data, offset, length);
 		if (dec_len == null)
 			throw new VASN1Exception("Indefinite length not supported");
 		int l_len = dec_len.getBytesRead();
-		int c_len = dec_len.getDecodedLength().getValue().intValue();
-		tot_length += l_len + c_len;
-		if (data.length < (l_len+c_len))
+		int c_len = dec_len.getContentLength();
+		if (c_len > length - l_len)
 			throw new VASN1Exception("Incomplete data");
-		byte[] content = new byte[c_len];
-		for (int i = 0; i < content.length; i++)
-			content[i] = data[l_len+i];
+		tot_length += l_len + c_len;
 
 		LinkedList<VInteger> oids = new LinkedList<VInteger>();
 		boolean decoding = false;
-		String bin_str = "0";
-		for (byte b: content) {
+		long value = 0;
+		BigInteger big_value = null;
+		for (int i = offset+l_len; i < offset+l_len+c_len; i++) {
 			decoding = true;
-			int b_val = b & 0xff;
-			String add_bits = Integer.toBinaryString(b_val & 0x7f);
-			while(add_bits.length() < 7)
-				add_bits = "0" + add_bits;
-			bin_str += add_bits;
+			int b_val = data[i] & 0xff;
+			if (big_value == null && (value >>> 56) != 0)
+				big_value = BigInteger.valueOf(value);
+			if (big_value != null)
+				big_value = big_value.shiftLeft(7).or(BigInteger.valueOf(b_val & 0x7f));
+			else
+				value = (value << 7) | (b_val & 0x7f);
 			if ((b_val & 0x80) == 0) {
-				oids.addLast(new VInteger(new BigInteger(bin_str, 2)));
+				if (big_value != null)
+					oids.addLast(new VInteger(big_value));
+				else
+					oids.addLast(new VInteger(value));
 				decoding = false;
-				bin_str = "0";
+				value = 0;
+				big_value = null;
 			}
 		}
 		if (decoding || oids.size() < 1)
@@ -20,6 +20,8 @@
 
 package org.versile.common.asn1;
 
+import java.util.Arrays;
+
 
 /**
  * Definition for the ASN.1 OctetString type.
@@ -41,29 +43,31 @@ public class VASN1DefOctetString extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int tot_length = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x04)
+			if (data[offset] != (byte)0x04)
 				throw new VASN1Exception("Explicit tag mismatch");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_length += 1;
 		}
-		DecodedLength ldec = VASN1Definition.berDecLength(data);
+		DecodedLength ldec = VASN1Definition.berDecLength(data, offset, length);
 		if (ldec == null)
 			throw new VASN1Exception("Indefinite length not supported");
 		int l_len = ldec.getBytesRead();
-		int c_len = ldec.getDecodedLength().getValue().intValue();
-		tot_length += l_len + c_len;
-		if (data.length < l_len + c_len)
+		int c_len = ldec.getContentLength();
+		if (c_len > length - l_len)
 			throw new VASN1Exception("Incomplete data");
-		byte[] content = new byte[c_len];
-		for (int i = 0; i < c_len; i++)
-			content[i] = data.clone()[l_len+i];
+		tot_length += l_len + c_len;
+		byte[] content = Arrays.copyOfRange(data, offset+l_len, offset+l_len+c_len);
 		return new ParseResult(new VASN1OctetString(content), tot_length);
 	}
 
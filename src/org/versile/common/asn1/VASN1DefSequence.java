@@ -20,15 +20,13 @@
 
 package org.versile.common.asn1;
 
+import java.util.Arrays;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import org.versile.common.asn1.VASN1Tag.Decoded;
-import org.versile.common.util.VByteBuffer;
 
 
 
@@ -192,86 +190,77 @@ public class VASN1DefSequence extends VASN1Definition {
 
 	protected static ExtractedData berExtractSequenceElements(byte[] data)
 			throws VASN1Exception {
-		if (data.length == 0)
+		ExtractedRanges ranges = VASN1DefSequence.berExtractSequenceRanges(data, 0, data.length);
+		ExtractedData result = new ExtractedData();
+		result.elements = new Vector<byte[]>();
+		result.numDecodedBytes = ranges.numDecodedBytes;
+		for (int i = 0; i < ranges.numElements; i++) {
+			int _offset = ranges.offsets[i];
+			result.elements.add(Arrays.copyOfRange(data, _offset, _offset+ranges.lengths[i]));
+		}
+		return result;
+	}
+
+	protected static ExtractedRanges berExtractSequenceRanges(byte[] data, int offset, int length)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
-		DecodedLength l_dec = VASN1Definition.berDecLength(data);
+		DecodedLength l_dec = VASN1Definition.berDecLength(data, offset, length);
 		if (l_dec == null)
 			throw new VASN1Exception("Indefinite sequence data length not supported");
 		int l_num = l_dec.getBytesRead();
-		int c_num = l_dec.getDecodedLength().getValue().intValue();
-		int total_length = l_num + c_num;
-		byte[] content = new byte[c_num];
-		for (int i = 0; i < content.length; i++)
-			content[i] = data[l_num+i];
+		int c_num = l_dec.getContentLength();
+		if (c_num > length - l_num)
+			throw new VASN1Exception("Incomplete data");
 
 		// Parse content, splitting up into separate encoded elements
-		ExtractedData result = new ExtractedData();
-		result.elements = new Vector<byte[]>();
-		result.numDecodedBytes = total_length;
-		VByteBuffer _buf = new VByteBuffer();
-		while(content.length > 0) {
-			Decoded d_id = VASN1Tag.fromBER(content);
-
-			int _tag_num = d_id.getNumRead();
-			_buf.append(content);
-			_buf.pop(_tag_num);
-			byte[] _content = _buf.popAll();
-			if (_content.length == 0)
-				throw new VASN1Exception("Incomplete data");
-
-			int _len_num;
-			int _content_num;
-			l_dec = VASN1Definition.berDecLength(_content);
-			if (l_dec == null) {
-				_len_num = 1;
-				_buf.append(_content);
-				_buf.pop(1);
-				_content = _buf.popAll();
-				if (_content.length == 0)
-					throw new VASN1Exception("Incomplete data");
-				DecodedContent c_dec = VASN1Definition.berDecContentIndefinite(_content);
-				_content_num = c_dec.getBytesRead();
-			}
-			else {
-				_len_num = l_dec.getBytesRead();
-				_content_num = l_dec.getDecodedLength().getValue().intValue();
+		ExtractedRanges result = new ExtractedRanges();
+		result.offsets = new int[8];
+		result.lengths = new int[8];
+		result.numElements = 0;
+		result.numDecodedBytes = l_num + c_num;
+		int pos = offset + l_num;
+		int end = pos + c_num;
+		while(pos < end) {
+			int _len = VASN1Definition.berElementLength(data, pos, end-pos);
+			if (result.numElements == result.offsets.length) {
+				result.offsets = Arrays.copyOf(result.offsets, 2*result.numElements);
+				result.lengths = Arrays.copyOf(result.lengths, 2*result.numElements);
 			}
-			_buf.append(content);
-			_content = _buf.pop(_tag_num+_len_num+_content_num);
-			if (_content.length < _tag_num+_len_num+_content_num)
-				throw new VASN1Exception("Invalid encoding");
-			result.elements.add(_content);
-			content = _buf.popAll();
+			result.offsets[result.numElements] = pos;
+			result.lengths[result.numElements] = _len;
+			result.numElements++;
+			pos += _len;
 		}
 		return result;
 	}
 
 	@Override
-	public synchronized ParseResult parseDER(byte[] data, boolean withTag)
+	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int tot_length = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x30)
+			if (data[offset] != (byte)0x30)
 				throw new VASN1Exception("Invalid explicit tag");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_length += 1;
 		}
-		ExtractedData dec_elements = VASN1DefSequence.berExtractSequenceElements(data);
+		ExtractedRanges dec_elements = VASN1DefSequence.berExtractSequenceRanges(data, offset, length);
 		tot_length += dec_elements.numDecodedBytes;
-		Iterator<byte[]> iter = dec_elements.elements.iterator();
 
 		VASN1Sequence seq = new VASN1Sequence();
-		byte[] item = null;
-		for (Element type_data: types) {
-			try {
-				if (item == null)
-					item = iter.next();
-			} catch (NoSuchElementException e) {
+		int item = 0;
+		for (Element type_data: types.toArray(new Element[0])) {
+			if (item >= dec_elements.numElements) {
 				if (type_data.defaultValue != null) {
 					seq.append(type_data.defaultValue, type_data.name, true);
 					continue;
@@ -280,7 +269,9 @@ public class VASN1DefSequence extends VASN1Definition {
 				else
 					throw new VASN1Exception("Required element missing");
 			}
-			Decoded dec_tag = VASN1Tag.fromDER(item);
+			int item_offset = dec_elements.offsets[item];
+			int item_length = dec_elements.lengths[item];
+			Decoded dec_tag = VASN1Tag.fromDER(data, item_offset, item_length);
 			VASN1Tag _def_tag = type_data.definition.getTag();
 			if (_def_tag != null && !_def_tag.equals(dec_tag.getTag())) {
 				// Handle non-matching tag
@@ -293,17 +284,14 @@ public class VASN1DefSequence extends VASN1Definition {
 				else
 				    throw new VASN1Exception("Required element missing");
 			}
-			ParseResult dec = type_data.definition.parseDER(item);
+			ParseResult dec = type_data.definition.parseDER(data, item_offset, item_length, true);
 			seq.append(dec.getResult(), type_data.name, false);
-			item = null;
+			item++;
 		}
 
 		// Ensure no unprocessed sequence elements left
-		try {
-			iter.next();
+		if (item < dec_elements.numElements)
 			throw new VASN1Exception("Unprocessed sequence elements");
-		} catch (Exception e) {
-		}
 
 		return new ParseResult(seq, tot_length);
 	}
@@ -359,4 +347,26 @@ public class VASN1DefSequence extends VASN1Definition {
 		 */
 		public int numDecodedBytes;
 	}
+
+	/**
+	 * Ranges of extracted byte-encoded sequence elements.
+	 */
+	protected static class ExtractedRanges {
+		/**
+		 * Offsets of sequence elements' byte encoded values (in order).
+		 */
+		public int[] offsets;
+		/**
+		 * Lengths of sequence elements' byte encoded values (in order).
+		 */
+		public int[] lengths;
+		/**
+		 * Number of sequence elements.
+		 */
+		public int numElements;
+		/**
+		 * Number of sequence content bytes decoded to produce element list.
+		 */
+		public int numDecodedBytes;
+	}
 }
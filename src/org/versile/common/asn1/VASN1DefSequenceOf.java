@@ -20,7 +20,7 @@
 
 package org.versile.common.asn1;
 
-import org.versile.common.asn1.VASN1DefSequence.ExtractedData;
+import org.versile.common.asn1.VASN1DefSequence.ExtractedRanges;
 
 
 /**
@@ -65,26 +65,30 @@ public class VASN1DefSequenceOf extends VASN1Definition {
 	}
 
 	@Override
-	public synchronized ParseResult parseDER(byte[] data, boolean withTag)
+	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int tot_length = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x30)
+			if (data[offset] != (byte)0x30)
 				throw new VASN1Exception("Invalid explicit tag");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_length += 1;
 		}
-		ExtractedData dec_elements = VASN1DefSequence.berExtractSequenceElements(data);
+		ExtractedRanges dec_elements = VASN1DefSequence.berExtractSequenceRanges(data, offset, length);
 		tot_length += dec_elements.numDecodedBytes;
 
 		VASN1Sequence seq = new VASN1SequenceOf();
-		for (byte[] item : dec_elements.elements) {
-			ParseResult item_dec = def.parseDER(item);
+		for (int i = 0; i < dec_elements.numElements; i++) {
+			ParseResult item_dec = def.parseDER(data, dec_elements.offsets[i], dec_elements.lengths[i], true);
 			seq.append(item_dec.getResult());
 		}
 		return new ParseResult(seq, tot_length);
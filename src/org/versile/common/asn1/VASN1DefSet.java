@@ -27,7 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
-import org.versile.common.asn1.VASN1DefSequence.ExtractedData;
+import org.versile.common.asn1.VASN1DefSequence.ExtractedRanges;
 import org.versile.common.asn1.VASN1Tag.Decoded;
 
 
@@ -162,35 +162,41 @@ public class VASN1DefSet extends VASN1Definition {
 	}
 
 	@Override
-	public synchronized ParseResult parseDER(byte[] data, boolean withTag)
+	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
 		int tot_length = 0;
 		if (withTag) {
-			if (data[0] != (byte)0x31)
+			if (data[offset] != (byte)0x31)
 				throw new VASN1Exception("Invalid explicit tag");
-			byte[] _data = new byte[data.length-1];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
-			data = _data;
+			offset += 1;
+			length -= 1;
 			tot_length += 1;
 		}
-		ExtractedData dec_elements = VASN1DefSequence.berExtractSequenceElements(data);
+		ExtractedRanges dec_elements = VASN1DefSequence.berExtractSequenceRanges(data, offset, length);
 		tot_length += dec_elements.numDecodedBytes;
 
 		VASN1Set set = new VASN1Set();
 		Set<VASN1Tag> decoded_tags = new HashSet<VASN1Tag>();
 
-		for (byte[] item: dec_elements.elements) {
-			Decoded d_tag = VASN1Tag.fromDER(item);
+		for (int i = 0; i < dec_elements.numElements; i++) {
+			int item_offset = dec_elements.offsets[i];
+			int item_length = dec_elements.lengths[i];
+			Decoded d_tag = VASN1Tag.fromDER(data, item_offset, item_length);
 			if (d_tag.getTag() == null)
 				throw new VASN1Exception("Invalid element tag for the Set");
 			Element type_data = types.get(d_tag.getTag());
 			if (type_data == null)
 				throw new VASN1Exception("Invalid element tag for the Set");
 			decoded_tags.add(d_tag.getTag());
-			ParseResult dec = type_data.definition.parseDER(item);
+			ParseResult dec = type_data.definition.parseDER(data, item_offset, item_length, true);
 			set.append(dec.getResult(), type_data.name, false);
 		}
 
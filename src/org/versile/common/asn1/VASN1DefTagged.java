@@ -20,7 +20,7 @@
 
 package org.versile.common.asn1;
 
-import org.versile.common.util.VByteBuffer;
+import org.versile.common.asn1.VASN1Tag.Decoded;
 
 
 /**
@@ -86,44 +86,34 @@ public class VASN1DefTagged extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
 		if (!withTag)
 			throw new VASN1Exception("VASN1DefTagged can only parse tagged data");
 
-		byte[] content;
+		Decoded t_dec = VASN1Tag.fromDER(data, offset, length);
+		if (!(this.tag.equals(t_dec.getTag())))
+			throw new VASN1Exception("Tag mismatch");
+		int tag_len = t_dec.getNumRead();
+		DecodedLength _ldec = VASN1Definition.berDecLength(data, offset+tag_len, length-tag_len);
+		int c_off;
+		int c_len;
 		int num_read;
-		int tag_len;
-		if (withTag) {
-			DecodedTaggedContent _dec = VASN1Definition.berDecTaggedContent(data);
-			content = _dec.getContent();
-			VASN1Tag _tag = _dec.getTag();
-			if (!(this.tag.equals(_tag)))
-				throw new VASN1Exception("Tag mismatch");
-			tag_len = VASN1Tag.fromDER(data).getNumRead();
-			num_read = _dec.getNumRead();
+		if (_ldec != null) {
+			c_off = offset + tag_len + _ldec.getBytesRead();
+			c_len = _ldec.getContentLength();
+			if (c_len > offset + length - c_off)
+				throw new VASN1Exception("Insufficient data");
+			num_read = c_off + c_len - offset;
 		}
 		else {
-			VByteBuffer _buf = new VByteBuffer();
-			DecodedLength _ldec = VASN1Definition.berDecLength(data);
-			int _l_num;
-			int _c_num;
-			if (_ldec != null) {
-				_l_num = _ldec.getBytesRead();
-				_buf.append(data);
-				_buf.pop(_l_num);
-				DecodedContent _cdec = VASN1Definition.berDecContentDefinite(_buf.popAll(), _ldec.decodedLength);
-				content = _cdec.getContent();
-				_c_num = _cdec.getBytesRead();
-			}
-			else {
-				_l_num = 1;
-				_buf.append(data);
-				_buf.pop(_l_num);
-				DecodedContent _cdec = VASN1Definition.berDecContentIndefinite(_buf.popAll());
-				content = _cdec.getContent();
-				_c_num = _cdec.getBytesRead();
-			}
-			tag_len = 0;
-			num_read = _l_num + _c_num;
+			c_off = offset + tag_len + 1;
+			c_len = VASN1Definition.berDecIndefiniteLength(data, c_off, offset+length-c_off);
+			num_read = c_off + c_len + 2 - offset;
 		}
 
 		// Below decoding does not validate 'constructed vs. primitive' encoding
@@ -131,16 +121,14 @@ public class VASN1DefTagged extends VASN1Definition {
 		VASN1Base result;
 		int _num_parsed;
 		if (explicit) {
-			ParseResult _pdec = def.parseDER(content, withTag);
+			ParseResult _pdec = def.parseDER(data, c_off, c_len, true);
 			result = _pdec.getResult();
 			_num_parsed = _pdec.getNumRead();
-			if (_num_parsed != content.length)
+			if (_num_parsed != c_len)
 				throw new VASN1Exception("Illegal encoding");
 		}
 		else {
-			VByteBuffer _buf = new VByteBuffer(data);
-			_buf.pop(tag_len);
-			ParseResult _pdec = def.parseDER(_buf.popAll(), false);
+			ParseResult _pdec = def.parseDER(data, offset+tag_len, length-tag_len, false);
 			result = _pdec.getResult();
 			_num_parsed = _pdec.getNumRead();
 			if (_num_parsed + tag_len != num_read)
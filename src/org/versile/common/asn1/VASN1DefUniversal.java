@@ -61,9 +61,15 @@ public class VASN1DefUniversal extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
-		int tag = data[0] & 0xff;
+		int tag = data[offset] & 0xff;
 		VASN1Definition def;
 		if (tag == 0x01)
 			def = new VASN1DefBoolean(name);
@@ -108,6 +114,6 @@ public class VASN1DefUniversal extends VASN1Definition {
 		}
 		else
 			throw new VASN1Exception("Not a supported universal type");
-		return def.parseDER(data);
+		return def.parseDER(data, offset, length, true);
 	}
 }
@@ -20,6 +20,8 @@
 
 package org.versile.common.asn1;
 
+import java.util.Arrays;
+
 
 /**
  * Definition for an unknown type encoding.
@@ -38,8 +40,15 @@ public class VASN1DefUnknown extends VASN1Definition {
 	@Override
 	public ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return this.parseDER(data, 0, data.length, withTag);
+	}
+
+	@Override
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (length == 0)
 			throw new VASN1Exception("No data");
-		return new ParseResult(new VASN1Unknown(data, withTag), data.length);
+		byte[] _data = Arrays.copyOfRange(data, offset, offset+length);
+		return new ParseResult(new VASN1Unknown(_data, withTag), length);
 	}
 }
@@ -20,6 +20,8 @@
 
 package org.versile.common.asn1;
 
+import java.util.Arrays;
+
 import org.versile.common.asn1.VASN1Tag.Decoded;
 import org.versile.orb.entity.VInteger;
 
@@ -77,6 +79,28 @@ public abstract class VASN1Definition {
 	public abstract ParseResult parseDER(byte[] data, boolean withTag)
 			throws VASN1Exception;
 
+	/**
+	 * Parses DER data for this definition from a range of a byte array.
+	 *
+	 * <p>Enables parsing of nested structures in a single pass over one byte array,
+	 * without copying the encoded data of each element. Definitions in this package
+	 * parse the range in place. The default implementation copies the range and calls
+	 * {@link #parseDER(byte[], boolean)}.</p>
+	 *
+	 * @param data data holding DER encoded data to parse
+	 * @param offset start offset of encoded data
+	 * @param length length of available data
+	 * @param withTag if true DER data includes identifier octets
+	 * @return parse result structure
+	 * @throws VASN1Exception parse error
+	 */
+	public ParseResult parseDER(byte[] data, int offset, int length, boolean withTag)
+			throws VASN1Exception {
+		if (offset == 0 && length == data.length)
+			return this.parseDER(data, withTag);
+		return this.parseDER(Arrays.copyOfRange(data, offset, offset+length), withTag);
+	}
+
 	/**
 	 * Get a tag for this type definition.
 	 *
@@ -108,20 +132,42 @@ public abstract class VASN1Definition {
 	 */
 	public static DecodedLength berDecLength(byte[] data)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return VASN1Definition.berDecLength(data, 0, data.length);
+	}
+
+	/**
+	 * Decode BER length.
+	 *
+	 * <p>Returns a decoded structure if data holds a definitive length
+	 * structure. Returns null if indefinite length encoding was used, in which
+	 * case the number of bytes read is one.</p>
+	 *
+	 * @param data data holding length encoding bytes
+	 * @param offset start offset of length encoding
+	 * @param length length of available data
+	 * @return decoded structure for definite encoding, or null
+	 * @throws VASN1Exception incomplete data or decoding error
+	 */
+	public static DecodedLength berDecLength(byte[] data, int offset, int length)
+			throws VASN1Exception {
+		if (length <= 0)
 			throw new VASN1Exception("Incomplete data");
-		int first = data[0] & 0xff;
+		int first = data[offset] & 0xff;
 		if (first <= 0x7f)
 			return new DecodedLength(new VInteger(first), true, 1);
 		else if (first == 0x80)
 			return null;
 		else {
 			int num_bytes = first & 0x7f;
-			if (data.length < num_bytes + 1)
+			if (length < num_bytes + 1)
 				throw new VASN1Exception("Incomplete data");
-			byte[] _data = new byte[num_bytes];
-			for (int i = 0; i < _data.length; i++)
-				_data[i] = data[i+1];
+			if (num_bytes <= 3) {
+				int value = 0;
+				for (int i = 1; i <= num_bytes; i++)
+					value = (value << 8) | (data[offset+i] & 0xff);
+				return new DecodedLength(new VInteger(value), false, num_bytes+1);
+			}
+			byte[] _data = Arrays.copyOfRange(data, offset+1, offset+1+num_bytes);
 			return new DecodedLength(new VInteger(VInteger.bytes_to_posint(_data)), false, num_bytes+1);
 		}
 	}
@@ -141,10 +187,64 @@ public abstract class VASN1Definition {
 		int len = length.getValue().intValue();
 		if (data.length < len)
 			throw new VASN1Exception("Insufficient data");
-		byte[] result = new byte[len];
-		for (int i = 0; i < len; i++)
-			result[i] = data[i];
-		return new DecodedContent(result, len);
+		return new DecodedContent(Arrays.copyOf(data, len), len);
+	}
+
+	/**
+	 * Get content length of BER-encoded content for indefinite-length encoding.
+	 *
+	 * <p>Content is terminated by a two-byte delimiter which is not included in the
+	 * returned length.</p>
+	 *
+	 * @param data data holding content to decode
+	 * @param offset start offset of content
+	 * @param length length of available data
+	 * @return content length
+	 * @throws VASN1Exception no content delimiter
+	 */
+	public static int berDecIndefiniteLength(byte[] data, int offset, int length)
+			throws VASN1Exception {
+		int end = offset + length;
+		for (int pos = offset; pos < end-1; pos++)
+			if (data[pos] == (byte)0x00 && data[pos+1] == (byte)0x00)
+				return pos - offset;
+		throw new VASN1Exception("No content delimiter");
+	}
+
+	/**
+	 * Get length of a BER encoded element.
+	 *
+	 * <p>The length includes identifier octets, length octets and content, including
+	 * the delimiter of indefinite-length content.</p>
+	 *
+	 * @param data data holding encoded element
+	 * @param offset start offset of encoded element
+	 * @param length length of available data
+	 * @return encoded element length
+	 * @throws VASN1Exception incomplete data or invalid encoding
+	 */
+	public static int berElementLength(byte[] data, int offset, int length)
+			throws VASN1Exception {
+		int tag_num = VASN1Tag.fromDER(data, offset, length).getNumRead();
+		if (length - tag_num <= 0)
+			throw new VASN1Exception("Incomplete data");
+		int len_num;
+		int content_num;
+		DecodedLength l_dec = VASN1Definition.berDecLength(data, offset+tag_num, length-tag_num);
+		if (l_dec == null) {
+			len_num = 1;
+			if (length - tag_num - len_num <= 0)
+				throw new VASN1Exception("Incomplete data");
+			content_num = VASN1Definition.berDecIndefiniteLength(data, offset+tag_num+len_num,
+																 length-tag_num-len_num) + 2;
+		}
+		else {
+			len_num = l_dec.getBytesRead();
+			content_num = l_dec.getContentLength();
+		}
+		if (content_num > length - tag_num - len_num)
+			throw new VASN1Exception("Invalid encoding");
+		return tag_num + len_num + content_num;
 	}
 
 	/**
@@ -157,35 +257,30 @@ public abstract class VASN1Definition {
 	public static DecodedTaggedContent berDecTaggedContent(byte[] data)
 			throws VASN1Exception {
 		int total_read = 0;
-		Decoded id_data = VASN1Tag.fromBER(data);
+		Decoded id_data = VASN1Tag.fromDER(data, 0, data.length);
 		VASN1Tag tag = id_data.getTag();
 		int id_num = id_data.getNumRead();
 		total_read += id_num;
-		byte[] _data = new byte[data.length-id_num];
-		for (int i = 0; i < data.length-id_num; i++)
-			_data[i] = data[i+id_num];
-		DecodedLength len_data = VASN1Definition.berDecLength(_data);
-		DecodedContent content_data;
+		DecodedLength len_data = VASN1Definition.berDecLength(data, id_num, data.length-id_num);
+		byte[] content;
 		boolean definite = (len_data != null);
 		boolean shortEncoding = false;
 		if (definite) {
 			shortEncoding = len_data.isShortEncoded();
 			total_read += len_data.getBytesRead();
-			byte[] _data2 = new byte[_data.length-len_data.getBytesRead()];
-			for (int i = 0; i < _data2.length ; i++)
-				_data2[i] = _data[i + len_data.getBytesRead()];
-			content_data = VASN1Definition.berDecContentDefinite(_data2, len_data.getDecodedLength());
-			total_read += content_data.getBytesRead();
+			int c_len = len_data.getContentLength();
+			if (data.length - total_read < c_len)
+				throw new VASN1Exception("Insufficient data");
+			content = Arrays.copyOfRange(data, total_read, total_read+c_len);
+			total_read += c_len;
 		}
 		else {
 			total_read += 1;
-			byte[] _data2 = new byte[_data.length-1];
-			for (int i = 0; i < _data2.length; i++)
-				_data2[i] = _data[i+1];
-			content_data = VASN1Definition.berDecContentIndefinite(_data2);
-			total_read += content_data.getBytesRead();
+			int c_len = VASN1Definition.berDecIndefiniteLength(data, total_read, data.length-total_read);
+			content = Arrays.copyOfRange(data, total_read, total_read+c_len);
+			total_read += c_len + 2;
 		}
-		return new DecodedTaggedContent(tag, id_data.isConstructed(), content_data.getContent(),
+		return new DecodedTaggedContent(tag, id_data.isConstructed(), content,
 									    definite, shortEncoding, total_read);
 	}
 
@@ -267,6 +362,18 @@ public abstract class VASN1Definition {
 		public int getBytesRead() {
 			return bytesRead;
 		}
+		/**
+		 * Get decoded length as a content length.
+		 *
+		 * @return content length
+		 * @throws VASN1Exception length too large to decode
+		 */
+		public int getContentLength()
+				throws VASN1Exception {
+			if (!(decodedLength.getValue() instanceof Integer))
+				throw new VASN1Exception("Content structure too long to decode");
+			return decodedLength.getValue().intValue();
+		}
 	}
 
 	/**
@@ -307,14 +414,8 @@ public abstract class VASN1Definition {
 	 */
 	public static DecodedContent berDecContentIndefinite(byte[] data)
 			throws VASN1Exception {
-		for (int pos = 0; pos < data.length-1; pos++)
-			if (data[pos] == (byte)0x00 && data[pos+1] == (byte)0x00) {
-				byte[] content = new byte[pos];
-				for (int i = 0; i < pos; i++)
-					content[i] = data[i];
-				return new DecodedContent(content, pos+2);
-			}
-		throw new VASN1Exception("No content delimiter");
+		int pos = VASN1Definition.berDecIndefiniteLength(data, 0, data.length);
+		return new DecodedContent(Arrays.copyOf(data, pos), pos+2);
 	}
 
 	/**
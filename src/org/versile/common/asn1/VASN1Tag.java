@@ -189,10 +189,24 @@ public class VASN1Tag {
 	 */
 	public static Decoded fromDER(byte[] data)
 			throws VASN1Exception {
-		if (data.length == 0)
+		return VASN1Tag.fromDER(data, 0, data.length);
+	}
+
+	/**
+	 * Decodes a tag from DER encoded octet identifier data.
+	 *
+	 * @param data data holding DER encoded octet identifier
+	 * @param offset start offset of encoded data
+	 * @param length length of available data
+	 * @return decoded data
+	 * @throws VASN1Exception incomplete data
+	 */
+	public static Decoded fromDER(byte[] data, int offset, int length)
+			throws VASN1Exception {
+		if (length <= 0)
 			throw new VASN1Exception("Incomplete data");
 		int pos = 0;
-		int first = data[0] & 0xff;
+		int first = data[offset] & 0xff;
 		TagClass tag_cls = VASN1Tag.tagClassFromInt(first & 0xc0);
 		boolean is_constructed = ((first & 0x20) != 0);
 		VInteger tag_number;
@@ -202,9 +216,9 @@ public class VASN1Tag {
 			String bin_str = "0";
 			while(true) {
 				pos += 1;
-				if (pos >= data.length)
+				if (pos >= length)
 					throw new VASN1Exception("Incomplete data");
-				int next_byte = data[pos] & 0xff;
+				int next_byte = data[offset+pos] & 0xff;
 				String add_bits = Integer.toBinaryString(next_byte & 0x7f);
 				while(add_bits.length() < 7)
 					add_bits = "0" + add_bits;
@@ -40,6 +40,7 @@ import java.util.Vector;
 
 import org.versile.common.peer.VPeer;
 import org.versile.crypto.VRSAKeyPair;
+import org.versile.crypto.x509.VX509CertificateCache;
 
 
 
@@ -56,6 +57,7 @@ public class VAuth {
 	boolean validate_root;
 	Set<X509Certificate> root_certificates;
 	boolean added_public_ca = false;
+	VX509CertificateCache cert_cache = VX509CertificateCache.getDefault();
 
 	/**
 	 * Set up authorizer.
@@ -178,6 +180,26 @@ public class VAuth {
 		return result;
 	}
 
+	/**
+	 * Get the cache used for parsing and validating peer certificates.
+	 *
+	 * <p>Default is {@link VX509CertificateCache#getDefault()}.</p>
+	 *
+	 * @return certificate cache (or null if caching is disabled)
+	 */
+	public synchronized VX509CertificateCache getCertificateCache() {
+		return cert_cache;
+	}
+
+	/**
+	 * Set the cache used for parsing and validating peer certificates.
+	 *
+	 * @param cache certificate cache (or null to disable caching)
+	 */
+	public synchronized void setCertificateCache(VX509CertificateCache cache) {
+		cert_cache = cache;
+	}
+
 	/**
 	 * Get the Versile Platform public Certificate Authority keypair
 	 *
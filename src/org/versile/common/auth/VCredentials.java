@@ -20,6 +20,7 @@
 
 package org.versile.common.auth;
 
+import java.security.PublicKey;
 import java.security.cert.CertPath;
 import java.security.interfaces.RSAPublicKey;
 
@@ -29,11 +30,12 @@ import javax.security.auth.x500.X500Principal;
 /**
  * Holds a set of credentials for authentication.
  *
- * <p>May hold either or all of an RSA public key, a claimed identity, or
- * a certificate chain certifying the public key.</p>
+ * <p>May hold either or all of an RSA public key, an Ed25519 signature key,
+ * a claimed identity, or a certificate chain certifying the public key.</p>
  */
 public class VCredentials {
 	RSAPublicKey publicKey = null;
+	PublicKey signatureKey = null;
 	X500Principal identity = null;
 	CertPath certificates = null;
 
@@ -67,6 +69,22 @@ public class VCredentials {
 		this.certificates = certificates;
 	}
 
+	/**
+	 * Sets up a full set of credentials including a signature key.
+	 *
+	 * @param key public key (or null)
+	 * @param signatureKey Ed25519 signature key (or null)
+	 * @param identity claimed identity (or null)
+	 * @param certificates certificate chain for keypair (or null)
+	 */
+	public VCredentials(RSAPublicKey key, PublicKey signatureKey, X500Principal identity,
+						CertPath certificates) {
+		this.publicKey = key;
+		this.signatureKey = signatureKey;
+		this.identity = identity;
+		this.certificates = certificates;
+	}
+
 	/**
 	 * Get credentials' RSA public key.
 	 *
@@ -76,6 +94,15 @@ public class VCredentials {
 		return publicKey;
 	}
 
+	/**
+	 * Get credentials' Ed25519 signature key.
+	 *
+	 * @return signature key (or null)
+	 */
+	public PublicKey getSignatureKey() {
+		return signatureKey;
+	}
+
 	/**
 	 * Get claimed identity included with credentials.
 	 *
@@ -20,11 +20,13 @@
 
 package org.versile.common.auth;
 
+import java.security.PrivateKey;
 import java.security.cert.CertPath;
 import java.security.interfaces.RSAPrivateKey;
 
 import javax.security.auth.x500.X500Principal;
 
+import org.versile.crypto.VEd25519KeyPair;
 import org.versile.crypto.VRSAKeyPair;
 
 
@@ -32,11 +34,13 @@ import org.versile.crypto.VRSAKeyPair;
 /**
  * Holds a set of credentials for authentication.
  *
- * <p>Holds a keypair and may hold an associated claimed identity
- * and a certificate chain which certifies the keypair.</p>
+ * <p>Holds an RSA keypair and/or an Ed25519 signature keypair, and may hold
+ * an associated claimed identity and a certificate chain which certifies the
+ * keypair.</p>
  */
 public class VPrivateCredentials extends VCredentials {
 	RSAPrivateKey privateKey;
+	PrivateKey signaturePrivateKey = null;
 	X500Principal identity = null;
 	CertPath certificates = null;
 
@@ -78,6 +82,41 @@ public class VPrivateCredentials extends VCredentials {
 		this.privateKey = keypair.getPrivate();
 	}
 
+	/**
+	 * Sets up credentials with only an Ed25519 signature keypair.
+	 *
+	 * <p>Identity and certificates are set to null. Keypair must have
+	 * a value (cannot be null).</p>
+	 *
+	 * @param signatureKeypair signature keypair associated with credentials
+	 */
+	public VPrivateCredentials(VEd25519KeyPair signatureKeypair) {
+		super(null, signatureKeypair.getPublic(), null, null);
+		this.privateKey = null;
+		this.signaturePrivateKey = signatureKeypair.getPrivate();
+	}
+
+	/**
+	 * Sets up a full set of credentials with an RSA and/or Ed25519 keypair.
+	 *
+	 * <p>At least one of the keypairs must be non-null.</p>
+	 *
+	 * @param keypair RSA keypair associated with credentials (or null)
+	 * @param signatureKeypair Ed25519 keypair associated with credentials (or null)
+	 * @param identity claimed identity (or null)
+	 * @param certificates certificate chain for keypair (or null)
+	 */
+	public VPrivateCredentials(VRSAKeyPair keypair, VEd25519KeyPair signatureKeypair,
+							   X500Principal identity, CertPath certificates) {
+		super((keypair != null) ? keypair.getPublic() : null,
+			  (signatureKeypair != null) ? signatureKeypair.getPublic() : null,
+			  identity, certificates);
+		if (keypair == null && signatureKeypair == null)
+			throw new IllegalArgumentException("Credentials require a keypair");
+		this.privateKey = (keypair != null) ? keypair.getPrivate() : null;
+		this.signaturePrivateKey = (signatureKeypair != null) ? signatureKeypair.getPrivate() : null;
+	}
+
 	/**
 	 * Get the keypair associated with the credentials.
 	 *
@@ -91,4 +130,18 @@ public class VPrivateCredentials extends VCredentials {
 		else
 			return new VRSAKeyPair(publicKey, privateKey);
 	}
+
+	/**
+	 * Get the Ed25519 signature keypair associated with the credentials.
+	 *
+	 * <p>Result is null if no signature keypair is associated with the identity.</p>
+	 *
+	 * @return signature keypair (or null)
+	 */
+	public VEd25519KeyPair getSignatureKeyPair() {
+		if (signaturePrivateKey == null)
+			return null;
+		else
+			return new VEd25519KeyPair(signatureKey, signaturePrivateKey);
+	}
 }
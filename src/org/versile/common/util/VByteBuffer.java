@@ -167,6 +167,26 @@ public class VByteBuffer {
 		return result;
 	}
 
+	/**
+	 * Returns a single byte from the buffer without popping.
+	 *
+	 * @param index position of byte relative to front of the buffer
+	 * @return byte value
+	 * @throws IndexOutOfBoundsException index outside buffer data
+	 */
+	public synchronized byte peekByte(int index) {
+		if (index < 0 || index >= l_len)
+			throw new IndexOutOfBoundsException();
+		int pos = ipos + index;
+		for (byte[] item: data) {
+			if (pos < item.length)
+				return item[pos];
+			pos -= item.length;
+		}
+		// Should never happen
+		throw new IndexOutOfBoundsException();
+	}
+
 	/**
 	 * Returns all buffer data without popping it from the buffer.
 	 *
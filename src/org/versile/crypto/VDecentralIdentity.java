@@ -80,4 +80,53 @@ public final class VDecentralIdentity {
 		VRSAKeyPair keypair = VDecentralIdentity.dia(bits, purpose, personal, passphrase);
 		return new VPrivateCredentials(keypair);
 	}
+
+	/**
+	 * Generates an Ed25519 identity from Scheme A style parameters.
+	 *
+	 * <p>The key is derived from the same pseudo-random function construct as
+	 * {@link #dia(int, String, String, String)}, however it yields an Ed25519 key
+	 * for use with the VTS "x25519-ed25519" key exchange. Generation is orders of
+	 * magnitude faster than generating an RSA key. This is not a VDI scheme defined
+	 * by Versile Platform, and the resulting identity is not interchangeable with
+	 * Scheme A identities.</p>
+	 *
+	 * @param purpose 'purpose' identity parameter
+	 * @param personal 'personal' identity parameter
+	 * @param passphrase 'passphrase' identity parameter (minimum 10 characters)
+	 * @return generated identity
+	 * @throws VCryptoException illegal parameters or unable to generate
+	 */
+	static public VEd25519KeyPair diaEd25519(String purpose, String personal, String passphrase)
+			throws VCryptoException {
+		if (passphrase.length() < 10)
+			throw new VCryptoException("Passphrase must be minimum 10 characters");
+		String in_str = "Purpose:" + purpose + ":Personal:" + personal;
+		in_str += ":Passphrase:" + passphrase + ":Scheme:dia-ed25519";
+		byte[] prf_input = null;
+		try {
+			prf_input = in_str.getBytes("utf8");
+		} catch (UnsupportedEncodingException e) {
+			throw new VCryptoException("Internal conversion error");
+		}
+		VHash sha256 = VHash.getHashGenerator("sha256");
+		VByteGenerator pseudo_rand = new VPseudoRandomHMAC(sha256, new byte[0], prf_input);
+		return VEd25519KeyPair.generate(pseudo_rand);
+	}
+
+	/**
+	 * Generates an Ed25519 identity from Scheme A style parameters.
+	 *
+	 * @param purpose 'purpose' identity parameter
+	 * @param personal 'personal' identity parameter
+	 * @param passphrase 'passphrase' identity parameter (minimum 10 characters)
+	 * @return generated identity as a credentials object
+	 * @throws VCryptoException illegal parameters or unable to generate
+	 * @see #diaEd25519(String, String, String)
+	 */
+	static public VPrivateCredentials diaEd25519Credentials(String purpose, String personal, String passphrase)
+			throws VCryptoException {
+		VEd25519KeyPair keypair = VDecentralIdentity.diaEd25519(purpose, personal, passphrase);
+		return new VPrivateCredentials(keypair);
+	}
 }
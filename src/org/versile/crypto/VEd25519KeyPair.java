@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.crypto;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+
+import org.versile.common.util.VByteGenerator;
+
+
+
+/**
+ * Ed25519 signature key pair.
+ *
+ * <p>Ed25519 keys can be used instead of RSA keys for identifying a peer in
+ * a VTS handshake which negotiates the "x25519-ed25519" key exchange. Key
+ * generation and signatures are much cheaper than for RSA keys of comparable
+ * strength.</p>
+ *
+ * <p>Keys are handled by the Java runtime's built-in providers, which requires
+ * a Java 15 or later runtime. Use {@link #isSupported()} to check whether
+ * Ed25519 is available.</p>
+ */
+public class VEd25519KeyPair {
+
+	/**
+	 * Length of a raw Ed25519 public key (in bytes).
+	 */
+	public static final int KEY_LENGTH = 32;
+
+	// X.509 SubjectPublicKeyInfo DER prefix of an Ed25519 public key
+	static final byte[] SPKI_PREFIX = new byte[] {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b,
+												  0x65, 0x70, 0x03, 0x21, 0x00};
+
+	PublicKey pub_key;
+	PrivateKey priv_key;
+
+	/**
+	 * Set up key pair.
+	 *
+	 * @param pubKey public key component
+	 * @param privKey private key component
+	 */
+	public VEd25519KeyPair(PublicKey pubKey, PrivateKey privKey) {
+		if (!VEd25519KeyPair.isEd25519(pubKey.getAlgorithm())
+			|| !VEd25519KeyPair.isEd25519(privKey.getAlgorithm()))
+			throw new RuntimeException("Not an Ed25519 key pair");
+		pub_key = pubKey;
+		priv_key = privKey;
+	}
+
+	/**
+	 * Get the public key component.
+	 *
+	 * @return public key
+	 */
+	public PublicKey getPublic() {
+		return pub_key;
+	}
+
+	/**
+	 * Get the private key component.
+	 *
+	 * @return private key
+	 */
+	public PrivateKey getPrivate() {
+		return priv_key;
+	}
+
+	/**
+	 * Exports held public key as a raw 32-byte Ed25519 key.
+	 *
+	 * @return exported key
+	 * @throws VCryptoException key export error
+	 */
+	public byte[] exportPublicRaw()
+			throws VCryptoException {
+		return VEd25519KeyPair.exportRaw(pub_key);
+	}
+
+	/**
+	 * Signs data with the held private key.
+	 *
+	 * @param data data to sign
+	 * @return signature
+	 * @throws VCryptoException signature error
+	 */
+	public byte[] sign(byte[] data)
+			throws VCryptoException {
+		try {
+			Signature signer = Signature.getInstance("Ed25519");
+			signer.initSign(priv_key);
+			signer.update(data);
+			return signer.sign();
+		} catch (Exception e) {
+			throw new VCryptoException(e);
+		}
+	}
+
+	/**
+	 * Validates an Ed25519 signature.
+	 *
+	 * @param key public key of signing party
+	 * @param data signed data
+	 * @param signature signature to validate
+	 * @return true if signature is valid
+	 */
+	public static boolean verify(PublicKey key, byte[] data, byte[] signature) {
+		try {
+			Signature verifier = Signature.getInstance("Ed25519");
+			verifier.initVerify(key);
+			verifier.update(data);
+			return verifier.verify(signature);
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Generates a key pair from the system's default secure random source.
+	 *
+	 * @return generated key pair
+	 * @throws VCryptoException Ed25519 not supported
+	 */
+	public static VEd25519KeyPair generate()
+			throws VCryptoException {
+		try {
+			KeyPairGenerator gen = KeyPairGenerator.getInstance("Ed25519");
+			KeyPair pair = gen.generateKeyPair();
+			return new VEd25519KeyPair(pair.getPublic(), pair.getPrivate());
+		} catch (Exception e) {
+			throw new VCryptoException(e);
+		}
+	}
+
+	/**
+	 * Generates a key pair from a byte generator.
+	 *
+	 * <p>The 32-byte private key seed is read from the generator, so a
+	 * deterministic generator produces a deterministic key pair.</p>
+	 *
+	 * @param generator source of private key seed data
+	 * @return generated key pair
+	 * @throws VCryptoException Ed25519 not supported
+	 */
+	public static VEd25519KeyPair generate(VByteGenerator generator)
+			throws VCryptoException {
+		try {
+			KeyPairGenerator gen = KeyPairGenerator.getInstance("Ed25519");
+			gen.initialize(255, new GeneratorRandom(generator));
+			KeyPair pair = gen.generateKeyPair();
+			return new VEd25519KeyPair(pair.getPublic(), pair.getPrivate());
+		} catch (Exception e) {
+			throw new VCryptoException(e);
+		}
+	}
+
+	/**
+	 * Exports a public key as a raw 32-byte Ed25519 key.
+	 *
+	 * @param key key to export
+	 * @return exported key
+	 * @throws VCryptoException key is not an Ed25519 key
+	 */
+	public static byte[] exportRaw(PublicKey key)
+			throws VCryptoException {
+		return VEd25519KeyPair.rawFromSpki(key, SPKI_PREFIX);
+	}
+
+	/**
+	 * Imports a public key from a raw 32-byte Ed25519 key.
+	 *
+	 * @param data raw key data
+	 * @return imported key
+	 * @throws VCryptoException key import error
+	 */
+	public static PublicKey importRaw(byte[] data)
+			throws VCryptoException {
+		return VEd25519KeyPair.spkiFromRaw("Ed25519", data, SPKI_PREFIX);
+	}
+
+	/**
+	 * Checks whether the Java runtime supports Ed25519.
+	 *
+	 * @return true if supported
+	 */
+	public static boolean isSupported() {
+		try {
+			Signature.getInstance("Ed25519");
+			KeyFactory.getInstance("Ed25519");
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	static boolean isEd25519(String algorithm) {
+		return algorithm.equals("Ed25519") || algorithm.equals("EdDSA");
+	}
+
+	static byte[] rawFromSpki(PublicKey key, byte[] prefix)
+			throws VCryptoException {
+		byte[] der = key.getEncoded();
+		if (der == null || der.length != prefix.length + KEY_LENGTH)
+			throw new VCryptoException("Invalid key encoding");
+		for (int i = 0; i < prefix.length; i++)
+			if (der[i] != prefix[i])
+				throw new VCryptoException("Invalid key encoding");
+		byte[] result = new byte[KEY_LENGTH];
+		System.arraycopy(der, prefix.length, result, 0, KEY_LENGTH);
+		return result;
+	}
+
+	static PublicKey spkiFromRaw(String algorithm, byte[] data, byte[] prefix)
+			throws VCryptoException {
+		if (data.length != KEY_LENGTH)
+			throw new VCryptoException("Raw key must be " + KEY_LENGTH + " bytes");
+		byte[] der = new byte[prefix.length + KEY_LENGTH];
+		System.arraycopy(prefix, 0, der, 0, prefix.length);
+		System.arraycopy(data, 0, der, prefix.length, KEY_LENGTH);
+		try {
+			KeyFactory factory = KeyFactory.getInstance(algorithm);
+			return factory.generatePublic(new X509EncodedKeySpec(der));
+		} catch (Exception e) {
+			throw new VCryptoException(e);
+		}
+	}
+
+	// Adapter for feeding byte generator data to a JCA key pair generator
+	static class GeneratorRandom extends SecureRandom {
+		private static final long serialVersionUID = 4513294617732617563L;
+		VByteGenerator generator;
+		public GeneratorRandom(VByteGenerator generator) {
+			this.generator = generator;
+		}
+		@Override
+		public synchronized void nextBytes(byte[] bytes) {
+			byte[] data = generator.getBytes(bytes.length);
+			System.arraycopy(data, 0, bytes, 0, bytes.length);
+		}
+		@Override
+		public synchronized void setSeed(byte[] seed) {
+			// Seeding is ignored, data is provided by the byte generator
+		}
+		@Override
+		public void setSeed(long seed) {
+			// Seeding is ignored, data is provided by the byte generator
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.crypto;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import javax.crypto.KeyAgreement;
+
+
+
+/**
+ * Ephemeral X25519 key agreement key pair.
+ *
+ * <p>Used for Elliptic Curve Diffie-Hellman key agreement in the
+ * "x25519-ed25519" VTS key exchange. A key pair should be generated for a
+ * single key agreement and then discarded.</p>
+ *
+ * <p>Keys are handled by the Java runtime's built-in providers, which requires
+ * a Java 11 or later runtime. Use {@link #isSupported()} to check whether
+ * X25519 is available.</p>
+ */
+public class VX25519KeyPair {
+
+	// X.509 SubjectPublicKeyInfo DER prefix of an X25519 public key
+	static final byte[] SPKI_PREFIX = new byte[] {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b,
+												  0x65, 0x6e, 0x03, 0x21, 0x00};
+
+	PublicKey pub_key;
+	PrivateKey priv_key;
+
+	VX25519KeyPair(PublicKey pubKey, PrivateKey privKey) {
+		pub_key = pubKey;
+		priv_key = privKey;
+	}
+
+	/**
+	 * Get the public key component.
+	 *
+	 * @return public key
+	 */
+	public PublicKey getPublic() {
+		return pub_key;
+	}
+
+	/**
+	 * Exports held public key as a raw 32-byte X25519 key.
+	 *
+	 * @return exported key
+	 * @throws VCryptoException key export error
+	 */
+	public byte[] exportPublicRaw()
+			throws VCryptoException {
+		return VEd25519KeyPair.rawFromSpki(pub_key, SPKI_PREFIX);
+	}
+
+	/**
+	 * Performs key agreement with a peer's public key.
+	 *
+	 * @param peerKey peer's raw 32-byte X25519 public key
+	 * @return shared secret
+	 * @throws VCryptoException invalid peer key or key agreement error
+	 */
+	public byte[] agree(byte[] peerKey)
+			throws VCryptoException {
+		PublicKey _peer_key = VEd25519KeyPair.spkiFromRaw("XDH", peerKey, SPKI_PREFIX);
+		byte[] result = null;
+		try {
+			KeyAgreement agreement = KeyAgreement.getInstance("XDH");
+			agreement.init(priv_key);
+			agreement.doPhase(_peer_key, true);
+			result = agreement.generateSecret();
+		} catch (Exception e) {
+			throw new VCryptoException(e);
+		}
+
+		// Reject all-zero output from small-order peer points
+		int acc = 0;
+		for (byte b: result)
+			acc |= b;
+		if (acc == 0)
+			throw new VCryptoException("Invalid peer key");
+		return result;
+	}
+
+	/**
+	 * Generates an ephemeral key pair.
+	 *
+	 * @return generated key pair
+	 * @throws VCryptoException X25519 not supported
+	 */
+	public static VX25519KeyPair generate()
+			throws VCryptoException {
+		try {
+			KeyPairGenerator gen = KeyPairGenerator.getInstance("X25519");
+			KeyPair pair = gen.generateKeyPair();
+			return new VX25519KeyPair(pair.getPublic(), pair.getPrivate());
+		} catch (Exception e) {
+			throw new VCryptoException(e);
+		}
+	}
+
+	/**
+	 * Checks whether the Java runtime supports X25519.
+	 *
+	 * @return true if supported
+	 */
+	public static boolean isSupported() {
+		try {
+			KeyPairGenerator.getInstance("X25519");
+			KeyAgreement.getInstance("XDH");
+			KeyFactory.getInstance("XDH");
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.crypto.x509;
+
+import java.io.ByteArrayInputStream;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.security.SignatureException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.versile.crypto.VCryptoException;
+
+
+/**
+ * Cache of parsed X.509 certificates and verified certificate signatures.
+ *
+ * <p>Holds certificates keyed by a SHA-256 hash of their DER encoding, so
+ * certificate chains which are presented repeatedly (e.g. by peers which
+ * reconnect) are only parsed once. Also records successful verifications of a
+ * certificate's signature against an issuer key, so the same chain link is
+ * only verified once. Failed verifications are never cached.</p>
+ *
+ * <p>Entries expire after a time-to-live or when the certificate's validity
+ * period ends, whichever comes first. The cache holds a bounded number of
+ * entries of each kind; when the bound is exceeded expired entries are purged
+ * first, followed by arbitrary entries. The cache is thread safe and can be
+ * shared between channels.</p>
+ */
+public class VX509CertificateCache {
+
+	int max_entries;
+	long ttl;
+
+	Map<Key, Entry> certs;
+	Map<Key, Entry> natives;
+	Map<Key, Long> verified;
+	AtomicInteger num_puts;
+
+	static VX509CertificateCache default_cache = new VX509CertificateCache(1024, 3600000L);
+
+	/**
+	 * Set up cache.
+	 *
+	 * @param maxEntries max number of entries of each kind (if zero or negative nothing is cached)
+	 * @param ttl max time in milliseconds an entry is held
+	 */
+	public VX509CertificateCache(int maxEntries, long ttl) {
+		this.max_entries = maxEntries;
+		this.ttl = ttl;
+		certs = new ConcurrentHashMap<Key, Entry>();
+		natives = new ConcurrentHashMap<Key, Entry>();
+		verified = new ConcurrentHashMap<Key, Long>();
+		num_puts = new AtomicInteger();
+	}
+
+	/**
+	 * Imports certificate from a DER representation.
+	 *
+	 * <p>Returns a cached certificate if the same DER data was previously imported.</p>
+	 *
+	 * @param der DER representation
+	 * @return imported certificate
+	 * @throws VCryptoException import error
+	 */
+	public VX509Certificate importDer(byte[] der)
+			throws VCryptoException {
+		Key key = new Key(VX509CertificateCache.hash(der, null));
+		Entry entry = certs.get(key);
+		long now = System.currentTimeMillis();
+		if (entry != null && entry.expires > now && Arrays.equals(entry.der, der))
+			return (VX509Certificate) entry.value;
+
+		VX509Certificate result = VX509Certificate.importDer(der);
+		long expires = now + ttl;
+		try {
+			long not_after = result.getNotValidAfter().getDate().getTime();
+			if (not_after < expires)
+				expires = not_after;
+		} catch (Exception e) {
+			// Validity could not be resolved, rely on ttl only
+		}
+		this.put(certs, key, new Entry(der, result, expires), now);
+		return result;
+	}
+
+	/**
+	 * Imports a native certificate from a DER representation.
+	 *
+	 * <p>Returns a cached certificate if the same DER data was previously imported.</p>
+	 *
+	 * @param der DER representation
+	 * @return imported certificate
+	 * @throws CertificateException import error
+	 */
+	public X509Certificate importNative(byte[] der)
+			throws CertificateException {
+		Key key = new Key(VX509CertificateCache.hash(der, null));
+		Entry entry = natives.get(key);
+		long now = System.currentTimeMillis();
+		if (entry != null && entry.expires > now && Arrays.equals(entry.der, der))
+			return (X509Certificate) entry.value;
+
+		CertificateFactory cf = CertificateFactory.getInstance("X.509");
+		X509Certificate result = (X509Certificate) cf.generateCertificate(new ByteArrayInputStream(der));
+		long expires = Math.min(now + ttl, result.getNotAfter().getTime());
+		this.put(natives, key, new Entry(der, result, expires), now);
+		return result;
+	}
+
+	/**
+	 * Verifies a certificate's signature against an issuer key.
+	 *
+	 * <p>Performs the same validation as {@link X509Certificate#verify(PublicKey)},
+	 * skipping the signature check if the same certificate was previously
+	 * verified with the same key.</p>
+	 *
+	 * @param certificate certificate to verify
+	 * @param key issuer public key
+	 * @throws CertificateException encoding error
+	 * @throws NoSuchAlgorithmException unsupported signature algorithm
+	 * @throws InvalidKeyException incorrect key
+	 * @throws NoSuchProviderException no default provider
+	 * @throws SignatureException signature error
+	 */
+	public void verify(X509Certificate certificate, PublicKey key)
+			throws CertificateException, NoSuchAlgorithmException, InvalidKeyException,
+			       NoSuchProviderException, SignatureException {
+		Key v_key = new Key(VX509CertificateCache.hash(certificate.getEncoded(), key.getEncoded()));
+		Long expires = verified.get(v_key);
+		long now = System.currentTimeMillis();
+		if (expires != null && expires > now)
+			return;
+
+		certificate.verify(key);
+		long _expires = Math.min(now + ttl, certificate.getNotAfter().getTime());
+		this.put(verified, v_key, _expires, now);
+	}
+
+	/**
+	 * Verify the key that was used for signing a certificate.
+	 *
+	 * <p>Performs the same check as {@link VX509Certificate#isSignedWith(RSAPublicKey)},
+	 * skipping the signature check if the certificate was previously found to be
+	 * signed with the same key.</p>
+	 *
+	 * @param certificate certificate to check
+	 * @param signingKey signing key to test
+	 * @return true if provided key matches with certificate's signature
+	 * @throws VCryptoException unable to resolve
+	 */
+	public boolean isSignedWith(VX509Certificate certificate, RSAPublicKey signingKey)
+			throws VCryptoException {
+		Key v_key = new Key(VX509CertificateCache.hash(certificate.exportDer(), signingKey.getEncoded()));
+		Long expires = verified.get(v_key);
+		long now = System.currentTimeMillis();
+		if (expires != null && expires > now)
+			return true;
+
+		if (!certificate.isSignedWith(signingKey))
+			return false;
+		long _expires = now + ttl;
+		try {
+			long not_after = certificate.getNotValidAfter().getDate().getTime();
+			if (not_after < _expires)
+				_expires = not_after;
+		} catch (Exception e) {
+			// Validity could not be resolved, rely on ttl only
+		}
+		this.put(verified, v_key, _expires, now);
+		return true;
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		certs.clear();
+		natives.clear();
+		verified.clear();
+	}
+
+	/**
+	 * Get a default cache shared by the framework.
+	 *
+	 * <p>The default cache holds up to 1024 entries of each kind with a
+	 * time-to-live of one hour.</p>
+	 *
+	 * @return default cache
+	 */
+	public static VX509CertificateCache getDefault() {
+		return default_cache;
+	}
+
+	<V> void put(Map<Key, V> map, Key key, V value, long now) {
+		if (max_entries <= 0)
+			return;
+		map.put(key, value);
+
+		// Purge periodically, or when bound is exceeded
+		if (map.size() > max_entries || (num_puts.incrementAndGet() % 256) == 0) {
+			Iterator<Map.Entry<Key, V>> iter = map.entrySet().iterator();
+			while (iter.hasNext()) {
+				V item = iter.next().getValue();
+				long expires = (item instanceof Entry) ? ((Entry)item).expires : (Long)item;
+				if (expires <= now)
+					iter.remove();
+			}
+			iter = map.entrySet().iterator();
+			while (map.size() > max_entries && iter.hasNext()) {
+				iter.next();
+				iter.remove();
+			}
+		}
+	}
+
+	static byte[] hash(byte[] data, byte[] extra) {
+		MessageDigest digester;
+		try {
+			digester = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Should never happen
+			throw new RuntimeException(e);
+		}
+		digester.update(data);
+		if (extra != null) {
+			// Length prefix separates the certificate from the key data
+			digester.update(new byte[] {(byte)(data.length >>> 24), (byte)(data.length >>> 16),
+										(byte)(data.length >>> 8), (byte)data.length});
+			digester.update(extra);
+		}
+		return digester.digest();
+	}
+
+	static class Key {
+		byte[] digest;
+		int hash_code;
+
+		public Key(byte[] digest) {
+			this.digest = digest;
+			this.hash_code = Arrays.hashCode(digest);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			return Arrays.equals(digest, ((Key)other).digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash_code;
+		}
+	}
+
+	static class Entry {
+		byte[] der;
+		Object value;
+		long expires;
+
+		public Entry(byte[] der, Object value, long expires) {
+			this.der = der.clone();
+			this.value = value;
+			this.expires = expires;
+		}
+	}
+}
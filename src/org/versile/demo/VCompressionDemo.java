@@ -0,0 +1,323 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.demo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.versile.common.util.VByteBuffer;
+import org.versile.reactor.VReactor;
+import org.versile.reactor.VReactorFunction;
+import org.versile.reactor.io.VByteConsumer;
+import org.versile.reactor.io.VByteProducer;
+import org.versile.reactor.io.VIOControl;
+import org.versile.reactor.io.vcomp.VCompressionChannel;
+import org.versile.reactor.io.vcomp.VCompressionChannelConfig;
+
+
+/**
+ * Checks {@link VCompressionChannel} framing with fragmented input.
+ *
+ * <p>For each codec, passes a block of partly compressible and partly random
+ * data through the compressing side of a channel and collects the compressed
+ * stream. The compressed stream is then fed to the decompressing side of
+ * another channel one byte at a time, so every frame header and frame is split
+ * across consume calls, and the decompressed data is compared with the original
+ * data. Usage:</p>
+ *
+ * <pre>
+ *   VCompressionDemo [num_bytes [codec ...]]
+ * </pre>
+ *
+ * <p>This class is intended for testing and demonstration only and is not
+ * formally part of the Versile Java framework.</p>
+ */
+public class VCompressionDemo {
+
+	/**
+	 * Max time for a single pass through a channel (ms).
+	 */
+	public static final long TIMEOUT = 60000L;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args command line arguments
+	 * @throws Exception error setting up test
+	 */
+	public static void main(String[] args)
+		throws Exception {
+		int num_bytes = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+		String[] codecs = new String[] {VCompressionChannel.DEFLATE, VCompressionChannel.LZ4};
+		if (args.length > 1)
+			codecs = Arrays.copyOfRange(args, 1, args.length);
+
+		byte[] data = VCompressionDemo.testData(num_bytes);
+		boolean failed = false;
+		for (String codec: codecs) {
+			byte[] compressed = VCompressionDemo.transfer(codec, data, true, data.length);
+			byte[] decompressed = null;
+			if (compressed != null)
+				decompressed = VCompressionDemo.transfer(codec, compressed, false, 1);
+			if (decompressed == null) {
+				System.out.println(codec + ": transfer did not complete");
+				failed = true;
+			}
+			else if (!Arrays.equals(data, decompressed)) {
+				System.out.println(codec + ": decompressed data does not match");
+				failed = true;
+			}
+			else
+				System.out.println(codec + ": OK, " + data.length + " bytes compressed to "
+								   + compressed.length + " bytes, decoded one byte at a time");
+		}
+		if (failed)
+			System.exit(1);
+	}
+
+	/**
+	 * Passes data through one side of a compression channel.
+	 *
+	 * @param codec compression codec
+	 * @param data input data
+	 * @param compress if true compress, otherwise decompress
+	 * @param chunkLength max bytes passed per consume call
+	 * @return output data (or null if not completed)
+	 * @throws Exception error setting up test
+	 */
+	public static byte[] transfer(String codec, byte[] data, boolean compress, int chunkLength)
+		throws Exception {
+		VReactor reactor = new VReactor(null);
+		reactor.setDaemon(true);
+		reactor.start();
+
+		final VCompressionChannel channel = new VCompressionChannel(reactor, codec,
+																	new VCompressionChannelConfig());
+		final Source source = new Source(reactor, data, chunkLength);
+		final Sink sink = new Sink(reactor);
+		final boolean _compress = compress;
+		class Job implements VReactorFunction {
+			@Override
+			public Object execute() throws Exception {
+				if (_compress) {
+					sink.attach(channel.getCompressedProducer());
+					source.attach(channel.getPlaintextConsumer());
+				}
+				else {
+					sink.attach(channel.getPlaintextProducer());
+					source.attach(channel.getCompressedConsumer());
+				}
+				return null;
+			}
+		}
+		reactor.schedule(new Job());
+
+		byte[] result = null;
+		synchronized(sink) {
+			long end_t = System.currentTimeMillis() + TIMEOUT;
+			while (!sink.done) {
+				long wait_t = end_t - System.currentTimeMillis();
+				if (wait_t <= 0)
+					break;
+				sink.wait(wait_t);
+			}
+			if (sink.done && sink.clean)
+				result = sink.data.toByteArray();
+		}
+
+		reactor.stopReactor();
+		return result;
+	}
+
+	// Generates alternating blocks of compressible and random data
+	static byte[] testData(int numBytes) {
+		byte[] result = new byte[numBytes];
+		byte[] text = "The quick brown fox jumps over the lazy dog. ".getBytes();
+		Random random = new Random(0);
+		int pos = 0;
+		while (pos < numBytes) {
+			int len = Math.min(1 + random.nextInt(20000), numBytes - pos);
+			if (random.nextBoolean()) {
+				for (int i = 0; i < len; i++)
+					result[pos+i] = text[(pos+i) % text.length];
+			}
+			else {
+				byte[] block = new byte[len];
+				random.nextBytes(block);
+				System.arraycopy(block, 0, result, pos, len);
+			}
+			pos += len;
+		}
+		return result;
+	}
+
+	// Produces data in chunks, then signals end-of-data
+	static class Source implements VByteProducer {
+		VReactor reactor;
+		VByteConsumer consumer = null;
+		byte[] data;
+		int chunk_len;
+		int produced = 0;
+		boolean sent_eod = false;
+
+		public Source(VReactor reactor, byte[] data, int chunkLength) {
+			this.reactor = reactor;
+			this.data = data;
+			this.chunk_len = chunkLength;
+		}
+
+		@Override
+		public void canProduce(long limit)
+			throws IOException {
+			while (consumer != null && produced < data.length && (limit < 0 || produced < limit)) {
+				int num = Math.min(chunk_len, data.length - produced);
+				if (limit >= 0)
+					num = (int)Math.min(num, limit - produced);
+				byte[] chunk = Arrays.copyOfRange(data, produced, produced + num);
+				produced += num;
+				limit = consumer.consume(new VByteBuffer(chunk));
+			}
+			if (consumer != null && produced == data.length && !sent_eod) {
+				sent_eod = true;
+				consumer.endConsume(true);
+			}
+		}
+
+		@Override
+		public void abort() {
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer)
+			throws IOException {
+			this.attach(consumer, false);
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer, boolean safe)
+			throws IOException {
+			this.consumer = consumer;
+			consumer.attach(this, true);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			consumer = null;
+		}
+
+		@Override
+		public VByteConsumer getConsumer() {
+			return consumer;
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return new VIOControl();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return reactor;
+		}
+	}
+
+	// Collects received data until end-of-data
+	static class Sink implements VByteConsumer {
+		VReactor reactor;
+		VByteProducer producer = null;
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		long consumed = 0;
+		boolean done = false;
+		boolean clean = false;
+
+		public Sink(VReactor reactor) {
+			this.reactor = reactor;
+		}
+
+		@Override
+		public long consume(VByteBuffer data)
+			throws IOException {
+			byte[] _data = data.popAll();
+			this.data.write(_data);
+			consumed += _data.length;
+			return consumed + 65536;
+		}
+
+		@Override
+		public synchronized void endConsume(boolean clean) {
+			this.clean = clean;
+			done = true;
+			this.notifyAll();
+		}
+
+		@Override
+		public synchronized void abort() {
+			done = true;
+			this.notifyAll();
+		}
+
+		@Override
+		public void attach(VByteProducer producer)
+			throws IOException {
+			this.attach(producer, false);
+		}
+
+		@Override
+		public void attach(VByteProducer producer, boolean safe)
+			throws IOException {
+			this.producer = producer;
+			producer.attach(this, true);
+			producer.canProduce(65536);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			producer = null;
+		}
+
+		@Override
+		public VByteProducer getProducer() {
+			return producer;
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return new VIOControl();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return reactor;
+		}
+	}
+}
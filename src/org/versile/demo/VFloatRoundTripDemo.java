@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.demo;
+
+import java.util.Random;
+
+import org.versile.common.util.VByteBuffer;
+import org.versile.orb.entity.VEntity;
+import org.versile.orb.entity.VEntityError;
+import org.versile.orb.entity.VEntityReader;
+import org.versile.orb.entity.VEntityReaderException;
+import org.versile.orb.entity.VFloat;
+import org.versile.orb.entity.VIOContext;
+
+
+/**
+ * Checks {@link VFloat} round trips of double values.
+ *
+ * <p>Serializes edge case values (zero, subnormals, {@link Double#MIN_VALUE},
+ * {@link Double#MIN_NORMAL}, {@link Double#MAX_VALUE} and float limits) and
+ * random doubles, and decodes the data with both the generic entity reader and
+ * the VFloat reader, both in a single read and fed to the reader one byte at a
+ * time. The decoded native value must equal the original value. Negative zero is expected to decode as
+ * zero, as the VFloat format has no signed zero. Also checks that NaN and
+ * infinity are rejected. Usage:</p>
+ *
+ * <pre>
+ *   VFloatRoundTripDemo [num_random]
+ * </pre>
+ *
+ * <p>This class is intended for testing and demonstration only and is not
+ * formally part of the Versile Java framework.</p>
+ */
+public class VFloatRoundTripDemo {
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args command line arguments
+	 * @throws Exception error performing check
+	 */
+	public static void main(String[] args)
+		throws Exception {
+		int num_random = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+		double[] edge_values = new double[] {0.0, -0.0, 1.0, -1.0, 0.5, -1.5, Math.PI, 1e-300,
+											 Double.MIN_VALUE, -Double.MIN_VALUE,
+											 2*Double.MIN_VALUE, 1e-310, -1e-320,
+											 Double.longBitsToDouble(0x000fffffffffffffL), Double.MIN_NORMAL,
+											 -Double.MIN_NORMAL, Math.nextUp(Double.MIN_NORMAL),
+											 Double.MAX_VALUE, -Double.MAX_VALUE,
+											 Double.longBitsToDouble(0x7fefffffffffffffL - 1),
+											 Float.MIN_VALUE, Float.MIN_NORMAL, Float.MAX_VALUE,
+											 -Float.MAX_VALUE};
+		int failures = 0;
+		for (double value: edge_values)
+			if (!VFloatRoundTripDemo.check(value))
+				failures++;
+
+		// Random bit patterns cover all exponents, random mantissas cover subnormals
+		Random random = new Random(0);
+		int num_checked = edge_values.length;
+		for (int i = 0; i < num_random; i++) {
+			long bits = random.nextLong();
+			if ((i % 4) == 0)
+				bits &= 0x800fffffffffffffL;
+			double value = Double.longBitsToDouble(bits);
+			if (Double.isNaN(value) || Double.isInfinite(value))
+				continue;
+			if (!VFloatRoundTripDemo.check(value))
+				failures++;
+			num_checked++;
+		}
+		System.out.println("Round trips: " + num_checked + " values, " + failures + " failures");
+
+		double[] non_finite = new double[] {Double.NaN, Double.POSITIVE_INFINITY,
+											Double.NEGATIVE_INFINITY};
+		for (double value: non_finite) {
+			boolean rejected = true;
+			try {
+				VFloat.fromDouble(value);
+				rejected = false;
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+			try {
+				VFloat.valueOf(value);
+				rejected = false;
+			} catch (VEntityError e) {
+				// Expected
+			}
+			try {
+				VFloat.valueOf((float)value);
+				rejected = false;
+			} catch (VEntityError e) {
+				// Expected
+			}
+			try {
+				VEntity._v_lazy(value);
+				rejected = false;
+			} catch (VEntityError e) {
+				// Expected
+			}
+			if (!rejected) {
+				System.out.println(value + ": not rejected");
+				failures++;
+			}
+		}
+		System.out.println("Non-finite values: " + non_finite.length + " values checked");
+
+		if (failures > 0) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Checks round trips of a single value.
+	 *
+	 * @param value value to check
+	 * @return true if all round trips returned the expected value
+	 */
+	public static boolean check(double value) {
+		Double expected = (value == 0.0) ? 0.0 : value;
+		VIOContext ctx = new VIOContext();
+		byte[] data = VFloat.fromDouble(value)._v_write(ctx);
+		for (boolean generic: new boolean[] {true, false}) {
+			for (boolean bytewise: new boolean[] {false, true}) {
+				VEntityReader reader = generic ? VEntity._v_reader(ctx) : VFloat._v_reader(ctx);
+				Object result;
+				try {
+					result = VFloatRoundTripDemo.decode(reader, data, bytewise)._v_native();
+				} catch (Exception e) {
+					result = e;
+				}
+				if (!expected.equals(result)) {
+					System.out.println(value + ": decoded as " + result + " (generic=" + generic
+									   + ", bytewise=" + bytewise + ")");
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	// Decodes serialized data, optionally passing it to the reader one byte at a time
+	static VEntity decode(VEntityReader reader, byte[] data, boolean bytewise)
+		throws VEntityReaderException {
+		if (bytewise) {
+			for (int i = 0; i < data.length; i++) {
+				if (reader.done())
+					throw new VEntityReaderException("Reader completed before end of data");
+				reader.read(new VByteBuffer(new byte[] {data[i]}));
+			}
+		}
+		else {
+			VByteBuffer buf = new VByteBuffer(data);
+			reader.read(buf);
+			if (buf.hasData())
+				throw new VEntityReaderException("Reader did not consume all data");
+		}
+		if (!reader.done())
+			throw new VEntityReaderException("Incomplete data");
+		return reader.getResult();
+	}
+}
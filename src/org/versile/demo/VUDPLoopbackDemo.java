@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.demo;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.versile.common.util.VByteBuffer;
+import org.versile.reactor.VReactor;
+import org.versile.reactor.VReactorFunction;
+import org.versile.reactor.io.VByteConsumer;
+import org.versile.reactor.io.VByteProducer;
+import org.versile.reactor.io.VIOControl;
+import org.versile.reactor.io.vudp.VUDPCongestionControl;
+import org.versile.reactor.io.vudp.VUDPTransport;
+import org.versile.reactor.io.vudp.VUDPTransportConfig;
+
+
+/**
+ * Compares {@link VUDPTransport} congestion control algorithms on loopback.
+ *
+ * <p>Sets up two transports on the loopback interface, connected via a relay
+ * which adds a fixed one-way delay and drops datagrams with a given
+ * probability, and measures the time to transfer a block of data with each
+ * congestion control algorithm. Usage:</p>
+ *
+ * <pre>
+ *   VUDPLoopbackDemo [delay_ms [loss [num_bytes [algorithm ...]]]]
+ * </pre>
+ *
+ * <p>This class is intended for testing and demonstration only and is not
+ * formally part of the Versile Java framework.</p>
+ */
+public class VUDPLoopbackDemo {
+
+	/**
+	 * Max time for a single transfer (ms).
+	 */
+	public static final long TIMEOUT = 120000L;
+
+	/**
+	 * Runs the comparison.
+	 *
+	 * @param args command line arguments
+	 * @throws Exception error setting up test
+	 */
+	public static void main(String[] args)
+		throws Exception {
+		long delay = (args.length > 0) ? Long.parseLong(args[0]) : 10L;
+		double loss = (args.length > 1) ? Double.parseDouble(args[1]) : 0.01;
+		long num_bytes = (args.length > 2) ? Long.parseLong(args[2]) : 4000000L;
+		String[] names = new String[] {VUDPCongestionControl.RENO, VUDPCongestionControl.CUBIC,
+									   VUDPCongestionControl.BBR};
+		if (args.length > 3)
+			names = Arrays.copyOfRange(args, 3, args.length);
+
+		System.out.println("delay " + delay + " ms, loss " + loss + ", " + num_bytes + " bytes");
+		for (String name: names) {
+			long t = VUDPLoopbackDemo.transfer(name, delay, loss, num_bytes);
+			if (t < 0)
+				System.out.println(name + ": transfer did not complete");
+			else {
+				double rate = (num_bytes/1000.0)/(t/1000.0);
+				System.out.println(name + ": " + t + " ms, " + (long)rate + " kB/s");
+			}
+		}
+	}
+
+	/**
+	 * Performs a single transfer.
+	 *
+	 * @param congestionControl congestion control name
+	 * @param delay one-way delay (ms)
+	 * @param loss probability of dropping a datagram
+	 * @param numBytes number of bytes to transfer
+	 * @return transfer time in milliseconds (negative if not completed)
+	 * @throws Exception error setting up test
+	 */
+	public static long transfer(String congestionControl, long delay, double loss, long numBytes)
+		throws Exception {
+		VReactor reactor = new VReactor(null);
+		reactor.setDaemon(true);
+		reactor.start();
+
+		DatagramChannel c1 = DatagramChannel.open();
+		c1.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+		DatagramChannel c2 = DatagramChannel.open();
+		c2.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+		Relay relay = new Relay(delay, loss);
+		relay.start((InetSocketAddress)c1.socket().getLocalSocketAddress(),
+					(InetSocketAddress)c2.socket().getLocalSocketAddress());
+
+		VUDPTransportConfig config = new VUDPTransportConfig();
+		config.setCongestionControl(congestionControl);
+		byte[] s1 = "secret1".getBytes();
+		byte[] s2 = "secret2".getBytes();
+		final VUDPTransport t1 = new VUDPTransport(reactor, c1, relay.getAddress1(), s1, s2, config);
+		final VUDPTransport t2 = new VUDPTransport(reactor, c2, relay.getAddress2(), s2, s1, config);
+		final Source source = new Source(reactor, numBytes);
+		final Sink sink = new Sink(reactor, numBytes);
+
+		long start_t = System.currentTimeMillis();
+		class Job implements VReactorFunction {
+			@Override
+			public Object execute() throws Exception {
+				source.attach(t1.getConsumer());
+				sink.attach(t2.getProducer());
+				return null;
+			}
+		}
+		reactor.schedule(new Job());
+
+		long result = -1L;
+		synchronized(sink) {
+			long end_t = start_t + TIMEOUT;
+			while (!sink.done) {
+				long wait_t = end_t - System.currentTimeMillis();
+				if (wait_t <= 0)
+					break;
+				sink.wait(wait_t);
+			}
+			if (sink.done)
+				result = sink.done_t - start_t;
+		}
+
+		relay.stop();
+		reactor.stopReactor();
+		c1.close();
+		c2.close();
+		return result;
+	}
+
+	// Relays datagrams between two endpoints with delay and loss
+	static class Relay {
+		long delay;
+		double loss;
+		DatagramSocket sock1;
+		DatagramSocket sock2;
+		ScheduledExecutorService executor;
+		Random random;
+
+		public Relay(long delay, double loss)
+			throws IOException {
+			this.delay = delay;
+			this.loss = loss;
+			sock1 = new DatagramSocket(new InetSocketAddress("127.0.0.1", 0));
+			sock2 = new DatagramSocket(new InetSocketAddress("127.0.0.1", 0));
+			executor = Executors.newSingleThreadScheduledExecutor();
+			random = new Random(0);
+		}
+
+		// Relays sock1 <-> addr2 and sock2 <-> addr1
+		public void start(InetSocketAddress addr1, InetSocketAddress addr2) {
+			this.forward(sock1, sock2, addr2);
+			this.forward(sock2, sock1, addr1);
+		}
+
+		public void stop() {
+			sock1.close();
+			sock2.close();
+			executor.shutdownNow();
+		}
+
+		// Address endpoint 1 sends to
+		public InetSocketAddress getAddress1() {
+			return (InetSocketAddress)sock1.getLocalSocketAddress();
+		}
+
+		// Address endpoint 2 sends to
+		public InetSocketAddress getAddress2() {
+			return (InetSocketAddress)sock2.getLocalSocketAddress();
+		}
+
+		void forward(final DatagramSocket in, final DatagramSocket out, final InetSocketAddress dest) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					byte[] buf = new byte[65536];
+					while (true) {
+						DatagramPacket packet = new DatagramPacket(buf, buf.length);
+						try {
+							in.receive(packet);
+						} catch (IOException e) {
+							return;
+						}
+						boolean drop;
+						synchronized(random) {
+							drop = random.nextDouble() < loss;
+						}
+						if (drop)
+							continue;
+						final byte[] data = Arrays.copyOf(packet.getData(), packet.getLength());
+						Runnable send = new Runnable() {
+							@Override
+							public void run() {
+								try {
+									out.send(new DatagramPacket(data, data.length, dest));
+								} catch (IOException e) {
+									// Relay was stopped
+								}
+							}
+						};
+						try {
+							executor.schedule(send, delay, TimeUnit.MILLISECONDS);
+						} catch (RuntimeException e) {
+							return;
+						}
+					}
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	// Produces test data
+	static class Source implements VByteProducer {
+		VReactor reactor;
+		VByteConsumer consumer = null;
+		long num_bytes;
+		long produced = 0;
+
+		public Source(VReactor reactor, long numBytes) {
+			this.reactor = reactor;
+			this.num_bytes = numBytes;
+		}
+
+		@Override
+		public void canProduce(long limit)
+			throws IOException {
+			while (consumer != null && produced < num_bytes && (limit < 0 || produced < limit)) {
+				long max_len = (limit < 0) ? num_bytes : Math.min(num_bytes, limit);
+				int num = (int)Math.min(max_len - produced, 8192);
+				byte[] data = new byte[num];
+				for (int i = 0; i < num; i++)
+					data[i] = (byte)((produced + i) % 251);
+				produced += num;
+				limit = consumer.consume(new VByteBuffer(data));
+			}
+		}
+
+		@Override
+		public void abort() {
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer)
+			throws IOException {
+			this.attach(consumer, false);
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer, boolean safe)
+			throws IOException {
+			this.consumer = consumer;
+			consumer.attach(this, true);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			consumer = null;
+		}
+
+		@Override
+		public VByteConsumer getConsumer() {
+			return consumer;
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return new VIOControl();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return reactor;
+		}
+	}
+
+	// Consumes and validates test data
+	static class Sink implements VByteConsumer {
+		VReactor reactor;
+		VByteProducer producer = null;
+		long num_bytes;
+		long consumed = 0;
+		boolean done = false;
+		long done_t = 0;
+
+		public Sink(VReactor reactor, long numBytes) {
+			this.reactor = reactor;
+			this.num_bytes = numBytes;
+		}
+
+		@Override
+		public long consume(VByteBuffer data)
+			throws IOException {
+			byte[] _data = data.popAll();
+			for (byte b: _data) {
+				if (b != (byte)(consumed % 251))
+					throw new IOException("Received data does not match sent data");
+				consumed += 1;
+			}
+			if (consumed >= num_bytes) {
+				synchronized(this) {
+					done = true;
+					done_t = System.currentTimeMillis();
+					this.notifyAll();
+				}
+			}
+			return consumed + 65536;
+		}
+
+		@Override
+		public void endConsume(boolean clean) {
+		}
+
+		@Override
+		public void abort() {
+		}
+
+		@Override
+		public void attach(VByteProducer producer)
+			throws IOException {
+			this.attach(producer, false);
+		}
+
+		@Override
+		public void attach(VByteProducer producer, boolean safe)
+			throws IOException {
+			this.producer = producer;
+			producer.attach(this, true);
+			producer.canProduce(65536);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			producer = null;
+		}
+
+		@Override
+		public VByteProducer getProducer() {
+			return producer;
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return new VIOControl();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return reactor;
+		}
+	}
+}
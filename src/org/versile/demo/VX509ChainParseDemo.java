@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.demo;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.versile.common.asn1.VASN1DefSequenceOf;
+import org.versile.common.asn1.VASN1Exception;
+import org.versile.common.asn1.VASN1Null;
+import org.versile.common.asn1.VASN1Sequence;
+import org.versile.common.asn1.VASN1SequenceOf;
+import org.versile.common.asn1.VASN1Definition.ParseResult;
+import org.versile.crypto.VDecentralIdentity;
+import org.versile.crypto.VRSAKeyPair;
+import org.versile.crypto.asn1.cert.Certificate;
+import org.versile.crypto.x509.VX509Certificate;
+import org.versile.crypto.x509.VX509CertificationRequest;
+import org.versile.crypto.x509.VX509KeyUsage;
+import org.versile.orb.entity.VInteger;
+
+
+/**
+ * Benchmarks DER parsing of large X.509 certificate chains.
+ *
+ * <p>Generates a chain of certificates, each issued by the previous
+ * certificate's subject, and encodes the chain as a DER SEQUENCE OF
+ * certificates. The encoded chain is then parsed repeatedly with the ASN.1
+ * certificate definition and the parse time is reported. Parsed data must
+ * re-encode to the original DER, and each certificate must import as a
+ * {@link VX509Certificate}. Also checks that truncated data and a certificate
+ * with trailing sequence elements are rejected. Usage:</p>
+ *
+ * <pre>
+ *   VX509ChainParseDemo [num_certificates [num_passes]]
+ * </pre>
+ *
+ * <p>This class is intended for testing and demonstration only and is not
+ * formally part of the Versile Java framework.</p>
+ */
+public class VX509ChainParseDemo {
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args command line arguments
+	 * @throws Exception error setting up benchmark
+	 */
+	public static void main(String[] args)
+		throws Exception {
+		int num_certs = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+		int num_passes = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+		byte[][] certs = VX509ChainParseDemo.createChain(num_certs);
+		VASN1SequenceOf chain = new VASN1SequenceOf();
+		for (byte[] cert: certs)
+			chain.append(new Certificate().parseDER(cert).getResult());
+		byte[] der = chain.encodeDER();
+		System.out.println("Chain: " + num_certs + " certificates, " + der.length + " bytes");
+
+		boolean failed = false;
+		long best_t = Long.MAX_VALUE;
+		ParseResult parsed = null;
+		for (int i = 0; i < num_passes; i++) {
+			long start_t = System.nanoTime();
+			parsed = new VASN1DefSequenceOf(new Certificate()).parseDER(der);
+			best_t = Math.min(best_t, System.nanoTime() - start_t);
+		}
+		System.out.println("Parse time: " + (best_t / 1000000L) + " ms (best of " + num_passes + " passes)");
+
+		VASN1Sequence result = (VASN1Sequence)parsed.getResult();
+		if (parsed.getNumRead() != der.length || result.length() != num_certs) {
+			System.out.println("Parsed chain has wrong length");
+			failed = true;
+		}
+		else if (!Arrays.equals(result.encodeDER(), der)) {
+			System.out.println("Parsed chain does not re-encode to original data");
+			failed = true;
+		}
+		for (byte[] cert: certs)
+			if (!Arrays.equals(VX509Certificate.importDer(cert).exportDer(), cert)) {
+				System.out.println("Imported certificate does not export to original data");
+				failed = true;
+				break;
+			}
+
+		// Truncated chain must fail with a parse error
+		try {
+			new VASN1DefSequenceOf(new Certificate()).parseDER(Arrays.copyOf(der, der.length-1));
+			System.out.println("Truncated chain was not rejected");
+			failed = true;
+		} catch (VASN1Exception e) {
+			// Expected
+		}
+
+		// Certificate sequence with an extra trailing element must be rejected
+		byte[] cert = certs[0];
+		VASN1Sequence extended = (VASN1Sequence)new Certificate().parseDER(cert).getResult();
+		extended.append(new VASN1Null());
+		try {
+			new Certificate().parseDER(extended.encodeDER());
+			System.out.println("Certificate with trailing element was not rejected");
+			failed = true;
+		} catch (VASN1Exception e) {
+			// Expected
+		}
+
+		if (failed) {
+			System.out.println("FAILED");
+			System.exit(1);
+		}
+		System.out.println("OK");
+	}
+
+	/**
+	 * Creates a certificate chain.
+	 *
+	 * <p>The first certificate is a self-signed CA certificate, and each
+	 * following certificate is issued by the previous certificate's subject. All
+	 * certificates use the same key, as the benchmark only parses the chain.</p>
+	 *
+	 * @param numCerts number of certificates
+	 * @return DER encoded certificates
+	 * @throws Exception error creating certificates
+	 */
+	public static byte[][] createChain(int numCerts)
+		throws Exception {
+		VRSAKeyPair key = VDecentralIdentity.dia(1024, "", "", "chainParseDemoKey");
+		Date not_before = new Date(946684800000L);
+		Date not_after = new Date(2524608000000L);
+		byte[][] result = new byte[numCerts][];
+		X500Principal issuer = null;
+		for (int i = 0; i < numCerts; i++) {
+			X500Principal subject = new X500Principal("CN=Chain Certificate " + i + ", O=Versile Demo");
+			VX509CertificationRequest csr = VX509CertificationRequest.create(subject, key);
+			VInteger serial = VInteger.valueOf(1000000L + i);
+			VX509Certificate cert;
+			if (issuer == null)
+				cert = csr.selfSignCA(3, serial, key.getPrivate(), not_before, not_after, null,
+									  -1, VX509KeyUsage.KEY_CERT_SIGN, null);
+			else
+				cert = csr.sign(3, serial, issuer, key.getPrivate(), not_before, not_after,
+								null, null, null);
+			result[i] = cert.exportDer();
+			issuer = subject;
+		}
+		return result;
+	}
+}
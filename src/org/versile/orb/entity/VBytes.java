@@ -20,6 +20,7 @@
 
 package org.versile.orb.entity;
 
+import java.util.Arrays;
 import java.util.Vector;
 
 import org.versile.common.util.VByteBuffer;
@@ -252,6 +253,6 @@ public final class VBytes extends VEntity {
 
 	@Override
 	public int hashCode() {
-		return value.hashCode();
+		return Arrays.hashCode(value);
 	}
 }
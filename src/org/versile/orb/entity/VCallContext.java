@@ -20,6 +20,7 @@
 
 package org.versile.orb.entity;
 
+import java.security.PublicKey;
 import java.security.cert.CertPath;
 import java.security.interfaces.RSAPublicKey;
 
@@ -58,6 +59,7 @@ public class VCallContext {
 
 	VPeer peer = null;
 	RSAPublicKey key = null;
+	PublicKey signatureKey = null;
 	X500Principal claimedIdentity = null;
 	CertPath certificates = null;
 	SecureTransport secureTransport = SecureTransport.NONE;
@@ -107,6 +109,24 @@ public class VCallContext {
 		this.key = key;
 	}
 
+	/**
+	 * Get the Ed25519 signature key used by peer to identify itself.
+	 *
+	 * @return identifying signature key (or null)
+	 */
+	public PublicKey getSignatureKey() {
+		return signatureKey;
+	}
+
+	/**
+	 * Set the Ed25519 signature key used by peer to identify itself.
+	 *
+	 * @param signatureKey identifying signature key
+	 */
+	public void setSignatureKey(PublicKey signatureKey) {
+		this.signatureKey = signatureKey;
+	}
+
 	/**
 	 * Get the peer's stated identity.
 	 *
@@ -22,7 +22,9 @@ package org.versile.orb.entity;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.versile.common.util.VCombiner;
 import org.versile.common.util.VCombiner.CombineException;
@@ -46,6 +48,14 @@ import org.versile.vse.container.VArrayOfVInteger;
  */
 public abstract class VEntity {
 
+	// Conversion types resolved by runtime class for lazy conversion
+	enum LazyType {ENTITY, PROXY, INTEGER, FLOAT, BOOLEAN, BYTES, STRING, INT_ARRAY,
+		           LONG_ARRAY, FLOAT_ARRAY, DOUBLE_ARRAY, OBJECT_ARRAY, OTHER};
+	enum LazyNativeType {TAGGED, TUPLE, ENTITY, OBJECT_ARRAY, NATIVE};
+
+	static Map<Class<?>, LazyType> _lazy_types = new ConcurrentHashMap<Class<?>, LazyType>();
+	static Map<Class<?>, LazyNativeType> _lazy_native_types = new ConcurrentHashMap<Class<?>, LazyNativeType>();
+
 	/**
 	 * Returns a native representation of the object.
 	 *
@@ -178,69 +188,7 @@ public abstract class VEntity {
 		throws VEntityError {
 		if (obj instanceof VEntity)
 			return (VEntity)obj;
-
-		Object agg_result = null;
-		class Node {
-			Vector<Object> items;
-			int unprocessed_index = 0;
-			Node parent;
-			int parent_index;
-			VCombiner aggregator;
-
-			public Node(Vector<Object> items, Node parent, int parent_index, VCombiner aggregator) {
-				this.items = items;
-				this.parent = parent;
-				this.parent_index = parent_index;
-				this.aggregator = aggregator;
-			}
-		}
-
-		Vector<Object> _items = new Vector<Object>();
-		_items.add(obj);
-		Node node = new Node(_items, null, -1, VCombiner.identity());
-
-		while(true) {
-			if(node.unprocessed_index<node.items.size()) {
-				int index = node.unprocessed_index;
-				node.unprocessed_index++;
-				Object _obj = node.items.get(index);
-				VCombiner.Pair agg_pair = VEntity._v_top_converter(_obj, parser);
-				if (agg_pair.getCombiner() == null) {
-					node.items.set(index, agg_pair.getObjects().get(0));
-				}
-				else {
-					node.unprocessed_index = index;
-					Node new_node = new Node(agg_pair.getObjects(), node, index, agg_pair.getCombiner());
-					node = new_node;
-				}
-			}
-			else if (node.parent != null) {
-				Object converted;
-				try {
-					converted = node.aggregator.combine(node.items);
-				} catch (CombineException e) {
-					throw new VEntityError("Conversion error");
-				}
-				Node parent = node.parent;
-				int parent_index = node.parent_index;
-				node = parent;
-				node.items.set(parent_index,  converted);
-				node.unprocessed_index++;
-			}
-			else {
-				try {
-					agg_result = node.aggregator.combine(node.items);
-				} catch (CombineException e) {
-					throw new VEntityError("Conversion error");
-				}
-				break;
-			}
-		}
-		try {
-			return (VEntity) agg_result;
-		} catch (Exception e) {
-			throw new VEntityError("Could not convert");
-		}
+		return VEntity._v_lazy_convert(obj, parser);
 	}
 
 	/**
@@ -267,64 +215,189 @@ public abstract class VEntity {
 	 * @return converted object, or the object itself
 	 */
 	public static Object _v_lazy_native(Object obj, VTaggedParser parser) {
-		Object agg_result = null;
-		class Node {
-			Vector<Object> items;
-			int unprocessed_index = 0;
-			Node parent;
-			int parent_index;
-			VCombiner aggregator;
-
-			public Node(Vector<Object> items, Node parent, int parent_index, VCombiner aggregator) {
-				this.items = items;
-				this.parent = parent;
-				this.parent_index = parent_index;
-				this.aggregator = aggregator;
-			}
+		try {
+			return VEntity._v_lazy_native_convert(obj, parser);
+		} catch (CombineException e) {
+			return obj;
 		}
+	}
 
-		Vector<Object> _items = new Vector<Object>();
-		_items.add(obj);
-		Node node = new Node(_items, null, -1, VCombiner.identity());
-
-		while(true) {
-			if (node.unprocessed_index<node.items.size()) {
-				int index = node.unprocessed_index;
-				node.unprocessed_index++;
-				Object _obj = node.items.get(index);
-				VCombiner.Pair agg_pair = VEntity._v_top_native_converter(_obj, parser);
-				if (agg_pair.getCombiner() == null) {
-					node.items.set(index, agg_pair.getObjects().get(0));
-				}
-				else {
-					node.unprocessed_index = index;
-					Node new_node = new Node(agg_pair.getObjects(), node, index, agg_pair.getCombiner());
-					node = new_node;
+	// Performs lazy conversion, converting container elements from an explicit work stack
+	static VEntity _v_lazy_convert(Object obj, VTaggedParser parser)
+		throws VEntityError {
+		LazyFrame frame = null;
+		Object value = VEntity._v_lazy_step(obj, parser, null);
+		while (true) {
+			if (value instanceof LazyFrame)
+				frame = (LazyFrame)value;
+			else if (frame == null)
+				return (VEntity)value;
+			else
+				frame.set(value);
+
+			if (frame.hasNext())
+				value = VEntity._v_lazy_step(frame.current(), parser, frame);
+			else {
+				if (frame.combiner != null) {
+					try {
+						value = frame.combiner.combine(frame.objects);
+					} catch (CombineException e) {
+						throw new VEntityError("Conversion error");
+					}
+					if (!(value instanceof VEntity))
+						throw new VEntityError("Could not convert");
 				}
+				else
+					value = VTuple._v_wrap((VEntity[])frame.result);
+				frame = frame.parent;
 			}
-			else if (node.parent != null) {
-				Object converted;
-				try {
-					converted = node.aggregator.combine(node.items);
-				} catch (CombineException e) {
-					return obj;
-				}
-				Node parent = node.parent;
-				int parent_index = node.parent_index;
-				node = parent;
-				node.items.set(parent_index,  converted);
-				node.unprocessed_index++;
+		}
+	}
+
+	// Converts an object, or returns a work stack frame for converting its elements
+	static Object _v_lazy_step(Object obj, VTaggedParser parser, LazyFrame parent)
+		throws VEntityError {
+		if (obj == null)
+			return new VNone();
+
+		VCombiner.Pair pair;
+		switch (VEntity._v_lazy_type(obj.getClass())) {
+		case ENTITY:
+			return obj;
+		case OBJECT_ARRAY:
+			if (VSEResolver.lazyArrays()) {
+				pair = VEntity._v_lazy_array_converter((Object[])obj);
+				if (pair != null)
+					break;
 			}
+			Object[] items = (Object[])obj;
+			return new LazyFrame(items, new VEntity[items.length], parent);
+		default:
+			pair = VEntity._v_top_converter(obj, parser);
+		}
+		if (pair.getCombiner() != null)
+			return new LazyFrame(pair, parent);
+		Object result = pair.getObjects().get(0);
+		if (!(result instanceof VEntity))
+			throw new VEntityError("Could not convert");
+		return result;
+	}
+
+	// Performs lazy native conversion, converting container elements from an explicit work stack
+	static Object _v_lazy_native_convert(Object obj, VTaggedParser parser)
+		throws CombineException {
+		LazyFrame frame = null;
+		Object value = VEntity._v_lazy_native_step(obj, parser, null);
+		while (true) {
+			if (value instanceof LazyFrame)
+				frame = (LazyFrame)value;
+			else if (frame == null)
+				return value;
+			else
+				frame.set(value);
+
+			if (frame.hasNext())
+				value = VEntity._v_lazy_native_step(frame.current(), parser, frame);
 			else {
+				if (frame.combiner != null)
+					value = frame.combiner.combine(frame.objects);
+				else
+					value = frame.result;
+				frame = frame.parent;
+			}
+		}
+	}
+
+	// Converts an entity to native, or returns a work stack frame for converting its elements
+	static Object _v_lazy_native_step(Object obj, VTaggedParser parser, LazyFrame parent) {
+		if (obj == null)
+			return null;
+
+		VCombiner.Pair pair;
+		switch (VEntity._v_lazy_native_type(obj.getClass())) {
+		case TAGGED:
+			if (parser != null) {
 				try {
-					agg_result = node.aggregator.combine(node.items);
-				} catch (CombineException e) {
+					pair = parser.native_decoder((VTagged)obj);
+				} catch (VTaggedParseError e) {
 					return obj;
 				}
-				break;
 			}
+			else
+				pair = ((VEntity)obj)._v_native_converter();
+			break;
+		case TUPLE:
+			VEntity[] elements = ((VTuple)obj).value;
+			return new LazyFrame(elements, new Object[elements.length], parent);
+		case ENTITY:
+			pair = ((VEntity)obj)._v_native_converter();
+			break;
+		case OBJECT_ARRAY:
+			Object[] items = (Object[])obj;
+			return new LazyFrame(items, new Object[items.length], parent);
+		default:
+			return obj;
+		}
+		if (pair.getCombiner() != null)
+			return new LazyFrame(pair, parent);
+		return pair.getObjects().get(0);
+	}
+
+	// Returns conversion type for a class, resolving and caching it on first use
+	static LazyType _v_lazy_type(Class<?> cls) {
+		LazyType result = _lazy_types.get(cls);
+		if (result == null) {
+			if (VEntity.class.isAssignableFrom(cls))
+				result = LazyType.ENTITY;
+			else if (VProxy.class.isAssignableFrom(cls))
+				result = LazyType.PROXY;
+			else if (cls == Integer.class || cls == Long.class || BigInteger.class.isAssignableFrom(cls))
+				result = LazyType.INTEGER;
+			else if (cls == Float.class || cls == Double.class || BigDecimal.class.isAssignableFrom(cls))
+				result = LazyType.FLOAT;
+			else if (cls == Boolean.class)
+				result = LazyType.BOOLEAN;
+			else if (cls == byte[].class || cls == Byte[].class)
+				result = LazyType.BYTES;
+			else if (cls == String.class)
+				result = LazyType.STRING;
+			else if (cls == int[].class)
+				result = LazyType.INT_ARRAY;
+			else if (cls == long[].class)
+				result = LazyType.LONG_ARRAY;
+			else if (cls == float[].class)
+				result = LazyType.FLOAT_ARRAY;
+			else if (cls == double[].class)
+				result = LazyType.DOUBLE_ARRAY;
+			else if (Object[].class.isAssignableFrom(cls))
+				result = LazyType.OBJECT_ARRAY;
+			else
+				result = LazyType.OTHER;
+			_lazy_types.put(cls, result);
 		}
-		return agg_result;
+		return result;
+	}
+
+	// Returns native conversion type for a class, resolving and caching it on first use
+	static LazyNativeType _v_lazy_native_type(Class<?> cls) {
+		LazyNativeType result = _lazy_native_types.get(cls);
+		if (result == null) {
+			if (VTagged.class.isAssignableFrom(cls))
+				result = LazyNativeType.TAGGED;
+			else if (cls == VTuple.class)
+				result = LazyNativeType.TUPLE;
+			else if (VEntity.class.isAssignableFrom(cls))
+				result = LazyNativeType.ENTITY;
+			else if (Number[].class.isAssignableFrom(cls) || cls == Byte[].class
+					 || cls == Boolean[].class || VFloat[].class.isAssignableFrom(cls))
+				result = LazyNativeType.NATIVE;
+			else if (Object[].class.isAssignableFrom(cls))
+				result = LazyNativeType.OBJECT_ARRAY;
+			else
+				result = LazyNativeType.NATIVE;
+			_lazy_native_types.put(cls, result);
+		}
+		return result;
 	}
 
 	/**
@@ -339,148 +412,45 @@ public abstract class VEntity {
 	 */
 	public static VCombiner.Pair _v_top_converter(Object obj, VTaggedParser parser)
 		throws VEntityError {
-		if (obj instanceof VEntity) {
+		if (obj == null)
+			return VNone._v_converter(obj);
+
+		switch (VEntity._v_lazy_type(obj.getClass())) {
+		case ENTITY:
 			Vector<Object> obj_list = new Vector<Object>();
 			obj_list.add(obj);
 			return new VCombiner.Pair(null, obj_list);
-		}
-
-		if (obj instanceof VProxy)
+		case PROXY:
 			return VProxy._v_converter(obj);
-
-		if (obj instanceof Integer || obj instanceof Long || obj instanceof BigInteger)
+		case INTEGER:
 			return VInteger._v_converter(obj);
-
-		if (obj instanceof Float || obj instanceof Double || obj instanceof BigDecimal)
+		case FLOAT:
 			return VFloat._v_converter(obj);
-
-		if (obj instanceof Boolean)
+		case BOOLEAN:
 			return VBoolean._v_converter(obj);
-
-		if (obj instanceof byte[])
+		case BYTES:
 			return VBytes._v_converter(obj);
-
-		if (obj instanceof Byte[])
-			return VBytes._v_converter(obj);
-
-		if (obj instanceof String)
+		case STRING:
 			return VString._v_converter(obj);
-
-		if (obj instanceof Object[]) {
+		case INT_ARRAY:
+			return VArrayOfInt._v_converter(obj);
+		case LONG_ARRAY:
+			return VArrayOfLong._v_converter(obj);
+		case FLOAT_ARRAY:
+			return VArrayOfFloat._v_converter(obj);
+		case DOUBLE_ARRAY:
+			return VArrayOfDouble._v_converter(obj);
+		case OBJECT_ARRAY:
 			if (VSEResolver.lazyArrays()) {
-				if (((Object[])obj).length == 0)
-					return VTuple._v_converter(obj);
-
-				// Perform any conversion which is enabled by simply inspecting array type
-				if (obj instanceof Integer[])
-					return VArrayOfInt._v_converter(obj);
-				else if (obj instanceof Long[])
-					return VArrayOfLong._v_converter(obj);
-				else if (obj instanceof Float[])
-					return VArrayOfFloat._v_converter(obj);
-				else if (obj instanceof Double[])
-					return VArrayOfDouble._v_converter(obj);
-				else if (obj instanceof VFloat[])
-					return VArrayOfVFloat._v_converter(obj);
-				else if (obj instanceof VInteger[])
-					return VArrayOfVInteger._v_converter(obj);
-
-				// Inspect types of Object[]
-				boolean complete = true;
-				boolean _int = false;
-				boolean _long = false;
-				boolean _bigint = false;
-				boolean _vinteger = false;
-				boolean _float = false;
-				boolean _double = false;
-				boolean _vfloat = false;
-				for (Object o : (Object[])obj) {
-					if (o instanceof Integer)
-						_int = true;
-					else if (o instanceof Long)
-						_long = true;
-					else if (o instanceof BigInteger)
-						_bigint = true;
-					else if (o instanceof VInteger)
-						_vinteger = true;
-					else if (o instanceof Float)
-						_float = true;
-					else if (o instanceof Double)
-						_double = true;
-					else if (o instanceof VFloat)
-						_vfloat = true;
-					else {
-						complete = false;
-						break;
-					}
-				}
-				if (!complete)
-					return VTuple._v_converter(obj);
-
-				boolean _ints = _int | _long | _bigint | _vinteger;
-				boolean _floats = _float | _double | _vfloat;
-				if (_ints && _floats) {
-					// For simplified conversion, will not attempt conversion of arrays
-					// of mixed integer and floating-point based numbers
-					return VTuple._v_converter(obj);
-				}
-				else if (_ints) {
-					Object[] _oarr = (Object[])obj;
-					if (_vinteger || _bigint) {
-						Number[] _arr = new Number[_oarr.length];
-						for (int i = 0; i < _arr.length; i++) {
-							if (_oarr[i] instanceof VInteger)
-								_arr[i] = ((VInteger)_oarr[i]).getValue();
-							else
-								_arr[i] = (Number)_oarr[i];
-						}
-						return VArrayOfVInteger._v_converter(_arr);
-					}
-					else if (_long) {
-						Long[] _arr = new Long[_oarr.length];
-						for (int i = 0; i < _arr.length; i++)
-							_arr[i] = (Long)_oarr[i];
-						return VArrayOfLong._v_converter(_arr);
-					}
-					else {
-						Integer[] _arr = new Integer[_oarr.length];
-						for (int i = 0; i < _arr.length; i++)
-							_arr[i] = (Integer)_oarr[i];
-						return VArrayOfInt._v_converter(_arr);
-					}
-				}
-				else if (_floats) {
-					Object[] _oarr = (Object[])obj;
-					if (_vfloat) {
-						VFloat[] _arr = new VFloat[_oarr.length];
-						for (int i = 0; i < _arr.length; i++)
-							_arr[i] = (VFloat)_oarr[i];
-						return VArrayOfVFloat._v_converter(_arr);
-					}
-					else if (_double) {
-						Double[] _arr = new Double[_oarr.length];
-						for (int i = 0; i < _arr.length; i++)
-							_arr[i] = (Double)_oarr[i];
-						return VArrayOfDouble._v_converter(_arr);
-					}
-					else {
-						Float[] _arr = new Float[_oarr.length];
-						for (int i = 0; i < _arr.length; i++)
-							_arr[i] = (Float)_oarr[i];
-						return VArrayOfFloat._v_converter(_arr);
-					}
-				}
-
-				// If code ever reaches this point, convert as a tuple
-				return VTuple._v_converter(obj);
+				VCombiner.Pair result = VEntity._v_lazy_array_converter((Object[])obj);
+				if (result != null)
+					return result;
 			}
-			else
-				return VTuple._v_converter(obj);
+			return VTuple._v_converter(obj);
+		default:
+			break;
 		}
 
-		if (obj == null)
-			return VNone._v_converter(obj);
-
 		if (parser != null) {
 			try {
 				return parser.converter(obj);
@@ -494,6 +464,123 @@ public abstract class VEntity {
 		throw new VEntityError("Could not convert object");
 	}
 
+	/**
+	 * Generates combiner data for converting Object[] to a VSE array type.
+	 *
+	 * <p>Performs the conversion enabled by
+	 * {@link org.versile.vse.VSEResolver#enableLazyArrays(boolean)}.</p>
+	 *
+	 * @param obj value to convert
+	 * @return combiner data structure for conversion, or null if not an array type
+	 * @throws VEntityError cannot generate combiner for provided value
+	 */
+	static VCombiner.Pair _v_lazy_array_converter(Object[] obj)
+		throws VEntityError {
+		if (obj.length == 0)
+			return null;
+
+		// Perform any conversion which is enabled by simply inspecting array type
+		if (obj instanceof Integer[])
+			return VArrayOfInt._v_converter(obj);
+		else if (obj instanceof Long[])
+			return VArrayOfLong._v_converter(obj);
+		else if (obj instanceof Float[])
+			return VArrayOfFloat._v_converter(obj);
+		else if (obj instanceof Double[])
+			return VArrayOfDouble._v_converter(obj);
+		else if (obj instanceof VFloat[])
+			return VArrayOfVFloat._v_converter(obj);
+		else if (obj instanceof VInteger[])
+			return VArrayOfVInteger._v_converter(obj);
+
+		// Inspect types of Object[]
+		boolean complete = true;
+		boolean _int = false;
+		boolean _long = false;
+		boolean _bigint = false;
+		boolean _vinteger = false;
+		boolean _float = false;
+		boolean _double = false;
+		boolean _vfloat = false;
+		for (Object o : obj) {
+			if (o instanceof Integer)
+				_int = true;
+			else if (o instanceof Long)
+				_long = true;
+			else if (o instanceof BigInteger)
+				_bigint = true;
+			else if (o instanceof VInteger)
+				_vinteger = true;
+			else if (o instanceof Float)
+				_float = true;
+			else if (o instanceof Double)
+				_double = true;
+			else if (o instanceof VFloat)
+				_vfloat = true;
+			else {
+				complete = false;
+				break;
+			}
+		}
+		if (!complete)
+			return null;
+
+		boolean _ints = _int | _long | _bigint | _vinteger;
+		boolean _floats = _float | _double | _vfloat;
+		if (_ints && _floats) {
+			// For simplified conversion, will not attempt conversion of arrays
+			// of mixed integer and floating-point based numbers
+			return null;
+		}
+		else if (_ints) {
+			if (_vinteger || _bigint) {
+				Number[] _arr = new Number[obj.length];
+				for (int i = 0; i < _arr.length; i++) {
+					if (obj[i] instanceof VInteger)
+						_arr[i] = ((VInteger)obj[i]).getValue();
+					else
+						_arr[i] = (Number)obj[i];
+				}
+				return VArrayOfVInteger._v_converter(_arr);
+			}
+			else if (_long) {
+				Long[] _arr = new Long[obj.length];
+				for (int i = 0; i < _arr.length; i++)
+					_arr[i] = (Long)obj[i];
+				return VArrayOfLong._v_converter(_arr);
+			}
+			else {
+				Integer[] _arr = new Integer[obj.length];
+				for (int i = 0; i < _arr.length; i++)
+					_arr[i] = (Integer)obj[i];
+				return VArrayOfInt._v_converter(_arr);
+			}
+		}
+		else if (_floats) {
+			if (_vfloat) {
+				VFloat[] _arr = new VFloat[obj.length];
+				for (int i = 0; i < _arr.length; i++)
+					_arr[i] = (VFloat)obj[i];
+				return VArrayOfVFloat._v_converter(_arr);
+			}
+			else if (_double) {
+				Double[] _arr = new Double[obj.length];
+				for (int i = 0; i < _arr.length; i++)
+					_arr[i] = (Double)obj[i];
+				return VArrayOfDouble._v_converter(_arr);
+			}
+			else {
+				Float[] _arr = new Float[obj.length];
+				for (int i = 0; i < _arr.length; i++)
+					_arr[i] = (Float)obj[i];
+				return VArrayOfFloat._v_converter(_arr);
+			}
+		}
+
+		// If code ever reaches this point, convert as a tuple
+		return null;
+	}
+
 	/**
 	 * Generates combiner data for converting to a native representation.
 	 *
@@ -590,4 +677,50 @@ public abstract class VEntity {
 	 */
 	public abstract VEncoderData _v_encode(VIOContext ctx, boolean explicit)
 		throws VEntityWriterException;
+
+	/**
+	 * Work stack frame for lazy conversion of the elements of a container.
+	 *
+	 * <p>Elements are either converted into a result array, or converted in place
+	 * in the objects of a combiner which is then used to produce the result.</p>
+	 */
+	static final class LazyFrame {
+		Object[] items;           // elements to convert, or null for a combiner
+		Object[] result;          // converted elements, or null for a combiner
+		VCombiner combiner;       // combiner for converted objects, or null
+		Vector<Object> objects;   // combiner objects, converted in place
+		int size;
+		int index = 0;
+		LazyFrame parent;
+
+		LazyFrame(Object[] items, Object[] result, LazyFrame parent) {
+			this.items = items;
+			this.result = result;
+			this.size = items.length;
+			this.parent = parent;
+		}
+
+		LazyFrame(VCombiner.Pair pair, LazyFrame parent) {
+			this.combiner = pair.getCombiner();
+			this.objects = pair.getObjects();
+			this.size = objects.size();
+			this.parent = parent;
+		}
+
+		boolean hasNext() {
+			return (index < size);
+		}
+
+		Object current() {
+			return (objects != null) ? objects.get(index) : items[index];
+		}
+
+		void set(Object value) {
+			if (objects != null)
+				objects.set(index, value);
+			else
+				result[index] = value;
+			index++;
+		}
+	}
 }
@@ -22,20 +22,27 @@ package org.versile.orb.entity;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Vector;
 
 import org.versile.common.util.VCombiner;
-import org.versile.orb.entity.decoder.VIntegerDecoder;
+import org.versile.orb.entity.decoder.VFloatDecoder;
 
 
 /**
  * Represents the VFE VFloat type.
  *
  * <p>Holds an arbitrary-precision floating point value of any integer base >=2.</p>
+ *
+ * <p>Values whose digits and exponent fit in a long and whose base fits in an
+ * int (which includes all values converted from a double) are held as
+ * primitives, and are converted and serialized without BigInteger arithmetic.</p>
  */
 public final class VFloat extends VEntity {
 
-	BigInteger base, digits, exp;
+	BigInteger base, digits, exp;   // arbitrary-precision representation
+	long l_digits, l_exp;           // primitive representation
+	int l_base = 0;                 // primitive base, or zero if not primitive
 
 	/**
 	 * Initializes as the value digits*base^exp.
@@ -45,6 +52,17 @@ public final class VFloat extends VEntity {
 	 * @param exp floating point exponent
 	 */
 	public VFloat(Number digits, Number base, Number exp) {
+		if (VFloat.fitsLong(digits) && VFloat.fitsLong(base) && VFloat.fitsLong(exp)) {
+			long _base = base.longValue();
+			if (_base < 2)
+				throw new IllegalArgumentException("Base must be >= 2");
+			if (_base <= Integer.MAX_VALUE) {
+				l_digits = digits.longValue();
+				l_base = (int)_base;
+				l_exp = exp.longValue();
+				return;
+			}
+		}
 		try {
 			this.digits = VInteger.asBigInt(digits);
 			this.base = VInteger.asBigInt(base);
@@ -56,19 +74,49 @@ public final class VFloat extends VEntity {
 			throw new IllegalArgumentException("Base must be >= 2");
 	}
 
+	/**
+	 * Initializes as the value digits*base^exp from primitive values.
+	 *
+	 * @param digits floating point digits
+	 * @param base floating point base (must be >= 2)
+	 * @param exp floating point exponent
+	 */
+	VFloat(long digits, int base, long exp) {
+		l_digits = digits;
+		l_base = base;
+		l_exp = exp;
+	}
+
 	/**
 	 * Creates a {@link VFloat} from a double.
 	 *
+	 * <p>The result is an exact base-2 representation of the double's binary
+	 * mantissa and exponent, including subnormal values. VFloat has no signed
+	 * zero, so negative zero is converted to zero.</p>
+	 *
 	 * @param d value to convert
 	 * @return converted value
+	 * @throws IllegalArgumentException value is NaN or infinite
 	 */
-	public static VFloat fromDouble(Double d) {
-		long bits = Double.doubleToLongBits(d);
-
-		boolean positive = ((bits >> 63) & 0x1L) == 0;
-		long exponent = ((bits >>> 52) & 0x7ffL) - 1023 - 52;
-		long digits = 0x0010000000000000L | (bits & 0x000fffffffffffffL);
-		if (!positive)
+	public static VFloat fromDouble(Double d)
+			throws IllegalArgumentException {
+		long bits = Double.doubleToRawLongBits(d);
+
+		int b_exp = (int)((bits >>> 52) & 0x7ffL);
+		long mantissa = bits & 0x000fffffffffffffL;
+		long digits, exponent;
+		if (b_exp == 0x7ff)
+			throw new IllegalArgumentException("NaN and infinity cannot be represented as VFloat");
+		else if (b_exp == 0) {
+			// Zero or subnormal value
+			digits = mantissa;
+			exponent = (mantissa == 0) ? 0 : -1074;
+		}
+		else {
+			digits = 0x0010000000000000L | mantissa;
+			exponent = b_exp - 1023 - 52;
+		}
+		if (bits < 0)
 			digits = -digits;
 		return new VFloat(digits, 2, exponent);
 	}
@@ -111,6 +159,9 @@ public final class VFloat extends VEntity {
 	 * @throws VEntityError base cannot be converted
 	 */
 	public BigDecimal toBigDecimal() throws VEntityError {
+		BigInteger base = this.getBase();
+		BigInteger digits = this.getDigits();
+		BigInteger exp = this.getExp();
 		if ((base.compareTo(BigInteger.TEN) != 0) && (base.compareTo(BigInteger.valueOf(2)) != 0)
 			 && (base.compareTo(BigInteger.valueOf(5)) != 0))
 			throw new VEntityError("Only base-10, base-2 and base-5 allowed for this method");
@@ -162,6 +213,17 @@ public final class VFloat extends VEntity {
 
 	@Override
 	public Object _v_native() {
+		if (l_base != 0) {
+			if (l_base == 10 && l_exp == (int)l_exp)
+				return BigDecimal.valueOf(l_digits, -(int)l_exp);
+			if (l_base == 2) {
+				Double result = VFloat.binaryToDouble(l_digits, l_exp);
+				if (result != null)
+					return result;
+			}
+			return this;
+		}
+
 		// If base-10 try to convert to BigDecimal (if possible)
 		if (base.compareTo(BigInteger.TEN) == 0) {
 			int scale = exp.intValue();
@@ -171,39 +233,19 @@ public final class VFloat extends VEntity {
 
 		// If base-2 try to convert to Double
 		if (base.compareTo(BigInteger.valueOf(2)) == 0) {
-			if (digits.compareTo(BigInteger.ZERO) == 0)
+			if (digits.signum() == 0)
 				return (Double)0.0d;
-
-			boolean positive = true;
 			BigInteger mantissa = digits;
 			BigInteger scale = exp;
-
-			if (mantissa.compareTo(BigInteger.ZERO) < 0) {
-				positive = false;
-				mantissa = mantissa.multiply(BigInteger.valueOf(-1));
-			}
-
 			int z_bits = mantissa.getLowestSetBit();
 			if (z_bits > 0) {
 				mantissa = mantissa.shiftRight(z_bits);
 				scale = scale.add(BigInteger.valueOf(z_bits));
 			}
-			int m_bits = mantissa.bitLength();
-			if (m_bits <= 53) {
-				if (m_bits < 53) {
-					mantissa = mantissa.shiftLeft(53-m_bits);
-					scale = scale.subtract(BigInteger.valueOf(53-m_bits));
-				}
-				long d_bits = mantissa.longValue() & 0xfffffffffffffL;
-
-				scale = scale.add(BigInteger.valueOf(1023+52));
-				int i_scale = scale.intValue();
-				if (scale.compareTo(BigInteger.valueOf(i_scale)) == 0 && i_scale >= 0 && i_scale <= 0x7ff) {
-					d_bits |= ((long)i_scale) << 52;
-					if (!positive)
-						d_bits |= 0x8000000000000000L;
-					return Double.longBitsToDouble(d_bits);
-				}
+			if (mantissa.bitLength() < 64 && scale.bitLength() < 64) {
+				Double result = VFloat.binaryToDouble(mantissa.longValue(), scale.longValue());
+				if (result != null)
+					return result;
 			}
 		}
 
@@ -217,6 +259,8 @@ public final class VFloat extends VEntity {
 	 * @return base
 	 */
 	public BigInteger getBase() {
+		if (l_base != 0)
+			return BigInteger.valueOf(l_base);
 		return base;
 	}
 
@@ -226,6 +270,8 @@ public final class VFloat extends VEntity {
 	 * @return digits
 	 */
 	public BigInteger getDigits() {
+		if (l_base != 0)
+			return BigInteger.valueOf(l_digits);
 		return digits;
 	}
 
@@ -235,6 +281,8 @@ public final class VFloat extends VEntity {
 	 * @return exponent
 	 */
 	public BigInteger getExp() {
+		if (l_base != 0)
+			return BigInteger.valueOf(l_exp);
 		return exp;
 	}
 
@@ -243,7 +291,7 @@ public final class VFloat extends VEntity {
 		Object val = this._v_native();
 		if (!(val instanceof VFloat))
 			return val.toString();
-		return "" + digits + "*" + base + "^(" + exp + ")";
+		return "" + this.getDigits() + "*" + this.getBase() + "^(" + this.getExp() + ")";
 	}
 
 	/**
@@ -256,8 +304,13 @@ public final class VFloat extends VEntity {
 	public static VCombiner.Pair _v_converter(Object obj)
 			throws VEntityError {
 			Object value;
-			if (obj instanceof Float || obj instanceof Double)
-				value = VFloat.fromDouble(((Number)obj).doubleValue());
+			if (obj instanceof Float || obj instanceof Double) {
+				try {
+					value = VFloat.fromDouble(((Number)obj).doubleValue());
+				} catch (IllegalArgumentException e) {
+					throw new VEntityError("Cannot convert NaN or infinity");
+				}
+			}
 			else if (obj instanceof BigDecimal)
 				value = VFloat.fromBigDecimal((BigDecimal)obj);
 			else
@@ -277,19 +330,40 @@ public final class VFloat extends VEntity {
 	@Override
 	public VEncoderData _v_encode(VIOContext ctx, boolean explicit)
 			throws VEntityWriterException {
+		if (l_base != 0 && VFloat.isSmall(l_digits) && VFloat.isSmall(l_exp)) {
+			// Embedded integers are written directly into the header, which
+			// produces the same serialized data as separate embedded entities
+			byte[] header = new byte[28];
+			int pos = 0;
+			if (l_base == 2)
+				header[pos++] = (byte)0xfa;
+			else if (l_base == 10)
+				header[pos++] = (byte)0xf9;
+			else
+				header[pos++] = (byte)0xfb;
+			pos = VFloat.writeSigned(header, pos, l_digits);
+			if (l_base != 2 && l_base != 10)
+				pos = VFloat.writeSigned(header, pos, l_base);
+			pos = VFloat.writeSigned(header, pos, l_exp);
+			return new VEncoderData(Arrays.copyOf(header, pos), new byte[0]);
+		}
+
+		BigInteger base = this.getBase();
+		BigInteger digits = this.getDigits();
+		BigInteger exp = this.getExp();
 		int code;
-		if (this.base.compareTo(BigInteger.valueOf(2)) == 0)
+		if (base.compareTo(BigInteger.valueOf(2)) == 0)
 			code = 0xfa;
-		else if (this.base.compareTo(BigInteger.valueOf(10)) == 0)
+		else if (base.compareTo(BigInteger.valueOf(10)) == 0)
 			code = 0xf9;
 		else
 			code = 0xfb;
 
 		VEncoderData result = new VEncoderData(new byte[] {(byte)code}, new byte[0]);
-		result.addEmbedded(new VInteger(this.digits), false);
+		result.addEmbedded(new VInteger(digits), false);
 		if (code == 0xfb)
-			result.addEmbedded(new VInteger(this.base), false);
-		result.addEmbedded(new VInteger(this.exp), false);
+			result.addEmbedded(new VInteger(base), false);
+		result.addEmbedded(new VInteger(exp), false);
 
 		return result;
 	}
@@ -303,7 +377,7 @@ public final class VFloat extends VEntity {
 	public static VEntityReader _v_reader(VIOContext ctx) {
 		VEntityReader reader = new VEntityReader();
 		try {
-			reader.setDecoder(new VIntegerDecoder(ctx, true));
+			reader.setDecoder(new VFloatDecoder(ctx, true));
 		} catch (VEntityReaderException e) {
 			throw new RuntimeException();
 		}
@@ -325,10 +399,13 @@ public final class VFloat extends VEntity {
 		throws VEntityError {
 		if (value instanceof VFloat)
 			return (VFloat) value;
-		else if (value instanceof Double)
-			return VFloat.fromDouble((Double)value);
-		else if (value instanceof Float)
-			return VFloat.fromDouble(((Float)value).doubleValue());
+		else if (value instanceof Double || value instanceof Float) {
+			try {
+				return VFloat.fromDouble(((Number)value).doubleValue());
+			} catch (IllegalArgumentException e) {
+				throw new VEntityError("Cannot convert NaN or infinity");
+			}
+		}
 		else if (value instanceof BigDecimal)
 			return VFloat.fromBigDecimal((BigDecimal)value);
 
@@ -345,4 +422,55 @@ public final class VFloat extends VEntity {
 			throw new VEntityError("Cannot convert to VFloat");
 		return VFloat.fromBigDecimal(new BigDecimal(intVal));
 	}
+
+	/**
+	 * Converts the value mantissa*2^exp to a double if it can be represented exactly.
+	 *
+	 * @param mantissa value mantissa
+	 * @param exp value exponent
+	 * @return converted value, or null if not exactly representable
+	 */
+	static Double binaryToDouble(long mantissa, long exp) {
+		if (mantissa == 0)
+			return (Double)0.0d;
+		boolean positive = (mantissa > 0);
+		if (!positive)
+			mantissa = -mantissa;
+
+		// Shifts as unsigned so Long.MIN_VALUE is handled as 2^63
+		int z_bits = Long.numberOfTrailingZeros(mantissa);
+		mantissa >>>= z_bits;
+		if (exp < -4096 || exp > 4096)
+			return null;
+		exp += z_bits;
+		int m_bits = 64 - Long.numberOfLeadingZeros(mantissa);
+		if (m_bits > 53)
+			return null;
+
+		// Biased exponent of the normalized value must be within range, and
+		// values below the normal range must be exact multiples of 2^(-1074)
+		long b_exp = exp + m_bits - 1 + 1023;
+		if (b_exp > 2046 || (b_exp < 1 && exp < -1074))
+			return null;
+		double result = Math.scalb((double)mantissa, (int)exp);
+		return positive ? result : -result;
+	}
+
+	// True if signed netbytes of value can be generated without overflow
+	static boolean isSmall(long value) {
+		return (value > -(1L << 62) && value < (1L << 62));
+	}
+
+	// Writes signed netbytes of a value satisfying isSmall, returns new position
+	static int writeSigned(byte[] data, int pos, long value) {
+		long num = (value >= 0) ? (value << 1) : ((-value << 1) | 0x01L);
+		return VInteger.writePosint(data, pos, num);
+	}
+
+	// True if number is an integer type which fits in a long
+	static boolean fitsLong(Number num) {
+		if (num instanceof Integer || num instanceof Long)
+			return true;
+		return (num instanceof BigInteger && ((BigInteger)num).bitLength() < 64);
+	}
 }
@@ -33,6 +33,9 @@ public class VIOContext {
 
 	String strEncoding = null;
 	String strDecoding = null;
+	VStringCache strCache = null;
+	VStringDictionary strEncodingSymbols = null;
+	VStringDictionary strDecodingSymbols = null;
 	boolean preferOIDEncoding = true;
 
 	/**
@@ -87,6 +90,69 @@ public class VIOContext {
 		this.strDecoding = str_decoding;
 	}
 
+	/**
+	 * {@link VString} decoding cache set on context
+	 *
+	 * @return string cache (or null)
+	 */
+	public VStringCache getStrCache() {
+		return strCache;
+	}
+
+	/**
+	 * Sets a {@link VString} decoding cache on the context
+	 *
+	 * <p>If set, the cache is used for de-serialization of {@link VString}
+	 * data, so repeated strings are only decoded once.</p>
+	 *
+	 * @param str_cache string cache (or null)
+	 */
+	public void setStrCache(VStringCache str_cache) {
+		this.strCache = str_cache;
+	}
+
+	/**
+	 * {@link VString} symbols dictionary for serialization set on context
+	 *
+	 * @return symbols dictionary (or null)
+	 */
+	public VStringDictionary getStrEncodingSymbols() {
+		return strEncodingSymbols;
+	}
+
+	/**
+	 * Sets a {@link VString} symbols dictionary for serialization on the context
+	 *
+	 * <p>If set, strings are serialized as symbols of the dictionary. Must only
+	 * be set if the peer de-serializes with a matching decoding dictionary,
+	 * see {@link VStringDictionary}.</p>
+	 *
+	 * @param symbols symbols dictionary (or null)
+	 */
+	public void setStrEncodingSymbols(VStringDictionary symbols) {
+		this.strEncodingSymbols = symbols;
+	}
+
+	/**
+	 * {@link VString} symbols dictionary for de-serialization set on context
+	 *
+	 * @return symbols dictionary (or null)
+	 */
+	public VStringDictionary getStrDecodingSymbols() {
+		return strDecodingSymbols;
+	}
+
+	/**
+	 * Sets a {@link VString} symbols dictionary for de-serialization on the context
+	 *
+	 * <p>If set, serialized string symbols are resolved with the dictionary.</p>
+	 *
+	 * @param symbols symbols dictionary (or null)
+	 */
+	public void setStrDecodingSymbols(VStringDictionary symbols) {
+		this.strDecodingSymbols = symbols;
+	}
+
 	/**
 	 * Check if OID encoding is the preferred VSE encoding format.
 	 *
@@ -541,6 +541,22 @@ public final class VInteger extends VEntity {
 		return data.popAll();
 	}
 
+	// Writes netbytes of a non-negative value into data, returns new position
+	static int writePosint(byte[] data, int pos, long num) {
+		if (num <= 246) {
+			data[pos++] = (byte)num;
+			return pos;
+		}
+		num -= 247;
+		int num_bytes = 1;
+		while (num_bytes < 8 && (num >>> (8*num_bytes)) != 0)
+			num_bytes++;
+		data[pos++] = (byte)(246 + num_bytes);
+		for (int i = num_bytes - 1; i >= 0; i--)
+			data[pos++] = (byte)(num >>> (8*i));
+		return pos;
+	}
+
 	/**
 	 * Converts a signed integer to a Versile Platform byte-array representation.
 	 *
@@ -818,7 +834,7 @@ public final class VInteger extends VEntity {
 		}
 		else if (first_byte < 255) {
 			int num_bytes = first_byte - 246;
-			if (data.length >= (num_bytes+1)) {
+			if (data.length - offset >= (num_bytes+1)) {
 				byte[] num_data = new byte[num_bytes];
 				System.arraycopy(data, offset+1, num_data, 0, num_bytes);
 				Number _value = VInteger.bytes_to_posint(num_data);
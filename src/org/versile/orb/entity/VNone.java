@@ -162,4 +162,10 @@ public final class VNone extends VEntity {
 		else
 			return false;
 	}
+
+	@Override
+	public int hashCode() {
+		// All VNone instances are equal
+		return 0;
+	}
 }
@@ -20,7 +20,11 @@
 
 package org.versile.orb.entity;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.versile.common.util.VCombiner;
 import org.versile.orb.entity.decoder.VStringDecoder;
@@ -35,6 +39,9 @@ public final class VString extends VEntity {
 
 	String value;
 
+	static final Charset UTF8 = Charset.forName("UTF-8");
+	static Map<String, Charset> charsets = new ConcurrentHashMap<String, Charset>();
+
 	/**
 	 * Set up string object.
 	 *
@@ -68,6 +75,11 @@ public final class VString extends VEntity {
 			return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return value.hashCode();
+	}
+
 	@Override
 	public String _v_native() {
 		return value;
@@ -124,6 +136,13 @@ public final class VString extends VEntity {
 	 */
 	public VEncoderData _v_encode(VIOContext ctx, boolean explicit, String encoding)
 			throws VEntityWriterException {
+		VStringDictionary symbols = ctx.getStrEncodingSymbols();
+		if (symbols != null && encoding == null && value.length() <= VStringDictionary.MAX_LENGTH) {
+			VEncoderData result = this.encodeSymbol(symbols);
+			if (result != null)
+				return result;
+		}
+
 		String ctx_enc = ctx.getStrEncoding();
 		boolean with_enc = true;
 		if (ctx_enc != null && (encoding == null || encoding == ctx_enc)) {
@@ -133,24 +152,78 @@ public final class VString extends VEntity {
 		else if (encoding == null)
 			encoding = "utf8";
 
-		VEncoderData result;
+		Charset charset;
+		try {
+			charset = VString._v_charset(encoding);
+		} catch (IllegalArgumentException e) {
+			throw new VEntityWriterException("String encoding error");
+		}
+
+		// String data and encoding name are held in header and payload of
+		// this entity, producing the same serialized data as embedded VBytes
+		byte[] enc_data = null;
+		int enc_len = 0;
 		if (with_enc) {
-			result = new VEncoderData(new byte[] {(byte)0xf5}, null);
-			try {
-				result.addEmbedded(new VBytes(encoding.getBytes(encoding)), false);
-			} catch (Exception e) {
-				throw new VEntityWriterException("String encoding error");
-			}
+			enc_data = encoding.getBytes(charset);
+			enc_len = enc_data.length;
+		}
+		byte[] payload;
+		int str_len = -1;
+		if (charset.equals(UTF8))
+			str_len = VString.utf8Length(value);
+		if (str_len >= 0) {
+			payload = new byte[str_len + enc_len];
+			VString.writeUtf8(value, payload, 0);
+		}
+		else {
+			byte[] str_data = value.getBytes(charset);
+			str_len = str_data.length;
+			payload = Arrays.copyOf(str_data, str_len + enc_len);
+		}
+		if (with_enc)
+			System.arraycopy(enc_data, 0, payload, str_len, enc_len);
+
+		byte[] header = new byte[19];
+		int pos = 0;
+		if (with_enc) {
+			header[pos++] = (byte)0xf5;
+			pos = VInteger.writePosint(header, pos, enc_len);
 		}
 		else
-			result = new VEncoderData(new byte[] {(byte)0xf4}, null);
+			header[pos++] = (byte)0xf4;
+		pos = VInteger.writePosint(header, pos, str_len);
+		return new VEncoderData(Arrays.copyOf(header, pos), payload);
+	}
 
-		try {
-			result.addEmbedded(new VBytes(value.getBytes(encoding)), false);
-		} catch (Exception e) {
-			throw new VEntityWriterException("String encoding error");
+	// Encodes as a symbol reference or definition (all data in header), or
+	// returns null if value is too long to be a symbol
+	VEncoderData encodeSymbol(VStringDictionary symbols) {
+		int id = symbols.lookup(value);
+		if (id >= 0) {
+			byte[] header = new byte[10];
+			header[0] = (byte)0xff;
+			int pos = VInteger.writePosint(header, 1, 2L*id);
+			return new VEncoderData(Arrays.copyOf(header, pos), null);
 		}
-		return result;
+
+		int str_len = VString.utf8Length(value);
+		byte[] str_data = null;
+		if (str_len < 0) {
+			str_data = value.getBytes(UTF8);
+			str_len = str_data.length;
+		}
+		if (str_len > VStringDictionary.MAX_LENGTH)
+			return null;
+		id = symbols.assign(value);
+		byte[] header = new byte[19 + str_len];
+		header[0] = (byte)0xff;
+		int pos = VInteger.writePosint(header, 1, 2L*id + 1);
+		pos = VInteger.writePosint(header, pos, str_len);
+		if (str_data != null)
+			System.arraycopy(str_data, 0, header, pos, str_len);
+		else
+			VString.writeUtf8(value, header, pos);
+		return new VEncoderData(Arrays.copyOf(header, pos + str_len), null);
 	}
 
 	/**
@@ -178,6 +251,26 @@ public final class VString extends VEntity {
 		return new String[] {"utf8", "utf16"};
 	}
 
+	/**
+	 * Resolves the charset of a string encoding name.
+	 *
+	 * <p>Intended primarily for internal use by the Versile Java framework.
+	 * Resolved charsets are cached.</p>
+	 *
+	 * @param encoding encoding name
+	 * @return charset
+	 * @throws IllegalArgumentException unknown or unsupported encoding
+	 */
+	public static Charset _v_charset(String encoding)
+			throws IllegalArgumentException {
+		Charset result = charsets.get(encoding);
+		if (result == null) {
+			result = Charset.forName(encoding);
+			charsets.put(encoding, result);
+		}
+		return result;
+	}
+
 	/**
 	 * Converts input to a {@link VString}.
 	 *
@@ -217,4 +310,49 @@ public final class VString extends VEntity {
 		else
 			throw new VEntityError("Cannot convert input value");
 	}
+
+	// Returns UTF-8 encoded length of value, or -1 if value has surrogates
+	static int utf8Length(String value) {
+		int len = value.length();
+		int result = len;
+		for (int i = 0; i < len; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800)
+					result += 1;
+				else if (c >= 0xd800 && c <= 0xdfff)
+					return -1;
+				else
+					result += 2;
+			}
+		}
+		return result;
+	}
+
+	// Writes UTF-8 encoding of a value without surrogates to data at a position
+	static void writeUtf8(String value, byte[] data, int pos) {
+		int len = value.length();
+		int i = 0;
+		// ASCII fast path
+		for (; i < len; i++) {
+			char c = value.charAt(i);
+			if (c >= 0x80)
+				break;
+			data[pos++] = (byte)c;
+		}
+		for (; i < len; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80)
+				data[pos++] = (byte)c;
+			else if (c < 0x800) {
+				data[pos++] = (byte)(0xc0 | (c >> 6));
+				data[pos++] = (byte)(0x80 | (c & 0x3f));
+			}
+			else {
+				data[pos++] = (byte)(0xe0 | (c >> 12));
+				data[pos++] = (byte)(0x80 | ((c >> 6) & 0x3f));
+				data[pos++] = (byte)(0x80 | (c & 0x3f));
+			}
+		}
+	}
 }
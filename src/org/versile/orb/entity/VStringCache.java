@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.orb.entity;
+
+import java.nio.charset.Charset;
+
+
+/**
+ * Bounded cache of recently decoded {@link VString} values.
+ *
+ * <p>Maps encoded string data to a previously decoded {@link VString}, so
+ * strings which are received repeatedly (such as method names and dictionary
+ * keys) are decoded and allocated only once. The cache is direct-mapped on a
+ * hash of the encoded data, and an entry is replaced when another string maps
+ * to the same slot. Only strings up to a maximum encoded length are cached.</p>
+ *
+ * <p>A cache is normally set on a link's {@link VIOContext}. Lookups and
+ * updates do not lock, and concurrent use can only cause cache misses.</p>
+ */
+public final class VStringCache {
+
+	Entry[] entries;
+	int max_length;
+
+	/**
+	 * Set up cache.
+	 *
+	 * @param size number of cache entries (rounded up to a power of two)
+	 * @param maxLength max encoded length of cached strings
+	 */
+	public VStringCache(int size, int maxLength) {
+		int num_entries = 1;
+		while (num_entries < size)
+			num_entries <<= 1;
+		entries = new Entry[num_entries];
+		max_length = maxLength;
+	}
+
+	/**
+	 * Decodes string data, returning a cached string if available.
+	 *
+	 * @param data encoded string data
+	 * @param offset offset of string data
+	 * @param length length of string data
+	 * @param charset string encoding
+	 * @return decoded string
+	 */
+	public VString decode(byte[] data, int offset, int length, Charset charset) {
+		if (length > max_length)
+			return new VString(new String(data, offset, length, charset));
+
+		int hash = 1;
+		for (int i = offset; i < offset + length; i++)
+			hash = 31*hash + data[i];
+		hash ^= (hash >>> 16);
+		int pos = hash & (entries.length - 1);
+
+		Entry entry = entries[pos];
+		if (entry != null && entry.hash == hash && entry.matches(data, offset, length, charset))
+			return entry.value;
+
+		VString result = new VString(new String(data, offset, length, charset));
+		byte[] _data = new byte[length];
+		System.arraycopy(data, offset, _data, 0, length);
+		entries[pos] = new Entry(_data, hash, charset, result);
+		return result;
+	}
+
+	/**
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		for (int i = 0; i < entries.length; i++)
+			entries[i] = null;
+	}
+
+	static final class Entry {
+		final byte[] data;
+		final int hash;
+		final Charset charset;
+		final VString value;
+
+		public Entry(byte[] data, int hash, Charset charset, VString value) {
+			this.data = data;
+			this.hash = hash;
+			this.charset = charset;
+			this.value = value;
+		}
+
+		boolean matches(byte[] other, int offset, int length, Charset charset) {
+			if (data.length != length || !this.charset.equals(charset))
+				return false;
+			for (int i = 0; i < length; i++)
+				if (data[i] != other[offset + i])
+					return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.orb.entity;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Dictionary of strings sent as symbols on a link.
+ *
+ * <p>When a dictionary is set as encoding symbols on an I/O context, a
+ * {@link VString} whose UTF-8 encoding is at most {@link #MAX_LENGTH} bytes is
+ * serialized as a symbol definition the first time it is sent, and later as a
+ * reference to the symbol's integer ID. The peer holds a dictionary set as
+ * decoding symbols on its I/O context, which records definitions and resolves
+ * references.</p>
+ *
+ * <p>The sending side evicts the least recently used symbol when the dictionary
+ * is full, and reuses its ID for the next definition. The definition replaces
+ * the evicted symbol in the peer's dictionary, so the two dictionaries are kept
+ * in sync without separate eviction messages. This requires that entities are
+ * de-serialized in the same order they were serialized, which is the case for
+ * a link's entity channel.</p>
+ *
+ * <p>Symbol definitions and references use the code 0xff which is not part of
+ * the VFE serialization format, so symbols must only be used when negotiated
+ * with the peer.</p>
+ */
+public final class VStringDictionary {
+
+	/**
+	 * Max UTF-8 encoded length of strings sent as symbols.
+	 */
+	public static final int MAX_LENGTH = 64;
+
+	int size;
+	LinkedHashMap<String, Integer> ids = null;  // symbol IDs in LRU order (encoding)
+	VString[] symbols = null;                   // symbols by ID (decoding)
+
+	/**
+	 * Set up dictionary.
+	 *
+	 * @param size max number of symbols
+	 * @throws IllegalArgumentException size not positive
+	 */
+	public VStringDictionary(int size)
+			throws IllegalArgumentException {
+		if (size <= 0)
+			throw new IllegalArgumentException("Size must be positive");
+		this.size = size;
+	}
+
+	/**
+	 * Get max number of symbols.
+	 *
+	 * @return max number of symbols
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Look up the symbol ID of a string for sending.
+	 *
+	 * @param value string value
+	 * @return symbol ID, or -1 if not defined
+	 */
+	synchronized int lookup(String value) {
+		if (ids == null)
+			return -1;
+		Integer id = ids.get(value);
+		return (id != null) ? id : -1;
+	}
+
+	/**
+	 * Assign a symbol ID to a string for sending, evicting the least recently used symbol if full.
+	 *
+	 * @param value string value
+	 * @return symbol ID
+	 */
+	synchronized int assign(String value) {
+		if (ids == null)
+			ids = new LinkedHashMap<String, Integer>(16, 0.75f, true);
+		int id;
+		if (ids.size() < size)
+			id = ids.size();
+		else {
+			Iterator<Map.Entry<String, Integer>> iter = ids.entrySet().iterator();
+			id = iter.next().getValue();
+			iter.remove();
+		}
+		ids.put(value, id);
+		return id;
+	}
+
+	/**
+	 * Records a received symbol definition.
+	 *
+	 * <p>Intended primarily for internal use by the Versile Java framework.</p>
+	 *
+	 * @param id symbol ID
+	 * @param value symbol value
+	 * @throws IllegalArgumentException invalid symbol ID
+	 */
+	public synchronized void define(int id, VString value)
+			throws IllegalArgumentException {
+		if (id < 0 || id >= size)
+			throw new IllegalArgumentException("Invalid symbol ID");
+		if (symbols == null)
+			symbols = new VString[size];
+		symbols[id] = value;
+	}
+
+	/**
+	 * Resolves a received symbol reference.
+	 *
+	 * <p>Intended primarily for internal use by the Versile Java framework.</p>
+	 *
+	 * @param id symbol ID
+	 * @return symbol value, or null if not defined
+	 */
+	public synchronized VString get(int id) {
+		if (symbols == null || id < 0 || id >= size)
+			return null;
+		return symbols[id];
+	}
+}
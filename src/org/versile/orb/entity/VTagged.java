@@ -20,6 +20,7 @@
 
 package org.versile.orb.entity;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
 import org.versile.orb.entity.decoder.VTaggedDecoder;
@@ -173,6 +174,6 @@ public final class VTagged extends VEntity {
 
 	@Override
 	public int hashCode() {
-		return value.hashCode() ^ tags.hashCode();
+		return value.hashCode() ^ Arrays.hashCode(tags);
 	}
 }
@@ -20,6 +20,7 @@
 
 package org.versile.orb.entity;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Iterator;
 import java.util.List;
@@ -69,15 +70,22 @@ public final class VTuple extends VEntity implements Iterable<VEntity> {
 	 * @param value tuple values
 	 */
 	public VTuple(VEntity[] value) {
-		int size = 0;
-		LinkedList<VEntity> tmp_list = new LinkedList<VEntity>();
-		for (VEntity item: value) {
-			tmp_list.addLast(item);
-			size++;
-		}
-		this.value = new VEntity[size];
-		for (int i = 0; i < size; i++)
-			this.value[i] = tmp_list.removeFirst();
+		this.value = Arrays.copyOf(value, value.length, VEntity[].class);
+	}
+
+	/**
+	 * Creates a tuple which holds the provided array without copying.
+	 *
+	 * <p>The array must not be modified after the call. Intended primarily
+	 * for internal use by the Versile Java framework.</p>
+	 *
+	 * @param value tuple values (not copied)
+	 * @return tuple
+	 */
+	public static VTuple _v_wrap(VEntity[] value) {
+		VTuple result = new VTuple();
+		result.value = value;
+		return result;
 	}
 
 	/**
@@ -456,6 +464,6 @@ public final class VTuple extends VEntity implements Iterable<VEntity> {
 
 	@Override
 	public int hashCode() {
-		return value.hashCode();
+		return Arrays.hashCode(value);
 	}
 }
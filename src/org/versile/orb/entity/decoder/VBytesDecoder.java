@@ -76,8 +76,11 @@ public final class VBytesDecoder extends VEntityDecoderBase {
 			have_header = true;
 			return true;
 		}
-		else
+		else {
+			// Header incomplete, all input data was buffered
+			data.pop(data.length());
 			return false;
+		}
 	}
 
 	@Override
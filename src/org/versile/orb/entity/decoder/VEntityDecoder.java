@@ -74,6 +74,8 @@ public final class VEntityDecoder extends VEntityDecoderBase {
 				decoder = new VObjectDecoder(ctx, true);
 			else if (code == 0xfe)
 				decoder = new VTaggedDecoder(ctx, true);
+			else if (code == 0xff && ctx.getStrDecodingSymbols() != null)
+				decoder = new VStringDecoder(ctx, true);
 			else
 				throw new VEntityReaderException("Unknown code");
 		}
@@ -106,6 +106,33 @@ public abstract class VEntityDecoderBase {
 	public abstract VEntity getResult()
 			 throws VEntityReaderException;
 
+	/**
+	 * Pops a non-negative netbytes integer off the front of a buffer.
+	 *
+	 * <p>Only decodes values which are fully available in the buffer and
+	 * which are encoded with at most 7 bytes following the leading byte.</p>
+	 *
+	 * @param data serialized data
+	 * @return decoded value, or -1 if not decoded (data is not popped)
+	 */
+	static long popPosint(VByteBuffer data) {
+		if (data.length() == 0)
+			return -1;
+		int first_byte = data.peekByte(0) & 0xff;
+		if (first_byte <= 246) {
+			data.remove(1);
+			return first_byte;
+		}
+		int num_bytes = first_byte - 245;
+		if (first_byte > 253 || data.length() < num_bytes)
+			return -1;
+		long num = 0;
+		for (int i = 1; i < num_bytes; i++)
+			num = (num << 8) | (data.peekByte(i) & 0xff);
+		data.remove(num_bytes);
+		return num + 247;
+	}
+
 	/**
 	 * Checks if decoder has a failure state registered.
 	 *
@@ -38,6 +38,9 @@ public class VFloatDecoder extends VEntityDecoderBase {
 	VEntity entity = null;
 	boolean have_code = false;
 	int code = 0;
+	Number[] values = null;              // digits, (base,) exponent
+	int num_values = 0;                  // number of decoded values
+	VIntegerDecoder int_decoder = null;  // decoder for value not resolved inline
 
 	public VFloatDecoder(VIOContext ctx, boolean explicit) {
 		super(ctx, explicit);
@@ -46,21 +49,67 @@ public class VFloatDecoder extends VEntityDecoderBase {
 	@Override
 	public boolean decodeHeader(VByteBuffer data) throws VEntityReaderException {
 		this.checkFailed();
-		if (!explicit || have_code)
+		if (!explicit || entity != null)
 			return true;
 
-		if (data.length() == 0)
-			return false;
-		code = (int)(data.pop(1)[0] & 0xff);
-		if (code == 0xf9 || code == 0xfa || code == 0xfb)
-			have_code = true;
-		else {
+		if (!have_code) {
+			if (data.length() == 0)
+				return false;
+			code = (int)(data.pop(1)[0] & 0xff);
+			if (code == 0xf9 || code == 0xfa || code == 0xfb)
+				have_code = true;
+			else {
+				failed = true;
+				throw new VEntityReaderException("Invalid code for VTagged");
+			}
+			values = new Number[(code == 0xfb) ? 3 : 2];
+		}
+
+		// Embedded integers are held in header data, and are decoded directly
+		// instead of through separate embedded entity decoders
+		while (num_values < values.length) {
+			if (int_decoder == null) {
+				if (data.length() == 0)
+					return false;
+				if (this.decodeValue(data))
+					continue;
+				int_decoder = new VIntegerDecoder(ctx, false);
+			}
+			if (!int_decoder.decodeHeader(data))
+				return false;
+			values[num_values++] = ((VInteger)int_decoder.getResult()).getValue();
+			int_decoder = null;
+		}
+
+		Number base;
+		if (code == 0xf9)
+			base = 10;
+		else if (code == 0xfa)
+			base = 2;
+		else
+			base = values[1];
+		try {
+			entity = new VFloat(values[0], base, values[values.length-1]);
+		} catch (IllegalArgumentException e) {
 			failed = true;
-			throw new VEntityReaderException("Invalid code for VTagged");
+			throw new VEntityReaderException("Illegal VFloat base");
 		}
 		return true;
 	}
 
+	// Decodes a signed netbytes value which is fully available and fits in
+	// 7 bytes without allocating a buffer, returns false if not decoded
+	boolean decodeValue(VByteBuffer data) {
+		long num = VEntityDecoderBase.popPosint(data);
+		if (num < 0)
+			return false;
+		if ((num & 0x01L) != 0)
+			values[num_values++] = -(num >>> 1);
+		else
+			values[num_values++] = (num >>> 1);
+		return true;
+	}
+
 	@Override
 	public Integer payloadLength() throws VEntityReaderException {
 		this.checkFailed();
@@ -79,6 +128,8 @@ public class VFloatDecoder extends VEntityDecoderBase {
 			failed = true;
 			throw new VEntityReaderException("Header not yet decoded");
 		}
+		if (have_code)
+			return null;
 		int num_elements = 2;
 		if (code == 0xfb)
 			num_elements++;
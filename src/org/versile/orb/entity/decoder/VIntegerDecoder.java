@@ -116,8 +116,12 @@ public final class VIntegerDecoder extends VEntityDecoderBase {
 			}
 			return true;
 		}
-		else
+		else {
+			// Header incomplete, all input data was buffered
+			netbytes_read += data.length();
+			data.pop(data.length());
 			return false;
+		}
 	}
 
 	@Override
@@ -20,24 +20,41 @@
 
 package org.versile.orb.entity.decoder;
 
+import java.nio.charset.Charset;
 import java.util.LinkedList;
 
 import org.versile.common.util.VByteBuffer;
-import org.versile.orb.entity.VBytes;
 import org.versile.orb.entity.VEntity;
 import org.versile.orb.entity.VEntityReaderException;
 import org.versile.orb.entity.VIOContext;
 import org.versile.orb.entity.VString;
+import org.versile.orb.entity.VStringCache;
+import org.versile.orb.entity.VStringDictionary;
 
 
 /**
  * Decoder for serialized {@link org.versile.orb.entity.VString} data.
+ *
+ * <p>The string data and encoding name are serialized as embedded
+ * {@link org.versile.orb.entity.VBytes}, however their lengths and data are
+ * decoded directly as part of this decoder's header and payload. If the
+ * I/O context has a {@link VStringCache} it is used for decoding.</p>
+ *
+ * <p>Also decodes symbol definitions and references of a {@link VStringDictionary}
+ * set as decoding symbols on the I/O context.</p>
  */
 public class VStringDecoder extends VEntityDecoderBase {
 
 	VEntity entity = null;
 	boolean have_code = false;
 	boolean with_encoding = false;
+	boolean is_symbol = false;
+	boolean have_header = false;
+	long sym_code = -1;
+	int enc_len = -1;
+	int str_len = -1;
+	VBytesDecoder len_decoder = null;  // decoder for length not resolved inline
+	VByteBuffer buf = null;            // partially received payload
 
 	public VStringDecoder(VIOContext ctx, boolean explicit) {
 		super(ctx, explicit);
@@ -46,100 +63,203 @@ public class VStringDecoder extends VEntityDecoderBase {
 	@Override
 	public boolean decodeHeader(VByteBuffer data) throws VEntityReaderException {
 		this.checkFailed();
-		if (have_code)
+		if (have_header)
 			return true;
-		if (data.length() == 0)
-			return false;
 
-		int code = (int)(data.pop(1)[0] & 0xff);
-		if (code == 0xf4) {
-			with_encoding = false;
-			have_code = true;
+		if (!have_code) {
+			if (data.length() == 0)
+				return false;
+			int code = (int)(data.pop(1)[0] & 0xff);
+			if (code == 0xf4) {
+				with_encoding = false;
+				have_code = true;
+			}
+			else if (code == 0xf5) {
+				with_encoding = true;
+				have_code = true;
+			}
+			else if (code == 0xff && ctx.getStrDecodingSymbols() != null) {
+				is_symbol = true;
+				have_code = true;
+			}
+			else {
+				failed = true;
+				throw new VEntityReaderException("Invalid code for VBytes");
+			}
 		}
-		else if (code == 0xf5) {
-			with_encoding = true;
-			have_code = true;
+
+		if (is_symbol)
+			return this.decodeSymbol(data);
+
+		while (!have_header) {
+			long len = this.decodeLength(data);
+			if (len < 0)
+				return false;
+			if (with_encoding && enc_len < 0)
+				enc_len = (int)len;
+			else {
+				str_len = (int)len;
+				if (with_encoding && (long)str_len + enc_len > Integer.MAX_VALUE) {
+					failed = true;
+					throw new VEntityReaderException("String data too long");
+				}
+				have_header = true;
+			}
 		}
-		else {
+		return true;
+	}
+
+	// Decodes a symbol reference, or a symbol definition which holds the
+	// string data as header data
+	boolean decodeSymbol(VByteBuffer data)
+			throws VEntityReaderException {
+		VStringDictionary symbols = ctx.getStrDecodingSymbols();
+		if (symbols == null) {
 			failed = true;
-			throw new VEntityReaderException("Invalid code for VBytes");
+			throw new VEntityReaderException("String symbols not enabled");
+		}
+		while (str_len < 0) {
+			long num = this.decodeLength(data);
+			if (num < 0)
+				return false;
+			if (sym_code < 0) {
+				sym_code = num;
+				if ((sym_code & 0x01L) == 0) {
+					entity = symbols.get((int)(sym_code >>> 1));
+					if (entity == null) {
+						failed = true;
+						throw new VEntityReaderException("Undefined string symbol");
+					}
+					have_header = true;
+					return true;
+				}
+			}
+			else {
+				if (num > VStringDictionary.MAX_LENGTH) {
+					failed = true;
+					throw new VEntityReaderException("String symbol too long");
+				}
+				str_len = (int)num;
+			}
 		}
 
+		if (buf == null)
+			buf = new VByteBuffer();
+		buf.append(data.pop(str_len - buf.length()));
+		if (buf.length() < str_len)
+			return false;
+		VString value = new VString(new String(buf.popAll(), VString._v_charset("UTF-8")));
+		try {
+			symbols.define((int)(sym_code >>> 1), value);
+		} catch (IllegalArgumentException e) {
+			failed = true;
+			throw new VEntityReaderException("Invalid string symbol");
+		}
+		entity = value;
+		have_header = true;
 		return true;
 	}
 
+	// Decodes a length from header data, returns -1 if incomplete
+	long decodeLength(VByteBuffer data)
+			throws VEntityReaderException {
+		long len = -1;
+		if (len_decoder == null) {
+			if (data.length() == 0)
+				return -1;
+			len = VEntityDecoderBase.popPosint(data);
+			if (len < 0)
+				len_decoder = new VBytesDecoder(ctx, false);
+		}
+		if (len_decoder != null) {
+			if (!len_decoder.decodeHeader(data))
+				return -1;
+			len = len_decoder.payloadLength();
+			len_decoder = null;
+		}
+		if (len > Integer.MAX_VALUE) {
+			failed = true;
+			throw new VEntityReaderException("String data too long");
+		}
+		return len;
+	}
+
 	@Override
 	public Integer payloadLength() throws VEntityReaderException {
 		this.checkFailed();
-		if (!have_code) {
+		if (!have_header) {
 			failed = true;
 			throw new VEntityReaderException("Header not yet decoded");
 		}
-		return 0;
+		if (is_symbol)
+			return 0;
+		return (with_encoding) ? (str_len + enc_len) : str_len;
 	}
 
 	@Override
 	public LinkedList<VEntityDecoderBase> getEmbeddedDecoders()
 			throws VEntityReaderException {
-		LinkedList<VEntityDecoderBase> decoders = new LinkedList<VEntityDecoderBase>();
 		this.checkFailed();
-		if (!have_code) {
+		if (!have_header) {
 			failed = true;
 			throw new VEntityReaderException("Header not yet decoded");
 		}
-
-		decoders.addLast(new VBytesDecoder(ctx, false));
-		if (with_encoding)
-			decoders.addLast(new VBytesDecoder(ctx, false));
-		return decoders;
+		return null;
 	}
 
 	@Override
 	public void putEmbeddedEntities(LinkedList<VEntity> entities)
 			throws VEntityReaderException {
 		this.checkFailed();
-		if (!have_code || entity != null) {
+	}
+
+	@Override
+	public boolean decodePayload(VByteBuffer data)
+			throws VEntityReaderException {
+		this.checkFailed();
+		if (!have_header) {
 			failed = true;
 			throw new VEntityReaderException("Header not yet decoded");
 		}
-		if ((with_encoding && entities.size() != 2) || (!with_encoding && entities.size() != 1)) {
-			failed = true;
-			throw new VEntityReaderException("Invalid embedded entities");
+		if (entity != null)
+			return true;
+
+		// String data is followed by encoding name data
+		int total_len = this.payloadLength();
+		byte[] payload;
+		if (buf == null && data.length() >= total_len)
+			payload = data.pop(total_len);
+		else {
+			if (buf == null)
+				buf = new VByteBuffer();
+			buf.append(data.pop(total_len - buf.length()));
+			if (buf.length() < total_len)
+				return false;
+			payload = buf.popAll();
 		}
 
-		VBytes v_str_data = (VBytes)(entities.peekLast());
-		byte[] str_data = (byte[])(v_str_data._v_native());
 		String encoding;
-		if (with_encoding) {
-			VBytes v_enc_data = (VBytes)(entities.peekFirst());
-			byte[] enc_data = (byte[])(v_enc_data._v_native());
-			try {
-				encoding = new String(enc_data, "UTF-8");
-			} catch (Exception e) {
-				throw new VEntityReaderException("String encoding parsing error: " + e);
-			}
-		}
+		if (with_encoding)
+			encoding = new String(payload, str_len, enc_len, VString._v_charset("UTF-8"));
 		else if (ctx.getStrDecoding() != null)
 			encoding = ctx.getStrDecoding();
-		else
+		else {
+			failed = true;
 			throw new VEntityReaderException("Unknown string encoding");
-
-		try {
-			entity = new VString(new String(str_data, encoding));
-		}
-		catch (Exception e) {
-			throw new VEntityReaderException("String data could not be decoded");
 		}
-	}
-
-	@Override
-	public boolean decodePayload(VByteBuffer data)
-			throws VEntityReaderException {
-		this.checkFailed();
-		if (entity == null) {
+		Charset charset;
+		try {
+			charset = VString._v_charset(encoding);
+		} catch (IllegalArgumentException e) {
 			failed = true;
-			throw new VEntityReaderException("Embedded data not yet decoded");
+			throw new VEntityReaderException("String encoding parsing error: " + e);
 		}
+
+		VStringCache cache = ctx.getStrCache();
+		if (cache != null)
+			entity = cache.decode(payload, 0, str_len, charset);
+		else
+			entity = new VString(new String(payload, 0, str_len, charset));
 		return true;
 	}
 
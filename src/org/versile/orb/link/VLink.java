@@ -791,14 +791,23 @@ public abstract class VLink extends VObjectIOContext {
 
 	@Override
 	public synchronized void referenceDeref(Number peer_id) {
-		PeerObject _peer = peer_obj.get(peer_id);
-		if (_peer == null)
-			return;
+		PeerObject _peer = null;
+		long recv_count = 0;
+		synchronized(peer_lock) {
+			_peer = peer_obj.get(peer_id);
+			if (_peer == null)
+				return;
+			// If a new reference was created after the finalized reference was
+			// collected, the new reference performs the dereference
+			if (_peer.ref.get() != null)
+				return;
+			recv_count = _peer.recv_count;
+		}
 
 		try {
 			LinkedList<VEntity> msg_data = new LinkedList<VEntity>();
 			msg_data.addLast(new VInteger(peer_id));
-			msg_data.addLast(new VInteger(_peer.recv_count));
+			msg_data.addLast(new VInteger(recv_count));
 			this.sendMessage(0x07, new VTuple(msg_data));
 		}
 		catch (VLinkException e) {
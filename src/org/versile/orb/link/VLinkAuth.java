@@ -20,6 +20,7 @@
 
 package org.versile.orb.link;
 
+import java.security.PublicKey;
 import java.security.cert.CertPath;
 import java.security.interfaces.RSAPublicKey;
 
@@ -89,7 +90,8 @@ public class VLinkAuth {
 			RSAPublicKey key = ctx.getPublicKey();
 			X500Principal identity = ctx.getClaimedIdentity();
 			CertPath certificates = ctx.getCertificates();
-			VCredentials credentials = new VCredentials(key, identity, certificates);
+			PublicKey signatureKey = ctx.getSignatureKey();
+			VCredentials credentials = new VCredentials(key, signatureKey, identity, certificates);
 			if (!auth.acceptCredentials(credentials))
 				return false;
 
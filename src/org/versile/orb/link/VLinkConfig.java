@@ -48,6 +48,11 @@ import org.versile.orb.module.VModuleResolver;
  * in order to enable proper detection of zero remote references between peers (which will
  * never reach zero if the link holds a peer gateway reference which is never retrieved
  * from the link).</p>
+ *
+ * <p>'stringSymbols' is the size of a {@link org.versile.orb.entity.VStringDictionary}
+ * of string symbols which is negotiated with the peer during the link handshake.
+ * If the peer accepts, strings sent between the peers are serialized as symbol
+ * definitions and references. Default value is 0 (symbols not used).</p>
  */
 public class VLinkConfig {
 
@@ -57,6 +62,7 @@ public class VLinkConfig {
 	VLinkCallback initCallback = null;
 	VLinkKeepAlive keepAlive;
 	boolean holdPeer = true;
+	int stringSymbols = 0;
 
 	public VLinkConfig() {
 		parser = new VModuleResolver(null, true);
@@ -110,11 +116,20 @@ public class VLinkConfig {
 		this.holdPeer = holdPeer;
 	}
 
+	public int getStringSymbols() {
+		return stringSymbols;
+	}
+
+	public void setStringSymbols(int stringSymbols) {
+		this.stringSymbols = stringSymbols;
+	}
+
 	protected void copyTo(VLinkConfig config) {
 		config.authorizer = authorizer;
 		config.parser = parser;
 		config.initCallback = initCallback;
 		config.holdPeer = holdPeer;
+		config.stringSymbols = stringSymbols;
 		config.keepAlive = keepAlive.clone();
 	}
 }
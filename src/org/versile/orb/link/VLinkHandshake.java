@@ -33,6 +33,7 @@ import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VObject;
 import org.versile.orb.entity.VProxy;
 import org.versile.orb.entity.VReference;
+import org.versile.orb.entity.VStringDictionary;
 import org.versile.orb.external.Publish;
 import org.versile.orb.external.VExternal;
 
@@ -49,6 +50,7 @@ public class VLinkHandshake extends VExternal {
 	VProxy peer = null;
 
 	boolean got_keep_alive = false;
+	boolean got_symbols = false;
 
 	boolean allow_finish = false;
 	VCall<Object> pending_finish = null;
@@ -104,6 +106,38 @@ public class VLinkHandshake extends VExternal {
 		return send_t;
 	}
 
+	/**
+	 * Request from peer this side of link should send strings as symbols.
+	 *
+	 * <p>Accepted dictionary size is the minimum of the requested size and the
+	 * size set on this side's link configuration. If accepted size is positive,
+	 * strings are from then on sent as symbols of a {@link VStringDictionary}
+	 * of that size, which the peer must resolve with a dictionary of the
+	 * requested size.</p>
+	 *
+	 * @param reqSize requested dictionary size
+	 * @return accepted dictionary size (zero if symbols are not used)
+	 */
+	@Publish(show=true, ctx=false)
+	public synchronized long symbols(long reqSize)
+		throws VCallError {
+		// Validate method is called only once, and input argument
+		if (got_symbols || reqSize <= 0) {
+			this.abort();
+			throw new VCallError();
+		}
+		got_symbols = true;
+
+		VLink link = wlink.get();
+		if (link == null)
+			throw new VCallError();
+		long size = Math.min(reqSize, link.config.getStringSymbols());
+		if (size <= 0)
+			return 0;
+		link.setStrEncodingSymbols(new VStringDictionary((int)size));
+		return size;
+	}
+
 	/**
 	 * Implements the VOL handshake call to the "finish" remote method.
 	 *
@@ -199,6 +233,27 @@ public class VLinkHandshake extends VExternal {
 			link.keepAliveRecv = granted_t;
 		}
 
+		// If defined on link, request peer sends strings as symbols. The
+		// decoding dictionary must be set before the request, as the peer may
+		// send symbols as soon as it has accepted.
+		int sym_size = link.config.getStringSymbols();
+		if (sym_size > 0) {
+			link.setStrDecodingSymbols(new VStringDictionary(sym_size));
+			long accepted_size;
+			try {
+				accepted_size = VInteger.nativeOf(peer.call("symbols", (long)sym_size)).longValue();
+			} catch (Exception e) {
+				// Peer does not support symbols
+				accepted_size = 0;
+			}
+			if (accepted_size > sym_size) {
+				this.abort();
+				throw new VLinkException("Illegal negotiated string symbols size");
+			}
+			if (accepted_size <= 0)
+				link.setStrDecodingSymbols(null);
+		}
+
 		// Finish handshake
 		this.canFinish();
 		Object result = null;
@@ -20,8 +20,10 @@
 
 package org.versile.orb.module;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -44,6 +46,11 @@ import org.versile.orb.entity.VTuple;
  *
  * <p>Holds a set of {@link VModule} modules and dispatches VER
  * parsing to the appropriate module.</p>
+ *
+ * <p>Decoding and conversion is performed without locking on an immutable
+ * snapshot of registered decoders and converters, which is replaced when
+ * modules are added or removed. Encoding tags are resolved directly against
+ * an index of the tag sequences of registered decoders.</p>
  */
 public class VModuleResolver extends VTaggedParser {
 	// Globally imported modules
@@ -62,6 +69,7 @@ public class VModuleResolver extends VTaggedParser {
 
 	Set<VModule> modules;
 	VModule proxy_module;
+	volatile Snapshot snapshot;
 
 	/**
 	 * Set up resolver
@@ -74,6 +82,7 @@ public class VModuleResolver extends VTaggedParser {
 			throws IllegalArgumentException {
 		this.modules = new HashSet<VModule>();
 		proxy_module = new VModule();
+		snapshot = new Snapshot(proxy_module);
 
 		if (modules != null)
 			for (VModule mod: modules)
@@ -93,13 +102,31 @@ public class VModuleResolver extends VTaggedParser {
 	}
 
 	@Override
-	public synchronized Pair decoder(VTagged obj)
+	public Pair decoder(VTagged obj)
 		throws VTaggedParseError {
+		Snapshot snapshot = this.snapshot;
 		VEntity value = obj.getValue();
 		VEntity[] tags = obj.getTags();
 		if (tags.length == 0)
 			throw new VTaggedParseError("No tags set on tag object");
 
+		VModuleDecoder decoder = null;
+		Object[] decode_tags = null;
+
+		// Resolve from tag index, falling back to parsing tags if not found
+		TagNode node = snapshot.lookup(tags);
+		if (node != null) {
+			decoder = node.decoder;
+			decode_tags = new Object[tags.length-node.num_tags];
+			for (int i = 0; i < decode_tags.length; i++)
+				decode_tags[i] = tags[i+node.num_tags];
+			try {
+				return decoder.getDecoder().decode(value, decode_tags);
+			} catch (VModuleError e) {
+				throw new VTaggedParseError("Could not generate decoder");
+			}
+		}
+
 		VInteger encoding = null;
 		try {
 			encoding = VInteger.valueOf(tags[0]);
@@ -107,9 +134,6 @@ public class VModuleResolver extends VTaggedParser {
 			throw new VTaggedParseError("Invalid VER encoding tag");
 		}
 
-		VModuleDecoder decoder = null;
-		Object[] decode_tags = null;
-
 		if (encoding.equals(-1)) {
 			// Name and version encoded format
 			if (tags.length < 3)
@@ -130,11 +154,9 @@ public class VModuleResolver extends VTaggedParser {
 				throw new VTaggedParseError("Invalid VER encoding");
 			}
 
-			try {
-				decoder = proxy_module.decoderFromName(name, version);
-			} catch (VModuleError e) {
+			decoder = snapshot.names.get(VModule.nameVerToKey(name, version));
+			if (decoder == null)
 				throw new VTaggedParseError("No associated decoder");
-			}
 			decode_tags = new Object[tags.length-3];
 			for (int i = 0; i < tags.length-3; i++)
 				decode_tags[i] = tags[i+3];
@@ -179,11 +201,9 @@ public class VModuleResolver extends VTaggedParser {
 				oid = new VObjectIdentifier(_oid_tags);
 			}
 
-			try {
-				decoder = proxy_module.decoderFromOID(oid);
-			} catch (VModuleError e) {
+			decoder = snapshot.oids.get(oid);
+			if (decoder == null)
 				throw new VTaggedParseError("No associated decoder");
-			}
 
 		}
 
@@ -195,14 +215,11 @@ public class VModuleResolver extends VTaggedParser {
 	}
 
 	@Override
-	public synchronized Pair converter(Object obj)
+	public Pair converter(Object obj)
 			throws VTaggedParseError, VTaggedParseUnknown {
-		VModuleConverter conv = null;
-		try {
-			conv = proxy_module.converterFromType(obj.getClass());
-		} catch (VModuleError e) {
+		VModuleConverter conv = snapshot.classes.get(obj.getClass());
+		if (conv == null)
 			throw new VTaggedParseUnknown("Object class not recognized");
-		}
 
 		try {
 			return conv.getConverter().convert(obj);
@@ -229,6 +246,7 @@ public class VModuleResolver extends VTaggedParser {
 		}
 		for (VModuleConverter conv: module.getConverters())
 			proxy_module.addConverter(conv);
+		snapshot = new Snapshot(proxy_module);
 	}
 
 	/**
@@ -250,6 +268,7 @@ public class VModuleResolver extends VTaggedParser {
 			} catch (VModuleError e) {
 				// SILENT
 			}
+		snapshot = new Snapshot(proxy_module);
 	}
 
 	/**
@@ -337,4 +356,122 @@ public class VModuleResolver extends VTaggedParser {
 			return VModuleResolver.imported_modules.toArray(new VModule[0]);
 		}
 	}
+
+	// Immutable set of decoders and converters, with an index of decoder tag sequences
+	static class Snapshot {
+		Map<Object, VModuleDecoder> names;
+		Map<VObjectIdentifier, VModuleDecoder> oids;
+		Map<Class<?>, VModuleConverter> classes;
+		TagNode index;
+		TagNode name_index;
+
+		public Snapshot(VModule module) {
+			synchronized(module) {
+				names = new HashMap<Object, VModuleDecoder>(module.names);
+				oids = new HashMap<VObjectIdentifier, VModuleDecoder>(module.oids);
+				classes = new HashMap<Class<?>, VModuleConverter>(module.classes);
+			}
+
+			index = new TagNode();
+			name_index = index.child(new VInteger(-1));
+			VInteger[] prefix = VModuleResolver.VSE_OID_PREFIX.getIdentifiers();
+			for (VModuleDecoder dec: oids.values()) {
+				// Tag sequence for a full OID
+				VInteger[] ids = dec.getOID().getIdentifiers();
+				TagNode node = index.child(new VInteger(10*ids.length));
+				for (VInteger id: ids)
+					node = node.child(id);
+				node.setDecoder(dec, ids.length+1);
+
+				// Tag sequence for an OID with VSE prefix omitted
+				boolean is_vse = ids.length > prefix.length;
+				for (int i = 0; is_vse && i < prefix.length; i++)
+					is_vse = ids[i].equals(prefix[i]);
+				if (is_vse) {
+					node = index.child(new VInteger(10*(ids.length-prefix.length)+1));
+					for (int i = prefix.length; i < ids.length; i++)
+						node = node.child(ids[i]);
+					node.setDecoder(dec, ids.length-prefix.length+1);
+				}
+			}
+			for (VModuleDecoder dec: names.values()) {
+				// Tag sequence for name and version, indexed with element counts
+				TagNode node = name_index.child(dec.getName().length);
+				for (String name: dec.getName())
+					node = node.child(name);
+				node = node.child(dec.getVersion().length);
+				for (VInteger ver: dec.getVersion())
+					node = node.child(ver);
+				node.setDecoder(dec, 3);
+			}
+		}
+
+		/**
+		 * Resolves tags against the index of decoder tag sequences.
+		 *
+		 * @param tags VER tags
+		 * @return node holding decoder, or null if not resolved
+		 */
+		public TagNode lookup(VEntity[] tags) {
+			TagNode node = index.get(tags[0]);
+			if (node == null)
+				return null;
+			else if (node == name_index) {
+				if (tags.length < 3 || !(tags[1] instanceof VTuple) || !(tags[2] instanceof VTuple))
+					return null;
+				VTuple t_names = (VTuple)tags[1];
+				node = node.get(t_names.length());
+				for (int i = 0; node != null && i < t_names.length(); i++) {
+					VEntity item = t_names.get(i);
+					if (!(item instanceof VString))
+						return null;
+					node = node.get(((VString)item).getValue());
+				}
+				VTuple t_version = (VTuple)tags[2];
+				if (node != null)
+					node = node.get(t_version.length());
+				for (int i = 0; node != null && i < t_version.length(); i++)
+					node = node.get(t_version.get(i));
+			}
+			else {
+				for (int pos = 1; node != null && node.decoder == null; pos++) {
+					if (pos >= tags.length)
+						return null;
+					node = node.get(tags[pos]);
+				}
+			}
+			if (node != null && node.decoder != null)
+				return node;
+			return null;
+		}
+	}
+
+	// Node of a tag sequence index
+	static class TagNode {
+		Map<Object, TagNode> children = null;
+		VModuleDecoder decoder = null;
+		int num_tags = 0;
+
+		public TagNode get(Object key) {
+			if (children == null)
+				return null;
+			return children.get(key);
+		}
+
+		public TagNode child(Object key) {
+			if (children == null)
+				children = new HashMap<Object, TagNode>();
+			TagNode result = children.get(key);
+			if (result == null) {
+				result = new TagNode();
+				children.put(key, result);
+			}
+			return result;
+		}
+
+		public void setDecoder(VModuleDecoder decoder, int numTags) {
+			this.decoder = decoder;
+			this.num_tags = numTags;
+		}
+	}
 }
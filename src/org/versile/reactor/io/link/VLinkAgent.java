@@ -726,6 +726,7 @@ public class VLinkAgent extends VLink {
 					// Register credentials on link call context
 					VCallContext ctx = context;
 					ctx.setPublicKey(credentials.getPublicKey());
+					ctx.setSignatureKey(credentials.getSignatureKey());
 					ctx.setClaimedIdentity(credentials.getIdentity());
 					ctx.setCertificates(credentials.getCertificates());
 					if (protocol.equals("vts"))
@@ -48,6 +48,10 @@
  *   <li>When VTS has been negotiated, the VOP bridge adds a {@link org.versile.reactor.io.vts.VSecureClient}
  *   or {@link org.versile.reactor.io.vts.VSecureServer} as a transport</li>
  *
+ *  <li>When compression has been negotiated, the VOP bridge adds a
+ *  {@link org.versile.reactor.io.vcomp.VCompressionChannel} on the plaintext side of the
+ *  transport</li>
+ *
  *  <li>Transport plaintext data is connected to a {@link org.versile.reactor.io.vec.VEntityChannel}
  *  for (de)serializing VEntity data</li>
  *
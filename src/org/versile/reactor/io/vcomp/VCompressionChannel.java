@@ -0,0 +1,1228 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vcomp;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+import org.versile.common.util.VByteBuffer;
+import org.versile.orb.entity.VInteger;
+import org.versile.orb.entity.VInteger.NetbytesResult;
+import org.versile.reactor.VReactor;
+import org.versile.reactor.VReactorFunction;
+import org.versile.reactor.io.VByteConsumer;
+import org.versile.reactor.io.VByteIOPair;
+import org.versile.reactor.io.VByteProducer;
+import org.versile.reactor.io.VIOControl;
+import org.versile.reactor.io.VIOMissingControl;
+
+
+/**
+ * Compression channel.
+ *
+ * <p>Implements a bridge between plaintext data and compressed data, for use
+ * as a layer between a {@link org.versile.reactor.io.vec.VEntityChannel} and a
+ * VOP transport. Compressed data is sent as a sequence of frames, each of which
+ * holds a frame type byte (0x00 for uncompressed data or 0x01 for compressed
+ * data), the netbytes encoded uncompressed length, the netbytes encoded
+ * compressed length (compressed frames only), and frame data. Frames are ended
+ * whenever all plaintext received so far has been framed, so a peer can
+ * decompress each entity write batch as soon as it is received.</p>
+ *
+ * <p>Frames which do not compress to fewer bytes than their uncompressed
+ * length cause compression to be bypassed for a number of subsequent frames,
+ * see {@link VCompressionChannelConfig}.</p>
+ *
+ * <p>Compressing data before it is encrypted by a secure transport may leak
+ * information about plaintext through the length of encrypted data, if an
+ * attacker can influence part of the plaintext and observe the resulting
+ * traffic. Compression should not be used for links which carry both secrets
+ * and attacker controlled data.</p>
+ */
+public class VCompressionChannel {
+
+	/**
+	 * Codec name of streaming deflate compression.
+	 */
+	public static final String DEFLATE = "DEFLATE";
+	/**
+	 * Codec name of LZ4 block compression.
+	 */
+	public static final String LZ4 = "LZ4";
+	/**
+	 * Max number of uncompressed bytes in a frame.
+	 */
+	public static final int MAX_FRAME_LENGTH = 65536;
+
+	static final int MAX_COMPRESSED_LENGTH = MAX_FRAME_LENGTH + MAX_FRAME_LENGTH/2;
+	static final int MAX_HEADER_LENGTH = 19;
+	static final byte FRAME_STORED = 0x00;
+	static final byte FRAME_COMPRESSED = 0x01;
+
+	VReactor reactor;
+	String codec_name;
+	VCompressionCodec codec;
+
+	int buf_len;
+	int max_frame_len;
+	int min_compress_len;
+	int bypass_frames;
+	int _bypass_left = 0;
+
+	int _cc_frame_len = 0;    // total length of frame being received, zero if header not yet parsed
+	int _cc_frame_head = 0;
+	int _cc_frame_raw = 0;
+	boolean _cc_frame_compressed = false;
+
+	WeakReference<PlaintextConsumer> pc_iface = null;
+	WeakReference<PlaintextProducer> pp_iface = null;
+	WeakReference<CompressedConsumer> cc_iface = null;
+	WeakReference<CompressedProducer> cp_iface = null;
+
+	VByteProducer _pc_producer = null;
+	boolean _pc_eod = false;
+	boolean _pc_eod_clean = false;
+	long _pc_consumed = 0L;
+	long _pc_lim_sent = 0L;
+	VByteBuffer _pc_rbuf;
+	boolean _pc_aborted = false;
+
+	VByteConsumer _pp_consumer = null;
+	long _pp_produced = 0L;
+	long _pp_prod_lim = 0L;
+	VByteBuffer _pp_wbuf;
+	boolean _pp_sent_eod = false;
+
+	VByteProducer _cc_producer = null;
+	boolean _cc_eod = false;
+	boolean _cc_eod_clean = false;
+	long _cc_consumed = 0L;
+	long _cc_lim_sent = 0L;
+	VByteBuffer _cc_rbuf;
+	boolean _cc_aborted = false;
+
+	VByteConsumer _cp_consumer = null;
+	long _cp_produced = 0L;
+	long _cp_prod_lim = 0L;
+	VByteBuffer _cp_wbuf;
+	boolean _cp_sent_eod = false;
+
+	/**
+	 * Set up compression channel.
+	 *
+	 * @param reactor owning reactor
+	 * @param codec name of compression codec
+	 * @param config channel config settings (defaults if null)
+	 * @throws IllegalArgumentException unknown codec or invalid configuration
+	 */
+	public VCompressionChannel(VReactor reactor, String codec, VCompressionChannelConfig config)
+			throws IllegalArgumentException {
+		if (config == null)
+			config = new VCompressionChannelConfig();
+		max_frame_len = config.getMaxFrameLength();
+		if (max_frame_len < 1 || max_frame_len > MAX_FRAME_LENGTH)
+			throw new IllegalArgumentException("Invalid max frame length");
+
+		this.reactor = reactor;
+		this.codec_name = codec;
+		this.codec = VCompressionCodec.create(codec, config);
+		buf_len = config.getBufferLength();
+		min_compress_len = config.getMinCompressLength();
+		bypass_frames = config.getBypassFrames();
+
+		_pc_rbuf = new VByteBuffer();
+		_pp_wbuf = new VByteBuffer();
+		_cc_rbuf = new VByteBuffer();
+		_cp_wbuf = new VByteBuffer();
+	}
+
+	/**
+	 * Check whether a codec is supported.
+	 *
+	 * @param codec codec name
+	 * @return true if supported
+	 */
+	public static boolean isSupported(String codec) {
+		return (codec.equals(DEFLATE) || codec.equals(LZ4));
+	}
+
+	/**
+	 * Get consumer for plaintext data.
+	 *
+	 * @return plaintext consumer
+	 */
+	public VByteConsumer getPlaintextConsumer() {
+		PlaintextConsumer result = null;
+		if (pc_iface != null)
+			result = pc_iface.get();
+		if (result == null) {
+			result = new PlaintextConsumer(this);
+			pc_iface = new WeakReference<PlaintextConsumer>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get producer for plaintext data.
+	 *
+	 * @return plaintext producer
+	 */
+	public VByteProducer getPlaintextProducer() {
+		PlaintextProducer result = null;
+		if (pp_iface != null)
+			result = pp_iface.get();
+		if (result == null) {
+			result = new PlaintextProducer(this);
+			pp_iface = new WeakReference<PlaintextProducer>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get a byte I/O pair interface to plaintext data.
+	 *
+	 * @return byte I/O pair interface
+	 */
+	public VByteIOPair getPlaintextIOPair() {
+		return new VByteIOPair(getPlaintextConsumer(), getPlaintextProducer());
+	}
+
+	/**
+	 * Get consumer for compressed data.
+	 *
+	 * @return compressed data consumer
+	 */
+	public VByteConsumer getCompressedConsumer() {
+		CompressedConsumer result = null;
+		if (cc_iface != null)
+			result = cc_iface.get();
+		if (result == null) {
+			result = new CompressedConsumer(this);
+			cc_iface = new WeakReference<CompressedConsumer>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get producer for compressed data.
+	 *
+	 * @return compressed data producer
+	 */
+	public VByteProducer getCompressedProducer() {
+		CompressedProducer result = null;
+		if (cp_iface != null)
+			result = cp_iface.get();
+		if (result == null) {
+			result = new CompressedProducer(this);
+			cp_iface = new WeakReference<CompressedProducer>(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get a byte I/O pair interface to compressed data.
+	 *
+	 * @return byte I/O pair interface
+	 */
+	public VByteIOPair getCompressedIOPair() {
+		return new VByteIOPair(getCompressedConsumer(), getCompressedProducer());
+	}
+
+	/**
+	 * Get the name of the channel's codec.
+	 *
+	 * @return codec name
+	 */
+	public String getCodec() {
+		return codec_name;
+	}
+
+	/**
+	 * Get the owning reactor.
+	 *
+	 * @return reactor
+	 */
+	public VReactor getReactor() {
+		return reactor;
+	}
+
+	long _pc_consume(VByteBuffer data) throws IOException {
+		if (_pc_eod || (_pc_producer == null) || (_pc_lim_sent >= 0 && _pc_consumed >= _pc_lim_sent))
+			throw new IOException("Consume error");
+		else if (data.length() == 0)
+			throw new IOException("No data");
+
+		int max_cons = buf_len - _pc_rbuf.length();
+		if (_pc_lim_sent >= 0)
+			max_cons = Math.min(max_cons, (int)(_pc_lim_sent-_pc_consumed));
+		byte[] indata = data.pop(max_cons);
+		_pc_rbuf.append(indata);
+		_pc_consumed += indata.length;
+
+		this.__cp_produce(false);
+
+		if (_pc_lim_sent >= 0)
+			_pc_lim_sent = _pc_consumed + buf_len - _pc_rbuf.length();
+		return _pc_lim_sent;
+	}
+
+	void _pc_end_consume(boolean clean) {
+		if (_pc_eod)
+			return;
+		_pc_eod = true;
+		_pc_eod_clean = clean;
+
+		if (_cp_consumer != null) {
+			try {
+				this.__cp_produce(false);
+			} catch (IOException e) {
+				this._pc_abort();
+			}
+		}
+		else
+			this._pc_abort();
+		this._release_codec();
+	}
+
+	void _pc_abort() {
+		if (!_pc_aborted) {
+			_pc_aborted = true;
+			_pc_eod = true;
+			_pc_rbuf.clear();
+			_cp_wbuf.clear();
+			if (_cp_consumer != null) {
+				_cp_consumer.abort();
+				this._cp_detach(true);
+			}
+			if (_pc_producer != null) {
+				_pc_producer.abort();
+				this._pc_detach(true);
+			}
+			this._release_codec();
+		}
+	}
+
+	void _pc_attach(VByteProducer producer, boolean safe)
+		throws IOException {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				VByteProducer producer;
+				public Func(VByteProducer producer) {
+					this.producer = producer;
+				}
+				@Override
+				public Object execute() throws Exception {
+					_pc_attach(producer, true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func(producer));
+			return;
+		}
+		if (_pc_producer == producer)
+			return;
+		else if (_pc_eod)
+			throw new IOException("Consumer already received end-of-data");
+		else if (_pc_producer != null)
+			throw new IOException("Producer already attached");
+		_pc_producer = producer;
+		_pc_consumed = 0L;
+		_pc_lim_sent = 0L;
+		producer.attach(this.getPlaintextConsumer(), true);
+
+		this._pc_enable();
+
+		try {
+			producer.getControl().notifyConsumerAttached(this.getPlaintextConsumer());
+		} catch (VIOMissingControl e) {
+			// SILENT
+		}
+	}
+
+	void _pc_detach(boolean safe) {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					_pc_detach(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func());
+			return;
+		}
+		if (_pc_producer != null) {
+			VByteProducer prod = _pc_producer;
+			_pc_producer = null;
+			_pc_consumed = 0L;
+			_pc_lim_sent = 0L;
+			prod.detach(true);
+		}
+	}
+
+	VIOControl _pc_get_control() {
+		if (_cp_consumer != null)
+			return _cp_consumer.getControl();
+		else
+			return new VIOControl();
+	}
+
+	VByteProducer _pc_get_producer() {
+		return _pc_producer;
+	}
+
+	void _pp_can_produce(long limit) throws IOException {
+		if (_pp_consumer == null)
+			throw new IOException("No connected consumer");
+
+		boolean _produce = false;
+		if (limit < 0) {
+			if (_pp_prod_lim >= 0 && _pp_produced >= _pp_prod_lim)
+				_produce = true;
+			_pp_prod_lim = limit;
+		}
+		else {
+			if (_pp_prod_lim >= 0 && _pp_prod_lim < limit) {
+				if (_pp_produced >= _pp_prod_lim)
+					_produce = true;
+				_pp_prod_lim = limit;
+			}
+		}
+		if (_produce) {
+			class Func implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					__pp_produce(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func());
+		}
+	}
+
+	void _pp_abort() {
+		this._cc_abort();
+	}
+
+	void _pp_attach(VByteConsumer consumer, boolean safe) throws IOException {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				VByteConsumer consumer;
+				public Func(VByteConsumer consumer) {
+					this.consumer = consumer;
+				}
+				@Override
+				public Object execute() throws Exception {
+					_pp_attach(consumer, true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func(consumer));
+			return;
+		}
+		if (_pp_consumer == consumer)
+			return;
+		else if (this._pp_eod())
+			throw new IOException("Producer already reached end-of-data");
+		else if (_pp_consumer != null)
+			throw new IOException("Consumer already attached");
+		_pp_consumer = consumer;
+		_pp_produced = 0L;
+		_pp_prod_lim = 0L;
+		consumer.attach(this.getPlaintextProducer(), true);
+
+		if (_cc_producer != null && _cc_lim_sent == 0) {
+			_cc_lim_sent = buf_len;
+			class Func implements VReactorFunction {
+				long limit;
+				public Func(long limit) {
+					this.limit = limit;
+				}
+				@Override
+				public Object execute() throws Exception {
+					if (_cc_producer != null)
+						_cc_producer.canProduce(limit);
+					return null;
+				}
+			}
+			reactor.schedule(new Func(_cc_lim_sent));
+		}
+
+		try {
+			consumer.getControl().notifyProducerAttached(this.getPlaintextProducer());
+		} catch (VIOMissingControl e) {
+			// SILENT
+		}
+	}
+
+	void _pp_detach(boolean safe) {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					_pp_detach(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func());
+			return;
+		}
+		if (_pp_consumer != null) {
+			VByteConsumer cons = _pp_consumer;
+			_pp_consumer = null;
+			cons.detach();
+			_pp_produced = 0L;
+			_pp_prod_lim = 0L;
+		}
+	}
+
+	VIOControl _pp_get_control() {
+		// Pass through to the transport, e.g. for VTS authorization of the peer
+		if (_cc_producer != null)
+			return _cc_producer.getControl();
+		else
+			return new VIOControl();
+	}
+
+	VByteConsumer _pp_get_consumer() {
+		return _pp_consumer;
+	}
+
+	long _cc_consume(VByteBuffer data)
+					throws IOException {
+		if (_cc_eod || (_cc_producer == null) || (_cc_lim_sent >= 0 && _cc_consumed >= _cc_lim_sent))
+			throw new IOException("Consume error");
+		else if (data.length() == 0)
+			throw new IOException("No data");
+
+		int max_cons = Math.max(buf_len, _cc_frame_len) - _cc_rbuf.length();
+		if (_cc_lim_sent >= 0)
+			max_cons = Math.min(max_cons, (int)(_cc_lim_sent-_cc_consumed));
+		byte[] indata = data.pop(Math.max(max_cons, 0));
+		_cc_rbuf.append(indata);
+		_cc_consumed += indata.length;
+
+		try {
+			this._cc_decode();
+		} catch (IOException e) {
+			// Critical error, compressed data could not be decoded, abort
+			class Function implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					_cc_abort();
+					return null;
+				}
+			}
+			reactor.schedule(new Function());
+			throw e;
+		}
+
+		if (_pp_wbuf.hasData()) {
+			class Function implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					__pp_produce(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Function());
+		}
+
+		this._cc_update_lim();
+		return _cc_lim_sent;
+	}
+
+	// Decodes all complete frames of the compressed input buffer into the plaintext output buffer
+	void _cc_decode()
+			throws IOException {
+		while (_cc_rbuf.hasData()) {
+			if (_cc_frame_len == 0) {
+				byte[] header = _cc_rbuf.peek(MAX_HEADER_LENGTH);
+				if (header[0] != FRAME_STORED && header[0] != FRAME_COMPRESSED)
+					throw new IOException("Invalid compression frame type");
+				_cc_frame_compressed = (header[0] == FRAME_COMPRESSED);
+				NetbytesResult raw_len = VInteger.netbytes_to_posint(header, 1);
+				if (!raw_len.hasValue())
+					break;
+				int pos = 1 + raw_len.getBytesRead();
+				if (raw_len.getBytesRead() > 4 || raw_len.getValue().intValue() < 1
+					|| raw_len.getValue().intValue() > MAX_FRAME_LENGTH)
+					throw new IOException("Invalid compression frame length");
+				int data_len = raw_len.getValue().intValue();
+				_cc_frame_raw = data_len;
+				if (_cc_frame_compressed) {
+					NetbytesResult comp_len = VInteger.netbytes_to_posint(header, pos);
+					if (!comp_len.hasValue())
+						break;
+					pos += comp_len.getBytesRead();
+					if (comp_len.getBytesRead() > 4 || comp_len.getValue().intValue() < 1
+						|| comp_len.getValue().intValue() > MAX_COMPRESSED_LENGTH)
+						throw new IOException("Invalid compression frame length");
+					data_len = comp_len.getValue().intValue();
+				}
+				_cc_frame_head = pos;
+				_cc_frame_len = pos + data_len;
+			}
+			if (_cc_rbuf.length() < _cc_frame_len)
+				break;
+
+			_cc_rbuf.remove(_cc_frame_head);
+			byte[] data = _cc_rbuf.pop(_cc_frame_len - _cc_frame_head);
+			if (_cc_frame_compressed)
+				data = codec.decompress(data, _cc_frame_raw);
+			_pp_wbuf.appendReference(data);
+			_cc_frame_len = 0;
+		}
+	}
+
+	void _cc_end_consume(boolean clean) {
+		if (_cc_eod)
+			return;
+		_cc_eod = true;
+		_cc_eod_clean = clean;
+
+		if (_pp_consumer != null) {
+			try {
+				this.__pp_produce(false);
+			} catch (IOException e) {
+				this._cc_abort();
+			}
+		}
+		else
+			this._cc_abort();
+		this._release_codec();
+	}
+
+	void _cc_abort() {
+		if (!_cc_aborted) {
+			_cc_aborted = true;
+			_cc_eod = true;
+			_pp_wbuf.clear();
+			_cc_rbuf.clear();
+			if (_pp_consumer != null) {
+				_pp_consumer.abort();
+				this._pp_detach(true);
+			}
+			if (_cc_producer != null) {
+				_cc_producer.abort();
+				this._cc_detach(true);
+			}
+			this._release_codec();
+		}
+	}
+
+	void _cc_attach(VByteProducer producer, boolean safe)
+		throws IOException {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				VByteProducer producer;
+				public Func(VByteProducer producer) {
+					this.producer = producer;
+				}
+				@Override
+				public Object execute() throws Exception {
+					_cc_attach(producer, true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func(producer));
+			return;
+		}
+		if (_cc_producer == producer)
+			return;
+		else if (_cc_eod)
+			throw new IOException("Consumer already received end-of-data");
+		else if (_cc_producer != null)
+			throw new IOException("Producer already attached");
+		_cc_producer = producer;
+		_cc_consumed = 0L;
+		_cc_lim_sent = 0L;
+		producer.attach(this.getCompressedConsumer(), true);
+
+		_cc_lim_sent = buf_len;
+		producer.canProduce(_cc_lim_sent);
+
+		try {
+			producer.getControl().notifyConsumerAttached(this.getCompressedConsumer());
+		} catch (VIOMissingControl e) {
+			// SILENT
+		}
+	}
+
+	void _cc_detach(boolean safe) {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					_cc_detach(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func());
+			return;
+		}
+		if (_cc_producer != null) {
+			VByteProducer prod = _cc_producer;
+			_cc_producer = null;
+			_cc_consumed = 0L;
+			_cc_lim_sent = 0L;
+			prod.detach(true);
+		}
+	}
+
+	VIOControl _cc_get_control() {
+		if (_pp_consumer != null)
+			return _pp_consumer.getControl();
+		else
+			return new VIOControl();
+	}
+
+	VByteProducer _cc_get_producer() {
+		return _cc_producer;
+	}
+
+	void _cp_can_produce(long limit) throws IOException {
+		if (_cp_consumer == null)
+			throw new IOException("No connected consumer");
+
+		boolean _produce = false;
+		if (limit < 0) {
+			if (_cp_prod_lim >= 0 && _cp_produced >= _cp_prod_lim)
+				_produce = true;
+			_cp_prod_lim = limit;
+		}
+		else {
+			if (_cp_prod_lim >= 0 && _cp_prod_lim < limit) {
+				if (_cp_produced >= _cp_prod_lim)
+					_produce = true;
+				_cp_prod_lim = limit;
+			}
+		}
+		if (_produce) {
+			class Func implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					__cp_produce(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func());
+		}
+	}
+
+	void _cp_abort() {
+		this._pc_abort();
+	}
+
+	void _cp_attach(VByteConsumer consumer, boolean safe) throws IOException {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				VByteConsumer consumer;
+				public Func(VByteConsumer consumer) {
+					this.consumer = consumer;
+				}
+				@Override
+				public Object execute() throws Exception {
+					_cp_attach(consumer, true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func(consumer));
+			return;
+		}
+		if (_cp_consumer == consumer)
+			return;
+		else if (_cp_eod())
+			throw new IOException("Producer already reached end-of-data");
+		else if (_cp_consumer != null)
+			throw new IOException("Consumer already attached");
+		_cp_consumer = consumer;
+		_cp_produced = 0L;
+		_cp_prod_lim = 0L;
+		consumer.attach(this.getCompressedProducer(), true);
+
+		try {
+			consumer.getControl().notifyProducerAttached(this.getCompressedProducer());
+		} catch (VIOMissingControl e) {
+			// SILENT
+		}
+	}
+
+	void _cp_detach(boolean safe) {
+		if (!safe) {
+			class Func implements VReactorFunction {
+				@Override
+				public Object execute() throws Exception {
+					_cp_detach(true);
+					return null;
+				}
+			}
+			reactor.schedule(new Func());
+			return;
+		}
+		if (_cp_consumer != null) {
+			VByteConsumer cons = _cp_consumer;
+			_cp_consumer = null;
+			cons.detach();
+			_cp_produced = 0L;
+			_cp_prod_lim = 0L;
+		}
+	}
+
+	VIOControl _cp_get_control() {
+		if (_pc_producer != null)
+			return _pc_producer.getControl();
+		else
+			return new VIOControl();
+	}
+
+	VByteConsumer _cp_get_consumer() {
+		return _cp_consumer;
+	}
+
+	void __pp_produce(boolean cc_update)
+			throws IOException {
+		if (_pp_consumer == null)
+			return;
+
+		if (this._pp_eod()) {
+			if (_pp_consumer != null && !_pp_sent_eod) {
+				// Trailing partial frame means compressed data was truncated
+				_pp_consumer.endConsume(_cc_eod_clean && _cc_rbuf.isEmpty());
+				_pp_sent_eod = true;
+			}
+			return;
+		}
+
+		if (_pp_wbuf.hasData()) {
+			if (_pp_prod_lim >= 0 && _pp_produced >= _pp_prod_lim)
+				return;
+
+			long old_lim = _pp_prod_lim;
+			if (_pp_prod_lim != 0) {
+				int b_len = _pp_wbuf.length();
+				_pp_prod_lim = _pp_consumer.consume(_pp_wbuf);
+				_pp_produced += b_len - _pp_wbuf.length();
+			}
+
+			// If produce limit was updated, schedule another 'produce' batch
+			if (_pp_prod_lim != old_lim) {
+				class Func implements VReactorFunction {
+					@Override
+					public Object execute() throws Exception {
+						__pp_produce(true);
+						return null;
+					}
+				}
+				reactor.schedule(new Func());
+			}
+
+			// Plaintext produce may have enabled consuming more compressed data
+			if (cc_update && _cc_producer != null && !_cc_eod) {
+				old_lim = _cc_lim_sent;
+				this._cc_update_lim();
+				if (old_lim != _cc_lim_sent) {
+					class Func implements VReactorFunction {
+						long limit;
+						public Func(long limit) {
+							this.limit = limit;
+						}
+						@Override
+						public Object execute() throws Exception {
+							if (_cc_producer != null)
+								_cc_producer.canProduce(limit);
+							return null;
+						}
+					}
+					reactor.schedule(new Func(_cc_lim_sent));
+				}
+			}
+		}
+	}
+
+	void __cp_produce(boolean pc_update)
+			throws IOException {
+		if (_cp_consumer == null)
+			return;
+
+		if (this._cp_eod()) {
+			if (_cp_consumer != null && !_cp_sent_eod) {
+				_cp_consumer.endConsume(_pc_eod_clean);
+				_cp_sent_eod = true;
+				this._release_codec();
+			}
+			return;
+		}
+
+		while (_cp_wbuf.hasData() || _pc_rbuf.hasData()) {
+			if (_cp_prod_lim >= 0 && _cp_produced >= _cp_prod_lim)
+				break;
+			if (_cp_wbuf.hasData()) {
+				int b_len = _cp_wbuf.length();
+				_cp_prod_lim = _cp_consumer.consume(_cp_wbuf);
+				_cp_produced += b_len - _cp_wbuf.length();
+			}
+			else
+				this._cp_encode();
+		}
+
+		// Plaintext consume limits may have changed
+		if (pc_update && _pc_producer != null && !_pc_eod) {
+			long old_pc_lim = _pc_lim_sent;
+			if (_pc_lim_sent >= 0)
+				_pc_lim_sent = _pc_consumed + buf_len - _pc_rbuf.length();
+			if (old_pc_lim != _pc_lim_sent) {
+				class Func implements VReactorFunction {
+					long limit;
+					public Func(long limit) {
+						this.limit = limit;
+					}
+					@Override
+					public Object execute() throws Exception {
+						if (_pc_producer != null) {
+							_pc_producer.canProduce(limit);
+						}
+						return null;
+					}
+				}
+				reactor.schedule(new Func(_pc_lim_sent));
+			}
+		}
+
+		if (this._cp_eod() && !_cp_sent_eod) {
+			_cp_consumer.endConsume(_pc_eod_clean);
+			_cp_sent_eod = true;
+			this._release_codec();
+		}
+	}
+
+	// Frames buffered plaintext (up to max frame length) into the compressed output buffer
+	void _cp_encode()
+			throws IOException {
+		byte[] data = _pc_rbuf.pop(max_frame_len);
+		byte[] compressed = null;
+		if (data.length >= min_compress_len) {
+			if (_bypass_left > 0)
+				_bypass_left--;
+			else {
+				compressed = codec.compress(data, 0, data.length);
+				if (compressed.length >= data.length) {
+					// Data does not compress, bypass compression of the next frames
+					_bypass_left = bypass_frames;
+					if (!codec.isStateful())
+						compressed = null;
+				}
+			}
+		}
+
+		if (compressed == null) {
+			_cp_wbuf.append(FRAME_STORED);
+			_cp_wbuf.appendReference(VInteger.posint_to_netbytes(data.length));
+			_cp_wbuf.appendReference(data);
+		}
+		else {
+			_cp_wbuf.append(FRAME_COMPRESSED);
+			_cp_wbuf.appendReference(VInteger.posint_to_netbytes(data.length));
+			_cp_wbuf.appendReference(VInteger.posint_to_netbytes(compressed.length));
+			_cp_wbuf.appendReference(compressed);
+		}
+	}
+
+	// Enables the plaintext producer to start sending data
+	void _pc_enable() {
+		class Func implements VReactorFunction {
+			long limit;
+			public Func(long limit) {
+				this.limit = limit;
+			}
+			@Override
+			public Object execute() throws Exception {
+				if (_pc_producer != null)
+					_pc_producer.canProduce(limit);
+				return null;
+			}
+		}
+		if (_pc_producer != null && !_pc_eod) {
+			long old_lim = _pc_lim_sent;
+			int max_add = buf_len - _pc_rbuf.length();
+			_pc_lim_sent = _pc_consumed + max_add;
+			if (old_lim != _pc_lim_sent)
+				reactor.schedule(new Func(_pc_lim_sent));
+		}
+	}
+
+	boolean _pp_eod() {
+		return _cc_eod && _pp_wbuf.isEmpty();
+	}
+
+	boolean _cp_eod() {
+		return _pc_eod && _pc_rbuf.isEmpty() && _cp_wbuf.isEmpty();
+	}
+
+	// Updates _cc_lim_sent (caller is responsible for actually sending)
+	void _cc_update_lim() {
+		if (_cc_producer != null && !_cc_eod) {
+			// Do not update compressed data limit if plaintext buffer holds more than buffer limit
+			if (_pp_prod_lim >= 0 && _pp_wbuf.length() > buf_len)
+				return;
+			// Allow receiving a complete frame even if it exceeds the buffer length
+			if (_cc_lim_sent >= 0)
+				_cc_lim_sent = _cc_consumed + Math.max(buf_len, _cc_frame_len) - _cc_rbuf.length();
+		}
+	}
+
+	// Ends the codec when both directions have reached end-of-data or were aborted
+	void _release_codec() {
+		boolean compress_done = _pc_aborted || (_pc_eod && _pc_rbuf.isEmpty());
+		if (compress_done && _cc_eod && codec != null)
+			codec.end();
+	}
+
+	class PlaintextConsumer implements VByteConsumer {
+
+		VCompressionChannel channel;
+
+		public PlaintextConsumer(VCompressionChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public long consume(VByteBuffer data) throws IOException {
+			return channel._pc_consume(data);
+		}
+
+		@Override
+		public void endConsume(boolean clean) {
+			channel._pc_end_consume(clean);
+		}
+
+		@Override
+		public void abort() {
+			channel._pc_abort();
+		}
+
+		@Override
+		public void attach(VByteProducer producer) throws IOException {
+			this.attach(producer, false);
+		}
+
+		@Override
+		public void attach(VByteProducer producer, boolean safe)
+				throws IOException {
+			channel._pc_attach(producer, safe);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			channel._pc_detach(safe);
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return channel._pc_get_control();
+		}
+
+		@Override
+		public VByteProducer getProducer() {
+			return channel._pc_get_producer();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return channel.getReactor();
+		}
+	}
+
+	class PlaintextProducer implements VByteProducer {
+
+		VCompressionChannel channel;
+
+		public PlaintextProducer(VCompressionChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void canProduce(long limit) throws IOException {
+			channel._pp_can_produce(limit);
+		}
+
+		@Override
+		public void abort() {
+			channel._pp_abort();
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer) throws IOException {
+			this.attach(consumer, false);
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer, boolean safe)
+				throws IOException {
+			channel._pp_attach(consumer, safe);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			channel._pp_detach(safe);
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return channel._pp_get_control();
+		}
+
+		@Override
+		public VByteConsumer getConsumer() {
+			return channel._pp_get_consumer();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return channel.getReactor();
+		}
+	}
+
+	class CompressedConsumer implements VByteConsumer {
+
+		VCompressionChannel channel;
+
+		public CompressedConsumer(VCompressionChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public long consume(VByteBuffer data) throws IOException {
+			return channel._cc_consume(data);
+		}
+
+		@Override
+		public void endConsume(boolean clean) {
+			channel._cc_end_consume(clean);
+		}
+
+		@Override
+		public void abort() {
+			channel._cc_abort();
+		}
+
+		@Override
+		public void attach(VByteProducer producer) throws IOException {
+			this.attach(producer, false);
+		}
+
+		@Override
+		public void attach(VByteProducer producer, boolean safe)
+				throws IOException {
+			channel._cc_attach(producer, safe);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			channel._cc_detach(safe);
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return channel._cc_get_control();
+		}
+
+		@Override
+		public VByteProducer getProducer() {
+			return channel._cc_get_producer();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return channel.getReactor();
+		}
+	}
+
+	class CompressedProducer implements VByteProducer {
+
+		VCompressionChannel channel;
+
+		public CompressedProducer(VCompressionChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void canProduce(long limit) throws IOException {
+			channel._cp_can_produce(limit);
+		}
+
+		@Override
+		public void abort() {
+			channel._cp_abort();
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer) throws IOException {
+			this.attach(consumer, false);
+		}
+
+		@Override
+		public void attach(VByteConsumer consumer, boolean safe)
+				throws IOException {
+			channel._cp_attach(consumer, safe);
+		}
+
+		@Override
+		public void detach() {
+			this.detach(false);
+		}
+
+		@Override
+		public void detach(boolean safe) {
+			channel._cp_detach(safe);
+		}
+
+		@Override
+		public VIOControl getControl() {
+			return channel._cp_get_control();
+		}
+
+		@Override
+		public VByteConsumer getConsumer() {
+			return channel._cp_get_consumer();
+		}
+
+		@Override
+		public VReactor getReactor() {
+			return channel.getReactor();
+		}
+	}
+}
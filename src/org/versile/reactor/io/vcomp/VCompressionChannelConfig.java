@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vcomp;
+
+import java.util.zip.Deflater;
+
+
+/**
+ * Compression channel configuration parameters.
+ *
+ * <p>Codecs is the list of names of codecs allowed for the channel, in order
+ * of preference. Supported codecs are {@link VCompressionChannel#DEFLATE}
+ * (streaming deflate, good compression ratio) and {@link VCompressionChannel#LZ4}
+ * (faster, lower ratio). The default is deflate only.</p>
+ *
+ * <p>Level is the deflate compression level. The default is
+ * {@link Deflater#BEST_SPEED}, as link data is typically compressed in small
+ * frames where higher levels add latency for little gain.</p>
+ *
+ * <p>Buffer length is the length of input/output buffers for the channel
+ * producers and consumers. Default value is 4096.</p>
+ *
+ * <p>Max frame length is the maximum number of uncompressed bytes in a frame.
+ * The channel ends a frame (and flushes the compressor) whenever it has
+ * compressed all plaintext that was received so far, so frame boundaries
+ * follow the write batches of the producer which feeds the channel, and
+ * longer batches are split into frames of at most this length. The default
+ * is 16384, and the value must be between 1 and
+ * {@link VCompressionChannel#MAX_FRAME_LENGTH}.</p>
+ *
+ * <p>Min compress length is the minimum number of bytes in a frame for the
+ * frame to be compressed, shorter frames are sent uncompressed. The default
+ * is 32.</p>
+ *
+ * <p>Bypass frames is the number of frames which are sent uncompressed after
+ * a frame did not compress to fewer bytes than its uncompressed length, before
+ * compression is attempted again. This avoids spending compression effort
+ * on data which is already compressed or encrypted. The default is 16.</p>
+ */
+public class VCompressionChannelConfig {
+
+	// When adding fields remember to update copyTo()
+	String[] codecs = new String[] {VCompressionChannel.DEFLATE};
+	int level = Deflater.BEST_SPEED;
+	int buf_len = 4096;
+	int max_frame_len = 16384;
+	int min_compress_len = 32;
+	int bypass_frames = 16;
+
+	@Override
+	public VCompressionChannelConfig clone() {
+		VCompressionChannelConfig result = new VCompressionChannelConfig();
+		this.copyTo(result);
+		return result;
+	}
+
+	public String[] getCodecs() {
+		return codecs;
+	}
+
+	public void setCodecs(String[] codecs) {
+		this.codecs = codecs;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public void setLevel(int level) {
+		this.level = level;
+	}
+
+	public int getBufferLength() {
+		return buf_len;
+	}
+
+	public void setBufferLength(int buf_len) {
+		this.buf_len = buf_len;
+	}
+
+	public int getMaxFrameLength() {
+		return max_frame_len;
+	}
+
+	public void setMaxFrameLength(int max_frame_len) {
+		this.max_frame_len = max_frame_len;
+	}
+
+	public int getMinCompressLength() {
+		return min_compress_len;
+	}
+
+	public void setMinCompressLength(int min_compress_len) {
+		this.min_compress_len = min_compress_len;
+	}
+
+	public int getBypassFrames() {
+		return bypass_frames;
+	}
+
+	public void setBypassFrames(int bypass_frames) {
+		this.bypass_frames = bypass_frames;
+	}
+
+	protected void copyTo(VCompressionChannelConfig config) {
+		if (codecs != null)
+			config.codecs = codecs.clone();
+		else
+			config.codecs = null;
+		config.level = level;
+		config.buf_len = buf_len;
+		config.max_frame_len = max_frame_len;
+		config.min_compress_len = min_compress_len;
+		config.bypass_frames = bypass_frames;
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vcomp;
+
+import java.io.IOException;
+
+
+/**
+ * Codec for compressing and decompressing frames of a compression channel.
+ *
+ * <p>A codec instance holds the state of both the compressing and the
+ * decompressing direction of a single channel.</p>
+ */
+abstract class VCompressionCodec {
+
+	/**
+	 * Check whether compressed frames depend on earlier frames.
+	 *
+	 * <p>If true then every frame passed to {@link #compress(byte[], int, int)}
+	 * must be sent to the peer, otherwise the peer's decompression state
+	 * goes out of sync.</p>
+	 *
+	 * @return true if compression state is retained between frames
+	 */
+	abstract boolean isStateful();
+
+	/**
+	 * Compresses a frame.
+	 *
+	 * @param data data to compress
+	 * @param offset offset of frame data
+	 * @param length length of frame data
+	 * @return compressed frame
+	 * @throws IOException compression error
+	 */
+	abstract byte[] compress(byte[] data, int offset, int length)
+			throws IOException;
+
+	/**
+	 * Decompresses a frame.
+	 *
+	 * @param data compressed frame
+	 * @param length decompressed length of the frame
+	 * @return decompressed frame
+	 * @throws IOException invalid compressed data
+	 */
+	abstract byte[] decompress(byte[] data, int length)
+			throws IOException;
+
+	/**
+	 * Releases any resources held by the codec.
+	 */
+	abstract void end();
+
+	/**
+	 * Creates a codec.
+	 *
+	 * @param name codec name
+	 * @param config channel configuration
+	 * @return codec
+	 * @throws IllegalArgumentException unknown codec name
+	 */
+	static VCompressionCodec create(String name, VCompressionChannelConfig config)
+			throws IllegalArgumentException {
+		if (name.equals(VCompressionChannel.DEFLATE))
+			return new VDeflateCodec(config.getLevel());
+		else if (name.equals(VCompressionChannel.LZ4))
+			return new VLZ4Codec();
+		throw new IllegalArgumentException("Unknown compression codec " + name);
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vcomp;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * Streaming deflate codec.
+ *
+ * <p>Compresses with a single raw deflate stream for the lifetime of the
+ * channel, performing a sync flush at the end of each frame so a frame can
+ * be fully decompressed when received. Frames refer back to data of earlier
+ * frames, which gives good compression of the many short and similar
+ * messages of a typical link.</p>
+ */
+final class VDeflateCodec extends VCompressionCodec {
+
+	Deflater deflater;
+	Inflater inflater;
+
+	/**
+	 * Set up codec.
+	 *
+	 * @param level deflate compression level
+	 */
+	VDeflateCodec(int level) {
+		deflater = new Deflater(level, true);
+		inflater = new Inflater(true);
+	}
+
+	@Override
+	boolean isStateful() {
+		return true;
+	}
+
+	@Override
+	byte[] compress(byte[] data, int offset, int length)
+			throws IOException {
+		if (deflater == null)
+			throw new IOException("Codec was released");
+		deflater.setInput(data, offset, length);
+		byte[] out = new byte[length + (length >> 3) + 64];
+		int pos = 0;
+		while (true) {
+			pos += deflater.deflate(out, pos, out.length - pos, Deflater.SYNC_FLUSH);
+			if (pos < out.length)
+				break;
+			out = Arrays.copyOf(out, 2*out.length);
+		}
+		return Arrays.copyOf(out, pos);
+	}
+
+	@Override
+	byte[] decompress(byte[] data, int length)
+			throws IOException {
+		if (inflater == null)
+			throw new IOException("Codec was released");
+		inflater.setInput(data);
+
+		// One extra byte of output space lets the inflater consume the flush marker
+		byte[] out = new byte[length + 1];
+		int pos = 0;
+		try {
+			while (!inflater.needsInput()) {
+				int num = inflater.inflate(out, pos, out.length - pos);
+				if (num == 0 && !inflater.needsInput())
+					throw new IOException("Invalid deflate frame");
+				pos += num;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid deflate frame");
+		}
+		if (pos != length)
+			throw new IOException("Deflate frame length mismatch");
+		return Arrays.copyOf(out, length);
+	}
+
+	@Override
+	void end() {
+		if (deflater != null) {
+			deflater.end();
+			deflater = null;
+		}
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vcomp;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * LZ4 block codec.
+ *
+ * <p>Pure Java implementation of the LZ4 block format which compresses each
+ * frame as an independent block. Compression ratio is lower than deflate, but
+ * compression and decompression are considerably faster.</p>
+ */
+final class VLZ4Codec extends VCompressionCodec {
+
+	static final int MIN_MATCH = 4;
+	static final int LAST_LITERALS = 5;
+	static final int MF_LIMIT = 12;
+	static final int MAX_DISTANCE = 65535;
+	static final int HASH_LOG = 12;
+
+	int[] table = new int[1 << HASH_LOG]; // match candidate position plus one, zero if none
+
+	@Override
+	boolean isStateful() {
+		return false;
+	}
+
+	@Override
+	byte[] compress(byte[] data, int offset, int length) {
+		byte[] out = new byte[length + length/255 + 16];
+		int op = 0;
+		int end = offset + length;
+		int anchor = offset;
+
+		if (length > MF_LIMIT) {
+			Arrays.fill(table, 0);
+			int limit = end - MF_LIMIT;
+			int match_limit = end - LAST_LITERALS;
+			int pos = offset;
+			while (pos < limit) {
+				int seq = VLZ4Codec.readInt(data, pos);
+				int h = (seq * 0x9e3779b1) >>> (32 - HASH_LOG);
+				int ref = table[h] - 1;
+				table[h] = pos - offset + 1;
+				if (ref < 0 || pos - (offset + ref) > MAX_DISTANCE
+					|| VLZ4Codec.readInt(data, offset + ref) != seq) {
+					pos++;
+					continue;
+				}
+				ref += offset;
+
+				// Extend match backwards over pending literals, then forwards
+				while (pos > anchor && ref > offset && data[pos-1] == data[ref-1]) {
+					pos--;
+					ref--;
+				}
+				int match_len = MIN_MATCH;
+				while (pos + match_len < match_limit && data[pos+match_len] == data[ref+match_len])
+					match_len++;
+
+				// Write sequence
+				int lit_len = pos - anchor;
+				int token = op++;
+				out[token] = (byte)((Math.min(lit_len, 15) << 4) | Math.min(match_len - MIN_MATCH, 15));
+				if (lit_len >= 15)
+					op = VLZ4Codec.writeLength(out, op, lit_len - 15);
+				System.arraycopy(data, anchor, out, op, lit_len);
+				op += lit_len;
+				int distance = pos - ref;
+				out[op++] = (byte)distance;
+				out[op++] = (byte)(distance >>> 8);
+				if (match_len - MIN_MATCH >= 15)
+					op = VLZ4Codec.writeLength(out, op, match_len - MIN_MATCH - 15);
+
+				pos += match_len;
+				anchor = pos;
+			}
+		}
+
+		// Final sequence holds only literals
+		int lit_len = end - anchor;
+		out[op++] = (byte)(Math.min(lit_len, 15) << 4);
+		if (lit_len >= 15)
+			op = VLZ4Codec.writeLength(out, op, lit_len - 15);
+		System.arraycopy(data, anchor, out, op, lit_len);
+		op += lit_len;
+
+		return Arrays.copyOf(out, op);
+	}
+
+	@Override
+	byte[] decompress(byte[] data, int length)
+			throws IOException {
+		byte[] out = new byte[length];
+		int ip = 0;
+		int op = 0;
+		int end = data.length;
+		while (true) {
+			if (ip >= end)
+				throw new IOException("Truncated LZ4 block");
+			int token = data[ip++] & 0xff;
+
+			int lit_len = token >>> 4;
+			if (lit_len == 15) {
+				int b;
+				do {
+					if (ip >= end)
+						throw new IOException("Truncated LZ4 block");
+					b = data[ip++] & 0xff;
+					lit_len += b;
+				} while (b == 255);
+			}
+			if (lit_len > end - ip || lit_len > length - op)
+				throw new IOException("Invalid LZ4 literal length");
+			System.arraycopy(data, ip, out, op, lit_len);
+			ip += lit_len;
+			op += lit_len;
+			if (ip == end)
+				break;
+
+			if (end - ip < 2)
+				throw new IOException("Truncated LZ4 block");
+			int distance = (data[ip] & 0xff) | ((data[ip+1] & 0xff) << 8);
+			ip += 2;
+			if (distance == 0 || distance > op)
+				throw new IOException("Invalid LZ4 match offset");
+			int match_len = token & 0x0f;
+			if (match_len == 15) {
+				int b;
+				do {
+					if (ip >= end)
+						throw new IOException("Truncated LZ4 block");
+					b = data[ip++] & 0xff;
+					match_len += b;
+				} while (b == 255);
+			}
+			match_len += MIN_MATCH;
+			if (match_len > length - op)
+				throw new IOException("Invalid LZ4 match length");
+
+			// Byte-wise copy as source and destination may overlap
+			int ref = op - distance;
+			for (int i = 0; i < match_len; i++)
+				out[op++] = out[ref++];
+		}
+		if (op != length)
+			throw new IOException("LZ4 block length mismatch");
+		return out;
+	}
+
+	@Override
+	void end() {
+		table = null;
+	}
+
+	static int readInt(byte[] data, int pos) {
+		return (data[pos] & 0xff) | ((data[pos+1] & 0xff) << 8)
+				| ((data[pos+2] & 0xff) << 16) | ((data[pos+3] & 0xff) << 24);
+	}
+
+	static int writeLength(byte[] out, int pos, int length) {
+		while (length >= 255) {
+			out[pos++] = (byte)255;
+			length -= 255;
+		}
+		out[pos++] = (byte)length;
+		return pos;
+	}
+}
@@ -32,6 +32,7 @@ import org.versile.orb.entity.VEntityReaderException;
 import org.versile.orb.entity.VEntityWriter;
 import org.versile.orb.entity.VIOContext;
 import org.versile.orb.entity.VString;
+import org.versile.orb.entity.VStringCache;
 import org.versile.reactor.VReactor;
 import org.versile.reactor.VReactorFunction;
 import org.versile.reactor.io.VByteConsumer;
@@ -126,6 +127,8 @@ public class VEntityChannel {
 
 		if (config.getStringEncoding() != null)
 			ctx.setStrEncoding(config.getStringEncoding());
+		if (config.getStringCacheSize() > 0 && ctx.getStrCache() == null)
+			ctx.setStrCache(new VStringCache(config.getStringCacheSize(), 64));
 
 		this.buf_len = config.getBufferLength();
 		this.queue_len = config.getQueueLength();
@@ -33,6 +33,12 @@ package org.versile.reactor.io.vec;
  * entity channel's I/O context. It must be a standard encoding name
  * for the VEC protocol. If 'null' no new string encoding is set on the
  * context. The default value is "utf8".</p>
+ *
+ * <p>'stringCacheSize' is the number of entries of a {@link
+ * org.versile.orb.entity.VStringCache} of recently decoded strings to be set
+ * on the entity channel's I/O context, caching strings with an encoded
+ * length up to 64 bytes. If zero no cache is set. The default
+ * value is 256.</p>
  */
 public class VEntityChannelConfig {
 
@@ -40,6 +46,7 @@ public class VEntityChannelConfig {
 	int bufferLength = 4096;
 	int queueLength = 10;
 	String stringEncoding = "utf8";
+	int stringCacheSize = 256;
 
 	@Override
 	public VEntityChannelConfig clone() {
@@ -72,9 +79,18 @@ public class VEntityChannelConfig {
 		this.stringEncoding = stringEncoding;
 	}
 
+	public int getStringCacheSize() {
+		return stringCacheSize;
+	}
+
+	public void setStringCacheSize(int stringCacheSize) {
+		this.stringCacheSize = stringCacheSize;
+	}
+
 	protected void copyTo(VEntityChannelConfig config) {
 		config.bufferLength = bufferLength;
 		config.queueLength = queueLength;
 		config.stringEncoding = stringEncoding;
+		config.stringCacheSize = stringCacheSize;
 	}
 }
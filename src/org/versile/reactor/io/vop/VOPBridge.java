@@ -31,6 +31,8 @@ import org.versile.reactor.io.VByteIOPair;
 import org.versile.reactor.io.VByteProducer;
 import org.versile.reactor.io.VIOControl;
 import org.versile.reactor.io.VIOMissingControl;
+import org.versile.reactor.io.vcomp.VCompressionChannel;
+import org.versile.reactor.io.vcomp.VCompressionChannelConfig;
 
 
 /**
@@ -38,6 +40,14 @@ import org.versile.reactor.io.VIOMissingControl;
  *
  * <p>Handles VOP handshake and setup of a VOL link, negotiating a
  * byte transport for the connection.</p>
+ *
+ * <p>If compression is enabled then the client appends a list of
+ * compression codecs to its hello message, e.g. "COMPRESS:DEFLATE:LZ4",
+ * and the server appends the selected codec to its reply if it also has
+ * compression enabled. A negotiated {@link VCompressionChannel} is added
+ * between the link's entity channel and the transport. Compression is an
+ * extension to the VOP protocol, and peers which do not support it reject a
+ * client hello which offers compression.</p>
  */
 public abstract class VOPBridge {
 
@@ -56,6 +66,10 @@ public abstract class VOPBridge {
 	 * If true allow insecure transports.
 	 */
 	protected boolean allowInsecure;
+	/**
+	 * If set allow compression with the configured codecs.
+	 */
+	protected VCompressionChannelConfig compressionConfig;
 
 	boolean _handshaking = true;
 	boolean _handshake_error = false;
@@ -90,7 +104,7 @@ public abstract class VOPBridge {
 	 */
 	public VOPBridge(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory)
 			throws IOException {
-		this.construct(reactor, vec, vtsFactory, tlsFactory, false);
+		this.construct(reactor, vec, vtsFactory, tlsFactory, false, null);
 	}
 
 	/**
@@ -105,18 +119,42 @@ public abstract class VOPBridge {
 	 */
 	public VOPBridge(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory, boolean allowInsecure)
 		throws IOException {
-		this.construct(reactor, vec, vtsFactory, tlsFactory, allowInsecure);
+		this.construct(reactor, vec, vtsFactory, tlsFactory, allowInsecure, null);
 	}
 
-	void construct(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory, boolean allowInsecure)
+	/**
+	 * Set up VOP bridge.
+	 *
+	 * @param reactor bridge reactor
+	 * @param vec byte I/O pair of serialized link entity data
+	 * @param vtsFactory VTS transport factory (null if VTS not enabled)
+	 * @param tlsFactory TLS transport factory (null if TLS not enabled)
+	 * @param allowInsecure if true allow insecure (plaintext) transport
+	 * @param compression compression configuration (null if compression not enabled)
+	 * @throws IOException no transports enabled, or unsupported compression codec
+	 */
+	public VOPBridge(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory, boolean allowInsecure,
+					 VCompressionChannelConfig compression)
+		throws IOException {
+		this.construct(reactor, vec, vtsFactory, tlsFactory, allowInsecure, compression);
+	}
+
+	void construct(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory, boolean allowInsecure,
+				   VCompressionChannelConfig compression)
 		throws IOException {
 		if (vtsFactory == null && tlsFactory == null && !allowInsecure)
 			throw new IOException("VOP requires at least one enabled byte transport");
+		if (compression != null && compression.getCodecs() != null) {
+			for (String codec: compression.getCodecs())
+				if (!VCompressionChannel.isSupported(codec))
+					throw new IOException("Unsupported compression codec: " + codec);
+		}
 		this.reactor = reactor;
 		this.vec = vec;
 		this.vtsFactory = vtsFactory;
 		this.tlsFactory = tlsFactory;
 		this.allowInsecure = allowInsecure;
+		this.compressionConfig = compression;
 	}
 
 	/**
@@ -685,20 +723,60 @@ public abstract class VOPBridge {
 	 */
 	protected abstract void handshakeCanProduce();
 
+	/**
+	 * Get codecs which are enabled for compression.
+	 *
+	 * @return codec names in order of preference (empty if compression not enabled)
+	 */
+	protected String[] getCompressionCodecs() {
+		if (compressionConfig == null || compressionConfig.getCodecs() == null)
+			return new String[0];
+		return compressionConfig.getCodecs();
+	}
+
 	/**
 	 * Finalizes handshake after sending/receiving VOP hello messages.
 	 *
 	 * @param factory factory for negotiated VOP transport (plaintext if null)
 	 */
 	protected void handshakeComplete(TransportFactory factory) {
+		this.handshakeComplete(factory, null);
+	}
+
+	/**
+	 * Finalizes handshake after sending/receiving VOP hello messages.
+	 *
+	 * @param factory factory for negotiated VOP transport (plaintext if null)
+	 * @param codec negotiated compression codec (null if no compression)
+	 */
+	protected void handshakeComplete(TransportFactory factory, String codec) {
+		// Set up negotiated compression between entity channel and transport
+		VByteIOPair entity_data = vec;
+		if (codec != null) {
+			VCompressionChannel compressor = null;
+			try {
+				compressor = new VCompressionChannel(reactor, codec, compressionConfig);
+				compressor.getPlaintextIOPair().attach(vec, true);
+			} catch (IllegalArgumentException e) {
+				compressor = null;
+			} catch (IOException e) {
+				compressor = null;
+			}
+			if (compressor == null) {
+				this.handshakeAbort();
+				return;
+			}
+			entity_data = compressor.getCompressedIOPair();
+		}
+
 		_handshaking = false;
 
 		// Initiate VOP transport
 		if (factory == null) {
 			// Plaintext transport
 			try {
-				this._tc_attach(vec.getProducer(), true);
-				this._tp_attach(vec.getConsumer(), true);
+				this._tc_attach(entity_data.getProducer(), true);
+				this._tp_attach(entity_data.getConsumer(), true);
 			} catch (IOException e) {
 				this._tc_abort();
 				this._tp_abort();
@@ -710,7 +788,7 @@ public abstract class VOPBridge {
 			try {
 				this._tc_attach(trans.getExternalIOPair().getProducer(), true);
 				this._tp_attach(trans.getExternalIOPair().getConsumer(), true);
-				trans.getInternalIOPair().attach(vec);
+				trans.getInternalIOPair().attach(entity_data);
 			} catch (IOException e) {
 				this._tc_abort();
 				this._tp_abort();
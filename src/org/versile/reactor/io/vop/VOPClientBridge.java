@@ -26,6 +26,7 @@ import java.io.UnsupportedEncodingException;
 import org.versile.common.util.VByteBuffer;
 import org.versile.reactor.VReactor;
 import org.versile.reactor.io.VByteIOPair;
+import org.versile.reactor.io.vcomp.VCompressionChannelConfig;
 
 
 /**
@@ -35,7 +36,7 @@ import org.versile.reactor.io.VByteIOPair;
  */
 public class VOPClientBridge extends VOPBridge {
 
-	int _HSHAKE_MAXLEN = 64;
+	int _HSHAKE_MAXLEN = 128;
 	boolean _sent_client_hello = false;
 	boolean _have_server_response = false;
 	VByteBuffer _buffer;
@@ -62,6 +63,18 @@ public class VOPClientBridge extends VOPBridge {
 		this.construct();
 	}
 
+	/**
+	 * Set up channel VOP bridge.
+	 *
+	 * <p>See {@link VOPBridge} for information about constructor arguments.</p>
+	 */
+	public VOPClientBridge(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory, boolean allowInsecure,
+						   VCompressionChannelConfig compression)
+					throws IOException {
+		super(reactor, vec, vtsFactory, tlsFactory, allowInsecure, compression);
+		this.construct();
+	}
+
 	void construct() {
 		// Set up client hello message based on enabled protocols
 		try {
@@ -73,6 +86,12 @@ public class VOPClientBridge extends VOPBridge {
 				_buffer.append(":TLS".getBytes("ASCII"));
 			if (allowInsecure)
 				_buffer.append(":PLAIN".getBytes("ASCII"));
+			String[] codecs = this.getCompressionCodecs();
+			if (codecs.length > 0) {
+				_buffer.append(" COMPRESS".getBytes("ASCII"));
+				for (String codec: codecs)
+					_buffer.append((":" + codec).getBytes("ASCII"));
+			}
 			_buffer.append((byte)0x0a);
 		} catch (UnsupportedEncodingException e) {
 			// Should never happen
@@ -131,18 +150,40 @@ public class VOPClientBridge extends VOPBridge {
 				return;
 			}
 			String proto = hello_str.substring(28);
+
+			// Resolve compression codec selected by server, which must be one that was offered
+			String codec = null;
+			int _sep = proto.indexOf(' ');
+			if (_sep >= 0) {
+				String _ext = proto.substring(_sep+1);
+				proto = proto.substring(0, _sep);
+				if (_ext.startsWith("COMPRESS:")) {
+					String _codec = _ext.substring(9);
+					for (String c: this.getCompressionCodecs())
+						if (c.equals(_codec)) {
+							codec = c;
+							break;
+						}
+				}
+				if (codec == null) {
+					this.handshakeAbort();
+					return;
+				}
+				this.getReactor().log("VOP: Negotiated " + codec + " compression");
+			}
+
 			if (proto.equals("VTS")) {
 				if (vtsFactory != null)  {
 					this.getReactor().log("VOP: Negotiated VTS transport");
-					this.handshakeComplete(vtsFactory);
+					this.handshakeComplete(vtsFactory, codec);
 				}
 				else
 					this.handshakeAbort();
 			}
-			else if (proto.equals("VTS")) {
+			else if (proto.equals("TLS")) {
 				if (tlsFactory != null)  {
 					this.getReactor().log("VOP: Negotiated TLS transport");
-					this.handshakeComplete(tlsFactory);
+					this.handshakeComplete(tlsFactory, codec);
 				}
 				else
 					this.handshakeAbort();
@@ -150,7 +191,7 @@ public class VOPClientBridge extends VOPBridge {
 			else if (proto.equals("PLAIN")) {
 				if (allowInsecure)  {
 					this.getReactor().log("VOP: Negotiated insecure (plaintext) transport");
-					this.handshakeComplete(null);
+					this.handshakeComplete(null, codec);
 				}
 				else
 					this.handshakeAbort();
@@ -29,6 +29,7 @@ import org.versile.common.util.VByteBuffer;
 import org.versile.reactor.VReactor;
 import org.versile.reactor.VReactorFunction;
 import org.versile.reactor.io.VByteIOPair;
+import org.versile.reactor.io.vcomp.VCompressionChannelConfig;
 
 
 /**
@@ -38,10 +39,11 @@ import org.versile.reactor.io.VByteIOPair;
  */
 public class VOPServerBridge extends VOPBridge {
 
-	int _HSHAKE_MAXLEN = 64;
+	int _HSHAKE_MAXLEN = 128;
 	boolean _have_client_hello = false;
 	VByteBuffer _buffer;
 	TransportFactory _negotiated_factory = null;
+	String _negotiated_codec = null;
 
 	/**
 	 * Set up channel VOP bridge.
@@ -65,6 +67,18 @@ public class VOPServerBridge extends VOPBridge {
 		this.construct();
 	}
 
+	/**
+	 * Set up channel VOP bridge.
+	 *
+	 * <p>See {@link VOPBridge} for information about constructor arguments.</p>
+	 */
+	public VOPServerBridge(VReactor reactor, VByteIOPair vec, TransportFactory vtsFactory, TransportFactory tlsFactory, boolean allowInsecure,
+						   VCompressionChannelConfig compression)
+					throws IOException {
+		super(reactor, vec, vtsFactory, tlsFactory, allowInsecure, compression);
+		this.construct();
+	}
+
 	void construct() {
 		_buffer = new VByteBuffer();
 	}
@@ -118,7 +132,12 @@ public class VOPServerBridge extends VOPBridge {
 				this.handshakeAbort();
 				return;
 			}
-			String[] _protos = hello_str.substring(25).split(":");
+			String[] _fields = hello_str.split(" ", -1);
+			if (_fields.length > 3) {
+				this.handshakeAbort();
+				return;
+			}
+			String[] _protos = _fields[1].substring(11).split(":");
 			Set<String> protos = new HashSet<String>();
 			for (String p: _protos) {
 				if (p.equals("VTS") || p.equals("TLS") || p.equals("PLAIN"))
@@ -151,9 +170,29 @@ public class VOPServerBridge extends VOPBridge {
 				return;
 			}
 
+			// Select the first of own enabled compression codecs which was offered by client
+			if (_fields.length == 3) {
+				if (!_fields[2].startsWith("COMPRESS:")) {
+					this.handshakeAbort();
+					return;
+				}
+				Set<String> codecs = new HashSet<String>();
+				for (String c: _fields[2].substring(9).split(":"))
+					codecs.add(c);
+				for (String c: this.getCompressionCodecs())
+					if (codecs.contains(c)) {
+						_negotiated_codec = c;
+						this.getReactor().log("VOP: Negotiated " + c + " compression");
+						break;
+					}
+			}
+
 			// Prepare protocol return message
+			String reply = "VOP_DRAFT-0.8 USE_TRANSPORT:" + proto;
+			if (_negotiated_codec != null)
+				reply += " COMPRESS:" + _negotiated_codec;
 			try {
-				_buffer.append(("VOP_DRAFT-0.8 USE_TRANSPORT:" + proto).getBytes("ASCII"));
+				_buffer.append(reply.getBytes("ASCII"));
 			} catch (UnsupportedEncodingException e) {
 				// Should never happen
 				throw new RuntimeException(e);
@@ -191,7 +230,7 @@ public class VOPServerBridge extends VOPBridge {
 			}
 			_handshake_produced += old_len - _buffer.length();
 			if (_buffer.isEmpty())
-				this.handshakeComplete(_negotiated_factory);
+				this.handshakeComplete(_negotiated_factory, _negotiated_codec);
 		}
 	}
 
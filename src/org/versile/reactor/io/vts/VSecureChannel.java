@@ -30,6 +30,7 @@ import java.security.InvalidKeyException;
 import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.cert.CertPath;
 import java.security.cert.Certificate;
@@ -54,18 +55,22 @@ import javax.security.auth.x500.X500Principal;
 import org.versile.common.auth.VAuth;
 import org.versile.common.auth.VCredentials;
 import org.versile.common.auth.VPrivateCredentials;
+import org.versile.common.processor.VProcessorException;
 import org.versile.common.util.VByteBuffer;
 import org.versile.common.util.VByteGenerator;
 import org.versile.crypto.VBlockCipher;
 import org.versile.crypto.VBlockTransform;
 import org.versile.crypto.VCryptoException;
+import org.versile.crypto.VEd25519KeyPair;
 import org.versile.crypto.VHash;
 import org.versile.crypto.VMessageDecrypter;
 import org.versile.crypto.VMessageEncrypter;
 import org.versile.crypto.VRSACipher;
 import org.versile.crypto.VRSAKeyPair;
+import org.versile.crypto.VX25519KeyPair;
 import org.versile.crypto.rand.VPseudoRandomHMAC;
 import org.versile.crypto.rand.VSecureRandom;
+import org.versile.crypto.x509.VX509CertificateCache;
 import org.versile.orb.entity.VBytes;
 import org.versile.orb.entity.VEntity;
 import org.versile.orb.entity.VEntityError;
@@ -122,6 +127,10 @@ public abstract class VSecureChannel {
 	 * VTS end-point RSA keypair (possibly null).
 	 */
 	protected VRSAKeyPair keypair;
+	/**
+	 * VTS end-point Ed25519 signature keypair (possibly null).
+	 */
+	protected VEd25519KeyPair signKeypair;
 	/**
 	 * VTS end-point claimed identity (or null).
 	 */
@@ -147,6 +156,10 @@ public abstract class VSecureChannel {
 	 * Public key received from peer (possibly null).
 	 */
 	protected RSAPublicKey peerPublicKey = null;
+	/**
+	 * Ed25519 signature key received from peer (possibly null).
+	 */
+	protected PublicKey peerSignatureKey = null;
 	/**
 	 * Certificates received from peer (or null).
 	 */
@@ -173,6 +186,10 @@ public abstract class VSecureChannel {
 	 * VCA name of hash method for MAC.
 	 */
 	protected String negMacHash = null;
+	/**
+	 * Name of negotiated key exchange method.
+	 */
+	protected String negKeyExchange = null;
 
 	VMessageEncrypter encrypter = null;
 	VMessageDecrypter decrypter = null;
@@ -180,6 +197,16 @@ public abstract class VSecureChannel {
 	String[] prf_hash_methods;
 	Vector<CipherAndModes> ciphers;
 	String[] mac_hash_methods;
+	String[] key_exchanges;
+
+	/**
+	 * VTS key exchange with RSA key transport.
+	 */
+	protected static final String KEX_RSA = "rsa";
+	/**
+	 * VTS key exchange with ephemeral X25519 key agreement and Ed25519 authentication.
+	 */
+	protected static final String KEX_X25519_ED25519 = "x25519-ed25519";
 
 	WeakReference<PlaintextConsumer> pc_iface = null;
 	WeakReference<PlaintextProducer> pp_iface = null;
@@ -216,6 +243,11 @@ public abstract class VSecureChannel {
 	VEntityReader _handshake_reader = null;
 	VEntityWriter _handshake_writer = null;
 	Runnable _handshake_handler = null;
+	VSecureHandshakeProcessor _hshake_proc = null;
+	boolean _hshake_slot = false;
+	volatile boolean _hshake_busy = false;
+	boolean _hshake_complete = false;
+	boolean _hshake_chain_auth = false;
 
 	int buf_len;
 
@@ -278,6 +310,7 @@ public abstract class VSecureChannel {
 
 		this.reactor = reactor;
 		this.keypair = credentials.getKeyPair();
+		this.signKeypair = credentials.getSignatureKeyPair();
 		this.identity = credentials.getIdentity();
 		this.certs = credentials.getCertificates();
 		VByteGenerator rand = config.getSecureRandom();
@@ -288,6 +321,12 @@ public abstract class VSecureChannel {
 
 		buf_len = config.getBufferLength();
 
+		if (config.getOffloadHandshake()) {
+			_hshake_proc = config.getHandshakeProcessor();
+			if (_hshake_proc == null)
+				_hshake_proc = VSecureHandshakeProcessor.getDefault();
+		}
+
 		// Generate PRF hash methods
 		String[] _config_prf_methods = config.getPRFHashMethods();
 		if (_config_prf_methods == null)
@@ -372,6 +411,39 @@ public abstract class VSecureChannel {
 			mac_hash_methods = _mac_methods.toArray(new String[0]);
 		}
 
+		// Generate key exchange methods
+		String[] _config_kex = config.getKeyExchanges();
+		LinkedList<String> _kex = new LinkedList<String>();
+		if (_config_kex == null) {
+			if (role == Role.CLIENT) {
+				if (keypair == null && signKeypair != null)
+					_kex.addLast(KEX_X25519_ED25519);
+				else
+					_kex.addLast(KEX_RSA);
+			}
+			else {
+				if (signKeypair != null)
+					_kex.addLast(KEX_X25519_ED25519);
+				if (keypair != null)
+					_kex.addLast(KEX_RSA);
+			}
+		}
+		else {
+			for (String method: _config_kex) {
+				if (method.equals(KEX_X25519_ED25519)) {
+					if (!VX25519KeyPair.isSupported() || !VEd25519KeyPair.isSupported())
+						throw new VCryptoException("Key exchange not supported by Java runtime: " + method);
+				}
+				else if (!method.equals(KEX_RSA))
+					throw new VCryptoException("Illegal key exchange method: " + method);
+				if (this.canAuthenticateWith(method))
+					_kex.addLast(method);
+			}
+		}
+		if (_kex.isEmpty())
+			throw new VCryptoException("No VTS key exchange method available for credentials");
+		key_exchanges = _kex.toArray(new String[0]);
+
 		_proto_data = new VByteBuffer();
 		try {
 			_proto_send = new VByteBuffer("VTS_DRAFT-0.8\n".getBytes("ASCII"));
@@ -517,6 +589,7 @@ public abstract class VSecureChannel {
 	void _pc_abort() {
 		if (!_pc_aborted) {
 			_pc_aborted = true;
+			this._release_handshake_slot();
 			_pc_eod = true;
 			_pc_rbuf.clear();
 			encrypter = null;
@@ -725,7 +798,7 @@ public abstract class VSecureChannel {
 					}
 				}
 				// Provide authorization information
-				if (channel.peerPublicKey != null) {
+				if (channel.peerPublicKey != null || channel.peerSignatureKey != null) {
 					class Func implements VReactorFunction {
 						@Override
 						public Object execute() throws Exception {
@@ -733,10 +806,11 @@ public abstract class VSecureChannel {
 							if (cons != null) {
 								try {
 									RSAPublicKey key = channel.peerPublicKey;
+									PublicKey sig_key = channel.peerSignatureKey;
 									CertPath certs = channel.peerCertificates;
 									X500Principal identity = channel.peerIdentity;
 									VIOControl ctrl = cons.getControl();
-									VCredentials _cred = new VCredentials(key, identity, certs);
+									VCredentials _cred = new VCredentials(key, sig_key, identity, certs);
 									boolean allowed = ctrl.authorize(_cred, "VTS");
 									if (!allowed) {
 										// Connection not authorized, abort
@@ -809,18 +883,7 @@ public abstract class VSecureChannel {
 					if (_handshake_reader.done()) {
 						VEntity result = _handshake_reader.getResult();
 						_handshake_reader = null;
-						class Function implements VReactorFunction {
-							VEntity indata;
-							public Function(VEntity indata) {
-								this.indata = indata;
-							}
-							@Override
-							public Object execute() throws Exception {
-								handshakeHandler(indata);
-								return null;
-							}
-						}
-						reactor.schedule(new Function(result));
+						this._run_handshake_step(result);
 					}
 				} catch (VEntityReaderException e) {
 					throw new IOException("Invalid VEntity encoding in protocol handshake");
@@ -830,25 +893,7 @@ public abstract class VSecureChannel {
 
 		if (!_handshaking && _have_protocol) {
 			p_produce = true;
-			while (_cc_rbuf.hasData()) {
-				byte[] cdata = _cc_rbuf.popAll();
-				try {
-					decrypter.decrypt(cdata);
-				} catch (VCryptoException e) {
-					// Critical error, encrypted data did not validate, abort
-					class Function implements VReactorFunction {
-						@Override
-						public Object execute() throws Exception {
-							_cc_abort();
-							return null;
-						}
-					}
-					reactor.schedule(new Function());
-					throw new IOException("Encrypted data did not validate");
-				}
-				if (decrypter.hasDecrypted())
-					_pp_wbuf.append(decrypter.getDecrypted());
-			}
+			this._cc_decrypt();
 		}
 
 		// Run produce/update cycle
@@ -877,6 +922,30 @@ public abstract class VSecureChannel {
 		return _cc_lim_sent;
 	}
 
+	// Decrypts buffered ciphertext into the plaintext output buffer
+	void _cc_decrypt()
+			throws IOException {
+		while (_cc_rbuf.hasData()) {
+			byte[] cdata = _cc_rbuf.popAll();
+			try {
+				decrypter.decrypt(cdata);
+			} catch (VCryptoException e) {
+				// Critical error, encrypted data did not validate, abort
+				class Function implements VReactorFunction {
+					@Override
+					public Object execute() throws Exception {
+						_cc_abort();
+						return null;
+					}
+				}
+				reactor.schedule(new Function());
+				throw new IOException("Encrypted data did not validate");
+			}
+			if (decrypter.hasDecrypted())
+				_pp_wbuf.append(decrypter.getDecrypted());
+		}
+	}
+
 	void _cc_end_consume(boolean clean) {
 		if (_cc_eod)
 			return;
@@ -897,6 +966,7 @@ public abstract class VSecureChannel {
 	void _cc_abort() {
 		if (!_cc_aborted) {
 			_cc_aborted = true;
+			this._release_handshake_slot();
 			_cc_eod = true;
 			_pp_wbuf.clear();
 			decrypter = null;
@@ -1173,7 +1243,7 @@ public abstract class VSecureChannel {
 			return;
 		}
 
-		if (_handshaking && _have_protocol && _handshake_writer != null) {
+		if (_handshaking && _have_protocol && !_hshake_busy && _handshake_writer != null) {
 			int max_write = buf_len - _cp_wbuf.length();
 			if (_cp_prod_lim >= 0)
 				max_write = Math.min(max_write, (int)(_cp_prod_lim-_cp_produced));
@@ -1190,6 +1260,7 @@ public abstract class VSecureChannel {
 				if (_end_handshaking) {
 					// Handshake complete, enable plaintext
 					_handshaking = false;
+					this._release_handshake_slot();
 					this.enablePlaintext();
 					if (role == Role.CLIENT)
 						reactor.log("VTS: client handshake completed");
@@ -1324,7 +1395,12 @@ public abstract class VSecureChannel {
 			if (!p_version.equals("0.8"))
 				throw new IOException("Illegal VTS protocol version");
 
-			// Hello message validated, handshake can proceed
+			// Hello message validated, an inbound handshake can proceed if within handshake limit
+			if (_hshake_proc != null && role == Role.SERVER) {
+				if (!_hshake_proc.acquire())
+					throw new IOException("VTS concurrent handshake limit exceeded");
+				_hshake_slot = true;
+			}
 			_have_protocol = true;
 			_can_send_proto = true;
 			_handshaking = true;
@@ -1344,12 +1420,130 @@ public abstract class VSecureChannel {
 	/**
 	 * Handle protocol handshake.
 	 *
+	 * <p>Called for each handshake message received from the peer. If the channel offloads
+	 * handshakes this is called from a handshake processor worker thread, and implementations
+	 * must not interact with the channel's producers or consumers. The next handshake message
+	 * should be set up as a handshake writer, and {@link #completeHandshake()} should be called
+	 * to signal the handshake has completed. The channel resumes processing on the reactor
+	 * thread after the handler returns.</p>
+	 *
+	 * <p>If the handler raises an exception, the channel is aborted.</p>
+	 *
 	 * @param indata handshake message received from peer
 	 * @throws IOException
 	 */
 	protected abstract void handshakeHandler(VEntity indata)
 			throws IOException;
 
+	/**
+	 * Signals the handshake has completed.
+	 *
+	 * <p>Should be called by {@link #handshakeHandler(VEntity)} when a handshake step
+	 * completes the handshake without sending a further handshake message. Plaintext
+	 * is enabled when the handshake step returns.</p>
+	 */
+	protected void completeHandshake() {
+		_hshake_complete = true;
+	}
+
+	// Runs a handshake step on the handshake processor, or on the reactor if not offloaded
+	void _run_handshake_step(VEntity indata)
+			throws IOException {
+		class Step implements Runnable, VReactorFunction {
+			VEntity indata;
+			public Step(VEntity indata) {
+				this.indata = indata;
+			}
+			@Override
+			public void run() {
+				IOException error = new IOException("Internal handshake error");
+				try {
+					handshakeHandler(indata);
+					error = null;
+				} catch (IOException e) {
+					error = e;
+				} catch (RuntimeException e) {
+					// Reported as internal handshake error
+				} finally {
+					// Always resume on the reactor so the handshake slot is released
+					reactor.schedule(new StepDone(error));
+				}
+			}
+			@Override
+			public Object execute() throws Exception {
+				this.run();
+				return null;
+			}
+		}
+		_hshake_busy = true;
+		if (_hshake_proc != null) {
+			try {
+				_hshake_proc.submit(new Step(indata));
+			} catch (VProcessorException e) {
+				_hshake_busy = false;
+				throw new IOException("Could not submit handshake to handshake processor");
+			}
+		}
+		else
+			reactor.schedule(new Step(indata));
+	}
+
+	// Resumes channel processing on the reactor after a handshake step
+	class StepDone implements VReactorFunction {
+		IOException error;
+		public StepDone(IOException error) {
+			this.error = error;
+		}
+		@Override
+		public Object execute() throws Exception {
+			_hshake_busy = false;
+			if (_pc_aborted || _cc_aborted) {
+				encrypter = null;
+				decrypter = null;
+				return null;
+			}
+			if (error == null && _hshake_chain_auth) {
+				_hshake_chain_auth = false;
+				try {
+					_authorize_chain(peerIdentity, peerCertificates);
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+			if (error != null) {
+				_release_handshake_slot();
+				_pc_abort();
+				_pp_abort();
+				reactor.log("VTS: handshake failed, " + error.getMessage());
+				return null;
+			}
+			if (_hshake_complete && _handshaking) {
+				_handshaking = false;
+				_release_handshake_slot();
+				enablePlaintext();
+				if (role == Role.CLIENT)
+					reactor.log("VTS: client handshake completed");
+				else
+					reactor.log("VTS: server handshake completed");
+
+				// Peer may have sent ciphertext while the handshake step was processed
+				if (_cc_rbuf.hasData()) {
+					_cc_decrypt();
+					__pp_produce(true);
+				}
+			}
+			__cp_produce(true);
+			return null;
+		}
+	}
+
+	void _release_handshake_slot() {
+		if (_hshake_slot) {
+			_hshake_slot = false;
+			_hshake_proc.release();
+		}
+	}
+
 
 	/**
 	 * Creates a block cipher encrypted handshake message.
@@ -1587,6 +1781,75 @@ public abstract class VSecureChannel {
 		return result;
 	}
 
+	/**
+	 * Parse Ed25519 key data received from peer during handshake.
+	 *
+	 * <p>Key data has the format ("ed25519", (value1, value2, ...)) where
+	 * the first value is the raw public key and all values are bytes.</p>
+	 *
+	 * @param keydata key data to parse
+	 * @param numValues required number of values
+	 * @return parsed values
+	 * @throws IOException
+	 */
+	protected byte[][] parseEd25519KeyData(VEntity keydata, int numValues)
+			throws IOException {
+		String k_name = null;
+		VTuple k_data = null;
+		try {
+			VTuple _keydata = VTuple.valueOf(keydata);
+			if (_keydata.length() != 2)
+				throw new IOException("Invalid public key data");
+			k_name = VString.nativeOf(_keydata.get(0));
+			k_data = VTuple.valueOf(_keydata.get(1));
+		} catch (VEntityError e) {
+			throw new IOException("Invalid public key data");
+		}
+		if (!k_name.equals("ed25519"))
+			throw new IOException("Unsupported public key type (must be type 'ed25519')");
+		if (k_data.length() != numValues)
+			throw new IOException("Invalid public key data format");
+		byte[][] result = new byte[numValues][];
+		try {
+			for (int i = 0; i < numValues; i++)
+				result[i] = VBytes.nativeOf(k_data.get(i));
+		} catch (VEntityError e) {
+			throw new IOException("Invalid public key data format");
+		}
+		if (result[0].length != VEd25519KeyPair.KEY_LENGTH)
+			throw new IOException("Invalid Ed25519 public key length");
+		return result;
+	}
+
+	/**
+	 * Generates the data signed by a peer's Ed25519 key in the "x25519-ed25519" key exchange.
+	 *
+	 * @param label protocol label of the signing party
+	 * @param parts handshake data to bind to the signature
+	 * @return data to sign
+	 * @throws IOException
+	 */
+	protected byte[] kexSignedData(String label, byte[]... parts)
+			throws IOException {
+		byte[][] _parts = new byte[parts.length+1][];
+		_parts[0] = label.getBytes("ASCII");
+		for (int i = 0; i < parts.length; i++)
+			_parts[i+1] = parts[i];
+		return VBytes.concat(_parts);
+	}
+
+	/**
+	 * Encodes negotiated handshake parameters for inclusion in signed key exchange data.
+	 *
+	 * @return encoded parameters
+	 * @throws IOException
+	 */
+	protected byte[] negotiatedParamData()
+			throws IOException {
+		String params = negPrfHash + ":" + negCipherName + ":" + negCipherMode + ":" + negMacHash;
+		return params.getBytes("ASCII");
+	}
+
 	/**
 	 * Parse certificate path data received from peer during handshake.
 	 *
@@ -1598,6 +1861,13 @@ public abstract class VSecureChannel {
 			throws IOException {
 		CertPath result = null;
 
+		// Previously parsed certificates and verified chain links are re-used from cache
+		VX509CertificateCache cache;
+		if (peerAuthorizer != null)
+			cache = peerAuthorizer.getCertificateCache();
+		else
+			cache = VX509CertificateCache.getDefault();
+
 		// Parse X.509 certificate path
 		try {
 			VTuple t_cert = VTuple.valueOf(data);
@@ -1605,8 +1875,12 @@ public abstract class VSecureChannel {
 		    LinkedList<Certificate> certs = new LinkedList<Certificate>();
 		    for (VEntity item: t_cert) {
 		    	byte[] cert_data = VBytes.nativeOf(item);
-		    	InputStream data_as_stream = new ByteArrayInputStream(cert_data);
-		    	certs.addLast(cf.generateCertificate(data_as_stream));
+		    	if (cache != null)
+		    		certs.addLast(cache.importNative(cert_data));
+		    	else {
+		    		InputStream data_as_stream = new ByteArrayInputStream(cert_data);
+		    		certs.addLast(cf.generateCertificate(data_as_stream));
+		    	}
 		    }
 		    result = cf.generateCertPath(certs);
 		} catch (VEntityError e) {
@@ -1629,7 +1903,10 @@ public abstract class VSecureChannel {
 			if (i < c_list.size()-1) {
 				X509Certificate _next = (X509Certificate)(c_list.get(i+1));
 				try {
-					_cert.verify(_next.getPublicKey());
+					if (cache != null)
+						cache.verify(_cert, _next.getPublicKey());
+					else
+						_cert.verify(_next.getPublicKey());
 				} catch (InvalidKeyException e) {
 					throw new IOException("Certificate chain is not a valid signed chain");
 				} catch (CertificateException e) {
@@ -1681,14 +1958,24 @@ public abstract class VSecureChannel {
 				if (!have_root)
 					throw new IOException("Certificate chain does not have a recognized root CA");
 			}
-			VCredentials _cred = new VCredentials(peerPublicKey, identity, certificates);
+			VCredentials _cred = new VCredentials(peerPublicKey, peerSignatureKey, identity, certificates);
 			if (!peerAuthorizer.acceptCredentials(_cred))
 				throw new IOException("Credentials rejected by peer authorizer");
 		}
 
+		// Producer/consumer chain must be accessed from the reactor thread, during a
+		// handshake step authorization is deferred until the step has completed
+		if (_hshake_busy)
+			_hshake_chain_auth = true;
+		else
+			this._authorize_chain(identity, certificates);
+	}
+
+	void _authorize_chain(X500Principal identity, CertPath certificates)
+			throws IOException {
 		if (_pp_consumer != null) {
 			try {
-				VCredentials _cred = new VCredentials(peerPublicKey, identity, certificates);
+				VCredentials _cred = new VCredentials(peerPublicKey, peerSignatureKey, identity, certificates);
 				if (!_pp_consumer.getControl().authorize(_cred, "VTS"))
 					throw new IOException("Credentials rejected by producer/consumer chain authorized");
 			} catch (VIOMissingControl e) {
@@ -1698,6 +1985,21 @@ public abstract class VSecureChannel {
 	}
 
 
+	/**
+	 * Check whether key exchange can authenticate with this end-point's credentials.
+	 *
+	 * @param method key exchange method name
+	 * @return true if key exchange can be used
+	 */
+	protected boolean canAuthenticateWith(String method) {
+		boolean no_keys = (keypair == null && signKeypair == null);
+		if (method.equals(KEX_RSA))
+			return keypair != null || (role == Role.CLIENT && no_keys);
+		else if (method.equals(KEX_X25519_ED25519))
+			return signKeypair != null || (role == Role.CLIENT && no_keys);
+		return false;
+	}
+
 	class PlaintextConsumer implements VByteConsumer {
 
 		VSecureChannel channel;
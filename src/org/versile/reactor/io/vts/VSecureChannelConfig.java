@@ -66,6 +66,21 @@ import org.versile.reactor.io.vts.VSecureChannel.CipherAndModes;
  * of map values) allowed for VTS block ciphers. It must consist of standard
  * VCA cipher names and cipher mode names. If it is null then a default set of VCA ciphers
  * is used (if supported), in the order of: "aes256", "blowfish", "blowfish128".</p>
+ *
+ * <p>Key exchanges is the list of VTS key exchange methods allowed for the
+ * handshake, in order of preference. Supported methods are "rsa" (RSA key
+ * transport, requires an RSA keypair for authentication) and "x25519-ed25519"
+ * (ephemeral X25519 key agreement, requires an Ed25519 keypair for authentication).
+ * If null then a client offers "x25519-ed25519" only if its credentials hold an
+ * Ed25519 keypair and no RSA keypair, otherwise "rsa" (which is compatible with
+ * peers that do not support other key exchanges), and a server accepts any method
+ * supported by its credentials.</p>
+ *
+ * <p>If offload handshake is true (the default), handshake crypto is performed
+ * by a handshake processor's worker threads instead of the reactor thread. The
+ * handshake processor also limits the number of concurrent server handshakes. If
+ * the processor is null then the shared default processor is used, see
+ * {@link VSecureHandshakeProcessor#getDefault()}.</p>
  */
 public class VSecureChannelConfig {
 
@@ -79,6 +94,9 @@ public class VSecureChannelConfig {
 	String[] prf_hash_methods = null;
 	String[] mac_hash_methods = null;
 	Vector<CipherAndModes> ciphers = null;
+	String[] key_exchanges = null;
+	boolean offload_handshake = true;
+	VSecureHandshakeProcessor handshake_processor = null;
 
 	@Override
 	public VSecureChannelConfig clone() {
@@ -165,6 +183,30 @@ public class VSecureChannelConfig {
 		}
 	}
 
+	public String[] getKeyExchanges() {
+		return key_exchanges;
+	}
+
+	public void setKeyExchanges(String[] key_exchanges) {
+		this.key_exchanges = key_exchanges;
+	}
+
+	public boolean getOffloadHandshake() {
+		return offload_handshake;
+	}
+
+	public void setOffloadHandshake(boolean offload_handshake) {
+		this.offload_handshake = offload_handshake;
+	}
+
+	public VSecureHandshakeProcessor getHandshakeProcessor() {
+		return handshake_processor;
+	}
+
+	public void setHandshakeProcessor(VSecureHandshakeProcessor handshake_processor) {
+		this.handshake_processor = handshake_processor;
+	}
+
 	protected void copyTo(VSecureChannelConfig config) {
 		config.max_rsa_keylen = max_rsa_keylen;
 		config.handshake_limit = handshake_limit;
@@ -175,5 +217,8 @@ public class VSecureChannelConfig {
 		config.prf_hash_methods = prf_hash_methods;
 		config.mac_hash_methods = mac_hash_methods;
 		config.ciphers = ciphers;
+		config.key_exchanges = key_exchanges;
+		config.offload_handshake = offload_handshake;
+		config.handshake_processor = handshake_processor;
 	}
 }
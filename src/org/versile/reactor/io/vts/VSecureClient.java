@@ -32,7 +32,9 @@ import javax.security.auth.x500.X500Principal;
 
 import org.versile.common.auth.VPrivateCredentials;
 import org.versile.crypto.VCryptoException;
+import org.versile.crypto.VEd25519KeyPair;
 import org.versile.crypto.VHash;
+import org.versile.crypto.VX25519KeyPair;
 import org.versile.orb.entity.VBoolean;
 import org.versile.orb.entity.VBytes;
 import org.versile.orb.entity.VEntity;
@@ -72,7 +74,7 @@ public class VSecureClient extends VSecureChannel {
 			throws VCryptoException {
 		super(reactor, credentials, new VSecureChannelConfig(), Role.CLIENT);
 		_can_send_proto = true;
-		if (keypair == null)
+		if (keypair == null && signKeypair == null)
 			if (identity != null || certs != null)
 				throw new VCryptoException("Use of identity/certificates requires a key");
 	}
@@ -89,7 +91,7 @@ public class VSecureClient extends VSecureChannel {
 			throws VCryptoException {
 		super(reactor, credentials, config, Role.CLIENT);
 		_can_send_proto = true;
-		if (keypair == null)
+		if (keypair == null && signKeypair == null)
 			if (identity != null || certs != null)
 				throw new VCryptoException("Use of identity/certificates requires a key");
 	}
@@ -105,16 +107,10 @@ public class VSecureClient extends VSecureChannel {
 	@Override
 	protected void handshakeHandler(VEntity indata)
 			throws IOException {
-		try {
-			if (_proto_step == _ProtocolStep._SEND_PUBKEY)
-				this._send_pubkey(indata);
-			else if (_proto_step == _ProtocolStep._GET_SERVER_SECRET)
-				this._get_server_secret(indata);
-		} catch (IOException e) {
-			this._pc_abort();
-			this._pp_abort();
-			throw e;
-		}
+		if (_proto_step == _ProtocolStep._SEND_PUBKEY)
+			this._send_pubkey(indata);
+		else if (_proto_step == _ProtocolStep._GET_SERVER_SECRET)
+			this._get_server_secret(indata);
 	}
 
 
@@ -128,8 +124,13 @@ public class VSecureClient extends VSecureChannel {
 			_ciphers.addLast(new Object[] {c_name, c_modes});
 		}
 
-		Object[] o_mac = new Object[] {prf_hash_methods, _ciphers.toArray(), mac_hash_methods,
-				rand_c, maxKeyLen, hshakeLim};
+		Object[] o_mac = null;
+		if (key_exchanges.length == 1 && key_exchanges[0].equals(KEX_RSA))
+			o_mac = new Object[] {prf_hash_methods, _ciphers.toArray(), mac_hash_methods,
+								  rand_c, maxKeyLen, hshakeLim};
+		else
+			o_mac = new Object[] {prf_hash_methods, _ciphers.toArray(), mac_hash_methods,
+								  rand_c, maxKeyLen, hshakeLim, key_exchanges};
 		VEntity msg = null;
 		try {
 			msg = VTuple.valueOf(o_mac);
@@ -267,8 +268,38 @@ public class VSecureClient extends VSecureChannel {
 			}
 		}
 
-		// Parse server public key
-		peerPublicKey = this.parseRsaPubkeyData(s_pubdata);
+		// Parse server public key, which resolves the key exchange selected by server
+		String s_key_type = null;
+		if (s_pubdata.length() == 2) {
+			try {
+				s_key_type = VString.nativeOf(s_pubdata.get(0));
+			} catch (VEntityError e) {
+				throw new IOException("Invalid server public key data");
+			}
+		}
+		byte[] s_kex_pub = null;
+		if ("ed25519".equals(s_key_type)) {
+			if (!this._offered(KEX_X25519_ED25519))
+				throw new IOException("Server selected a key exchange which was not offered");
+			negKeyExchange = KEX_X25519_ED25519;
+			byte[][] _kdata = this.parseEd25519KeyData(s_pubdata, 3);
+			s_kex_pub = _kdata[1];
+			try {
+				peerSignatureKey = VEd25519KeyPair.importRaw(_kdata[0]);
+			} catch (VCryptoException e) {
+				throw new IOException("Invalid server public key data");
+			}
+			byte[] _signed = this.kexSignedData("vts server kex", rand_c, rand_s, s_kex_pub,
+												this.negotiatedParamData());
+			if (!VEd25519KeyPair.verify(peerSignatureKey, _signed, _kdata[2]))
+				throw new IOException("Server key exchange signature did not validate");
+		}
+		else {
+			if (!this._offered(KEX_RSA))
+				throw new IOException("Server selected a key exchange which was not offered");
+			negKeyExchange = KEX_RSA;
+			peerPublicKey = this.parseRsaPubkeyData(s_pubdata);
+		}
 
 		// Parse identity/certificate data
 		X500Principal s_identity = null;
@@ -303,6 +334,11 @@ public class VSecureClient extends VSecureChannel {
 		peerCertificates = s_certificates;
 		this.authorizeCredentials(s_identity, s_certificates);
 
+		if (negKeyExchange.equals(KEX_X25519_ED25519)) {
+			this._send_kex(s_kex_pub);
+			return;
+		}
+
 		// Generate client secure random data
 		srand_c = rand.getBytes(32);
 
@@ -327,23 +363,7 @@ public class VSecureClient extends VSecureChannel {
 			c_pubkey = VNone.get();
 
 		// Construct client credentials data for peer
-		VEntity c_credentials = null;
-		if (identity != null) {
-			VBytes _der = new VBytes(identity.getEncoded());
-			c_credentials = VTuple.fromElements(new VBoolean(false), _der);
-		}
-		else if (certs != null) {
-			LinkedList<VBytes> certdata = new LinkedList<VBytes>();
-			for (Certificate _cert: certs.getCertificates())
-				try {
-					certdata.addLast(new VBytes(_cert.getEncoded()));
-				} catch (CertificateEncodingException e) {
-					throw new IOException("Error encoding server certificate chain");
-				}
-			c_credentials = VTuple.fromElements(new VBoolean(true), new VTuple(certdata));
-		}
-		else
-			c_credentials = VNone.get();
+		VEntity c_credentials = this._credentials_data();
 
 		// Prepare message to peer - plaintext content for encryption
 		VBytes c_padding = new VBytes(new byte[0]);
@@ -414,14 +434,63 @@ public class VSecureClient extends VSecureChannel {
 
 			_end_handshaking = true;
 		}
-		class Function implements VReactorFunction {
-			@Override
-			public Object execute() throws Exception {
-				__cp_produce(false);
-				return null;
+	}
+
+	// VTS protocol step 4 for x25519-ed25519: client sends ephemeral key and credentials
+	void _send_kex(byte[] s_kex_pub)
+			throws IOException {
+		byte[] c_kex_pub = null;
+		byte[] secret = null;
+		try {
+			VX25519KeyPair kex_pair = VX25519KeyPair.generate();
+			c_kex_pub = kex_pair.exportPublicRaw();
+			secret = kex_pair.agree(s_kex_pub);
+		} catch (VCryptoException e) {
+			throw new IOException("Key agreement with server failed");
+		}
+
+		// Construct client public key data for peer, signing the exchanged keys
+		VEntity c_pubkey = null;
+		if (signKeypair != null) {
+			byte[] _signed = this.kexSignedData("vts client kex", rand_c, rand_s, c_kex_pub, s_kex_pub);
+			try {
+				byte[] _raw = signKeypair.exportPublicRaw();
+				byte[] _sig = signKeypair.sign(_signed);
+				c_pubkey = VTuple.valueOf(new Object[] {"ed25519", new Object[] {_raw, _sig}});
+			} catch (VCryptoException e) {
+				throw new IOException("Internal crypto error");
+			} catch (VEntityError e) {
+				throw new IOException("Error encoding client public key data");
 			}
 		}
-		reactor.schedule(new Function());
+		else
+			c_pubkey = VNone.get();
+
+		// Prepare message to peer, encrypted with a key derived from the shared secret
+		VBytes c_padding = new VBytes(new byte[0]);
+		VTuple p_msg = VTuple.fromElements(c_pubkey, this._credentials_data(), c_padding);
+		byte[] keyseed = VBytes.concat("vts client sendkey".getBytes("ASCII"), c_kex_pub, secret);
+		byte[] enc_msg = null;
+		try {
+			enc_msg = this.blockcipherEncEntity(p_msg, keyseed);
+		} catch (VCryptoException e) {
+			throw new IOException("Internal encryption error");
+		}
+		VTuple send_msg = VTuple.fromElements(new VBytes(c_kex_pub), new VBytes(enc_msg));
+		_handshake_writer = send_msg._v_writer(new VIOContext());
+
+		byte[] s_keyseed = VBytes.concat(rand_s, rand_c, secret);
+		byte[] c_keyseed = VBytes.concat(rand_c, rand_s, secret);
+		byte[][] keydata = null;
+		try {
+			keydata = this.generateKeys(s_keyseed, c_keyseed);
+			encrypter = this.genMsgEnc(keydata[0], keydata[1], keydata[2]);
+			decrypter = this.genMsgDec(keydata[3], keydata[4], keydata[5]);
+		} catch (VCryptoException e) {
+			throw new IOException("Internal crypto error");
+		}
+
+		_end_handshaking = true;
 	}
 
 	// VTS protocol step 6: client receives secret2
@@ -480,17 +549,37 @@ public class VSecureClient extends VSecureChannel {
 			throw new IOException("Internal crypto error");
 		}
 
-		_handshaking = false;
-		this.enablePlaintext();
-		reactor.log("VTS: client handshake completed");
+		this.completeHandshake();
+	}
 
-		class Function implements VReactorFunction {
-			@Override
-			public Object execute() throws Exception {
-				__cp_produce(true);
-				return null;
-			}
+	// Returns credentials data for sending to peer
+	VEntity _credentials_data()
+			throws IOException {
+		VEntity c_credentials = null;
+		if (identity != null) {
+			VBytes _der = new VBytes(identity.getEncoded());
+			c_credentials = VTuple.fromElements(new VBoolean(false), _der);
 		}
-		reactor.schedule(new Function());
+		else if (certs != null) {
+			LinkedList<VBytes> certdata = new LinkedList<VBytes>();
+			for (Certificate _cert: certs.getCertificates())
+				try {
+					certdata.addLast(new VBytes(_cert.getEncoded()));
+				} catch (CertificateEncodingException e) {
+					throw new IOException("Error encoding server certificate chain");
+				}
+			c_credentials = VTuple.fromElements(new VBoolean(true), new VTuple(certdata));
+		}
+		else
+			c_credentials = VNone.get();
+		return c_credentials;
+	}
+
+	// Returns true if key exchange method was offered to server
+	boolean _offered(String method) {
+		for (String _name: key_exchanges)
+			if (_name.equals(method))
+				return true;
+		return false;
 	}
 }
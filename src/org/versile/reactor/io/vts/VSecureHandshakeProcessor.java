@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vts;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.versile.common.processor.VProcessor;
+
+
+/**
+ * Worker processor for VTS handshake crypto operations.
+ *
+ * <p>VTS channels submit handshake steps (public key operations, key agreement and
+ * handshake message encryption) to the processor so they are performed on worker
+ * threads rather than the reactor thread. Results are passed back to the channel's
+ * reactor when a step completes, so handshakes do not stall I/O for other connections
+ * sharing the reactor.</p>
+ *
+ * <p>The processor also limits the number of server channels which may concurrently
+ * perform a handshake. A server channel which starts a handshake when the limit has
+ * been reached is aborted, so that a burst of inbound connections is shed early
+ * instead of queueing up handshake work without bound. Client channels are not
+ * counted against the limit, so outbound connections are not rejected because of
+ * inbound load.</p>
+ *
+ * <p>Worker threads are daemon threads.</p>
+ */
+public class VSecureHandshakeProcessor extends VProcessor {
+
+	static VSecureHandshakeProcessor default_processor = null;
+
+	int max_handshakes;
+	int num_handshakes = 0;
+
+	/**
+	 * Set up processor.
+	 *
+	 * @param workers number of worker threads (minimum 2)
+	 * @param maxHandshakes max concurrent server handshakes (or -1 if no limit)
+	 */
+	public VSecureHandshakeProcessor(int workers, int maxHandshakes) {
+		super(VSecureHandshakeProcessor.createExecutor(workers));
+		max_handshakes = maxHandshakes;
+	}
+
+	/**
+	 * Get a default processor shared by all channels which do not set a processor.
+	 *
+	 * <p>The default processor has one worker thread per available processor (minimum 2)
+	 * and allows maximum 256 concurrent server handshakes.</p>
+	 *
+	 * @return default processor
+	 */
+	public static synchronized VSecureHandshakeProcessor getDefault() {
+		if (default_processor == null) {
+			int workers = Runtime.getRuntime().availableProcessors();
+			default_processor = new VSecureHandshakeProcessor(workers, 256);
+		}
+		return default_processor;
+	}
+
+	/**
+	 * Get maximum number of concurrent server handshakes.
+	 *
+	 * @return max concurrent server handshakes (or -1 if no limit)
+	 */
+	public synchronized int getMaxHandshakes() {
+		return max_handshakes;
+	}
+
+	/**
+	 * Set maximum number of concurrent server handshakes.
+	 *
+	 * <p>Handshakes already in progress are not affected if the limit is lowered.</p>
+	 *
+	 * @param maxHandshakes max concurrent server handshakes (or -1 if no limit)
+	 */
+	public synchronized void setMaxHandshakes(int maxHandshakes) {
+		max_handshakes = maxHandshakes;
+	}
+
+	/**
+	 * Get number of server handshakes currently in progress.
+	 *
+	 * @return number of handshakes
+	 */
+	public synchronized int getNumHandshakes() {
+		return num_handshakes;
+	}
+
+	/**
+	 * Reserves a handshake slot for a server channel starting a handshake.
+	 *
+	 * @return true if reserved, false if handshake limit was reached
+	 */
+	synchronized boolean acquire() {
+		if (max_handshakes >= 0 && num_handshakes >= max_handshakes)
+			return false;
+		num_handshakes += 1;
+		return true;
+	}
+
+	/**
+	 * Releases a handshake slot reserved with {@link #acquire()}.
+	 */
+	synchronized void release() {
+		if (num_handshakes > 0)
+			num_handshakes -= 1;
+	}
+
+	static ThreadPoolExecutor createExecutor(int workers) {
+		// Minimum 2 workers, see VProcessor notes on executor stability
+		workers = Math.max(workers, 2);
+		class Factory implements ThreadFactory {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "VTS handshake worker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}
+		return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+									  new LinkedBlockingQueue<Runnable>(), new Factory());
+	}
+}
@@ -32,7 +32,9 @@ import javax.security.auth.x500.X500Principal;
 
 import org.versile.common.auth.VPrivateCredentials;
 import org.versile.crypto.VCryptoException;
+import org.versile.crypto.VEd25519KeyPair;
 import org.versile.crypto.VHash;
+import org.versile.crypto.VX25519KeyPair;
 import org.versile.orb.entity.VBoolean;
 import org.versile.orb.entity.VBytes;
 import org.versile.orb.entity.VEntity;
@@ -43,7 +45,6 @@ import org.versile.orb.entity.VNone;
 import org.versile.orb.entity.VString;
 import org.versile.orb.entity.VTuple;
 import org.versile.reactor.VReactor;
-import org.versile.reactor.VReactorFunction;
 
 
 /**
@@ -59,6 +60,8 @@ public class VSecureServer extends VSecureChannel {
 	byte[] rand_s = null;
 	byte[] srand_c = null;
 	byte[] srand_s = null;
+	VX25519KeyPair kex_pair = null;
+	byte[] s_kex_pub = null;
 	_ProtocolStep _proto_step = null;
 
 	/**
@@ -71,7 +74,7 @@ public class VSecureServer extends VSecureChannel {
 	public VSecureServer(VReactor reactor, VPrivateCredentials credentials)
 			throws VCryptoException {
 		super(reactor, credentials, new VSecureChannelConfig(), Role.SERVER);
-		if (credentials.getKeyPair() == null)
+		if (credentials.getKeyPair() == null && credentials.getSignatureKeyPair() == null)
 			throw new VCryptoException("VTS server requires credentials with a keypair");
 	}
 
@@ -97,16 +100,10 @@ public class VSecureServer extends VSecureChannel {
 	@Override
 	protected void handshakeHandler(VEntity indata)
 			throws IOException {
-		try {
-			if (_proto_step == _ProtocolStep._ACK_HELLO)
-				this._ack_hello(indata);
-			else if (_proto_step == _ProtocolStep._GET_PUBKEY)
-				this._get_pubkey(indata);
-		} catch (IOException e) {
-			this._pc_abort();
-			this._pp_abort();
-			throw e;
-		}
+		if (_proto_step == _ProtocolStep._ACK_HELLO)
+			this._ack_hello(indata);
+		else if (_proto_step == _ProtocolStep._GET_PUBKEY)
+			this._get_pubkey(indata);
 	}
 
 	// VTS protocol step 3: server sends crypto schemes and public key
@@ -118,8 +115,8 @@ public class VSecureServer extends VSecureChannel {
 		} catch (Exception e) {
 			throw new IOException("Input protocol message must be a tuple");
 		}
-		if (in_msg.length() != 6)
-			throw new IOException("Input protocol message must be a tuple of length 6");
+		if (in_msg.length() != 6 && in_msg.length() != 7)
+			throw new IOException("Input protocol message must be a tuple of length 6 or 7");
 
 		VTuple c_hhashes = null;
 		VTuple c_ciphers = null;
@@ -219,6 +216,40 @@ public class VSecureServer extends VSecureChannel {
 		if (hash == null)
 			throw new IOException("Could not negotiate a cipher MAC hash method");
 
+		// Negotiate key exchange method, peers which do not send a list only support "rsa"
+		String kex = null;
+		if (in_msg.length() == 7) {
+			VTuple c_kex = null;
+			try {
+				c_kex = VTuple.valueOf(in_msg.get(6));
+			} catch (VEntityError e) {
+				throw new IOException("Bad input protocol message");
+			}
+			for (VEntity item: c_kex) {
+				String _kex = null;
+				try {
+					_kex = VString.nativeOf(item);
+				} catch (VEntityError e) {
+					throw new IOException("Key exchange method names must be strings");
+				}
+				if (kex == null)
+					for (String name: key_exchanges)
+						if (_kex.equals(name)) {
+							kex = name;
+							break;
+						}
+			}
+		}
+		else {
+			for (String name: key_exchanges)
+				if (name.equals(KEX_RSA)) {
+					kex = name;
+					break;
+				}
+		}
+		if (kex == null)
+			throw new IOException("Could not negotiate a key exchange method");
+
 		// Parse random data
 		if (c_crand.length() < 32)
 			throw new IOException("Peer provided less than 32 random bytes");
@@ -260,21 +291,46 @@ public class VSecureServer extends VSecureChannel {
 			}
 		}
 
+		// Set negotiated connection parameters
+		negPrfHash = handshake_hash;
+		negCipherName = cipher_name;
+		negCipherMode = cipher_mode;
+		negMacHash = hash;
+		negKeyExchange = kex;
+
 		// Generate server random data and prepare public key for export
 		rand_s = rand.getBytes(32);
-		RSAPublicKey pubkey = keypair.getPublic();
-		String pubkey_cipher = "rsa";
-		Object[] pk_data = new Object[5];
-		pk_data[0] = pubkey.getModulus();
-		pk_data[1] = pubkey.getPublicExponent();
-		pk_data[2] = null;
-		pk_data[3] = null;
-		pk_data[4] = null;
 		VTuple pubkey_data = null;
-		try {
-			pubkey_data = VTuple.valueOf(new Object[] {pubkey_cipher, pk_data});
-		} catch (VEntityError e) {
-			throw new IOException("Error encoding server public key data");
+		if (kex.equals(KEX_X25519_ED25519)) {
+			// Ephemeral key agreement key, signed with the server's identifying key
+			try {
+				kex_pair = VX25519KeyPair.generate();
+				s_kex_pub = kex_pair.exportPublicRaw();
+				byte[] _signed = this.kexSignedData("vts server kex", rand_c, rand_s, s_kex_pub,
+													this.negotiatedParamData());
+				byte[] _raw = signKeypair.exportPublicRaw();
+				byte[] _sig = signKeypair.sign(_signed);
+				pubkey_data = VTuple.valueOf(new Object[] {"ed25519", new Object[] {_raw, s_kex_pub, _sig}});
+			} catch (VCryptoException e) {
+				throw new IOException("Internal crypto error");
+			} catch (VEntityError e) {
+				throw new IOException("Error encoding server public key data");
+			}
+		}
+		else {
+			RSAPublicKey pubkey = keypair.getPublic();
+			String pubkey_cipher = "rsa";
+			Object[] pk_data = new Object[5];
+			pk_data[0] = pubkey.getModulus();
+			pk_data[1] = pubkey.getPublicExponent();
+			pk_data[2] = null;
+			pk_data[3] = null;
+			pk_data[4] = null;
+			try {
+				pubkey_data = VTuple.valueOf(new Object[] {pubkey_cipher, pk_data});
+			} catch (VEntityError e) {
+				throw new IOException("Error encoding server public key data");
+			}
 		}
 
 		// Generate credentials
@@ -305,28 +361,19 @@ public class VSecureServer extends VSecureChannel {
 			throw new IOException("Error encoding protocol message for sending to peer");
 		}
 
-		// Set negotiated connection parameters
-		negPrfHash = handshake_hash;
-		negCipherName = cipher_name;
-		negCipherMode = cipher_mode;
-		negMacHash = hash;
-
 		_handshake_writer = msg._v_writer(new VIOContext(), true);
 		_handshake_reader = VEntity._v_reader(new VIOContext());
 		_proto_step = _ProtocolStep._GET_PUBKEY;
-		class Function implements VReactorFunction {
-			@Override
-			public Object execute() throws Exception {
-				__cp_produce(false);
-				return null;
-			}
-		}
-		reactor.schedule(new Function());
 	}
 
 	// VTS protocol step 5: server sends secret2
 	void _get_pubkey(VEntity data)
 			throws IOException {
+		if (negKeyExchange.equals(KEX_X25519_ED25519)) {
+			this._get_kex(data);
+			return;
+		}
+
 		byte[] enc_header = null;
 		byte[] enc_data = null;
 		try {
@@ -404,43 +451,12 @@ public class VSecureServer extends VSecureChannel {
 		if (!(c_keydata instanceof VNone))
 			peerPublicKey = this.parseRsaPubkeyData(c_keydata);
 
-		// Parse identity/certificate data
-		X500Principal c_identity = null;
-		CertPath c_certificates = null;
-		if (!(c_credentials instanceof VNone)) {
-			VTuple t_cred = null;
-			boolean is_cert_path = false;
-			try {
-				t_cred = VTuple.valueOf(c_credentials);
-				if (t_cred.length() != 2)
-					throw new IOException("Invalid protocol credentials data");
-				is_cert_path = VBoolean.nativeOf(t_cred.get(0));
-			} catch (VEntityError e) {
-				throw new IOException("Invalid protocol credentials data");
-			}
-			if (is_cert_path)
-				c_certificates = this.parseCertPath(t_cred.get(1));
-			else {
-				// Parse identity
-				try {
-					c_identity = new X500Principal(VBytes.nativeOf(t_cred.get(1)));
-				} catch (VEntityError e) {
-					throw new IOException("Invalid credentials 'identity' data");
-				} catch (IllegalArgumentException e) {
-					throw new IOException("Invalid credentials 'identity' data");
-				}
-			}
-		}
-
-		// Authorize peer credentials
-		peerIdentity = c_identity;
-		peerCertificates = c_certificates;
-		this.authorizeCredentials(c_identity, c_certificates);
+		// Parse identity/certificate data and authorize peer credentials
+		this._authorize_peer(c_credentials);
 
 		// Complete server side of handshake
 		byte[] s_keyseed = null;
 		byte[] c_keyseed = null;
-		boolean plain_produce = false;
 		if (peerPublicKey != null) {
 			srand_s = rand.getBytes(32);
 			byte[] _msg = null;
@@ -457,9 +473,7 @@ public class VSecureServer extends VSecureChannel {
 		else {
 			s_keyseed = VBytes.concat(rand_s, rand_c, srand_c);
 			c_keyseed = VBytes.concat(rand_c, rand_s, srand_c);
-			_handshaking = false;
-			plain_produce = true;
-			reactor.log("VTS: server handshake completed");
+			this.completeHandshake();
 		}
 
 		byte[][] keydata = null;
@@ -486,18 +500,114 @@ public class VSecureServer extends VSecureChannel {
 		} catch (VCryptoException e) {
 			throw new IOException("Internal crypto error");
 		}
+	}
 
-		class Function implements VReactorFunction {
-			boolean plain_prod;
-			public Function(boolean plain_prod) {
-				this.plain_prod = plain_prod;
+	// VTS protocol step 5 for x25519-ed25519: server completes key agreement
+	void _get_kex(VEntity data)
+			throws IOException {
+		byte[] c_kex_pub = null;
+		byte[] enc_data = null;
+		try {
+			VTuple in_msg = VTuple.valueOf(data);
+			if (in_msg.length() != 2)
+				throw new IOException("Invalid protocol message, tuple length mismatch");
+			c_kex_pub = VBytes.nativeOf(in_msg.get(0));
+			enc_data = VBytes.nativeOf(in_msg.get(1));
+		} catch (VEntityError e) {
+			throw new IOException("Invalid protocol message, not a tuple");
+		}
+
+		byte[] secret = null;
+		try {
+			secret = kex_pair.agree(c_kex_pub);
+		} catch (VCryptoException e) {
+			throw new IOException("Key agreement with client failed");
+		}
+		kex_pair = null;
+
+		// Decode and parse content
+		byte[] keyseed = VBytes.concat("vts client sendkey".getBytes("ASCII"), c_kex_pub, secret);
+		VEntity msg = null;
+		try {
+			msg = this.blockcipherDecEntity(enc_data, keyseed);
+		} catch (VCryptoException e) {
+			throw new IOException("Encrypted plaintext did not decode properly");
+		}
+
+		VEntity c_keydata = null;
+		VEntity c_credentials = null;
+		try {
+			VTuple t_msg = VTuple.valueOf(msg);
+			if (t_msg.length() != 3)
+				throw new IOException("Invalid format of decoded plaintext protocol message");
+			c_keydata = t_msg.get(0);
+			c_credentials = t_msg.get(1);
+			VBytes.valueOf(t_msg.get(2)); // Validates last element is VBytes
+		} catch (VEntityError e) {
+			throw new IOException("Invalid format of decoded plaintext protocol message");
+		}
+
+		// Reconstruct client signature key and validate its signature on exchanged keys
+		if (!(c_keydata instanceof VNone)) {
+			byte[][] _kdata = this.parseEd25519KeyData(c_keydata, 2);
+			try {
+				peerSignatureKey = VEd25519KeyPair.importRaw(_kdata[0]);
+			} catch (VCryptoException e) {
+				throw new IOException("Invalid client public key data");
+			}
+			byte[] _signed = this.kexSignedData("vts client kex", rand_c, rand_s, c_kex_pub, s_kex_pub);
+			if (!VEd25519KeyPair.verify(peerSignatureKey, _signed, _kdata[1]))
+				throw new IOException("Client key exchange signature did not validate");
+		}
+
+		// Parse identity/certificate data and authorize peer credentials
+		this._authorize_peer(c_credentials);
+
+		// Complete server side of handshake
+		byte[] s_keyseed = VBytes.concat(rand_s, rand_c, secret);
+		byte[] c_keyseed = VBytes.concat(rand_c, rand_s, secret);
+		byte[][] keydata = null;
+		try {
+			keydata = this.generateKeys(s_keyseed, c_keyseed);
+			encrypter = this.genMsgEnc(keydata[3], keydata[4], keydata[5]);
+			decrypter = this.genMsgDec(keydata[0], keydata[1], keydata[2]);
+		} catch (VCryptoException e) {
+			throw new IOException("Internal crypto error");
+		}
+		this.completeHandshake();
+	}
+
+	// Parses peer identity/certificate data and authorizes peer credentials
+	void _authorize_peer(VEntity c_credentials)
+			throws IOException {
+		X500Principal c_identity = null;
+		CertPath c_certificates = null;
+		if (!(c_credentials instanceof VNone)) {
+			VTuple t_cred = null;
+			boolean is_cert_path = false;
+			try {
+				t_cred = VTuple.valueOf(c_credentials);
+				if (t_cred.length() != 2)
+					throw new IOException("Invalid protocol credentials data");
+				is_cert_path = VBoolean.nativeOf(t_cred.get(0));
+			} catch (VEntityError e) {
+				throw new IOException("Invalid protocol credentials data");
 			}
-			@Override
-			public Object execute() throws Exception {
-				__cp_produce(plain_prod);
-				return null;
+			if (is_cert_path)
+				c_certificates = this.parseCertPath(t_cred.get(1));
+			else {
+				// Parse identity
+				try {
+					c_identity = new X500Principal(VBytes.nativeOf(t_cred.get(1)));
+				} catch (VEntityError e) {
+					throw new IOException("Invalid credentials 'identity' data");
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Invalid credentials 'identity' data");
+				}
 			}
 		}
-		reactor.schedule(new Function(plain_produce));
+		peerIdentity = c_identity;
+		peerCertificates = c_certificates;
+		this.authorizeCredentials(c_identity, c_certificates);
 	}
 }
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vudp;
+
+
+/**
+ * BBR-style pacing based congestion control.
+ *
+ * <p>A simplified model based congestion control in the style of BBR
+ * version 1. The bottleneck bandwidth is estimated as the windowed max of the
+ * delivery rate measured over round trips, and the propagation delay as the
+ * windowed min of round-trip time samples. Sending is paced at a gain times
+ * the estimated bandwidth, and the congestion window is capped at a gain
+ * times the estimated bandwidth-delay product.</p>
+ *
+ * <p>The connection starts in a startup mode which doubles the sending rate
+ * every round trip until the bandwidth estimate stops growing, then drains the
+ * queue built during startup and enters a steady state which cycles the pacing
+ * gain in order to probe for more bandwidth. If the min round-trip time has not
+ * been refreshed for {@link #MIN_RTT_WINDOW} milliseconds, the window is
+ * briefly reduced to re-measure it.</p>
+ *
+ * <p>Package loss does not reduce the bandwidth model. On a retransmission
+ * timeout the window is reduced to one package until the next
+ * acknowledgement.</p>
+ */
+public class VUDPBBRCongestionControl extends VUDPCongestionControl {
+
+	/**
+	 * Pacing and window gain during startup (2/ln(2)).
+	 */
+	public static final float STARTUP_GAIN = 2.885f;
+
+	/**
+	 * Window gain in steady state.
+	 */
+	public static final float CWND_GAIN = 2.0f;
+
+	/**
+	 * Pacing gain cycle in steady state.
+	 */
+	public static final float[] PACING_GAIN_CYCLE = new float[] {1.25f, 0.75f, 1f, 1f, 1f, 1f, 1f, 1f};
+
+	/**
+	 * Number of rounds covered by the bandwidth filter.
+	 */
+	public static final int BW_WINDOW = 10;
+
+	/**
+	 * Time covered by the min round-trip time filter (ms).
+	 */
+	public static final long MIN_RTT_WINDOW = 10000L;
+
+	/**
+	 * Duration of round-trip time probing (ms).
+	 */
+	public static final long PROBE_RTT_TIME = 200L;
+
+	/**
+	 * Min congestion window as number of packages.
+	 */
+	public static final float MIN_WINDOW = 4.0f;
+
+	static final int _STARTUP = 0;
+	static final int _DRAIN = 1;
+	static final int _PROBE_BW = 2;
+	static final int _PROBE_RTT = 3;
+
+	int mode = _STARTUP;
+	float cwnd = MIN_WINDOW;                // Congestion window as number of packages
+	float pacing_gain = STARTUP_GAIN;
+	float cwnd_gain = STARTUP_GAIN;
+
+	float[] bw_samples = new float[BW_WINDOW]; // Per-round delivery rates (bytes/ms)
+	int round_count = 0;                    // Number of completed rounds
+	long round_start = -1;                  // Start time of current round
+	long round_delivered = 0;               // Bytes delivered in current round
+
+	long min_rtt = -1;                      // Min round-trip time (ms), negative if none
+	long min_rtt_stamp = 0;                 // Time min_rtt was measured
+	long probe_rtt_done = -1;               // End of round-trip time probing
+
+	float full_bw = 0.0f;                   // Bandwidth at last startup growth check
+	int full_bw_count = 0;                  // Rounds without startup growth
+	int cycle_idx = 0;                      // Index into pacing gain cycle
+	long cycle_stamp = 0;                   // Start of current gain cycle phase
+	boolean timed_out = false;              // If true window is reduced after RTO
+
+	@Override
+	public float getWindow() {
+		if (timed_out)
+			return 1.0f;
+		if (mode == _PROBE_RTT)
+			return MIN_WINDOW;
+		return cwnd;
+	}
+
+	/**
+	 * Get the estimated bottleneck bandwidth.
+	 *
+	 * @return bandwidth in bytes per millisecond (zero if no estimate)
+	 */
+	public float getBandwidth() {
+		float result = 0.0f;
+		for (float sample: bw_samples)
+			result = Math.max(result, sample);
+		return result;
+	}
+
+	/**
+	 * Get the estimated min round-trip time.
+	 *
+	 * @return round-trip time in milliseconds (negative if no estimate)
+	 */
+	public long getMinRtt() {
+		return min_rtt;
+	}
+
+	@Override
+	public void onValidated(long now) {
+		cwnd = Math.max(cwnd, MIN_WINDOW);
+	}
+
+	@Override
+	public void onAck(int numAcked, long delivered, long rtt, float srtt,
+					  boolean inRecovery, long now) {
+		timed_out = false;
+
+		// Update min round-trip time filter
+		if (rtt >= 0 && (min_rtt < 0 || rtt <= min_rtt || now - min_rtt_stamp > MIN_RTT_WINDOW)) {
+			if (min_rtt >= 0 && rtt > min_rtt && mode != _PROBE_RTT) {
+				// Min round-trip time expired, probe for a new one
+				mode = _PROBE_RTT;
+				probe_rtt_done = now + Math.max(PROBE_RTT_TIME, rtt);
+			}
+			min_rtt = rtt;
+			min_rtt_stamp = now;
+		}
+
+		// Update bandwidth filter once per round trip
+		if (round_start < 0)
+			round_start = now;
+		round_delivered += delivered;
+		long round_len = (min_rtt >= 0) ? Math.max(min_rtt, 1L) : Math.max((long)srtt, 1L);
+		boolean round_done = false;
+		if (now - round_start >= round_len) {
+			float sample = round_delivered/(float)(now - round_start);
+			bw_samples[round_count % BW_WINDOW] = sample;
+			round_count += 1;
+			round_start = now;
+			round_delivered = 0;
+			round_done = true;
+		}
+
+		float bw = this.getBandwidth();
+		if (round_done)
+			this.updateMode(bw, now);
+
+		// Update window and pacing rate from the model
+		if (bw > 0 && min_rtt >= 0) {
+			float bdp = bw*Math.max(min_rtt, 1L)/segmentSize;
+			cwnd = Math.max(cwnd_gain*bdp, MIN_WINDOW);
+			this.setPacingRate(pacing_gain*bw);
+		}
+		else if (numAcked > 0) {
+			// No model yet, grow window as slow start
+			cwnd += numAcked;
+			if (srtt > 0)
+				this.setPacingRate(STARTUP_GAIN*cwnd*segmentSize/Math.max(srtt, 1.0f));
+		}
+	}
+
+	@Override
+	public void onCongestion(int inFlight, boolean inflate, long now) {
+	}
+
+	@Override
+	public void onRecoveryEnd(long now) {
+	}
+
+	@Override
+	public void onTimeout(int inFlight, long now) {
+		timed_out = true;
+	}
+
+	@Override
+	public void onIdleRestart(long now) {
+		// Resume at the estimated rate, as pacing prevents bursts
+		round_start = -1;
+		round_delivered = 0;
+	}
+
+	// Performs mode transitions at the end of a round
+	void updateMode(float bw, long now) {
+		if (mode == _STARTUP) {
+			if (bw >= full_bw*1.25f) {
+				full_bw = bw;
+				full_bw_count = 0;
+			}
+			else if (++full_bw_count >= 3) {
+				// Bandwidth stopped growing, drain the startup queue
+				mode = _DRAIN;
+				pacing_gain = 1.0f/STARTUP_GAIN;
+				cwnd_gain = STARTUP_GAIN;
+			}
+		}
+		else if (mode == _DRAIN) {
+			this.enterProbeBw(now);
+		}
+		else if (mode == _PROBE_BW) {
+			if (now - cycle_stamp >= Math.max(min_rtt, 1L)) {
+				cycle_idx = (cycle_idx + 1) % PACING_GAIN_CYCLE.length;
+				cycle_stamp = now;
+				pacing_gain = PACING_GAIN_CYCLE[cycle_idx];
+			}
+		}
+		else if (mode == _PROBE_RTT) {
+			if (now >= probe_rtt_done) {
+				if (full_bw_count >= 3)
+					this.enterProbeBw(now);
+				else {
+					mode = _STARTUP;
+					pacing_gain = STARTUP_GAIN;
+					cwnd_gain = STARTUP_GAIN;
+				}
+			}
+		}
+	}
+
+	// Enters steady state bandwidth probing
+	void enterProbeBw(long now) {
+		mode = _PROBE_BW;
+		cycle_idx = 2;
+		cycle_stamp = now;
+		pacing_gain = PACING_GAIN_CYCLE[cycle_idx];
+		cwnd_gain = CWND_GAIN;
+	}
+}
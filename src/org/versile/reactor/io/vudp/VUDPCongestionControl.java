@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vudp;
+
+
+/**
+ * Congestion control algorithm for a {@link VUDPTransport}.
+ *
+ * <p>The transport performs loss detection, retransmission and recovery
+ * bookkeeping, and notifies the congestion control of acknowledgements and
+ * congestion events. The congestion control determines the congestion window
+ * (as a number of in-flight packages) and optionally a pacing rate for
+ * sending new data.</p>
+ *
+ * <p>If a pacing rate is set, the transport spaces out sending of new data by
+ * scheduling reactor timers, instead of sending a full window of packages in
+ * a burst. Pacing allows bursts of up to {@link #PACING_QUANTUM} milliseconds
+ * of data, as reactor timers have millisecond resolution.</p>
+ *
+ * <p>A congestion control object holds per-connection state and must only be
+ * used by a single transport. All methods are called from the transport's
+ * reactor thread, and times are in milliseconds.</p>
+ */
+public abstract class VUDPCongestionControl {
+
+	/**
+	 * Name of Reno congestion control, see {@link VUDPRenoCongestionControl}.
+	 */
+	public static final String RENO = "reno";
+
+	/**
+	 * Name of CUBIC congestion control, see {@link VUDPCubicCongestionControl}.
+	 */
+	public static final String CUBIC = "cubic";
+
+	/**
+	 * Name of BBR-style congestion control, see {@link VUDPBBRCongestionControl}.
+	 */
+	public static final String BBR = "bbr";
+
+	/**
+	 * Max burst of paced data, as milliseconds at the current pacing rate.
+	 */
+	public static final float PACING_QUANTUM = 1.0f;
+
+	/**
+	 * Max data bytes in a package.
+	 */
+	protected int segmentSize = VUDPTransport.MAX_DATA;
+
+	float pacing_rate = 0.0f;               // Pacing rate (bytes/ms), not paced if zero
+	double pacing_credit = 0.0;             // Bytes which may be sent at pacing rate
+	long pacing_t = -1;                     // Time pacing credit was last updated
+
+	/**
+	 * Creates a congestion control from its name.
+	 *
+	 * @param name congestion control name
+	 * @return congestion control
+	 * @throws IllegalArgumentException unknown name
+	 */
+	public static VUDPCongestionControl create(String name) {
+		if (RENO.equals(name))
+			return new VUDPRenoCongestionControl();
+		else if (CUBIC.equals(name))
+			return new VUDPCubicCongestionControl();
+		else if (BBR.equals(name))
+			return new VUDPBBRCongestionControl();
+		else
+			throw new IllegalArgumentException("Unknown congestion control");
+	}
+
+	/**
+	 * Get the congestion window.
+	 *
+	 * @return max number of in-flight packages
+	 */
+	public abstract float getWindow();
+
+	/**
+	 * Called when the connection has been validated by the protocol handshake.
+	 *
+	 * @param now current time
+	 */
+	public abstract void onValidated(long now);
+
+	/**
+	 * Called when an acknowledgement delivered new data.
+	 *
+	 * <p>'numAcked' is the number of packages which were cumulatively
+	 * acknowledged. 'delivered' is the number of data bytes which were
+	 * delivered, including selectively acknowledged data.</p>
+	 *
+	 * @param numAcked number of packages cumulatively acknowledged
+	 * @param delivered number of delivered bytes
+	 * @param rtt round-trip time sample (negative if none)
+	 * @param srtt smoothed round-trip time (negative if none)
+	 * @param inRecovery true if the transport was in loss recovery
+	 * @param now current time
+	 */
+	public abstract void onAck(int numAcked, long delivered, long rtt, float srtt,
+							   boolean inRecovery, long now);
+
+	/**
+	 * Called when loss recovery is entered due to detected package loss.
+	 *
+	 * <p>'inflate' is true if recovery was triggered by duplicate
+	 * acknowledgements without selective acknowledgement, in which case the
+	 * window may be inflated by duplicate acknowledgements, ref. RFC 2581.</p>
+	 *
+	 * @param inFlight number of in-flight packages not known to be delivered
+	 * @param inflate if true the window is inflated by duplicate acks
+	 * @param now current time
+	 */
+	public abstract void onCongestion(int inFlight, boolean inflate, long now);
+
+	/**
+	 * Called on additional duplicate acknowledgements during inflated recovery.
+	 *
+	 * <p>Default does nothing, derived classes can override.</p>
+	 *
+	 * @param now current time
+	 */
+	public void onDuplicateAck(long now) {
+	}
+
+	/**
+	 * Called when loss recovery ends.
+	 *
+	 * @param now current time
+	 */
+	public abstract void onRecoveryEnd(long now);
+
+	/**
+	 * Called when a retransmission timeout expired.
+	 *
+	 * @param inFlight number of in-flight packages not known to be delivered
+	 * @param now current time
+	 */
+	public abstract void onTimeout(int inFlight, long now);
+
+	/**
+	 * Called when sending data after more than one RTO without sending data.
+	 *
+	 * @param now current time
+	 */
+	public abstract void onIdleRestart(long now);
+
+	/**
+	 * Called when a package with data was sent.
+	 *
+	 * @param numBytes datagram size
+	 * @param now current time
+	 */
+	public void onSend(int numBytes, long now) {
+		if (pacing_rate > 0) {
+			this.updateCredit(now);
+			pacing_credit -= numBytes;
+		}
+	}
+
+	/**
+	 * Get delay before new data may be sent.
+	 *
+	 * @param now current time
+	 * @return delay in milliseconds (zero if data may be sent)
+	 */
+	public long getPacingDelay(long now) {
+		if (pacing_rate <= 0)
+			return 0L;
+		this.updateCredit(now);
+		if (pacing_credit >= 0)
+			return 0L;
+		return (long)Math.ceil(-pacing_credit/pacing_rate);
+	}
+
+	/**
+	 * Get the pacing rate.
+	 *
+	 * @return pacing rate in bytes per millisecond (zero if not paced)
+	 */
+	public float getPacingRate() {
+		return pacing_rate;
+	}
+
+	/**
+	 * Sets the pacing rate.
+	 *
+	 * @param rate pacing rate in bytes per millisecond (zero if not paced)
+	 */
+	protected void setPacingRate(float rate) {
+		pacing_rate = Math.max(rate, 0.0f);
+	}
+
+	// Accumulates pacing credit at the current pacing rate
+	void updateCredit(long now) {
+		if (pacing_t >= 0 && now > pacing_t) {
+			pacing_credit += (now - pacing_t)*pacing_rate;
+			pacing_credit = Math.min(pacing_credit, PACING_QUANTUM*pacing_rate);
+		}
+		pacing_t = now;
+	}
+
+	/**
+	 * Get the max data bytes in a package.
+	 *
+	 * @return segment size
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Sets the max data bytes in a package.
+	 *
+	 * <p>Called by the transport when the segment size is negotiated.</p>
+	 *
+	 * @param segmentSize segment size
+	 */
+	public void setSegmentSize(int segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+}
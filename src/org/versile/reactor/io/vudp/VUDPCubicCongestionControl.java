@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vudp;
+
+
+/**
+ * CUBIC congestion control.
+ *
+ * <p>Window growth in congestion avoidance is a cubic function of the time
+ * since the last congestion event, with a TCP-friendly lower bound and fast
+ * convergence, ref. RFC 8312. Slow start is as for Reno. Sending is paced at a
+ * rate derived from the congestion window and the smoothed round-trip time.</p>
+ */
+public class VUDPCubicCongestionControl extends VUDPRenoCongestionControl {
+
+	/**
+	 * CUBIC scaling constant.
+	 */
+	public static final double C = 0.4;
+
+	/**
+	 * Multiplicative window decrease factor.
+	 */
+	public static final double BETA = 0.7;
+
+	/**
+	 * Pacing gain during slow start.
+	 */
+	public static final float SLOW_START_PACING_GAIN = 2.0f;
+
+	/**
+	 * Pacing gain during congestion avoidance.
+	 */
+	public static final float PACING_GAIN = 1.2f;
+
+	double w_max = 0.0;                     // Window before last reduction
+	double w_est = 0.0;                     // TCP-friendly window estimate
+	double k = 0.0;                         // Time to reach w_max (s)
+	double origin = 0.0;                    // Origin window of cubic function
+	long epoch_start = -1;                  // Start of current epoch (negative if none)
+
+	@Override
+	public void onAck(int numAcked, long delivered, long rtt, float srtt,
+					  boolean inRecovery, long now) {
+		if (numAcked > 0 && !inRecovery) {
+			if (cwnd < ssthresh) {
+				// Slow start, with byte counting limit, ref. RFC 3465
+				cwnd += Math.min(numAcked, 2);
+			}
+			else
+				this.cubicUpdate(numAcked, srtt, now);
+		}
+
+		// Update pacing rate
+		if (srtt > 0) {
+			float gain = (cwnd < ssthresh) ? SLOW_START_PACING_GAIN : PACING_GAIN;
+			this.setPacingRate(gain*cwnd*segmentSize/Math.max(srtt, 1.0f));
+		}
+	}
+
+	@Override
+	public void onCongestion(int inFlight, boolean inflate, long now) {
+		this.reduce();
+		if (inflate)
+			cwnd = ssthresh + 3;
+		else
+			cwnd = ssthresh;
+	}
+
+	@Override
+	public void onTimeout(int inFlight, long now) {
+		this.reduce();
+		cwnd = 1.0f;
+	}
+
+	@Override
+	public void onIdleRestart(long now) {
+		super.onIdleRestart(now);
+		epoch_start = -1;
+	}
+
+	// Performs a multiplicative window reduction
+	void reduce() {
+		epoch_start = -1;
+		// Fast convergence, ref. RFC 8312
+		if (cwnd < w_max)
+			w_max = cwnd*(1.0 + BETA)/2.0;
+		else
+			w_max = cwnd;
+		ssthresh = (float)Math.max(cwnd*BETA, 2.0);
+	}
+
+	// Congestion avoidance window update, ref. RFC 8312
+	void cubicUpdate(int numAcked, float srtt, long now) {
+		if (epoch_start < 0) {
+			epoch_start = now;
+			if (cwnd < w_max) {
+				k = Math.cbrt((w_max - cwnd)/C);
+				origin = w_max;
+			}
+			else {
+				k = 0.0;
+				origin = cwnd;
+			}
+			w_est = cwnd;
+		}
+
+		double rtt = (srtt > 0) ? srtt/1000.0 : 0.0;
+		double t = (now - epoch_start)/1000.0 + rtt;
+		double target = origin + C*Math.pow(t - k, 3);
+
+		for (int i = 0; i < numAcked; i++) {
+			if (target > cwnd)
+				cwnd += (float)((target - cwnd)/cwnd);
+			else
+				cwnd += (float)(0.01/cwnd);
+
+			// TCP-friendly region
+			w_est += 3.0*(1.0 - BETA)/(1.0 + BETA)/cwnd;
+			if (w_est > cwnd)
+				cwnd = (float)w_est;
+		}
+	}
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vudp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.versile.reactor.VIOHandler;
+import org.versile.reactor.VReactor;
+import org.versile.reactor.VReactorFunction;
+
+
+/**
+ * Shared UDP socket for multiple {@link VUDPTransport} sessions.
+ *
+ * <p>Reads datagrams from a single datagram channel and demultiplexes them to
+ * transports by source address and connection ID. The VUDP package format has
+ * no explicit connection ID field, instead the connection ID of a session is
+ * its receive secret. If several sessions share the same peer address, a
+ * datagram is delivered to the session whose secret authenticates the
+ * datagram's HMAC. Datagrams from addresses which do not have a session are
+ * dropped.</p>
+ *
+ * <p>Datagrams are read in batches into a re-used buffer, with a batch limited
+ * by {@link #BATCH_BUFFER_SIZE}. After a batch has been dispatched, each
+ * transport which received datagrams performs its post-read processing
+ * once.</p>
+ *
+ * <p>A multiplexer should normally be shared by all transports of a reactor,
+ * see {@link #forReactor(VReactor)}. Transports are attached by creating them
+ * with {@link VUDPTransport#VUDPTransport(VUDPMultiplexer, InetSocketAddress, byte[], byte[], VUDPTransportConfig)}.</p>
+ */
+public class VUDPMultiplexer extends VIOHandler {
+
+	/**
+	 * Size of buffer for batched reading of datagrams.
+	 */
+	public static final int BATCH_BUFFER_SIZE = 4*65536;
+
+	static Map<VReactor, VUDPMultiplexer> _shared = new WeakHashMap<VReactor, VUDPMultiplexer>();
+
+	DatagramChannel channel;
+	boolean _closed = false;
+
+	Map<SocketAddress, LinkedList<VUDPTransport>> _sessions;
+	int _num_sessions = 0;
+
+	ByteBuffer _batch_buf;                              // Buffer for batched reads
+	int[] _batch_offsets;                               // Datagram offsets in current batch
+	SocketAddress[] _batch_sources;                     // Datagram sources in current batch
+	LinkedHashSet<VUDPTransport> _batch_dispatched;     // Transports which received datagrams
+
+	/**
+	 * Set up a multiplexer.
+	 *
+	 * <p>Starts reading from the channel.</p>
+	 *
+	 * @param reactor owning reactor
+	 * @param channel bound datagram channel
+	 * @throws IOException could not configure channel
+	 */
+	public VUDPMultiplexer(VReactor reactor, DatagramChannel channel)
+		throws IOException {
+		super(reactor);
+		channel.configureBlocking(false);
+		this.channel = channel;
+
+		_sessions = new HashMap<SocketAddress, LinkedList<VUDPTransport>>();
+
+		_batch_buf = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+		int _max_batch = BATCH_BUFFER_SIZE/VUDPTransport.MIN_SEGMENT_SIZE + 1;
+		_batch_offsets = new int[_max_batch + 1];
+		_batch_sources = new SocketAddress[_max_batch];
+		_batch_dispatched = new LinkedHashSet<VUDPTransport>();
+
+		class Job implements VReactorFunction {
+			@Override
+			public Object execute() throws Exception {
+				if (!_closed)
+					startReading();
+				return null;
+			}
+		}
+		reactor.schedule(new Job());
+	}
+
+	/**
+	 * Get the shared multiplexer of a reactor.
+	 *
+	 * <p>Creates a multiplexer bound to an ephemeral port on all interfaces the
+	 * first time it is called for a reactor, and returns the same multiplexer on
+	 * later calls unless it has been closed.</p>
+	 *
+	 * @param reactor owning reactor
+	 * @return multiplexer for reactor
+	 * @throws IOException could not set up socket
+	 */
+	public static VUDPMultiplexer forReactor(VReactor reactor)
+		throws IOException {
+		synchronized(_shared) {
+			VUDPMultiplexer result = _shared.get(reactor);
+			if (result == null || result._closed) {
+				DatagramChannel _channel = DatagramChannel.open();
+				_channel.socket().bind(null);
+				result = new VUDPMultiplexer(reactor, _channel);
+				_shared.put(reactor, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Get the multiplexer's datagram channel.
+	 *
+	 * @return datagram channel
+	 */
+	public DatagramChannel getDatagramChannel() {
+		return channel;
+	}
+
+	/**
+	 * Get number of attached transports.
+	 *
+	 * @return number of transports
+	 */
+	public int getNumSessions() {
+		return _num_sessions;
+	}
+
+	/**
+	 * Closes the multiplexer's socket.
+	 *
+	 * <p>Attached transports are failed. Must be called from the reactor
+	 * thread.</p>
+	 */
+	public void close() {
+		if (_closed)
+			return;
+		_closed = true;
+		LinkedList<VUDPTransport> _transports = new LinkedList<VUDPTransport>();
+		for (LinkedList<VUDPTransport> _list: _sessions.values())
+			_transports.addAll(_list);
+		for (VUDPTransport _transport: _transports)
+			_transport._fail("Multiplexer closed");
+		this.stopReading();
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// SILENT
+		}
+	}
+
+	@Override
+	public void doRead() {
+		if (_closed) {
+			this.stopReading();
+			return;
+		}
+
+		// Read a batch of datagrams
+		_batch_buf.clear();
+		int _num_read = 0;
+		_batch_offsets[0] = 0;
+		while (_batch_buf.remaining() >= VUDPTransport._MAX_DGRAM && _num_read < _batch_sources.length) {
+			SocketAddress _source = null;
+			try {
+				_source = channel.receive(_batch_buf);
+			} catch (IOException e) {
+				this.close();
+				return;
+			}
+			if (_source == null)
+				break;
+			_batch_sources[_num_read] = _source;
+			_num_read += 1;
+			_batch_offsets[_num_read] = _batch_buf.position();
+		}
+
+		// Dispatch datagrams to transports
+		byte[] _buf = _batch_buf.array();
+		for (int i = 0; i < _num_read; i++) {
+			int _offset = _batch_offsets[i];
+			int _length = _batch_offsets[i+1] - _offset;
+			VUDPTransport _transport = this._dispatch(_batch_sources[i], _buf, _offset, _length);
+			if (_transport != null)
+				_batch_dispatched.add(_transport);
+			_batch_sources[i] = null;
+		}
+
+		// Post-processing once per transport
+		for (VUDPTransport _transport: _batch_dispatched)
+			if (!_transport._sock_closed)
+				_transport._read_done();
+		_batch_dispatched.clear();
+	}
+
+	@Override
+	public void doWrite() {
+		// Selectable write not used by this handler
+		this.stopWriting();
+	}
+
+	@Override
+	public SelectableChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Called internally if datagram received from an address without a session.
+	 *
+	 * <p>Default does nothing, derived classes can override.</p>
+	 *
+	 * @param source datagram source address
+	 */
+	protected void _handle_unknown_peer(SocketAddress source) {
+	}
+
+	// Delivers a datagram, returning the receiving transport (or null)
+	VUDPTransport _dispatch(SocketAddress source, byte[] buf, int offset, int length) {
+		LinkedList<VUDPTransport> _list = _sessions.get(source);
+		if (_list == null) {
+			this._handle_unknown_peer(source);
+			return null;
+		}
+
+		if (_list.size() == 1) {
+			VUDPTransport _transport = _list.getFirst();
+			_transport._handle_datagram(buf, offset, length);
+			return _transport;
+		}
+
+		// Resolve connection by HMAC
+		int _hmac_len = _list.getFirst()._hmac_len;
+		if (length > _hmac_len) {
+			int _mac_offset = offset + length - _hmac_len;
+			byte[] payload = Arrays.copyOfRange(buf, offset, _mac_offset);
+			for (VUDPTransport _transport: _list) {
+				if (_transport._verify_hmac(payload, buf, _mac_offset)) {
+					_transport._process_datagram(payload, length);
+					return _transport;
+				}
+			}
+		}
+		for (VUDPTransport _transport: _list)
+			_transport._handle_invalid_hmac();
+		return null;
+	}
+
+	// Attaches a transport, must be called from reactor thread
+	void _register(VUDPTransport transport) {
+		if (_closed) {
+			transport._fail("Multiplexer closed");
+			return;
+		}
+		LinkedList<VUDPTransport> _list = _sessions.get(transport.address);
+		if (_list == null) {
+			_list = new LinkedList<VUDPTransport>();
+			_sessions.put(transport.address, _list);
+		}
+		if (!_list.contains(transport)) {
+			_list.addLast(transport);
+			_num_sessions += 1;
+		}
+	}
+
+	// Detaches a transport, must be called from reactor thread
+	void _unregister(VUDPTransport transport) {
+		LinkedList<VUDPTransport> _list = _sessions.get(transport.address);
+		if (_list != null && _list.remove(transport)) {
+			_num_sessions -= 1;
+			if (_list.isEmpty())
+				_sessions.remove(transport.address);
+		}
+	}
+}
@@ -32,6 +32,12 @@ import org.versile.reactor.io.vts.VSecureChannelConfig;
  *
  * <p>Default set up with VTS enabled, TLS disabled (not yet supported by Versile Java), and insecure
  * (plaintext) channels disabled.</p>
+ *
+ * <p>If a multiplexer is set, the connecter communicates via the multiplexer's
+ * shared UDP socket instead of opening a socket for the connection, and the
+ * link is created on the multiplexer's reactor unless a reactor is set. The
+ * multiplexer must then belong to the same reactor. Default is null (the
+ * connection has its own socket).</p>
  */
 public class VUDPRelayedVOPConfig {
 
@@ -45,11 +51,14 @@ public class VUDPRelayedVOPConfig {
 	VUDPHostFilter udpFilter = null;
 	VSecureChannelConfig vtsConfig;
 	VEntityChannelConfig vecConfig;
+	VUDPTransportConfig transportConfig;
+	VUDPMultiplexer multiplexer = null;
 
 	public VUDPRelayedVOPConfig() {
 		linkConfig = new VLinkAgentConfig();
 		vtsConfig = new VSecureChannelConfig();
 		vecConfig = new VEntityChannelConfig();
+		transportConfig = new VUDPTransportConfig();
 	}
 
 	@Override
@@ -131,6 +140,22 @@ public class VUDPRelayedVOPConfig {
 		this.vecConfig = vecConfig;
 	}
 
+	public VUDPTransportConfig getTransportConfig() {
+		return transportConfig;
+	}
+
+	public void setTransportConfig(VUDPTransportConfig transportConfig) {
+		this.transportConfig = transportConfig;
+	}
+
+	public VUDPMultiplexer getMultiplexer() {
+		return multiplexer;
+	}
+
+	public void setMultiplexer(VUDPMultiplexer multiplexer) {
+		this.multiplexer = multiplexer;
+	}
+
 	protected void copyTo(VUDPRelayedVOPConfig config) {
 		config.linkConfig = linkConfig.clone();
 		config.processor = processor;
@@ -141,5 +166,7 @@ public class VUDPRelayedVOPConfig {
 		config.udpFilter = udpFilter;
 		config.vtsConfig = vtsConfig.clone();
 		config.vecConfig = vecConfig.clone();
+		config.transportConfig = transportConfig.clone();
+		config.multiplexer = multiplexer;
 	}
 }
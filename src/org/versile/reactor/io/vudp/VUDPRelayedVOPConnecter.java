@@ -203,6 +203,11 @@ public class VUDPRelayedVOPConnecter extends VExternal {
 
 		VProcessor _processor = _config.getProcessor();
 		VReactor _reactor = _config.getReactor();
+		VUDPMultiplexer _multiplexer = _config.getMultiplexer();
+		if (_reactor == null && _multiplexer != null)
+			_reactor = _multiplexer.getReactor();
+		else if (_multiplexer != null && _reactor != _multiplexer.getReactor())
+			throw new VCallError("Multiplexer reactor does not match link reactor");
 		VLinkAgentConfig _link_conf = _config.getLinkConfig();
 		VLinkAgent link;
 		try {
@@ -310,7 +315,12 @@ public class VUDPRelayedVOPConnecter extends VExternal {
 		catch (Exception e) {
 			throw new VException("Invalid host:port").getProxy();
 		}
-		VUDPTransport transport = new VUDPTransport(link.getReactor(), _channel, _addr, l_sec, r_sec);
+		VUDPTransport transport;
+		if (_multiplexer != null)
+			transport = new VUDPTransport(_multiplexer, _addr, l_sec, r_sec, _config.getTransportConfig());
+		else
+			transport = new VUDPTransport(link.getReactor(), _channel, _addr, l_sec, r_sec,
+										  _config.getTransportConfig());
 		try {
 			transport.getIOPair().attach(_link_io);
 		} catch (IOException e) {
@@ -386,9 +396,13 @@ public class VUDPRelayedVOPConnecter extends VExternal {
 			_timeout = null;
 
 		_start_time = new Date();
-		_channel = DatagramChannel.open();
-		_channel.configureBlocking(false);
-		_channel.socket().bind(null);
+		if (_config.getMultiplexer() != null)
+			_channel = _config.getMultiplexer().getDatagramChannel();
+		else {
+			_channel = DatagramChannel.open();
+			_channel.configureBlocking(false);
+			_channel.socket().bind(null);
+		}
 		this._send_udp_pkg();
 
 		_timer = new Timer();
@@ -472,7 +486,7 @@ public class VUDPRelayedVOPConnecter extends VExternal {
 			_timer.cancel();
 		if (_link != null)
 			_link.shutdown(true);
-		if (_channel != null)
+		if (_channel != null && _config.getMultiplexer() == null)
 			try {
 				_channel.close();
 			} catch (IOException e) {
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vudp;
+
+
+/**
+ * Reno congestion control.
+ *
+ * <p>Slow start and congestion avoidance as per RFC 2581, with the window
+ * counted in packages. Sending is not paced. This is the default congestion
+ * control for {@link VUDPTransport}.</p>
+ */
+public class VUDPRenoCongestionControl extends VUDPCongestionControl {
+
+	/**
+	 * Initial congestion window.
+	 */
+	public static final float INITIAL_WINDOW = 2.0f;
+
+	float cwnd = INITIAL_WINDOW;            // Congestion window as number of in-flight segments
+	float ssthresh = VUDPTransport.SSTHRESH;// Slow-start threshold as number of segments
+
+	@Override
+	public float getWindow() {
+		return cwnd;
+	}
+
+	/**
+	 * Get the slow-start threshold.
+	 *
+	 * @return threshold as number of packages
+	 */
+	public float getSlowStartThreshold() {
+		return ssthresh;
+	}
+
+	@Override
+	public void onValidated(long now) {
+		// Re-initialize congestion window and slow start threshold, so
+		// performance is not penalized by handshake timeouts
+		cwnd = Math.max(cwnd, INITIAL_WINDOW);
+		ssthresh = Math.max(ssthresh, VUDPTransport.SSTHRESH);
+	}
+
+	@Override
+	public void onAck(int numAcked, long delivered, long rtt, float srtt,
+					  boolean inRecovery, long now) {
+		if (numAcked == 0 || inRecovery)
+			return;
+		if (cwnd < ssthresh) {
+			// Slow start, ref. RFC 2581
+			cwnd += 1.0f;
+		}
+		else {
+			// Congestion avoidance, ref. RFC 2581
+			cwnd += (1.0f/cwnd);
+		}
+	}
+
+	@Override
+	public void onCongestion(int inFlight, boolean inflate, long now) {
+		// Fast retransmit/recovery, ref. RFC 2581
+		ssthresh = Math.max(inFlight/2, 2);
+		if (inflate)
+			cwnd = ssthresh + 3;
+		else
+			cwnd = ssthresh;
+	}
+
+	@Override
+	public void onDuplicateAck(long now) {
+		cwnd += 1.0f;
+	}
+
+	@Override
+	public void onRecoveryEnd(long now) {
+		cwnd = ssthresh;
+	}
+
+	@Override
+	public void onTimeout(int inFlight, long now) {
+		// Reset congestion window and threshold as per RFC 2581
+		ssthresh = Math.max(inFlight/2, 2);
+		cwnd = 1.0f;
+	}
+
+	@Override
+	public void onIdleRestart(long now) {
+		// Initialize "slow start", ref. RFC 2581
+		cwnd = INITIAL_WINDOW;
+	}
+}
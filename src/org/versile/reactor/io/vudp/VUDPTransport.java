@@ -22,18 +22,16 @@ package org.versile.reactor.io.vudp;
 
 import java.io.IOException;
 import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectableChannel;
-import java.util.Collections;
-import java.util.Date;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.Arrays;
 import java.util.LinkedList;
-import java.util.Vector;
 
 import org.versile.common.peer.VSocketPeer;
 import org.versile.common.util.VByteBuffer;
@@ -43,6 +41,7 @@ import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VInteger.NetbytesResult;
 import org.versile.reactor.VIOHandler;
 import org.versile.reactor.VReactor;
+import org.versile.reactor.VReactorCall;
 import org.versile.reactor.VReactorFunction;
 import org.versile.reactor.io.VByteConsumer;
 import org.versile.reactor.io.VByteIOPair;
@@ -88,6 +87,11 @@ public class VUDPTransport extends VIOHandler {
 	static final int MAX_SEGMENT = _MTU-_IP4_H-_UDP_H;  // Max segment size
 	static final int _MAX_DGRAM = 65507;                // Max UDP datagram size
 
+	/**
+	 * Minimum segment size (datagram size) supported by all peers.
+	 */
+	public static final int MIN_SEGMENT_SIZE = MAX_SEGMENT;
+
 	// Max data to include in a package
 	static final int _FLG = 1;
 	static final int _SEQ = 8;
@@ -104,6 +108,24 @@ public class VUDPTransport extends VIOHandler {
 	static final int FLAG_ACK_CLOSE = 0x40;             // Acknowledges end-of-stream
 	static final int FLAG_FAIL = 0x20;                  // Notifies of general failure
 	static final int FLAG_MASK = 0xe0;
+	static final int FLAG_EXT = 0x10;                   // Advertises protocol extensions support
+	static final int FLAG_PMTU = 0x08;                  // PMTU control package (extension)
+	static final int FLAG_SACK = 0x04;                  // Package includes SACK blocks (extension)
+
+	// Selective acknowledgement, ref. RFC 2018 and RACK loss detection, ref. RFC 8985
+	static final int MAX_SACK_BLOCKS = 4;               // Max SACK blocks in a package
+	static final float RACK_REO_WND_FACTOR = 0.25f;     // Reordering window as fraction of min RTT
+
+	// PMTU discovery, ref. RFC 4821 (packetization layer PMTU discovery)
+	static final int _PMTU_PROBE = 0;                   // PMTU control message type, probe
+	static final int _PMTU_PROBE_ACK = 1;               // PMTU control message type, probe ack
+	static final int PMTU_PROBE_TRIES = 3;              // Number of probes per probed size
+	static final long PMTU_PROBE_MIN_T = 250L;          // Minimum probe timeout (ms)
+	static final int PMTU_BLACKHOLE_RETRIES = 2;        // Re-sends of large segment to detect black hole
+	static final long PMTU_REPROBE_T = 600000L;         // Delay before re-probing after black hole (ms)
+	static final int _DEFAULT_MTU = 1500;               // Fallback if interface MTU cannot be resolved
+	static final int[] _PMTU_PLATEAUS = {65535, 32000, 17914, 9000, 8166, 4352,
+										 2002, 1500, 1492, 1280, 1006}; // Ref. RFC 1191
 
 	// Flow control parameters
 	static final float SSTHRESH = 65535.0f/MAX_DATA;    // Initial threshold for SSHTHRESH
@@ -114,21 +136,20 @@ public class VUDPTransport extends VIOHandler {
 	static final int RTO_INVALIDATE_BACKOFF = 5;        // Num back-offs to invalidate SRTT/RTTVAR
 	static final int HSHAKE_WIN = 128;                  // Window size during protocol handshake
 
-	// Timer handling
-	static final int _MAX_TIMERS = 20;                  // Maximum active timers
-	static final float _TIMER_REDUCE_FACTOR = 0.8f;     // Minimum reduction factor for adding timer
-
 	// Other
 	static final int _DUP_ACK_RESEND = 3;               // Number of dup ack for initiating fast retransmit
 
 	DatagramChannel channel;                            // Selectable channel associated with 'sock'
 	InetSocketAddress address;
+	VUDPMultiplexer multiplexer = null;                 // Multiplexer if socket is shared
 
 	byte[] secret;
 	byte[] p_secret;
 	byte[] _send_secret;
 	byte[] _recv_secret;
 
+	VUDPTransportConfig config;
+
 	boolean _peer_validated = false;
 	boolean _peer_acked_hello = false;
 	boolean _validated = false;
@@ -148,17 +169,16 @@ public class VUDPTransport extends VIOHandler {
 	long _sbuf_pos = 0;                         // Stream pos of send buffer start
 	long _send_lim;                             // End of peer's advertised window
 	long _send_acked = 0;                       // Last acknowledged send position
-	Hashtable<Long, InFlightPackage> _in_fl;    // seq_num -> in_flight_package
-	LinkedList<Long> _in_fl_pos;                // Sorted pos index of in-flight data
+	InFlightWindow _in_fl;                      // In-flight packages ordered by position
 	int _in_fl_num = 0;                         // Amount of in-flight data
-	Date _last_send_t = null;                   // timestamp for last data send
+	long _last_send_t = -1;                     // Time of last data send (-1 if none)
 
 	int _num_dup_ack = 0;                       // Number consecutive duplicate ack
 
 	VByteBuffer _rbuf;                          // Receive data buffer
 	int _rbuf_len;                              // Max buffered read data
 	long _rbuf_spos = 0;                        // Stream pos of recv buffer start
-	Hashtable<Long, byte[]> _recv_queue;        // Stream_pos -> data
+	RecvWindow _recv_queue;                     // Out-of-order received data
 	long _recv_win_end = 0;                     // End of advertised window
 	int _recv_win_step;                         // Step size of inc adv.win
 	long _recv_acked = 0;                       // Last acked position
@@ -169,15 +189,39 @@ public class VUDPTransport extends VIOHandler {
 	boolean _force_ack = false;                 // If true force sending a package
 	boolean _force_resend = false;              // If true re-send first in-flight
 	boolean _fast_recovery = false;             // If true stream is in fast recovery
+	long _recovery_pos = 0;                     // Send position when recovery was entered
 
 	float _srtt = -1.0f;                        // Sample round-trip time in milliseconds (none if negative)
 	float _rttvar = -1.0f;                      // Round-trip time variance (none if negative)
 	float _rto = DEFAULT_RTO;                   // Re-transmission timeout in milliseconds
 	int _rto_num_backoff = 0;                   // Number of RTO back-off
-	float _cwnd = 2.0f;                         // Congestion window as number of in-flight segments
-	float _ssthresh = SSTHRESH;                 // Slow-start threshold as number of segments
-
-	HashSet<Date> _timers;                      // Currently active timers
+	VUDPCongestionControl _cc;                  // Congestion control
+	boolean _pacing_timer = false;              // True if a pacing timer is scheduled
+
+	long _clock_origin = System.nanoTime();     // Origin of transport clock
+	VReactorCall _rto_call = null;              // Scheduled RTO timer (null if none)
+	long _rto_timer_t = -1;                     // Time RTO timer expires
+	long _rto_timer_id = 0;                     // Identifies current RTO timer
+
+	int _segment = MAX_SEGMENT;                 // Current max send segment (datagram) size
+	int _max_data = MAX_DATA;                   // Current max data in a package
+	boolean _ext = false;                       // True if protocol extensions enabled locally
+	boolean _peer_ext = false;                  // True if peer advertised protocol extensions
+	int _local_segment = MAX_SEGMENT;           // Max local segment size (also max receive)
+	int _peer_segment = -1;                     // Max segment size peer receives (-1 if unknown)
+	int[] _probe_sizes = null;                  // Probe segment sizes in order of probing
+	int _probe_idx = -1;                        // Index of current probe size in _probe_sizes
+	int _probe_size = 0;                        // Currently probed segment size (0 if not probing)
+	int _probe_tries = 0;                       // Number of probes sent for current size
+	long _probe_id = 0;                         // Identifies current probe timer
+
+	boolean _sack = false;                      // True if SACK enabled locally
+	int _in_fl_sacked = 0;                      // Number of selectively acknowledged in-flight packages
+	int _in_fl_lost = 0;                        // Number of in-flight packages detected as lost
+	long _rack_xmit_t = -1;                     // Send time of most recently sent delivered package
+	long _rack_end_pos = 0;                     // End position of most recently sent delivered package
+	long _rack_rtt = 0;                         // RTT measured for most recently sent delivered package
+	long _min_rtt = -1;                         // Minimum measured RTT (none if negative)
 
 	WeakReference<VByteConsumer> _ci = null;
 	boolean _ci_eod = false;
@@ -228,7 +272,7 @@ public class VUDPTransport extends VIOHandler {
 	public VUDPTransport(VReactor reactor, DatagramChannel channel, InetSocketAddress address,
 						 byte[] secret, byte[] pSecret) {
 		super(reactor);
-		this._construct(channel, address, secret, pSecret, 65535);
+		this._construct(channel, address, secret, pSecret, new VUDPTransportConfig());
 
 	}
 
@@ -256,11 +300,62 @@ public class VUDPTransport extends VIOHandler {
 	public VUDPTransport(VReactor reactor, DatagramChannel channel, InetSocketAddress address,
 						 byte[] secret, byte[] pSecret, int bufLen) {
 		super(reactor);
-		this._construct(channel, address, secret, pSecret, bufLen);
+		VUDPTransportConfig config = new VUDPTransportConfig();
+		config.setBufLen(bufLen);
+		this._construct(channel, address, secret, pSecret, config);
 
 	}
 
-	void _construct(DatagramChannel channel, InetSocketAddress address, byte[] secret, byte[] p_secret, int buf_len) {
+	/**
+	 * Set up client socket consumer/producer.
+	 *
+	 * <p>See {@link #VUDPTransport(VReactor, DatagramChannel, InetSocketAddress, byte[], byte[])}
+	 * for information about socket and peer address.</p>
+	 *
+	 * @param reactor owning reactor
+	 * @param channel bound datagram socket for the connection
+	 * @param address peer address
+	 * @param secret local HMAC secret
+	 * @param pSecret peer HMAC secret
+	 * @param config transport configuration (default if null)
+	 */
+	public VUDPTransport(VReactor reactor, DatagramChannel channel, InetSocketAddress address,
+						 byte[] secret, byte[] pSecret, VUDPTransportConfig config) {
+		super(reactor);
+		if (config == null)
+			config = new VUDPTransportConfig();
+		this._construct(channel, address, secret, pSecret, config);
+	}
+
+	/**
+	 * Set up client socket consumer/producer on a shared UDP socket.
+	 *
+	 * <p>The transport sends and receives datagrams via the multiplexer's
+	 * socket, which may be shared with other transports. The transport's
+	 * reactor is the reactor of the multiplexer. See
+	 * {@link #VUDPTransport(VReactor, DatagramChannel, InetSocketAddress, byte[], byte[])}
+	 * for information about the peer address.</p>
+	 *
+	 * @param multiplexer multiplexer for shared UDP socket
+	 * @param address peer address
+	 * @param secret local HMAC secret
+	 * @param pSecret peer HMAC secret
+	 * @param config transport configuration (default if null)
+	 */
+	public VUDPTransport(VUDPMultiplexer multiplexer, InetSocketAddress address,
+						 byte[] secret, byte[] pSecret, VUDPTransportConfig config) {
+		super(multiplexer.getReactor());
+		if (config == null)
+			config = new VUDPTransportConfig();
+		this.multiplexer = multiplexer;
+		this._construct(multiplexer.getDatagramChannel(), address, secret, pSecret, config);
+	}
+
+	void _construct(DatagramChannel channel, InetSocketAddress address, byte[] secret, byte[] p_secret,
+					VUDPTransportConfig config) {
+		this.config = config.clone();
+		int buf_len = this.config.getBufLen();
+
 		// Force channel to non-blocking mode
 		try {
 			channel.configureBlocking(false);
@@ -287,15 +382,15 @@ public class VUDPTransport extends VIOHandler {
 		_sbuf = new VByteBuffer();
 		_sbuf_len = buf_len;
 		_send_lim = HSHAKE_WIN;
-		_in_fl = new Hashtable<Long, InFlightPackage>();
-		_in_fl_pos = new LinkedList<Long>();
+		_in_fl = new InFlightWindow();
 
 		_rbuf = new VByteBuffer();
 		_rbuf_len = buf_len;
 		_recv_win_step = _rbuf_len/5;
-		_recv_queue = new Hashtable<Long, byte[]>();
+		_recv_queue = new RecvWindow(Math.max(_rbuf_len, HSHAKE_WIN));
 
-		_timers = new HashSet<Date>();
+		_cc = VUDPCongestionControl.create(this.config.getCongestionControl());
+		_cc.setSegmentSize(_max_data);
 
 		_pi_buffer = new VByteBuffer();
 
@@ -309,6 +404,23 @@ public class VUDPTransport extends VIOHandler {
 
 		_tmp_buf = new VByteBuffer();
 
+		// Set up PMTU discovery and SACK (protocol extensions)
+		if (this.config.getSegmentSize() > 0) {
+			_ext = true;
+			_local_segment = this.config.getSegmentSize();
+		}
+		else if (this.config.isPmtuDiscovery()) {
+			_ext = true;
+			_local_segment = Math.min(this._interface_mtu()-_IP4_H-_UDP_H, _MAX_DGRAM);
+			_local_segment = Math.max(_local_segment, MAX_SEGMENT);
+		}
+		if (_ext)
+			this._set_dont_fragment();
+		if (this.config.isSack()) {
+			_ext = true;
+			_sack = true;
+		}
+
 		// Initialize send buffer with peer hello
 		_sbuf.append(_PROTO_HELLO);
 
@@ -317,7 +429,10 @@ public class VUDPTransport extends VIOHandler {
 			@Override
 			public Object execute() throws Exception {
 				_send_packages();
-				startReading();
+				if (multiplexer == null)
+					startReading();
+				else if (!_sock_closed)
+					multiplexer._register(VUDPTransport.this);
 				return null;
 			}
 		}
@@ -375,7 +490,7 @@ public class VUDPTransport extends VIOHandler {
 				break;
 			}
 
-			_tmp_dgram.rewind();
+			_tmp_dgram.clear();
 			SocketAddress _source = null;
 			try {
 				_source = channel.receive(_tmp_dgram);
@@ -393,366 +508,393 @@ public class VUDPTransport extends VIOHandler {
 				continue;
 			}
 
-			int _num_read = _tmp_dgram.position();
-			byte[] dgram = new byte[_num_read];
-			for (int i = 0; i < dgram.length; i++)
-				dgram[i] = _tmp_dgram.get(i);
+			this._handle_datagram(_tmp_dgram.array(), 0, _tmp_dgram.position());
+		}
 
-			// Validate datagram HMAC
-			if (dgram.length <= _hmac_len) {
-				this._handle_invalid_hmac();
-				continue;
-			}
-			_tmp_buf.clear();
-			_tmp_buf.append(dgram);
-			byte[] payload = _tmp_buf.pop(dgram.length - _hmac_len);
-			byte[] hmac = _tmp_buf.popAll();
-			byte[] _comp_hmac = this._dgram_hmac(payload, _recv_secret);
-			for (int i = 0; i < hmac.length; i++) {
-				if (hmac[i] != _comp_hmac[i]) {
-					this._handle_invalid_hmac();
-					continue;
-				}
-			}
+		this._read_done();
+	}
 
-			// Validate datagram length does not exceed allowed max
-			if (dgram.length > MAX_SEGMENT) {
-				_fail("Maximum package size exceeded");
-				break;
-			}
+	/**
+	 * Handles a datagram received from the peer address.
+	 *
+	 * <p>The datagram is read from 'buf' without retaining a reference, so
+	 * the buffer may be re-used after the call returns.</p>
+	 *
+	 * @param buf buffer holding datagram
+	 * @param offset datagram offset in buffer
+	 * @param length datagram length
+	 */
+	void _handle_datagram(byte[] buf, int offset, int length) {
+		if (length <= _hmac_len) {
+			this._handle_invalid_hmac();
+			return;
+		}
+		int _mac_offset = offset + length - _hmac_len;
+		byte[] payload = Arrays.copyOfRange(buf, offset, _mac_offset);
+		if (!this._verify_hmac(payload, buf, _mac_offset)) {
+			this._handle_invalid_hmac();
+			return;
+		}
+		this._process_datagram(payload, length);
+	}
 
-			// Decode datagram payload
-			_tmp_buf.append(payload);
-			// - flags
-			if (_tmp_buf.length() < 1) {
-				this._fail("Datagram format error");
-				break;
-			}
-			int flags = _tmp_buf.pop(1)[0];
-			// - sequence number
-			byte[] _tmp = _tmp_buf.peekAll();
-			NetbytesResult _num = VInteger.netbytes_to_posint(_tmp);
-			if (!_num.hasValue()) {
-				_fail("Datagram format error");
-				break;
-			}
-			long seq_num = _num.getValue().longValue();
-			_tmp_buf.pop(_num.getBytesRead());
-			// - acknowledge number
-			_tmp = _tmp_buf.peekAll();
-			_num = VInteger.netbytes_to_posint(_tmp);
-			if (!_num.hasValue()) {
-				_fail("Datagram format error");
-				break;
-			}
-			long ack_num = _num.getValue().longValue();
-			_tmp_buf.pop(_num.getBytesRead());
-			// - advertised window
-			_tmp = _tmp_buf.peekAll();
-			_num = VInteger.netbytes_to_posint(_tmp);
-			if (!_num.hasValue()) {
+	/**
+	 * Checks whether a datagram authenticates with the receive secret.
+	 *
+	 * @param payload datagram payload
+	 * @param buf buffer holding datagram
+	 * @param macOffset offset of datagram HMAC in buffer
+	 * @return true if datagram HMAC is valid
+	 */
+	boolean _verify_hmac(byte[] payload, byte[] buf, int macOffset) {
+		byte[] _comp_hmac = this._dgram_hmac(payload, _recv_secret);
+		for (int i = 0; i < _hmac_len; i++)
+			if (buf[macOffset+i] != _comp_hmac[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Processes an authenticated datagram.
+	 *
+	 * @param payload datagram payload
+	 * @param dgramLen length of received datagram
+	 */
+	void _process_datagram(byte[] payload, int dgramLen) {
+
+		// Handle PMTU control packages (protocol extension)
+		if (_ext && payload.length > 0 && (payload[0] & FLAG_PMTU) != 0) {
+			this._handle_pmtu_control(payload, dgramLen);
+			return;
+		}
+
+		// Validate datagram length does not exceed allowed max
+		if (dgramLen > (_ext ? _local_segment : MAX_SEGMENT)) {
+			_fail("Maximum package size exceeded");
+			return;
+		}
+
+		// Decode datagram payload
+		_tmp_buf.clear();
+		_tmp_buf.append(payload);
+		// - flags
+		if (_tmp_buf.length() < 1) {
+			this._fail("Datagram format error");
+			return;
+		}
+		int flags = _tmp_buf.pop(1)[0];
+		if (_ext && (flags & FLAG_EXT) != 0)
+			_peer_ext = true;
+		// - sequence number
+		byte[] _tmp = _tmp_buf.peekAll();
+		NetbytesResult _num = VInteger.netbytes_to_posint(_tmp);
+		if (!_num.hasValue()) {
+			_fail("Datagram format error");
+			return;
+		}
+		long seq_num = _num.getValue().longValue();
+		_tmp_buf.pop(_num.getBytesRead());
+		// - acknowledge number
+		_tmp = _tmp_buf.peekAll();
+		_num = VInteger.netbytes_to_posint(_tmp);
+		if (!_num.hasValue()) {
+			_fail("Datagram format error");
+			return;
+		}
+		long ack_num = _num.getValue().longValue();
+		_tmp_buf.pop(_num.getBytesRead());
+		// - advertised window
+		_tmp = _tmp_buf.peekAll();
+		_num = VInteger.netbytes_to_posint(_tmp);
+		if (!_num.hasValue()) {
+			_fail("Datagram format error");
+			return;
+		}
+		long adv_win = _num.getValue().longValue();
+		_tmp_buf.pop(_num.getBytesRead());
+		// - selective acknowledgement blocks (protocol extension)
+		long[] sack_blocks = null;
+		if (_ext && (flags & FLAG_SACK) != 0) {
+			sack_blocks = this._decode_sack(ack_num);
+			if (sack_blocks == null) {
 				_fail("Datagram format error");
-				break;
+				return;
 			}
-			long adv_win = _num.getValue().longValue();
-			_tmp_buf.pop(_num.getBytesRead());
-			// - data
-			byte[] data = _tmp_buf.popAll();
+		}
+		// - data
+		byte[] data = _tmp_buf.popAll();
+
+		// Check for failure
+		if ((flags & FLAG_FAIL) != 0) {
+			_fail("Peer sent failure message");
+			return;
+		}
 
-			// Check for failure
-			if ((flags & FLAG_FAIL) != 0) {
-				_fail("Peer sent failure message");
+		// Process ack data
+		if (!_peer_acked_hello && ack_num > 0) {
+			_peer_acked_hello = true;
+			this.getReactor().log("VUDP: peer acknowledged protocol hello");
+			this._validate();
+		}
+		int _num_acked = 0;
+		long _delivered = 0;
+		long _rtt_sample = -1;
+		boolean _in_recovery = _fast_recovery;
+		if (ack_num > _send_acked) {
+			int _aligned_idx = _in_fl.indexOfEnd(ack_num);
+			if (_aligned_idx < 0) {
+				// Acknowledge not aligned to any in-flight package, abort
+				this._fail("Acknowledge of unknown position");
 				return;
 			}
-
-			// Process ack data
-			if (!_peer_acked_hello && ack_num > 0) {
-				_peer_acked_hello = true;
-				this.getReactor().log("VUDP: peer acknowledged protocol hello");
-				this._validate();
-			}
-			if (ack_num > _send_acked) {
-				boolean _have_aligned_pkg = false;
-				InFlightPackage _in_fl_pkg = null;
-				long _aligned_pos = 0;
-				for (long _pos: _in_fl_pos) {
-					_in_fl_pkg = _in_fl.get(_pos);
-					if (ack_num == _pos + _in_fl_pkg.getData().length) {
-						_aligned_pos = _pos;
-						_have_aligned_pkg = true;
-						break;
-					}
-				}
-				if (!_have_aligned_pkg) {
-					// Acknowledge not aligned to any in-flight package, abort
-					this._fail("Acknowledge of unknown position");
-					break;
-				}
-				while (!_in_fl_pos.isEmpty() && _in_fl_pos.getFirst() <= _aligned_pos) {
-					long _fpos = _in_fl_pos.removeFirst();
-					InFlightPackage _removed = _in_fl.remove(_fpos);
-					_in_fl_num -= _removed.getData().length;
+			InFlightPackage _in_fl_pkg = _in_fl.get(_aligned_idx);
+			long _ack_time = this._clock();
+			for (int i = 0; i <= _aligned_idx; i++) {
+				InFlightPackage _removed = _in_fl.removeFirst();
+				_in_fl_num -= _removed.getData().length;
+				_num_acked += 1;
+				if (_removed.isSacked())
+					_in_fl_sacked -= 1;
+				else {
+					_delivered += _removed.getData().length;
+					this._rack_update(_removed, _ack_time);
 				}
+				if (_removed.isLost())
+					_in_fl_lost -= 1;
+			}
 
-				// Update 'ack' point; exit fast recovery mode if any
-				_send_acked = ack_num;
-				_num_dup_ack = 0;
+			// Update 'ack' point; exit fast recovery mode if any
+			_send_acked = ack_num;
+			_num_dup_ack = 0;
 
-				// Update congestion window and end fast recovery if any
-				if (_fast_recovery) {
-					// End fast recovery
-					_cwnd = _ssthresh;
+			// End fast recovery if any
+			if (_fast_recovery) {
+				// End fast recovery; with SACK recovery ends when all data
+				// outstanding when recovery started has been acknowledged
+				if (!this._sack_enabled() || ack_num >= _recovery_pos) {
+					_cc.onRecoveryEnd(_ack_time);
 					_fast_recovery = false;
 				}
-				else if (_cwnd < _ssthresh) {
-					// Slow start, ref. RFC 2581
-					_cwnd += 1.0;
-				}
-				else {
-					// Congestion avoidance, ref. RFC 2581
-					_cwnd += (1.0f/_cwnd);
-				}
+			}
 
-				// If RTT can be measured, update parameters as per RFC 2988
-				if (_in_fl_pkg.getRetries() == 0) {
-					long _rtt = new Date().getTime() - _in_fl_pkg.getTimeStamp().getTime();
-					if (_srtt < 0) {
-						_srtt = _rtt;
-						_rttvar = _rtt/2.0f;
-					}
-					else {
-						_rttvar *= 0.75f;
-						_rttvar += 0.25f * Math.abs(_srtt - _rtt);
-						_srtt *= 0.875f;
-						_srtt += 0.125f * _rtt;
-					}
+			// If RTT can be measured, update parameters as per RFC 2988
+			if (_in_fl_pkg.getRetries() == 0) {
+				long _rtt = _ack_time - _in_fl_pkg.getTimeStamp();
+				_rtt_sample = _rtt;
+				if (_srtt < 0) {
+					_srtt = _rtt;
+					_rttvar = _rtt/2.0f;
 				}
-				float old_rto = _rto;
-				_rto = _srtt + 4*_rttvar;
-				// Enforce min/max on RTO as per RFC 793
-				_rto = Math.max(_rto, MIN_RTO);
-				_rto = Math.min(_rto, MAX_RTO);
-
-				// Lazy-set new timer for new RTO if RTO was reduced
-				if (_rto < old_rto && !_in_fl.isEmpty()) {
-					Date _tstamp = _in_fl.get(_in_fl_pos.getFirst()).getTimeStamp();
-					long delay = Math.max(_tstamp.getTime() + (long)_rto - new Date().getTime(), 0L);
-					this._set_rto_timer(delay);
+				else {
+					_rttvar *= 0.75f;
+					_rttvar += 0.25f * Math.abs(_srtt - _rtt);
+					_srtt *= 0.875f;
+					_srtt += 0.125f * _rtt;
 				}
 			}
-			else {
-				// Detect duplicate ACK as per http://www.ietf.org/mail-archive/web/tcpm/current/msg01200.html
-				boolean same_win = ((ack_num+adv_win) <= _send_lim);
-				if (same_win && data.length == 0) {
-					if (!_in_fl.isEmpty() && ack_num == _send_acked) {
-						_num_dup_ack += 1;
-						if (_num_dup_ack == _DUP_ACK_RESEND) {
-							// Initiate fast retransmit/recovery, ref. RFC 2581
-							_ssthresh = Math.max(_in_fl.size()/2, 2);
-							_cwnd = _ssthresh + 3;
-							_force_resend = true;
-							_fast_recovery = true;
-						}
-						else if (_num_dup_ack > _DUP_ACK_RESEND) {
-							_cwnd += 1.0f;
-						}
+			float old_rto = _rto;
+			_rto = _srtt + 4*_rttvar;
+			// Enforce min/max on RTO as per RFC 793
+			_rto = Math.max(_rto, MIN_RTO);
+			_rto = Math.min(_rto, MAX_RTO);
+
+			// Lazy-set new timer for new RTO if RTO was reduced
+			if (_rto < old_rto && !_in_fl.isEmpty()) {
+				long _tstamp = _in_fl.getFirst().getTimeStamp();
+				long delay = Math.max(_tstamp + (long)_rto - this._clock(), 0L);
+				this._set_rto_timer(delay);
+			}
+		}
+		else {
+			// Detect duplicate ACK as per http://www.ietf.org/mail-archive/web/tcpm/current/msg01200.html
+			boolean same_win = ((ack_num+adv_win) <= _send_lim);
+			if (same_win && data.length == 0) {
+				if (!_in_fl.isEmpty() && ack_num == _send_acked) {
+					_num_dup_ack += 1;
+					if (_num_dup_ack == _DUP_ACK_RESEND && !_fast_recovery) {
+						// Initiate fast retransmit/recovery, ref. RFC 2581
+						_cc.onCongestion(this._pipe(), !this._sack_enabled(), this._clock());
+						_force_resend = true;
+						_fast_recovery = true;
+						_recovery_pos = _sbuf_pos;
 					}
-					else if (!_fast_recovery){
-						// Custom adaptation; do not reset dup_ack if already in fast recovery mode
-						_num_dup_ack = 0;
+					else if (_num_dup_ack > _DUP_ACK_RESEND && !this._sack_enabled()) {
+						_cc.onDuplicateAck(this._clock());
 					}
 				}
+				else if (!_fast_recovery){
+					// Custom adaptation; do not reset dup_ack if already in fast recovery mode
+					_num_dup_ack = 0;
+				}
 			}
+		}
 
-			// Process received data
-			boolean rbuf_data_added = false;
-			if (data.length != 0) {
-				if (_in_closed || _recv_closing) {
-					// Validate peer does not send out-of-bounds package
-					if ((seq_num + data.length) > _recv_close_pos) {
-						this._fail("Got data past stream close position");
-						break;
-					}
+		// Process selective acknowledgements and detect lost packages
+		if (sack_blocks != null && _sack)
+			_delivered += this._process_sack(sack_blocks);
+
+		// Update congestion control with delivered data
+		if (_num_acked > 0 || _delivered > 0)
+			_cc.onAck(_num_acked, _delivered, _rtt_sample, _srtt, _in_recovery, this._clock());
+
+		if (this._sack_enabled())
+			this._rack_detect_loss();
+
+		// Process received data
+		boolean rbuf_data_added = false;
+		if (data.length != 0) {
+			if (_in_closed || _recv_closing) {
+				// Validate peer does not send out-of-bounds package
+				if ((seq_num + data.length) > _recv_close_pos) {
+					this._fail("Got data past stream close position");
+					return;
 				}
+			}
 
-				if (seq_num == _recv_win_end) {
-					// Allow peer to try to send 1 octet past receive window
-					if (data.length > 1) {
-						this._fail("Advertised window exceeded");
-						break;
-					}
-					else {
-						// Ensure an 'ack' is sent
-						_force_ack = true;
-					}
+			if (seq_num == _recv_win_end) {
+				// Allow peer to try to send 1 octet past receive window
+				if (data.length > 1) {
+					this._fail("Advertised window exceeded");
+					return;
 				}
 				else {
-					// Handle regular data transfer
+					// Ensure an 'ack' is sent
+					_force_ack = true;
+				}
+			}
+			else {
+				// Handle regular data transfer
 
-					long adv_end = HSHAKE_WIN;
-					if (_validated) {
-						adv_end = _rbuf_spos + _rbuf_len;
-						adv_end -= adv_end % _recv_win_step;
-					}
-					if ((seq_num + data.length) > adv_end) {
-						// Peer advertised window violation
-						this._fail("Advertised window exceeded");
-						break;
-					}
+				long adv_end = HSHAKE_WIN;
+				if (_validated) {
+					adv_end = _rbuf_spos + _rbuf_len;
+					adv_end -= adv_end % _recv_win_step;
+				}
+				if ((seq_num + data.length) > adv_end) {
+					// Peer advertised window violation
+					this._fail("Advertised window exceeded");
+					return;
+				}
 
-					long _rbuf_next = _rbuf_spos + _rbuf.length();
-					if (seq_num == _rbuf_next) {
+				long _rbuf_next = _rbuf_spos + _rbuf.length();
+				if (seq_num <= _rbuf_next && seq_num + data.length > _rbuf_next) {
+					// Append data past the current position; segments may overlap
+					// received data if the peer re-segmented in-flight data after
+					// a segment size reduction
+					if (seq_num == _rbuf_next)
 						_rbuf.append(data);
-						_rbuf_next += data.length;
-						rbuf_data_added = true;
-						// Process receive queue
-						Enumeration<Long> _keys = _recv_queue.keys();
-						Vector<Long> _sorted_keys= new Vector<Long>();
-						while(_keys.hasMoreElements())
-							_sorted_keys.add(_keys.nextElement());
-						Collections.sort(_sorted_keys);
-						for (long _pos: _sorted_keys) {
-							if (_pos > _rbuf_next)
-								break;
-							else if (_pos == _rbuf_next) {
-								byte[] _data = _recv_queue.remove(_pos);
-								_rbuf.append(_data);
-								_rbuf_next += _data.length;
-							}
-							else {
-								// Protocol violation, segment overlaps
-								this._fail("Overlapping segments");
-								return;
-							}
-						}
-					}
-					else if (seq_num > _rbuf_next) {
-						long _spos = seq_num;
-						long _epos = seq_num + data.length;
-						// Check no overlaps with current queue
-						Enumeration<Long> _keys = _recv_queue.keys();
-						Vector<Long> _sorted_keys= new Vector<Long>();
-						while(_keys.hasMoreElements())
-							_sorted_keys.add(_keys.nextElement());
-						Collections.sort(_sorted_keys);
-						for (long _pos: _sorted_keys) {
-							if (_pos >= _epos)
-								break;
-							byte[] _data = _recv_queue.get(_pos);
-							if (_pos == _spos) {
-								// Re-send of existing segment
-								break;
-								// NOTE: consider including a check that data and _data are identical,
-								// to verify this is a true re-send
-							}
-							else if ((_pos+_data.length)> _spos) {
-								// Protocol violation, overlapping segments
-								this._fail("Overlapping segments");
-								return;
-							}
-						}
-						// Add segment to queue
-						_recv_queue.put(seq_num, data);
-						// Force an immediate ack for out-of-order data, similar to RFC 2581
-						_force_ack = true;
-					}
-					else {
-						// Old data package; force an immediate ack for out-of-order data, ref. to RFC 2581
-						_force_ack = true;
+					else
+						_rbuf.append(Arrays.copyOfRange(data, (int)(_rbuf_next - seq_num), data.length));
+					_rbuf_next = seq_num + data.length;
+					rbuf_data_added = true;
+					// Process receive queue
+					byte[] _queued = _recv_queue.take(_rbuf_next);
+					if (_queued != null) {
+						_rbuf.append(_queued);
+						_rbuf_next += _queued.length;
 					}
 				}
-
-				if (_force_ack) {
-					// Immediately resolve force-ack, in order to send a package which
-					// can be identified as a 'duplicate ack' by peer
-					this._send_force_ack();
-					_force_ack = false;
+				else if (seq_num > _rbuf_next) {
+					// Add segment to receive queue; re-sent and overlapping segments
+					// are merged by the queue
+					_recv_queue.put(seq_num, data);
+					// Force an immediate ack for out-of-order data, similar to RFC 2581
+					_force_ack = true;
+				}
+				else {
+					// Old data package; force an immediate ack for out-of-order data, ref. to RFC 2581
+					_force_ack = true;
 				}
 			}
 
-			if (!_peer_validated && data.length > 0) {
-				// The first received data must be a protocol handshake
-				byte[] hello = _rbuf.popAll();
-				if (hello.length != _PROTO_HELLO.length) {
+			if (_force_ack) {
+				// Immediately resolve force-ack, in order to send a package which
+				// can be identified as a 'duplicate ack' by peer
+				this._send_force_ack();
+				_force_ack = false;
+			}
+		}
+
+		if (!_peer_validated && data.length > 0) {
+			// The first received data must be a protocol handshake
+			byte[] hello = _rbuf.popAll();
+			if (hello.length != _PROTO_HELLO.length) {
+				this._fail("Invalid peer protocol handshake");
+				return;
+			}
+			for (int i = 0; i < hello.length; i++)
+				if (hello[i] != _PROTO_HELLO[i]) {
 					this._fail("Invalid peer protocol handshake");
 					return;
 				}
-				for (int i = 0; i < hello.length; i++)
-					if (hello[i] != _PROTO_HELLO[i]) {
-						this._fail("Invalid peer protocol handshake");
-						return;
-					}
-				_peer_validated = true;
-				_rbuf_spos += hello.length;
-				this.getReactor().log("VUDP: got valid peer protocol hello");
+			_peer_validated = true;
+			_rbuf_spos += hello.length;
+			this.getReactor().log("VUDP: got valid peer protocol hello");
+
+			// If needed force re-sending hello message to peer
+			if (!_peer_acked_hello) {
+				if (_in_fl.indexOf(0) >= 0)
+					_force_resend = true;
+			}
 
-				// If needed force re-sending hello message to peer
-				if (!_peer_acked_hello) {
-					if (_in_fl.get(0) != null)
-						_force_resend = true;
-				}
+			this._validate();
+		}
 
-				this._validate();
+		// Handle 'close' flag
+		if ((flags & FLAG_CLOSE) != 0) {
+			long close_pos = seq_num + data.length;
+			if (_recv_closing) {
+				if (_recv_close_pos != close_pos) {
+					this._fail("inconsistent close flag use by peer");
+					return;
+				}
 			}
-
-			// Handle 'close' flag
-			if ((flags & FLAG_CLOSE) != 0) {
-				long close_pos = seq_num + data.length;
-				if (_recv_closing) {
-					if (_recv_close_pos != close_pos) {
-						this._fail("inconsistent close flag use by peer");
-						return;
-					}
+			else {
+				// Check no conflict with buffered data
+				if ((_rbuf_spos+_rbuf.length()) > close_pos) {
+					this._fail("close flag conflicts with other data");
+					return;
+				}
+				if (!_recv_queue.isEmpty() && _recv_queue.getLastEnd() > close_pos) {
+					this._fail("close flag conflicts with other data");
+					return;
 				}
-				else {
-					// Check no conflict with buffered data
-					if ((_rbuf_spos+_rbuf.length()) > close_pos) {
-						this._fail("close flag conflicts with other data");
-						return;
-					}
-					Enumeration<Long> _keys = _recv_queue.keys();
-					while(_keys.hasMoreElements()) {
-						Long _pos = _keys.nextElement();
-						byte[] _data = _recv_queue.get(_pos);
-						if ((_pos+_data.length) > close_pos) {
-							this._fail("close flag conflicts with other data");
-							return;
-						}
-					}
 
-					// Set input 'closing' status
-					_recv_closing = true;
-					_recv_close_pos = close_pos;
+				// Set input 'closing' status
+				_recv_closing = true;
+				_recv_close_pos = close_pos;
 
-					// If no pending data, close input and force an 'ack'
-					if (_recv_queue.isEmpty() && ((_rbuf_spos+_rbuf.length()) == close_pos)) {
-						this.closeInput(true);
-						_force_ack = true;
-					}
+				// If no pending data, close input and force an 'ack'
+				if (_recv_queue.isEmpty() && ((_rbuf_spos+_rbuf.length()) == close_pos)) {
+					this.closeInput(true);
+					_force_ack = true;
 				}
 			}
+		}
 
-			// Handle 'ack_close' flag
-			if ((flags & FLAG_ACK_CLOSE) != 0 && !_out_closed) {
-				if (!_ci_eod || _sbuf.hasData()) {
-					// Premature ack_close means peer aborted the output
-					this._c_abort();
-				}
-				else if (_in_fl.isEmpty())
-					this.closeOutput(true);
+		// Handle 'ack_close' flag
+		if ((flags & FLAG_ACK_CLOSE) != 0 && !_out_closed) {
+			if (!_ci_eod || _sbuf.hasData()) {
+				// Premature ack_close means peer aborted the output
+				this._c_abort();
 			}
+			else if (_in_fl.isEmpty())
+				this.closeOutput(true);
+		}
 
-			// Update send limit
-			_send_lim = Math.max(_send_lim, ack_num+adv_win);
+		// Update send limit
+		_send_lim = Math.max(_send_lim, ack_num+adv_win);
 
-			// If data was added, perform a production iteration
-			if (rbuf_data_added)
-				this._do_produce();
+		// If data was added, perform a production iteration
+		if (rbuf_data_added)
+			this._do_produce();
 
-			// Perform a package send iteration
-			this._send_packages();
-		}
+		// Perform a package send iteration
+		this._send_packages();
+	}
 
+	// Performs post-processing after a batch of datagrams was handled
+	void _read_done() {
 		// If validated and have producer, evaluate consume limit
 		if (_validated && _ci_producer != null) {
 			long _old_lim = _ci_lim_sent;
@@ -772,6 +914,10 @@ public class VUDPTransport extends VIOHandler {
 	 * Perform regular sending of packages to peer.
 	 */
 	public void _send_packages() {
+		// Re-send packages detected as lost before sending new data
+		if (_in_fl_lost > 0)
+			this._retransmit_lost();
+
 		while (true) {
 			// Ensure socket is open
 			if (_sock_closed || !_sock_enabled || channel == null)
@@ -780,13 +926,13 @@ public class VUDPTransport extends VIOHandler {
 			// Determine if we can send data (if not max_data will be zero)
 			int max_data = 0;
 			boolean check_close = false;
-			if (_cwnd >= _in_fl.size()+1) {
+			if (_cc.getWindow() >= this._pipe()+1) {
 				if (_sbuf.hasData()) {
 					if (_sbuf_pos < _send_lim)
 						max_data = (int)(_send_lim - _sbuf_pos);
 					else if (_sbuf_pos == _send_lim) {
 						// Allow single octet past adv window if RTO expired
-						if (_last_send_t == null || (new Date().getTime() - _last_send_t.getTime()) >= _rto)
+						if (_last_send_t < 0 || (this._clock() - _last_send_t) >= _rto)
 							max_data = 1;
 					}
 				}
@@ -794,6 +940,15 @@ public class VUDPTransport extends VIOHandler {
 					check_close = true;
 			}
 
+			// If sending is paced, defer new data until the pacing timer
+			if (max_data > 0) {
+				long _pacing_delay = _cc.getPacingDelay(this._clock());
+				if (_pacing_delay > 0) {
+					max_data = 0;
+					this._set_pacing_timer(_pacing_delay);
+				}
+			}
+
 			// Determine new ack number and advertised window size
 			long ack_num = _rbuf_spos + _rbuf.length();
 			long adv_end = 0;
@@ -815,29 +970,35 @@ public class VUDPTransport extends VIOHandler {
 			long _seq_num;
 			byte[] _b_seq_num;
 			byte[] data;
-			long _force_pos = 0;
+			InFlightPackage _force_pkg = null;
+			byte[] _sack = this._encode_sack();
+			int _sack_len = (_sack != null) ? _sack.length : 0;
 			if (_force_resend) {
-				_force_pos = _in_fl_pos.getFirst();
-				_seq_num = _force_pos;
+				_force_pkg = _in_fl.getFirst();
+				_seq_num = _force_pkg.getPos();
 				_b_seq_num = VInteger.posint_to_netbytes(_seq_num);
-				data = _in_fl.get(_force_pos).getData();
+				data = _force_pkg.getData();
+				if (data.length + _sack_len > _max_data)
+					_sack = null;
 			}
 			else {
 				_seq_num = _sbuf_pos;
 				_b_seq_num = VInteger.posint_to_netbytes(_seq_num);
-				data = _sbuf.peek(Math.min(max_data, MAX_DATA));
+				data = _sbuf.peek(Math.min(max_data, _max_data - _sack_len));
 			}
 			byte[] _b_ack_num = VInteger.posint_to_netbytes(ack_num);
 			byte[] _b_adv_win = VInteger.posint_to_netbytes(adv_end-ack_num);
 
-			if (data.length > 0 && _last_send_t != null) {
+			if (data.length > 0 && _last_send_t >= 0) {
 				// Initialize "slow start" if it is more than one RTO since
 				// the last data transmission, ref. RFC 2581
-				if ((new Date().getTime() - _last_send_t.getTime()) > _rto)
-					_cwnd = 2.0f;
+				if ((this._clock() - _last_send_t) > _rto)
+					_cc.onIdleRestart(this._clock());
 			}
 
 			int flag = this._gen_flag(_seq_num+data.length);
+			if (_sack != null)
+				flag |= FLAG_SACK;
 			byte fbyte = (byte)(flag & 0xff);
 
 			_tmp_buf.clear();
@@ -845,6 +1006,8 @@ public class VUDPTransport extends VIOHandler {
 			_tmp_buf.append(_b_seq_num);
 			_tmp_buf.append(_b_ack_num);
 			_tmp_buf.append(_b_adv_win);
+			if (_sack != null)
+				_tmp_buf.append(_sack);
 			_tmp_buf.append(data);
 			_tmp_buf.append(this._dgram_hmac(_tmp_buf.peekAll(), _send_secret));
 			byte[] pkg = _tmp_buf.popAll();
@@ -873,21 +1036,25 @@ public class VUDPTransport extends VIOHandler {
 			if (data.length > 0) {
 				if (_force_resend) {
 					// Increase re-send counter and disable force re-send
-					InFlightPackage _in_fl_pkg = _in_fl.get(_force_pos);
-					_in_fl_pkg.setTimeStamp(new Date());
+					InFlightPackage _in_fl_pkg = _force_pkg;
+					_in_fl_pkg.setTimeStamp(this._clock());
 					_in_fl_pkg.addRetry();
+					if (_in_fl_pkg.isLost()) {
+						_in_fl_pkg.setLost(false);
+						_in_fl_lost -= 1;
+					}
 					_force_resend = false;
 				}
 				else {
 					_sbuf.pop(data.length);
-					_in_fl.put(_sbuf_pos, new InFlightPackage(data, new Date(), (long)_rto));
-					_in_fl_pos.addLast(_sbuf_pos);
+					_in_fl.addLast(new InFlightPackage(_sbuf_pos, data, this._clock(), (long)_rto));
 					_in_fl_num += data.length;
 					_sbuf_pos += data.length;
+					_cc.onSend(pkg.length, this._clock());
 				}
 
 				// Update time of last data transmission and set RTO timer
-				_last_send_t = new Date();
+				_last_send_t = this._clock();
 				this._set_rto_timer((long)_rto);
 			}
 
@@ -905,16 +1072,38 @@ public class VUDPTransport extends VIOHandler {
 	 * @param pos in-flight package position
 	 */
 	public void _resend_package(long pos) {
+		this._resend_package(pos, true);
+	}
 
-		// Ensure socket is open
-		if (_sock_closed || !_sock_enabled || channel == null)
-			return;
-
-		InFlightPackage _in_fl_pkg = _in_fl.get(pos);
-		if (_in_fl_pkg == null) {
+	/**
+	 * Re-sends package at position 'pos' in _in_fl
+	 *
+	 * <p>If 'backoff' is true then the package delay timer is backed off,
+	 * which should be done for re-sends due to a retransmission timeout.</p>
+	 *
+	 * @param pos in-flight package position
+	 * @param backoff if true back off package delay timer
+	 */
+	public void _resend_package(long pos, boolean backoff) {
+		int _idx = _in_fl.indexOf(pos);
+		if (_idx < 0) {
 			// Should never happen
 			return;
 		}
+		this._resend_package(_in_fl.get(_idx), backoff);
+	}
+
+	/**
+	 * Re-sends an in-flight package.
+	 *
+	 * @param _in_fl_pkg in-flight package
+	 * @param backoff if true back off package delay timer
+	 */
+	void _resend_package(InFlightPackage _in_fl_pkg, boolean backoff) {
+
+		// Ensure socket is open
+		if (_sock_closed || !_sock_enabled || channel == null)
+			return;
 
 		// Determine new ack number and advertised window
 		long ack_num = _rbuf_spos + _rbuf.length();
@@ -927,13 +1116,18 @@ public class VUDPTransport extends VIOHandler {
 			adv_end = HSHAKE_WIN;
 
 		// Compose package for sending to peer
-		long _seq_num = pos;
+		long _seq_num = _in_fl_pkg.getPos();
 		byte[] _b_seq_num = VInteger.posint_to_netbytes(_seq_num);
 		byte[] _b_ack_num = VInteger.posint_to_netbytes(ack_num);
 		byte[] _b_adv_win = VInteger.posint_to_netbytes(adv_end-ack_num);
 		byte[] data = _in_fl_pkg.getData();
+		byte[] _sack = this._encode_sack();
+		if (_sack != null && data.length + _sack.length > _max_data)
+			_sack = null;
 
 		int flag = this._gen_flag(_seq_num+data.length);
+		if (_sack != null)
+			flag |= FLAG_SACK;
 		byte fbyte = (byte)(flag & 0xff);
 
 		_tmp_buf.clear();
@@ -941,6 +1135,8 @@ public class VUDPTransport extends VIOHandler {
 		_tmp_buf.append(_b_seq_num);
 		_tmp_buf.append(_b_ack_num);
 		_tmp_buf.append(_b_adv_win);
+		if (_sack != null)
+			_tmp_buf.append(_sack);
 		_tmp_buf.append(data);
 		_tmp_buf.append(this._dgram_hmac(_tmp_buf.peekAll(), _send_secret));
 		byte[] pkg = _tmp_buf.popAll();
@@ -963,12 +1159,18 @@ public class VUDPTransport extends VIOHandler {
 			return;
 		}
 
-		_in_fl_pkg.setTimeStamp(new Date());
-		// Custom logic for 'backing off package delay timer'
+		_in_fl_pkg.setTimeStamp(this._clock());
 		long _delay = _in_fl_pkg.getDelay();
-		_delay = Math.min(2*_delay, (long)_rto);
-		_in_fl_pkg.setDelay(_delay);
+		if (backoff) {
+			// Custom logic for 'backing off package delay timer'
+			_delay = Math.min(2*_delay, (long)_rto);
+			_in_fl_pkg.setDelay(_delay);
+		}
 		_in_fl_pkg.addRetry();
+		if (_in_fl_pkg.isLost()) {
+			_in_fl_pkg.setLost(false);
+			_in_fl_lost -= 1;
+		}
 		this._set_rto_timer(_delay);
 
 		_recv_acked = ack_num;
@@ -994,8 +1196,11 @@ public class VUDPTransport extends VIOHandler {
 		byte[] _b_ack_num = VInteger.posint_to_netbytes(ack_num);
 		byte[] _b_adv_win = VInteger.posint_to_netbytes(adv_win);
 		byte[] data = new byte[0];
+		byte[] _sack = this._encode_sack();
 
 		int flag = this._gen_flag(seq_num);
+		if (_sack != null)
+			flag |= FLAG_SACK;
 		byte fbyte = (byte)(flag & 0xff);
 
 		_tmp_buf.clear();
@@ -1003,6 +1208,8 @@ public class VUDPTransport extends VIOHandler {
 		_tmp_buf.append(_b_seq_num);
 		_tmp_buf.append(_b_ack_num);
 		_tmp_buf.append(_b_adv_win);
+		if (_sack != null)
+			_tmp_buf.append(_sack);
 		_tmp_buf.append(data);
 		_tmp_buf.append(this._dgram_hmac(_tmp_buf.peekAll(), _send_secret));
 		byte[] pkg = _tmp_buf.popAll();
@@ -1036,6 +1243,8 @@ public class VUDPTransport extends VIOHandler {
 		}
 		if (_in_closed)
 			flag |= FLAG_ACK_CLOSE;
+		if (_ext)
+			flag |= FLAG_EXT;
 		return flag;
 	}
 
@@ -1051,15 +1260,12 @@ public class VUDPTransport extends VIOHandler {
 	}
 
 	/**
-	 * Sets a timer for the given timeout.
-	 *
-	 * <p>Timer that is set depends on the current pool of timers. A timer will
-	 * only be set if if the current pool is not maxed and sufficient reduction
-	 * in time until next set timer is achieved.</p>
+	 * Sets the RTO timer to expire no later than after the given delay.
 	 *
-	 * <p>This handling is a trade-off between setting exact timers when RTO
-	 * estimates are reduced, vs. the cost of re-normalizing reactor scheduled
-	 * tasks when cancelled or delayed.</p>
+	 * <p>The transport has a single RTO timer. If the timer is already set to
+	 * expire before the delay it is not changed, otherwise it is re-armed. The
+	 * timer handler evaluates all in-flight data and re-arms the timer as
+	 * needed, so an early expiry is harmless.</p>
 	 *
 	 * @param delay timeout in milliseconds
 	 */
@@ -1067,82 +1273,114 @@ public class VUDPTransport extends VIOHandler {
 		// Ensure no negative delays
 		delay = Math.max(delay, 0);
 
-		if (_timers.size() >= _MAX_TIMERS)
-			return;
-
-		Date cur_time = new Date();
-		boolean _do_set;
-		if (_timers.isEmpty())
-			_do_set = true;
-		else {
-			long _set_delay = Math.max(Collections.min(_timers).getTime()-cur_time.getTime(), 0);
-			// Must test with '<' in order to avoid scheduling multiple zero-delay timers
-			_do_set = (delay < _TIMER_REDUCE_FACTOR*_set_delay);
+		long _timeout = this._clock() + delay;
+		if (_rto_call != null) {
+			if (_timeout >= _rto_timer_t)
+				return;
+			_rto_call.cancel();
 		}
 
-		if (_do_set) {
-			Date timeout = new Date(cur_time.getTime() + delay);
-			class Job implements VReactorFunction {
-				Date timeout;
-				public Job(Date timeout) {
-					this.timeout = timeout;
-				}
-				@Override
-				public Object execute() throws Exception {
-					_handle_rto_timer(timeout);
-					return null;
+		class Job implements VReactorFunction {
+			long timer_id;
+			public Job(long timer_id) {
+				this.timer_id = timer_id;
+			}
+			@Override
+			public Object execute() throws Exception {
+				if (timer_id == _rto_timer_id) {
+					_rto_call = null;
+					_handle_rto_timer();
 				}
-
+				return null;
 			}
-			this.getReactor().schedule(new Job(timeout), delay);
-			_timers.add(timeout);
 		}
+		_rto_timer_id += 1;
+		_rto_timer_t = _timeout;
+		_rto_call = this.getReactor().schedule(new Job(_rto_timer_id), delay);
 	}
 
-	void _handle_rto_timer(Date timeout) {
+	/**
+	 * Schedules sending of paced data.
+	 *
+	 * <p>Only a single pacing timer is active at any time.</p>
+	 *
+	 * @param delay delay in milliseconds
+	 */
+	void _set_pacing_timer(long delay) {
+		if (_pacing_timer)
+			return;
+		class Job implements VReactorFunction {
+			@Override
+			public Object execute() throws Exception {
+				_pacing_timer = false;
+				_send_packages();
+				return null;
+			}
+		}
+		this.getReactor().schedule(new Job(), delay);
+		_pacing_timer = true;
+	}
 
-		Date cur_time = new Date();
+	void _handle_rto_timer() {
 
-		// Remove all expired timers
-		LinkedList<Date> _expired = new LinkedList<Date>();
-		for (Date _t_out: _timers)
-			if (_t_out.compareTo(cur_time) <= 0)
-				_expired.addLast(_t_out);
-		for (Date _exp: _expired)
-			_timers.remove(_exp);
+		long cur_time = this._clock();
 
 		if (!_in_fl.isEmpty()) {
+			// Time-based loss detection, re-sends packages detected as lost
+			if (this._sack_enabled()) {
+				this._rack_detect_loss();
+				if (_in_fl_lost > 0)
+					this._send_packages();
+			}
+
+			// Detect PMTU black hole if a large segment has repeatedly expired
+			if (_segment > MAX_SEGMENT) {
+				for (int i = 0; i < _in_fl.size(); i++) {
+					InFlightPackage _in_fl_pkg = _in_fl.get(i);
+					long resend_t = _in_fl_pkg.getTimeStamp();
+					resend_t += Math.min(_in_fl_pkg.getDelay(), (long)_rto);
+					if (resend_t <= cur_time && _in_fl_pkg.getData().length > MAX_DATA
+						&& _in_fl_pkg.getRetries() >= PMTU_BLACKHOLE_RETRIES) {
+						this._pmtu_blackhole();
+						break;
+					}
+				}
+			}
+
 			// Resend all expired in-flight packages
-			Enumeration<Long> _ipos = _in_fl.keys();
-			while (_ipos.hasMoreElements()) {
-				long _pos = _ipos.nextElement();
-				InFlightPackage _in_fl_pkg = _in_fl.get(_pos);
-				long resend_t = _in_fl_pkg.getTimeStamp().getTime();
+			boolean _rto_expired = false;
+			for (int i = 0; i < _in_fl.size(); i++) {
+				InFlightPackage _in_fl_pkg = _in_fl.get(i);
+				if (_in_fl_pkg.isSacked())
+					continue;
+				long resend_t = _in_fl_pkg.getTimeStamp();
 				resend_t += Math.min(_in_fl_pkg.getDelay(), (long)_rto);
-				if (resend_t <= cur_time.getTime()) {
-					this._resend_package(_pos);
-					// Back off the RTO timer, ref. RFC 2988
-					_rto *= 2.0f;
-					_rto = Math.min(_rto, MAX_RTO);
-					_rto_num_backoff += 1;
-					// Reset congestion window and threshold as per RFC 2581
-					_ssthresh = Math.max(_in_fl.size()/2, 2);
-					_cwnd = 1.0f;
+				if (resend_t <= cur_time) {
+					this._resend_package(_in_fl_pkg, true);
+					_rto_expired = true;
 				}
 			}
+			if (_rto_expired) {
+				// Back off the RTO timer once per timeout, ref. RFC 2988
+				_rto *= 2.0f;
+				_rto = Math.min(_rto, MAX_RTO);
+				_rto_num_backoff += 1;
+				_cc.onTimeout(this._pipe(), cur_time);
+				_fast_recovery = false;
+			}
 
 			// Reset the RTO timer
 			long _timeout = -1;
-			_ipos = _in_fl.keys();
-			while (_ipos.hasMoreElements()) {
-				long _pos = _ipos.nextElement();
-				InFlightPackage _in_fl_pkg = _in_fl.get(_pos);
-				long _t_out = _in_fl_pkg.getTimeStamp().getTime() + Math.min(_in_fl_pkg.getDelay(), (long)_rto);
+			for (int i = 0; i < _in_fl.size(); i++) {
+				InFlightPackage _in_fl_pkg = _in_fl.get(i);
+				if (_in_fl_pkg.isSacked())
+					continue;
+				long _t_out = _in_fl_pkg.getTimeStamp() + Math.min(_in_fl_pkg.getDelay(), (long)_rto);
 				if (_timeout < 0 || _t_out < _timeout)
 					_timeout = _t_out;
 			}
 			if (_timeout >= 0)
-				this._set_rto_timer(_timeout - cur_time.getTime());
+				this._set_rto_timer(_timeout - cur_time);
 		}
 		else {
 			boolean can_send = false;
@@ -1162,7 +1400,7 @@ public class VUDPTransport extends VIOHandler {
 
 			// If waiting to send, process if RTO or if not set a timeout
 			if (can_send) {
-				if (_last_send_t == null || (cur_time.getTime()-_last_send_t.getTime()) >= _rto) {
+				if (_last_send_t < 0 || (cur_time - _last_send_t) >= _rto) {
 					if (should_force)
 						_force_ack = true;
 					_send_packages();
@@ -1174,7 +1412,7 @@ public class VUDPTransport extends VIOHandler {
 					_rto_num_backoff += 1;
 				}
 				else
-					_set_rto_timer(_last_send_t.getTime() + (long)_rto - cur_time.getTime());
+					_set_rto_timer(_last_send_t + (long)_rto - cur_time);
 			}
 
 		}
@@ -1244,10 +1482,14 @@ public class VUDPTransport extends VIOHandler {
 				this._send_packages();
 			}
 
-			try {
-				channel.close();
-			} catch (IOException e) {
-				// SILENT
+			if (multiplexer != null)
+				multiplexer._unregister(this);
+			else {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// SILENT
+				}
 			}
 			_sock_closed = true;
 			this.getReactor().log("VUDP: closed");
@@ -1260,7 +1502,8 @@ public class VUDPTransport extends VIOHandler {
 				_out_closed_clean = clean;
 				this._output_was_closed(clean);
 			}
-			this.stopReading();
+			if (multiplexer == null)
+				this.stopReading();
 		}
 	}
 
@@ -1591,10 +1834,11 @@ public class VUDPTransport extends VIOHandler {
 			_validated = true;
 			this.getReactor().log("VUDP: connection validated");
 
-			// Re-initialize congestion window and slow start threshold, so
-			// performance is not penalized by handshake timeouts
-			_cwnd = Math.max(_cwnd, 2);
-			_ssthresh = Math.max(_ssthresh, SSTHRESH);
+			_cc.onValidated(this._clock());
+
+			// If peer supports protocol extensions, start PMTU discovery
+			if (_ext && _peer_ext && _local_segment > MAX_SEGMENT)
+				this._pmtu_start();
 
 			// If connected, notify connected consumer
 			if (_pi_consumer != null) {
@@ -1674,6 +1918,433 @@ public class VUDPTransport extends VIOHandler {
 		}
 	}
 
+	/**
+	 * Handles a received PMTU control package.
+	 *
+	 * @param payload datagram payload (HMAC already validated)
+	 * @param dgramLen length of received datagram
+	 */
+	void _handle_pmtu_control(byte[] payload, int dgramLen) {
+		_tmp_buf.clear();
+		_tmp_buf.append(payload);
+		_tmp_buf.pop(1);
+		long[] _values = new long[3];
+		for (int i = 0; i < _values.length; i++) {
+			NetbytesResult _num = VInteger.netbytes_to_posint(_tmp_buf.peekAll());
+			if (!_num.hasValue()) {
+				_fail("Datagram format error");
+				return;
+			}
+			_values[i] = _num.getValue().longValue();
+			_tmp_buf.pop(_num.getBytesRead());
+		}
+		_tmp_buf.clear();
+		long msg_type = _values[0];
+		long size = _values[1];
+		long max_recv = _values[2];
+		if (size > _MAX_DGRAM || max_recv < MAX_SEGMENT || max_recv > _MAX_DGRAM) {
+			_fail("Datagram format error");
+			return;
+		}
+
+		_peer_ext = true;
+		_peer_segment = (int)max_recv;
+		if (msg_type == _PMTU_PROBE) {
+			if (size != dgramLen) {
+				_fail("Invalid PMTU probe");
+				return;
+			}
+			this._send_pmtu_control(_PMTU_PROBE_ACK, size);
+		}
+		else if (msg_type == _PMTU_PROBE_ACK) {
+			if (_probe_size > 0 && size == _probe_size) {
+				_probe_size = 0;
+				_probe_id += 1;
+				this._pmtu_set_segment(Math.min((int)size, _peer_segment));
+			}
+		}
+		else
+			_fail("Datagram format error");
+	}
+
+	/**
+	 * Sends a PMTU control package.
+	 *
+	 * <p>A probe is padded so the datagram has the length of the probed size.</p>
+	 *
+	 * @param msgType control message type
+	 * @param size probed segment size
+	 * @return true if datagram was sent
+	 */
+	boolean _send_pmtu_control(int msgType, long size) {
+		if (_sock_closed || !_sock_enabled || channel == null)
+			return false;
+
+		_tmp_buf.clear();
+		_tmp_buf.append((byte)((FLAG_EXT | FLAG_PMTU) & 0xff));
+		_tmp_buf.append(VInteger.posint_to_netbytes(msgType));
+		_tmp_buf.append(VInteger.posint_to_netbytes(size));
+		_tmp_buf.append(VInteger.posint_to_netbytes(_local_segment));
+		if (msgType == _PMTU_PROBE) {
+			int _pad_len = (int)size - _tmp_buf.length() - _hmac_len;
+			if (_pad_len > 0)
+				_tmp_buf.append(new byte[_pad_len]);
+		}
+		_tmp_buf.append(this._dgram_hmac(_tmp_buf.peekAll(), _send_secret));
+		byte[] pkg = _tmp_buf.popAll();
+
+		try {
+			return (channel.send(ByteBuffer.wrap(pkg), address) == pkg.length);
+		} catch (IOException e) {
+			// Datagram could not be sent, e.g. exceeds the known path MTU
+			return false;
+		}
+	}
+
+	// Starts PMTU discovery
+	void _pmtu_start() {
+		if (_probe_size > 0 || _sock_closed)
+			return;
+
+		LinkedList<Integer> _sizes = new LinkedList<Integer>();
+		if (_local_segment > MAX_SEGMENT)
+			_sizes.addLast(_local_segment);
+		if (config.getSegmentSize() <= 0) {
+			for (int _mtu: _PMTU_PLATEAUS) {
+				int _seg = _mtu - _IP4_H - _UDP_H;
+				if (_seg < _local_segment && _seg > MAX_SEGMENT)
+					_sizes.addLast(_seg);
+			}
+		}
+		_probe_sizes = new int[_sizes.size()];
+		for (int i = 0; i < _probe_sizes.length; i++)
+			_probe_sizes[i] = _sizes.get(i);
+		_probe_idx = -1;
+		_probe_size = Integer.MAX_VALUE;
+		this.getReactor().log("VUDP: starting PMTU discovery");
+		this._pmtu_next();
+	}
+
+	// Moves PMTU discovery to the next smaller probe size
+	void _pmtu_next() {
+		int _failed = _probe_size;
+		_probe_size = 0;
+		_probe_id += 1;
+		while (++_probe_idx < _probe_sizes.length) {
+			int _size = _probe_sizes[_probe_idx];
+			if (_peer_segment >= 0)
+				_size = Math.min(_size, _peer_segment);
+			if (_size <= _segment)
+				break;
+			if (_size < _failed) {
+				_probe_size = _size;
+				_probe_tries = 0;
+				this._pmtu_probe();
+				return;
+			}
+		}
+		this.getReactor().log("VUDP: PMTU discovery completed, segment size " + _segment);
+	}
+
+	// Sends a probe for the current probe size and sets a probe timer
+	void _pmtu_probe() {
+		if (!this._send_pmtu_control(_PMTU_PROBE, _probe_size)) {
+			this._pmtu_next();
+			return;
+		}
+		_probe_tries += 1;
+
+		class Job implements VReactorFunction {
+			long probe_id;
+			public Job(long probeId) {
+				this.probe_id = probeId;
+			}
+			@Override
+			public Object execute() throws Exception {
+				if (probe_id == _probe_id && _probe_size > 0 && !_sock_closed) {
+					if (_probe_tries < PMTU_PROBE_TRIES)
+						_pmtu_probe();
+					else
+						_pmtu_next();
+				}
+				return null;
+			}
+		}
+		long delay = Math.max((long)(2*_rto), PMTU_PROBE_MIN_T);
+		this.getReactor().schedule(new Job(_probe_id), delay);
+	}
+
+	// Sets the segment size for sending data
+	void _pmtu_set_segment(int segment) {
+		_segment = segment;
+		_max_data = segment - (_FLG+_SEQ+_ACK+_WIN+_MAC);
+		_cc.setSegmentSize(_max_data);
+		this.getReactor().log("VUDP: segment size set to " + segment);
+	}
+
+	// Reverts to minimum segment size and re-segments in-flight data
+	void _pmtu_blackhole() {
+		this.getReactor().log("VUDP: PMTU black hole detected, reverting to minimum segment size");
+		_probe_size = 0;
+		_probe_id += 1;
+		this._pmtu_set_segment(MAX_SEGMENT);
+
+		InFlightWindow _window = new InFlightWindow();
+		while (!_in_fl.isEmpty()) {
+			InFlightPackage _pkg = _in_fl.removeFirst();
+			byte[] _data = _pkg.getData();
+			if (_data.length <= _max_data) {
+				_window.addLast(_pkg);
+				continue;
+			}
+			long _pos = _pkg.getPos();
+			if (_pkg.isSacked())
+				_in_fl_sacked -= 1;
+			if (_pkg.isLost())
+				_in_fl_lost -= 1;
+			for (int _offset = 0; _offset < _data.length; _offset += _max_data) {
+				byte[] _piece = new byte[Math.min(_max_data, _data.length - _offset)];
+				System.arraycopy(_data, _offset, _piece, 0, _piece.length);
+				InFlightPackage _split = new InFlightPackage(_pos + _offset, _piece, _pkg.getTimeStamp(), _pkg.getDelay());
+				_split.retries = _pkg.getRetries();
+				_split.setSacked(_pkg.isSacked());
+				_split.setLost(_pkg.isLost());
+				if (_split.isSacked())
+					_in_fl_sacked += 1;
+				if (_split.isLost())
+					_in_fl_lost += 1;
+				_window.addLast(_split);
+			}
+		}
+		_in_fl = _window;
+
+		// Path may change, schedule a new discovery
+		class Job implements VReactorFunction {
+			@Override
+			public Object execute() throws Exception {
+				if (!_sock_closed && !_failed)
+					_pmtu_start();
+				return null;
+			}
+		}
+		this.getReactor().schedule(new Job(), PMTU_REPROBE_T);
+	}
+
+	// Monotonic transport clock in milliseconds
+	long _clock() {
+		return (System.nanoTime() - _clock_origin)/1000000L;
+	}
+
+	// True if selective acknowledgements are in use for the connection
+	boolean _sack_enabled() {
+		return (_sack && _peer_ext);
+	}
+
+	// Number of in-flight packages which are considered to be in the network
+	int _pipe() {
+		return _in_fl.size() - _in_fl_sacked - _in_fl_lost;
+	}
+
+	/**
+	 * Encodes SACK blocks for out-of-order received data.
+	 *
+	 * <p>Reports the lowest (up to {@link #MAX_SACK_BLOCKS}) contiguous ranges of
+	 * queued data, which identify the holes the peer should fill first.</p>
+	 *
+	 * @return encoded blocks, or null if no blocks should be sent
+	 */
+	byte[] _encode_sack() {
+		if (!this._sack_enabled() || _recv_queue.isEmpty())
+			return null;
+
+		int _num_blocks = Math.min(_recv_queue.getNumRanges(), MAX_SACK_BLOCKS);
+		VByteBuffer _buf = new VByteBuffer();
+		_buf.append(VInteger.posint_to_netbytes(_num_blocks));
+		for (int i = 0; i < _num_blocks; i++) {
+			_buf.append(VInteger.posint_to_netbytes(_recv_queue.getRangeStart(i)));
+			_buf.append(VInteger.posint_to_netbytes(_recv_queue.getRangeEnd(i)));
+		}
+		return _buf.popAll();
+	}
+
+	/**
+	 * Decodes SACK blocks from the current package decoding buffer.
+	 *
+	 * @param ackNum acknowledge number of the package
+	 * @return block start/end positions, or null if format error
+	 */
+	long[] _decode_sack(long ackNum) {
+		NetbytesResult _num = VInteger.netbytes_to_posint(_tmp_buf.peekAll());
+		if (!_num.hasValue())
+			return null;
+		long _num_blocks = _num.getValue().longValue();
+		_tmp_buf.pop(_num.getBytesRead());
+		if (_num_blocks > MAX_SACK_BLOCKS)
+			return null;
+		long[] result = new long[2*(int)_num_blocks];
+		for (int i = 0; i < result.length; i++) {
+			_num = VInteger.netbytes_to_posint(_tmp_buf.peekAll());
+			if (!_num.hasValue())
+				return null;
+			result[i] = _num.getValue().longValue();
+			_tmp_buf.pop(_num.getBytesRead());
+		}
+		for (int i = 0; i < result.length; i += 2)
+			if (result[i] <= ackNum || result[i+1] <= result[i])
+				return null;
+		return result;
+	}
+
+	/**
+	 * Updates the in-flight scoreboard with received SACK blocks.
+	 *
+	 * @param blocks block start/end positions
+	 * @return number of newly acknowledged data bytes
+	 */
+	long _process_sack(long[] blocks) {
+		long result = 0;
+		if (blocks.length == 0)
+			return result;
+		long _now = this._clock();
+		for (int i = 0; i < blocks.length; i += 2) {
+			// Mark packages which are fully covered by the block
+			for (int j = _in_fl.lowerBound(blocks[i]); j < _in_fl.size(); j++) {
+				InFlightPackage _pkg = _in_fl.get(j);
+				if (_pkg.getEnd() > blocks[i+1])
+					break;
+				if (_pkg.isSacked())
+					continue;
+				_pkg.setSacked(true);
+				_in_fl_sacked += 1;
+				result += _pkg.getData().length;
+				if (_pkg.isLost()) {
+					_pkg.setLost(false);
+					_in_fl_lost -= 1;
+				}
+				this._rack_update(_pkg, _now);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Updates RACK state for a delivered package.
+	 *
+	 * @param pkg delivered package
+	 * @param now current time (ms)
+	 */
+	void _rack_update(InFlightPackage pkg, long now) {
+		long _xmit_t = pkg.getTimeStamp();
+		long _rtt = now - _xmit_t;
+		if (pkg.getRetries() > 0 && _min_rtt >= 0 && _rtt < _min_rtt) {
+			// Delivery is likely of an earlier transmission, ignore
+			return;
+		}
+		if (pkg.getRetries() == 0 && (_min_rtt < 0 || _rtt < _min_rtt))
+			_min_rtt = _rtt;
+		long _end = pkg.getEnd();
+		if (_xmit_t > _rack_xmit_t || (_xmit_t == _rack_xmit_t && _end > _rack_end_pos)) {
+			_rack_xmit_t = _xmit_t;
+			_rack_end_pos = _end;
+			_rack_rtt = _rtt;
+		}
+	}
+
+	/**
+	 * Performs time-based loss detection of in-flight packages.
+	 *
+	 * <p>A package is lost if a package sent later was delivered and more than
+	 * the delivered package's RTT plus a reordering window has passed since the
+	 * package was sent, ref. RACK. If a package may later be detected as lost
+	 * a timer is set for re-evaluation.</p>
+	 */
+	void _rack_detect_loss() {
+		if (_rack_xmit_t < 0 || _in_fl.isEmpty())
+			return;
+
+		long _now = this._clock();
+		long _reo_wnd = (_min_rtt > 0) ? (long)(_min_rtt*RACK_REO_WND_FACTOR) : 0L;
+		boolean _detected = false;
+		long _timeout = -1;
+		for (int i = 0; i < _in_fl.size(); i++) {
+			InFlightPackage _pkg = _in_fl.get(i);
+			if (_pkg.isSacked() || _pkg.isLost())
+				continue;
+			long _xmit_t = _pkg.getTimeStamp();
+			if (_xmit_t > _rack_xmit_t)
+				continue;
+			if (_xmit_t == _rack_xmit_t && _pkg.getEnd() > _rack_end_pos)
+				continue;
+			long _remaining = _xmit_t + _rack_rtt + _reo_wnd - _now;
+			if (_remaining <= 0) {
+				_pkg.setLost(true);
+				_in_fl_lost += 1;
+				_detected = true;
+			}
+			else if (_timeout < 0 || _remaining < _timeout)
+				_timeout = _remaining;
+		}
+
+		if (_detected && !_fast_recovery) {
+			// Enter recovery; congestion window is reduced once per window of data
+			_cc.onCongestion(_in_fl.size() - _in_fl_sacked, false, _now);
+			_fast_recovery = true;
+			_recovery_pos = _sbuf_pos;
+		}
+		if (_timeout >= 0)
+			this._set_rto_timer(_timeout);
+	}
+
+	// Re-sends in-flight packages detected as lost, as allowed by congestion window
+	void _retransmit_lost() {
+		for (int i = 0; i < _in_fl.size(); i++) {
+			if (_in_fl_lost == 0 || this._pipe() + 1 > _cc.getWindow())
+				break;
+			InFlightPackage _pkg = _in_fl.get(i);
+			if (_pkg.isLost())
+				this._resend_package(_pkg, false);
+		}
+	}
+
+	/**
+	 * Resolves MTU of the network interface used for the connection.
+	 *
+	 * @return interface MTU (or a default if it cannot be resolved)
+	 */
+	int _interface_mtu() {
+		try {
+			NetworkInterface _iface = null;
+			InetAddress _addr = channel.socket().getLocalAddress();
+			if (_addr != null && !_addr.isAnyLocalAddress())
+				_iface = NetworkInterface.getByInetAddress(_addr);
+			else if (address.getAddress() != null && address.getAddress().isLoopbackAddress())
+				_iface = NetworkInterface.getByInetAddress(address.getAddress());
+			if (_iface != null && _iface.getMTU() > 0)
+				return _iface.getMTU();
+		} catch (Exception e) {
+			// SILENT
+		}
+		return _DEFAULT_MTU;
+	}
+
+	/**
+	 * Sets the 'don't fragment' flag on the channel if supported by the platform.
+	 *
+	 * <p>Setting the socket option requires a runtime which supports it. If not
+	 * supported, DF is determined by the platform's default PMTU discovery policy.</p>
+	 */
+	void _set_dont_fragment() {
+		try {
+			Class<?> _opts = Class.forName("jdk.net.ExtendedSocketOptions");
+			Object _opt = _opts.getField("IP_DONTFRAGMENT").get(null);
+			Class<?> _opt_cls = Class.forName("java.net.SocketOption");
+			Method _set = DatagramChannel.class.getMethod("setOption", _opt_cls, Object.class);
+			_set.invoke(channel, _opt, Boolean.TRUE);
+		} catch (Exception e) {
+			// SILENT
+		}
+	}
+
 	/**
 	 * Fails a connection.
 	 *
@@ -1693,17 +2364,29 @@ public class VUDPTransport extends VIOHandler {
 	}
 
 	class InFlightPackage {
+		long pos;
 		byte[] data;
-		Date t_stamp;
+		long t_stamp;
 		long delay;
 		int retries = 0;
+		boolean sacked = false;
+		boolean lost = false;
 
-		public InFlightPackage(byte[] data, Date timeStamp, long delay) {
+		public InFlightPackage(long pos, byte[] data, long timeStamp, long delay) {
+			this.pos = pos;
 			this.data = data;
 			this.t_stamp = timeStamp;
 			this.delay = delay;
 		}
 
+		public long getPos() {
+			return pos;
+		}
+
+		public long getEnd() {
+			return pos + data.length;
+		}
+
 		public byte[] getData() {
 			return data;
 		}
@@ -1716,11 +2399,11 @@ public class VUDPTransport extends VIOHandler {
 			this.delay = delay;
 		}
 
-		public Date getTimeStamp() {
+		public long getTimeStamp() {
 			return t_stamp;
 		}
 
-		public void setTimeStamp(Date timeStamp) {
+		public void setTimeStamp(long timeStamp) {
 			t_stamp = timeStamp;
 		}
 
@@ -1731,6 +2414,204 @@ public class VUDPTransport extends VIOHandler {
 		public void addRetry() {
 			retries += 1;
 		}
+
+		public boolean isSacked() {
+			return sacked;
+		}
+
+		public void setSacked(boolean sacked) {
+			this.sacked = sacked;
+		}
+
+		public boolean isLost() {
+			return lost;
+		}
+
+		public void setLost(boolean lost) {
+			this.lost = lost;
+		}
+	}
+
+	/**
+	 * Ring buffer of in-flight packages ordered by stream position.
+	 *
+	 * <p>Packages are added at the end and removed from the start as they are
+	 * acknowledged. As in-flight packages are contiguous, a package can be
+	 * looked up from its position by binary search.</p>
+	 */
+	class InFlightWindow {
+		InFlightPackage[] ring = new InFlightPackage[16];
+		int head = 0;
+		int size = 0;
+
+		public int size() {
+			return size;
+		}
+
+		public boolean isEmpty() {
+			return (size == 0);
+		}
+
+		public InFlightPackage get(int index) {
+			return ring[(head + index) & (ring.length - 1)];
+		}
+
+		public InFlightPackage getFirst() {
+			return ring[head];
+		}
+
+		public void addLast(InFlightPackage pkg) {
+			if (size == ring.length) {
+				InFlightPackage[] _ring = new InFlightPackage[2*ring.length];
+				for (int i = 0; i < size; i++)
+					_ring[i] = this.get(i);
+				ring = _ring;
+				head = 0;
+			}
+			ring[(head + size) & (ring.length - 1)] = pkg;
+			size += 1;
+		}
+
+		public InFlightPackage removeFirst() {
+			InFlightPackage result = ring[head];
+			ring[head] = null;
+			head = (head + 1) & (ring.length - 1);
+			size -= 1;
+			return result;
+		}
+
+		// Index of first package with position at or after 'pos'
+		public int lowerBound(long pos) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (this.get(mid).getPos() < pos)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			return low;
+		}
+
+		// Index of package at 'pos', or -1
+		public int indexOf(long pos) {
+			int index = this.lowerBound(pos);
+			if (index < size && this.get(index).getPos() == pos)
+				return index;
+			return -1;
+		}
+
+		// Index of package which ends at 'end', or -1
+		public int indexOfEnd(long end) {
+			int index = this.lowerBound(end) - 1;
+			if (index >= 0 && this.get(index).getEnd() == end)
+				return index;
+			return -1;
+		}
+	}
+
+	/**
+	 * Receive window for out-of-order data.
+	 *
+	 * <p>Data is stored in a ring buffer indexed by stream position modulo the
+	 * buffer length, and tracked as a sorted list of disjoint received ranges.
+	 * The buffer length must be at least the receive window, so data within
+	 * the window has distinct buffer positions. Overlapping and re-sent
+	 * segments are merged.</p>
+	 */
+	class RecvWindow {
+		byte[] ring;
+		long[] starts = new long[8];
+		long[] ends = new long[8];
+		int num = 0;
+
+		public RecvWindow(int length) {
+			ring = new byte[length];
+		}
+
+		public boolean isEmpty() {
+			return (num == 0);
+		}
+
+		public int getNumRanges() {
+			return num;
+		}
+
+		public long getRangeStart(int index) {
+			return starts[index];
+		}
+
+		public long getRangeEnd(int index) {
+			return ends[index];
+		}
+
+		public long getLastEnd() {
+			return ends[num-1];
+		}
+
+		// Adds data received at stream position 'pos'
+		public void put(long pos, byte[] data) {
+			int _offset = (int)(pos % ring.length);
+			int _len = Math.min(data.length, ring.length - _offset);
+			System.arraycopy(data, 0, ring, _offset, _len);
+			if (_len < data.length)
+				System.arraycopy(data, _len, ring, 0, data.length - _len);
+
+			// Merge with overlapping or adjacent ranges
+			long _start = pos;
+			long _end = pos + data.length;
+			int _first = 0;
+			while (_first < num && ends[_first] < _start)
+				_first++;
+			int _last = _first;
+			while (_last < num && starts[_last] <= _end) {
+				_start = Math.min(_start, starts[_last]);
+				_end = Math.max(_end, ends[_last]);
+				_last++;
+			}
+			int _removed = _last - _first;
+			if (_removed == 0) {
+				if (num == starts.length) {
+					starts = Arrays.copyOf(starts, 2*num);
+					ends = Arrays.copyOf(ends, 2*num);
+				}
+				System.arraycopy(starts, _first, starts, _first+1, num - _first);
+				System.arraycopy(ends, _first, ends, _first+1, num - _first);
+				num += 1;
+			}
+			else if (_removed > 1) {
+				System.arraycopy(starts, _last, starts, _first+1, num - _last);
+				System.arraycopy(ends, _last, ends, _first+1, num - _last);
+				num -= _removed - 1;
+			}
+			starts[_first] = _start;
+			ends[_first] = _end;
+		}
+
+		// Removes and returns data from 'pos' to the end of the range which
+		// includes 'pos', or null if 'pos' is not received
+		public byte[] take(long pos) {
+			int _drop = 0;
+			while (_drop < num && ends[_drop] <= pos)
+				_drop++;
+			byte[] result = null;
+			if (_drop < num && starts[_drop] <= pos) {
+				result = new byte[(int)(ends[_drop] - pos)];
+				int _offset = (int)(pos % ring.length);
+				int _len = Math.min(result.length, ring.length - _offset);
+				System.arraycopy(ring, _offset, result, 0, _len);
+				if (_len < result.length)
+					System.arraycopy(ring, 0, result, _len, result.length - _len);
+				_drop++;
+			}
+			if (_drop > 0) {
+				System.arraycopy(starts, _drop, starts, 0, num - _drop);
+				System.arraycopy(ends, _drop, ends, 0, num - _drop);
+				num -= _drop;
+			}
+			return result;
+		}
 	}
 
 	class TransportConsumer implements VByteConsumer {
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.reactor.io.vudp;
+
+
+/**
+ * Configuration parameters for a {@link VUDPTransport}.
+ *
+ * <p>Buffer length is the length of the transport's receive and send
+ * buffers. Default is 65535.</p>
+ *
+ * <p>If PMTU discovery is enabled (the default), the transport advertises
+ * support for protocol extensions and, if the peer also supports them, probes
+ * the network path with non-fragmenting datagrams after the protocol handshake
+ * in order to negotiate a segment size larger than the 576-byte IPv4 minimum.
+ * Probing starts from the MTU of the local interface. If large segments are
+ * later lost on the path (a PMTU 'black hole'), the transport falls back to
+ * the minimum segment size.</p>
+ *
+ * <p>Segment size is a static override of the maximum datagram size (UDP
+ * payload, including VUDP headers). If positive, discovery is not performed
+ * by search and the transport instead confirms the configured size with a
+ * single probe size. The value must be at least the minimum segment size
+ * {@link VUDPTransport#MIN_SEGMENT_SIZE}. Default is 0 (not set).</p>
+ *
+ * <p>If SACK is enabled (the default) and the peer supports protocol
+ * extensions, packages acknowledge out-of-order received data with selective
+ * acknowledgement blocks, and the sender uses a scoreboard of selectively
+ * acknowledged data with time-based (RACK) loss detection so only missing
+ * segments are re-sent.</p>
+ *
+ * <p>Congestion control is the name of the congestion control algorithm, one
+ * of {@link VUDPCongestionControl#RENO} (the default, unpaced),
+ * {@link VUDPCongestionControl#CUBIC} or {@link VUDPCongestionControl#BBR}
+ * (both paced). Congestion control is local to the sender and does not need
+ * to be negotiated with the peer.</p>
+ *
+ * <p>If all of PMTU discovery, segment size and SACK are disabled, the
+ * transport does not advertise protocol extensions and communicates strictly
+ * with the VUDPTransport-0.8 package format.</p>
+ */
+public class VUDPTransportConfig {
+
+	// When adding fields remember to update copyTo()
+	int buf_len = 65535;
+	boolean pmtu_discovery = true;
+	int segment_size = 0;
+	boolean sack = true;
+	String congestion_control = VUDPCongestionControl.RENO;
+
+	@Override
+	public VUDPTransportConfig clone() {
+		VUDPTransportConfig result = new VUDPTransportConfig();
+		this.copyTo(result);
+		return result;
+	}
+
+	public int getBufLen() {
+		return buf_len;
+	}
+
+	public void setBufLen(int buf_len) {
+		this.buf_len = buf_len;
+	}
+
+	public boolean isPmtuDiscovery() {
+		return pmtu_discovery;
+	}
+
+	public void setPmtuDiscovery(boolean pmtu_discovery) {
+		this.pmtu_discovery = pmtu_discovery;
+	}
+
+	public int getSegmentSize() {
+		return segment_size;
+	}
+
+	public void setSegmentSize(int segment_size) {
+		if (segment_size > 0 && segment_size < VUDPTransport.MIN_SEGMENT_SIZE)
+			throw new IllegalArgumentException("Segment size below minimum");
+		if (segment_size > VUDPTransport._MAX_DGRAM)
+			throw new IllegalArgumentException("Segment size exceeds max datagram size");
+		this.segment_size = segment_size;
+	}
+
+	public boolean isSack() {
+		return sack;
+	}
+
+	public void setSack(boolean sack) {
+		this.sack = sack;
+	}
+
+	public String getCongestionControl() {
+		return congestion_control;
+	}
+
+	public void setCongestionControl(String congestion_control) {
+		// Validates the name
+		VUDPCongestionControl.create(congestion_control);
+		this.congestion_control = congestion_control;
+	}
+
+	protected void copyTo(VUDPTransportConfig config) {
+		config.buf_len = buf_len;
+		config.pmtu_discovery = pmtu_discovery;
+		config.segment_size = segment_size;
+		config.sack = sack;
+		config.congestion_control = congestion_control;
+	}
+}
@@ -169,7 +169,8 @@ public class VOPService extends VReactorService {
 		}
 		VOPBridge.TransportFactory tls_factory = null; // TLS not yet supported
 		boolean allow_insecure = service_conf.isInsecureEnabled();
-		VOPServerBridge vop = new VOPServerBridge(reactor, vec.getByteIOPair(), vts_factory, tls_factory, allow_insecure);
+		VOPServerBridge vop = new VOPServerBridge(reactor, vec.getByteIOPair(), vts_factory, tls_factory, allow_insecure,
+												  service_conf.getCompressionConfig());
 		return new ByteAgent(vop.getExternalConsumer(), vop.getExternalProducer());
 	}
 
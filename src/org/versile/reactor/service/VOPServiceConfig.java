@@ -21,6 +21,7 @@
 package org.versile.reactor.service;
 
 import org.versile.reactor.io.link.VLinkAgentConfig;
+import org.versile.reactor.io.vcomp.VCompressionChannelConfig;
 import org.versile.reactor.io.vec.VEntityChannelConfig;
 import org.versile.reactor.io.vts.VSecureChannelConfig;
 
@@ -48,6 +49,10 @@ import org.versile.reactor.io.vts.VSecureChannelConfig;
  *   <li><i>insecureEnabled</i> if true means insecure plaintext transport is allowed for
  *   VOP connections. The default is false (only secure connections allowed).</li>
  *
+ *   <li><i>compressionConfig</i> if not null means compression is accepted if
+ *   offered by a client during VOP negotiation, with the codecs and parameters
+ *   of the config object. The default is null (no compression).</li>
+ *
  * </ul>
  */
 public class VOPServiceConfig extends VReactorServiceConfig {
@@ -58,6 +63,7 @@ public class VOPServiceConfig extends VReactorServiceConfig {
 	boolean vtsEnabled = true;
 	VSecureChannelConfig vtsConfig;
 	boolean insecureEnabled = false;
+	VCompressionChannelConfig compressionConfig = null;
 
 	public VOPServiceConfig() {
 		vecConfig = new VEntityChannelConfig();
@@ -112,6 +118,14 @@ public class VOPServiceConfig extends VReactorServiceConfig {
 		this.insecureEnabled = insecureEnabled;
 	}
 
+	public VCompressionChannelConfig getCompressionConfig() {
+		return compressionConfig;
+	}
+
+	public void setCompressionConfig(VCompressionChannelConfig compressionConfig) {
+		this.compressionConfig = compressionConfig;
+	}
+
 	protected void copyTo(VOPServiceConfig config) {
 		super.copyTo(config);
 		if (vecConfig != null)
@@ -126,6 +140,10 @@ public class VOPServiceConfig extends VReactorServiceConfig {
 			config.vtsConfig = vtsConfig.clone();
 		else
 			config.vtsConfig = null;
+		if (compressionConfig != null)
+			config.compressionConfig = compressionConfig.clone();
+		else
+			config.compressionConfig = null;
 
 		config.vtsEnabled = vtsEnabled;
 		config.insecureEnabled = insecureEnabled;
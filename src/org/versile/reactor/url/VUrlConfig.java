@@ -25,6 +25,7 @@ import org.versile.orb.entity.VObject;
 import org.versile.reactor.VReactor;
 import org.versile.reactor.io.link.VLinkAgentConfig;
 import org.versile.reactor.io.sock.VClientSocketConfig;
+import org.versile.reactor.io.vcomp.VCompressionChannelConfig;
 import org.versile.reactor.io.vec.VEntityChannelConfig;
 import org.versile.reactor.io.vts.VSecureChannelConfig;
 
@@ -50,6 +51,11 @@ import org.versile.reactor.io.vts.VSecureChannelConfig;
  * <p>'insecureEnabled' if true means insecure plaintext transport is allowed for
  * VOP connections. The default is false (only secure connections allowed).</p>
  *
+ * <p>'compressionConfig' if not null means compression is offered during VOP
+ * negotiation, with the codecs and parameters of the config object. The default
+ * is null (no compression), as peers which do not support compression reject
+ * a connection which offers it.</p>
+ *
  * <p>'localGateway' is not null is a local gateway object provided to the link peer
  * during link handshake.</p>
  *
@@ -73,6 +79,7 @@ public class VUrlConfig {
 
 	boolean vtsEnabled = true;
 	boolean insecureEnabled = false;
+	VCompressionChannelConfig compressionConfig = null;
 	VObject localGateway = null;
 	VReactor reactor = null;
 	VProcessor processor = null;
@@ -140,6 +147,14 @@ public class VUrlConfig {
 		this.insecureEnabled = insecureEnabled;
 	}
 
+	public VCompressionChannelConfig getCompressionConfig() {
+		return compressionConfig;
+	}
+
+	public void setCompressionConfig(VCompressionChannelConfig compressionConfig) {
+		this.compressionConfig = compressionConfig;
+	}
+
 	public VObject getLocalGateway() {
 		return localGateway;
 	}
@@ -185,6 +200,11 @@ public class VUrlConfig {
 		else
 			config.socketConfig = null;
 
+		if (compressionConfig != null)
+			config.compressionConfig = compressionConfig.clone();
+		else
+			config.compressionConfig = null;
+
 		config.vtsEnabled = vtsEnabled;
 		config.insecureEnabled = insecureEnabled;
 		config.localGateway = localGateway;
@@ -117,7 +117,8 @@ class VopUrl extends VUrl {
 					}
 					VOPBridge.TransportFactory tls_factory = null; // TLS not yet supported
 					boolean allow_insecure = config.isInsecureEnabled();
-					vop = new VOPClientBridge(reactor, vec.getByteIOPair(), vts_factory, tls_factory, allow_insecure);
+					vop = new VOPClientBridge(reactor, vec.getByteIOPair(), vts_factory, tls_factory, allow_insecure,
+											  config.getCompressionConfig());
 
 					// Set up a socket channel and connect to the VOP bridge
 					SocketChannel channel = SocketChannel.open();
@@ -42,6 +42,7 @@ import org.versile.vse.vnative.VNativeModule;
 public class VSEResolver extends VModuleResolver {
 
 	static boolean _lazy_arrays = false;
+	static boolean _primitive_arrays = false;
 
 	/**
 	 * Set up resolver which includes all VSE types.
@@ -133,4 +134,43 @@ public class VSEResolver extends VModuleResolver {
 	public static void enableLazyArrays(boolean status) {
 		_lazy_arrays = status;
 	}
+
+	/**
+	 * Get global primitive arrays status.
+	 *
+	 * <p>See {@link #enablePrimitiveArrays(boolean)}.</p>
+	 *
+	 * @return true if enabled, otherwise false
+	 */
+	public static boolean primitiveArrays() {
+		return _primitive_arrays;
+	}
+
+	/**
+	 * Enables primitive arrays globally.
+	 *
+	 * <p>See {@link #enablePrimitiveArrays(boolean)}. Equivalent to
+	 * enablePrimitiveArrays(true).</p>
+	 */
+	public static void enablePrimitiveArrays() {
+		VSEResolver.enablePrimitiveArrays(true);
+	}
+
+	/**
+	 * Set global primitive arrays status.
+	 *
+	 * <p>Enabling primitive arrays causes native conversion of
+	 * {@link org.versile.vse.container.VArrayOfInt},
+	 * {@link org.versile.vse.container.VArrayOfLong},
+	 * {@link org.versile.vse.container.VArrayOfFloat} and
+	 * {@link org.versile.vse.container.VArrayOfDouble} to produce int[],
+	 * long[], float[] and double[] instead of arrays of boxed values, which
+	 * avoids allocating an object per element for large arrays. Default is
+	 * disabled, for compatibility with code which expects boxed arrays.</p>
+	 *
+	 * @param status if true enable (globally), otherwise disable
+	 */
+	public static void enablePrimitiveArrays(boolean status) {
+		_primitive_arrays = status;
+	}
 }
@@ -20,8 +20,8 @@
 
 package org.versile.vse.container;
 
-import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Vector;
 
 import org.versile.common.util.VCombiner;
@@ -35,6 +35,10 @@ import org.versile.orb.entity.VTagged;
 /**
  * Base class for VSE arrays with elements of certain type.
  *
+ * <p>Elements are held in {@link #array}, unless a derived class holds
+ * elements in a different form and overrides {@link #getLength()},
+ * {@link #getElement(int)} and {@link #_v_native_converter()}.</p>
+ *
  * @param <T> local associated type
  */
 public abstract class VArrayOf<T> extends VEntity implements Iterable<T> {
@@ -52,9 +56,33 @@ public abstract class VArrayOf<T> extends VEntity implements Iterable<T> {
 			this.array[i] = array[i];
 	}
 
+	/**
+	 * Set up for a derived class which does not hold elements in {@link #array}.
+	 */
+	protected VArrayOf() {
+		this.array = null;
+	}
+
 	@Override
 	public Iterator<T> iterator() {
-		return Arrays.asList(array).iterator();
+		class ArrayIterator implements Iterator<T> {
+			int index = 0;
+			@Override
+			public boolean hasNext() {
+				return index < getLength();
+			}
+			@Override
+			public T next() {
+				if (index >= getLength())
+					throw new NoSuchElementException();
+				return getElement(index++);
+			}
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}
+		return new ArrayIterator();
 	}
 
 	/**
@@ -78,17 +106,15 @@ public abstract class VArrayOf<T> extends VEntity implements Iterable<T> {
 
 	@Override
 	public String toString() {
-		String result = "[";
-		boolean first = true;
-		for (T t: array) {
-			if (first)
-				first = false;
-			else
-				result += ", ";
-			result += t;
+		StringBuilder result = new StringBuilder("[");
+		int length = this.getLength();
+		for (int i = 0; i < length; i++) {
+			if (i > 0)
+				result.append(", ");
+			result.append(this.getElement(i));
 		}
-		result += "]";
-		return result;
+		result.append("]");
+		return result.toString();
 	}
 
 	/**
@@ -21,7 +21,7 @@
 package org.versile.vse.container;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.util.Vector;
 
 import org.versile.common.util.VCombiner;
@@ -35,11 +35,19 @@ import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VTagged;
 import org.versile.orb.module.VModuleDecoder;
 import org.versile.orb.module.VModuleError;
+import org.versile.vse.VSEResolver;
 import org.versile.vse.VSECode;
 
 
 /**
  * Implements the VArrayOfDouble VSE type.
+ *
+ * <p>Elements are held as primitive values. An array decoded from serialized
+ * data holds a view of the serialized data, which is also re-used if the
+ * array is serialized again. Elements can be retrieved without boxing with
+ * {@link #getDouble(int)} and {@link #toDoubleArray()}, and native
+ * conversion produces double[] if enabled by
+ * {@link org.versile.vse.VSEResolver#enablePrimitiveArrays(boolean)}.</p>
  */
 public class VArrayOfDouble extends VArrayOf<Double> {
 
@@ -50,26 +58,105 @@ public class VArrayOfDouble extends VArrayOf<Double> {
 							              new VInteger[] {new VInteger(0), new VInteger(8)},
 							              new VObjectIdentifier(1, 8));
 
+	DoubleBuffer values;                // elements, position always zero
+	byte[] data = null;                 // serialized elements (or null)
+
 	/**
 	 * Create array with provided elements.
 	 *
 	 * @param array array elements
 	 */
 	public VArrayOfDouble(Double[] array) {
-		super(array);
+		super();
+		double[] _values = new double[array.length];
+		for (int i = 0; i < _values.length; i++)
+			_values[i] = array[i];
+		values = DoubleBuffer.wrap(_values);
+	}
+
+	/**
+	 * Create array with provided elements.
+	 *
+	 * @param array array elements (copied)
+	 */
+	public VArrayOfDouble(double[] array) {
+		super();
+		values = DoubleBuffer.wrap(array.clone());
+	}
+
+	// Creates array which holds provided elements without copying
+	VArrayOfDouble(DoubleBuffer values) {
+		super();
+		this.values = values;
+	}
+
+	// Creates array as a view of serialized elements
+	VArrayOfDouble(byte[] data) {
+		super();
+		this.values = ByteBuffer.wrap(data).asDoubleBuffer();
+		this.data = data;
+	}
+
+	@Override
+	public int getLength() {
+		return values.limit();
+	}
+
+	@Override
+	public Double getElement(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array element at index.
+	 *
+	 * @param index array index
+	 * @return array element
+	 */
+	public double getDouble(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array elements.
+	 *
+	 * @return copy of array elements
+	 */
+	public double[] toDoubleArray() {
+		double[] result = new double[values.limit()];
+		values.duplicate().get(result);
+		return result;
 	}
 
 	@Override
 	public VTagged _v_as_tagged(VIOContext ctx) {
 		VEntity[] tags = VArrayOfDouble.VSE_CODE.getTags(ctx);
-		ByteBuffer buf = ByteBuffer.allocate(8*array.length);
-		buf.order(ByteOrder.BIG_ENDIAN);
-		for (int i = 0; i < array.length; i++)
-			buf.putLong(i*8, Double.doubleToRawLongBits(array[i]));
-		VEntity value = new VBytes(buf.array());
+		byte[] _data = data;
+		if (_data == null) {
+			ByteBuffer buf = ByteBuffer.allocate(8*values.limit());
+			buf.asDoubleBuffer().put(values.duplicate());
+			_data = buf.array();
+		}
+		VEntity value = new VBytes(_data);
 		return new VTagged(value, tags);
 	}
 
+	@Override
+	public VCombiner.Pair _v_native_converter() {
+		Object result;
+		if (VSEResolver.primitiveArrays())
+			result = this.toDoubleArray();
+		else {
+			Double[] _result = new Double[values.limit()];
+			for (int i = 0; i < _result.length; i++)
+				_result[i] = values.get(i);
+			result = _result;
+		}
+		Vector<Object> comb_items = new Vector<Object>();
+		comb_items.add(result);
+		return new VCombiner.Pair(VCombiner.identity(), comb_items);
+	}
+
 	/**
 	 * Get VSE decoder for tag data.
 	 *
@@ -92,13 +179,7 @@ public class VArrayOfDouble extends VArrayOf<Double> {
 				if (data.length % 8 != 0)
 					throw new VModuleError("VSE encoded byte array must be multiple of 8");
 
-				int len = data.length/8;
-				Double[] array = new Double[len];
-				ByteBuffer buf = ByteBuffer.wrap(data);
-				buf.order(ByteOrder.BIG_ENDIAN);
-				for (int i = 0; i < len; i++)
-					array[i] = Double.longBitsToDouble(buf.getLong(i*8));
-				VArrayOfDouble result = new VArrayOfDouble(array);
+				VArrayOfDouble result = new VArrayOfDouble(data);
 
 				Vector<Object> comb_items = new Vector<Object>();
 				comb_items.add(result);
@@ -111,8 +192,8 @@ public class VArrayOfDouble extends VArrayOf<Double> {
 	/**
 	 * Converts input to a {@link VArrayOfDouble}.
 	 *
-	 * <p>{@link VArrayOfDouble} is returned as-is, and {@link VArrayOfFloat}, Double[] or Float[]
-	 * is converted to the return type. Any other input raises an exception.</p>
+	 * <p>{@link VArrayOfDouble} is returned as-is, and {@link VArrayOfFloat}, Double[], double[],
+	 * Float[] or float[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -125,15 +206,24 @@ public class VArrayOfDouble extends VArrayOf<Double> {
 
 		if (value instanceof Double[])
 			return new VArrayOfDouble((Double[]) value);
+		if (value instanceof double[])
+			return new VArrayOfDouble((double[]) value);
 
-		if (value instanceof VArrayOfFloat)
-			value = VArrayOfFloat.nativeOf(value);
 		if (value instanceof Float[]) {
 			Float[] vals = (Float[]) value;
-			Double[] array = new Double[vals.length];
+			double[] array = new double[vals.length];
+			for (int i = 0; i < array.length; i++)
+				array[i] = vals[i];
+			return new VArrayOfDouble(DoubleBuffer.wrap(array));
+		}
+		if (value instanceof VArrayOfFloat)
+			value = ((VArrayOfFloat)value).toFloatArray();
+		if (value instanceof float[]) {
+			float[] vals = (float[]) value;
+			double[] array = new double[vals.length];
 			for (int i = 0; i < array.length; i++)
-				array[i] = Double.valueOf(vals[i]);
-			return new VArrayOfDouble(array);
+				array[i] = vals[i];
+			return new VArrayOfDouble(DoubleBuffer.wrap(array));
 		}
 
 		throw new VEntityError("Cannot convert input value");
@@ -142,8 +232,8 @@ public class VArrayOfDouble extends VArrayOf<Double> {
 	/**
 	 * Converts input to a Double[].
 	 *
-	 * <p>Double[] is returned as-is, and {@link VArrayOfFloat}, {@link VArrayOfDouble} or Float[]
-	 * is converted to the return type. Any other input raises an exception.</p>
+	 * <p>Double[] is returned as-is, and {@link VArrayOfFloat}, {@link VArrayOfDouble}, double[],
+	 * Float[] or float[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -154,26 +244,11 @@ public class VArrayOfDouble extends VArrayOf<Double> {
 		if (value instanceof Double[])
 			return (Double[]) value;
 
-		if (value instanceof VArrayOfDouble) {
-			VArrayOfDouble arr = (VArrayOfDouble) value;
-			Double[] array = new Double[arr.getLength()];
-			int index = 0;
-			for (Double l: arr)
-				array[index++] = l;
-			return array;
-		}
-
-		if (value instanceof VArrayOfFloat)
-			value = VArrayOfFloat.nativeOf(value);
-		if (value instanceof Float[]) {
-			Float[] vals = (Float[]) value;
-			Double[] array = new Double[vals.length];
-			for (int i = 0; i < array.length; i++)
-				array[i] = Double.valueOf(vals[i]);
-			return array;
-		}
-
-		throw new VEntityError("Cannot convert input value");
+		VArrayOfDouble arr = VArrayOfDouble.valueOf(value);
+		Double[] array = new Double[arr.getLength()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = arr.values.get(i);
+		return array;
 	}
 
 	/**
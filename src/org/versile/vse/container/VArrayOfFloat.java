@@ -21,7 +21,7 @@
 package org.versile.vse.container;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.Vector;
 
 import org.versile.common.util.VCombiner;
@@ -35,11 +35,19 @@ import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VTagged;
 import org.versile.orb.module.VModuleDecoder;
 import org.versile.orb.module.VModuleError;
+import org.versile.vse.VSEResolver;
 import org.versile.vse.VSECode;
 
 
 /**
- * Implements the VArrayOfDouble VSE type.
+ * Implements the VArrayOfFloat VSE type.
+ *
+ * <p>Elements are held as primitive values. An array decoded from serialized
+ * data holds a view of the serialized data, which is also re-used if the
+ * array is serialized again. Elements can be retrieved without boxing with
+ * {@link #getFloat(int)} and {@link #toFloatArray()}, and native
+ * conversion produces float[] if enabled by
+ * {@link org.versile.vse.VSEResolver#enablePrimitiveArrays(boolean)}.</p>
  */
 public class VArrayOfFloat extends VArrayOf<Float> {
 
@@ -50,26 +58,105 @@ public class VArrayOfFloat extends VArrayOf<Float> {
 							              new VInteger[] {new VInteger(0), new VInteger(8)},
 							              new VObjectIdentifier(1, 7));
 
+	FloatBuffer values;                 // elements, position always zero
+	byte[] data = null;                 // serialized elements (or null)
+
 	/**
 	 * Create array with provided elements.
 	 *
 	 * @param array array elements
 	 */
 	public VArrayOfFloat(Float[] array) {
-		super(array);
+		super();
+		float[] _values = new float[array.length];
+		for (int i = 0; i < _values.length; i++)
+			_values[i] = array[i];
+		values = FloatBuffer.wrap(_values);
+	}
+
+	/**
+	 * Create array with provided elements.
+	 *
+	 * @param array array elements (copied)
+	 */
+	public VArrayOfFloat(float[] array) {
+		super();
+		values = FloatBuffer.wrap(array.clone());
+	}
+
+	// Creates array which holds provided elements without copying
+	VArrayOfFloat(FloatBuffer values) {
+		super();
+		this.values = values;
+	}
+
+	// Creates array as a view of serialized elements
+	VArrayOfFloat(byte[] data) {
+		super();
+		this.values = ByteBuffer.wrap(data).asFloatBuffer();
+		this.data = data;
+	}
+
+	@Override
+	public int getLength() {
+		return values.limit();
+	}
+
+	@Override
+	public Float getElement(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array element at index.
+	 *
+	 * @param index array index
+	 * @return array element
+	 */
+	public float getFloat(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array elements.
+	 *
+	 * @return copy of array elements
+	 */
+	public float[] toFloatArray() {
+		float[] result = new float[values.limit()];
+		values.duplicate().get(result);
+		return result;
 	}
 
 	@Override
 	public VTagged _v_as_tagged(VIOContext ctx) {
 		VEntity[] tags = VArrayOfFloat.VSE_CODE.getTags(ctx);
-		ByteBuffer buf = ByteBuffer.allocate(4*array.length);
-		buf.order(ByteOrder.BIG_ENDIAN);
-		for (int i = 0; i < array.length; i++)
-			buf.putInt(i*4, Float.floatToRawIntBits(array[i]));
-		VEntity value = new VBytes(buf.array());
+		byte[] _data = data;
+		if (_data == null) {
+			ByteBuffer buf = ByteBuffer.allocate(4*values.limit());
+			buf.asFloatBuffer().put(values.duplicate());
+			_data = buf.array();
+		}
+		VEntity value = new VBytes(_data);
 		return new VTagged(value, tags);
 	}
 
+	@Override
+	public VCombiner.Pair _v_native_converter() {
+		Object result;
+		if (VSEResolver.primitiveArrays())
+			result = this.toFloatArray();
+		else {
+			Float[] _result = new Float[values.limit()];
+			for (int i = 0; i < _result.length; i++)
+				_result[i] = values.get(i);
+			result = _result;
+		}
+		Vector<Object> comb_items = new Vector<Object>();
+		comb_items.add(result);
+		return new VCombiner.Pair(VCombiner.identity(), comb_items);
+	}
+
 	/**
 	 * Get VSE decoder for tag data.
 	 *
@@ -90,15 +177,9 @@ public class VArrayOfFloat extends VArrayOf<Float> {
 					throw new VModuleError("Illegal VSE encoding");
 				}
 				if (data.length % 4 != 0)
-					throw new VModuleError("VSE encoded byte array must be multiple of 8");
+					throw new VModuleError("VSE encoded byte array must be multiple of 4");
 
-				int len = data.length/4;
-				Float[] array = new Float[len];
-				ByteBuffer buf = ByteBuffer.wrap(data);
-				buf.order(ByteOrder.BIG_ENDIAN);
-				for (int i = 0; i < len; i++)
-					array[i] = Float.intBitsToFloat(buf.getInt(i*4));
-				VArrayOfFloat result = new VArrayOfFloat(array);
+				VArrayOfFloat result = new VArrayOfFloat(data);
 
 				Vector<Object> comb_items = new Vector<Object>();
 				comb_items.add(result);
@@ -111,8 +192,8 @@ public class VArrayOfFloat extends VArrayOf<Float> {
 	/**
 	 * Converts input to a {@link VArrayOfFloat}.
 	 *
-	 * <p>{@link VArrayOfFloat} is returned as-is, and {@link VArrayOfDouble}, Double[] or Float[]
-	 * is converted to the return type. Any other input raises an exception.</p>
+	 * <p>{@link VArrayOfFloat} is returned as-is, and {@link VArrayOfDouble}, Float[], float[],
+	 * Double[] or double[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -125,12 +206,28 @@ public class VArrayOfFloat extends VArrayOf<Float> {
 
 		if (value instanceof Float[])
 			return new VArrayOfFloat((Float[]) value);
+		if (value instanceof float[])
+			return new VArrayOfFloat((float[]) value);
 
-		if (value instanceof VArrayOfDouble)
-			value = VArrayOfDouble.nativeOf(value);
 		if (value instanceof Double[]) {
-			Float[] array = VArrayOfFloat.nativeOf(value);
-			return new VArrayOfFloat(array);
+			Double[] vals = (Double[]) value;
+			double[] _vals = new double[vals.length];
+			for (int i = 0; i < _vals.length; i++)
+				_vals[i] = vals[i];
+			value = _vals;
+		}
+		else if (value instanceof VArrayOfDouble)
+			value = ((VArrayOfDouble)value).toDoubleArray();
+		if (value instanceof double[]) {
+			double[] vals = (double[]) value;
+			float[] array = new float[vals.length];
+			for (int i = 0; i < array.length; i++) {
+				float _val = (float)vals[i];
+				if ((double)_val != vals[i])
+					throw new VEntityError("Cannot convert from double without loss of precision");
+				array[i] = _val;
+			}
+			return new VArrayOfFloat(FloatBuffer.wrap(array));
 		}
 
 		throw new VEntityError("Cannot convert input value");
@@ -139,8 +236,8 @@ public class VArrayOfFloat extends VArrayOf<Float> {
 	/**
 	 * Converts input to a Float[].
 	 *
-	 * <p>Float[] is returned as-is, and {@link VArrayOfFloat}, {@link VArrayOfDouble} or Double[] is
-	 * converted to the return type. Any other input raises an exception.</p>
+	 * <p>Float[] is returned as-is, and {@link VArrayOfDouble}, {@link VArrayOfFloat}, float[],
+	 * Double[] or double[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -151,30 +248,11 @@ public class VArrayOfFloat extends VArrayOf<Float> {
 		if (value instanceof Float[])
 			return (Float[]) value;
 
-		if (value instanceof VArrayOfFloat) {
-			VArrayOfFloat arr = (VArrayOfFloat) value;
-			Float[] array = new Float[arr.getLength()];
-			int index = 0;
-			for (Float l: arr)
-				array[index++] = l;
-			return array;
-		}
-
-		if (value instanceof VArrayOfDouble)
-			value = VArrayOfDouble.nativeOf(value);
-		if (value instanceof Double[]) {
-			Double[] vals = (Double[]) value;
-			Float[] array = new Float[vals.length];
-			for (int i = 0; i < array.length; i++) {
-				float _val = vals[i].floatValue();
-				if ((double)_val != vals[i])
-					throw new VEntityError("Cannot convert from double without loss of precision");
-				array[i] = _val;
-			}
-			return array;
-		}
-
-		throw new VEntityError("Cannot convert input value");
+		VArrayOfFloat arr = VArrayOfFloat.valueOf(value);
+		Float[] array = new Float[arr.getLength()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = arr.values.get(i);
+		return array;
 	}
 
 	/**
@@ -21,7 +21,7 @@
 package org.versile.vse.container;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.util.Vector;
 
 import org.versile.common.util.VCombiner;
@@ -35,11 +35,19 @@ import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VTagged;
 import org.versile.orb.module.VModuleDecoder;
 import org.versile.orb.module.VModuleError;
+import org.versile.vse.VSEResolver;
 import org.versile.vse.VSECode;
 
 
 /**
  * Implements the VArrayOfInt VSE type.
+ *
+ * <p>Elements are held as primitive values. An array decoded from serialized
+ * data holds a view of the serialized data, which is also re-used if the
+ * array is serialized again. Elements can be retrieved without boxing with
+ * {@link #getInt(int)} and {@link #toIntArray()}, and native
+ * conversion produces int[] if enabled by
+ * {@link org.versile.vse.VSEResolver#enablePrimitiveArrays(boolean)}.</p>
  */
 public class VArrayOfInt extends VArrayOf<Integer> {
 
@@ -50,26 +58,105 @@ public class VArrayOfInt extends VArrayOf<Integer> {
 							              new VInteger[] {new VInteger(0), new VInteger(8)},
 							              new VObjectIdentifier(1, 4));
 
+	IntBuffer values;                   // elements, position always zero
+	byte[] data = null;                 // serialized elements (or null)
+
 	/**
 	 * Create array with provided elements.
 	 *
 	 * @param array array elements
 	 */
 	public VArrayOfInt(Integer[] array) {
-		super(array);
+		super();
+		int[] _values = new int[array.length];
+		for (int i = 0; i < _values.length; i++)
+			_values[i] = array[i];
+		values = IntBuffer.wrap(_values);
+	}
+
+	/**
+	 * Create array with provided elements.
+	 *
+	 * @param array array elements (copied)
+	 */
+	public VArrayOfInt(int[] array) {
+		super();
+		values = IntBuffer.wrap(array.clone());
+	}
+
+	// Creates array which holds provided elements without copying
+	VArrayOfInt(IntBuffer values) {
+		super();
+		this.values = values;
+	}
+
+	// Creates array as a view of serialized elements
+	VArrayOfInt(byte[] data) {
+		super();
+		this.values = ByteBuffer.wrap(data).asIntBuffer();
+		this.data = data;
+	}
+
+	@Override
+	public int getLength() {
+		return values.limit();
+	}
+
+	@Override
+	public Integer getElement(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array element at index.
+	 *
+	 * @param index array index
+	 * @return array element
+	 */
+	public int getInt(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array elements.
+	 *
+	 * @return copy of array elements
+	 */
+	public int[] toIntArray() {
+		int[] result = new int[values.limit()];
+		values.duplicate().get(result);
+		return result;
 	}
 
 	@Override
 	public VTagged _v_as_tagged(VIOContext ctx) {
 		VEntity[] tags = VArrayOfInt.VSE_CODE.getTags(ctx);
-		ByteBuffer buf = ByteBuffer.allocate(4*array.length);
-		buf.order(ByteOrder.BIG_ENDIAN);
-		for (int i = 0; i < array.length; i++)
-			buf.putInt(i*4, array[i]);
-		VEntity value = new VBytes(buf.array());
+		byte[] _data = data;
+		if (_data == null) {
+			ByteBuffer buf = ByteBuffer.allocate(4*values.limit());
+			buf.asIntBuffer().put(values.duplicate());
+			_data = buf.array();
+		}
+		VEntity value = new VBytes(_data);
 		return new VTagged(value, tags);
 	}
 
+	@Override
+	public VCombiner.Pair _v_native_converter() {
+		Object result;
+		if (VSEResolver.primitiveArrays())
+			result = this.toIntArray();
+		else {
+			Integer[] _result = new Integer[values.limit()];
+			for (int i = 0; i < _result.length; i++)
+				_result[i] = values.get(i);
+			result = _result;
+		}
+		Vector<Object> comb_items = new Vector<Object>();
+		comb_items.add(result);
+		return new VCombiner.Pair(VCombiner.identity(), comb_items);
+	}
+
 	/**
 	 * Get VSE decoder for tag data.
 	 *
@@ -90,15 +177,9 @@ public class VArrayOfInt extends VArrayOf<Integer> {
 					throw new VModuleError("Illegal VSE encoding");
 				}
 				if (data.length % 4 != 0)
-					throw new VModuleError("VSE encoded byte array must be multiple of 8");
+					throw new VModuleError("VSE encoded byte array must be multiple of 4");
 
-				int len = data.length/4;
-				Integer[] array = new Integer[len];
-				ByteBuffer buf = ByteBuffer.wrap(data);
-				buf.order(ByteOrder.BIG_ENDIAN);
-				for (int i = 0; i < len; i++)
-					array[i] = buf.getInt(i*4);
-				VArrayOfInt result = new VArrayOfInt(array);
+				VArrayOfInt result = new VArrayOfInt(data);
 
 				Vector<Object> comb_items = new Vector<Object>();
 				comb_items.add(result);
@@ -111,8 +192,8 @@ public class VArrayOfInt extends VArrayOf<Integer> {
 	/**
 	 * Converts input to a {@link VArrayOfInt}.
 	 *
-	 * <p>{@link VArrayOfInt} is returned as-is, and {@link VArrayOfLong}, Long[] or Integer[] is
-	 * converted to the return type. Any other input raises an exception.</p>
+	 * <p>{@link VArrayOfInt} is returned as-is, and {@link VArrayOfLong}, Integer[], int[],
+	 * Long[] or long[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -125,12 +206,28 @@ public class VArrayOfInt extends VArrayOf<Integer> {
 
 		if (value instanceof Integer[])
 			return new VArrayOfInt((Integer[]) value);
+		if (value instanceof int[])
+			return new VArrayOfInt((int[]) value);
 
-		if (value instanceof VArrayOfLong)
-			value = VArrayOfLong.nativeOf(value);
 		if (value instanceof Long[]) {
-			Integer[] array = VArrayOfInt.nativeOf(value);
-			return new VArrayOfInt(array);
+			Long[] vals = (Long[]) value;
+			long[] _vals = new long[vals.length];
+			for (int i = 0; i < _vals.length; i++)
+				_vals[i] = vals[i];
+			value = _vals;
+		}
+		else if (value instanceof VArrayOfLong)
+			value = ((VArrayOfLong)value).toLongArray();
+		if (value instanceof long[]) {
+			long[] vals = (long[]) value;
+			int[] array = new int[vals.length];
+			for (int i = 0; i < array.length; i++) {
+				long _val = vals[i];
+				if (_val < Integer.MIN_VALUE || _val > Integer.MAX_VALUE)
+					throw new VEntityError("Integer value overflow or underflow");
+				array[i] = (int)_val;
+			}
+			return new VArrayOfInt(IntBuffer.wrap(array));
 		}
 
 		throw new VEntityError("Cannot convert input value");
@@ -139,8 +236,8 @@ public class VArrayOfInt extends VArrayOf<Integer> {
 	/**
 	 * Converts input to Integer[].
 	 *
-	 * <p>Integer[] is returned as-is, and {@link VArrayOfInt}, {@link VArrayOfLong} or Long[] is
-	 * converted to the return type. Any other input raises an exception.</p>
+	 * <p>Integer[] is returned as-is, and {@link VArrayOfLong}, {@link VArrayOfInt}, int[],
+	 * Long[] or long[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -151,30 +248,11 @@ public class VArrayOfInt extends VArrayOf<Integer> {
 		if (value instanceof Integer[])
 			return (Integer[]) value;
 
-		if (value instanceof VArrayOfInt) {
-			VArrayOfInt arr = (VArrayOfInt) value;
-			Integer[] array = new Integer[arr.getLength()];
-			int index = 0;
-			for (Integer i: arr)
-				array[index++] = i;
-			return array;
-		}
-
-		if (value instanceof VArrayOfLong)
-			value = VArrayOfLong.nativeOf(value);
-		else if (value instanceof Long[]) {
-			Long[] vals = (Long[]) value;
-			Integer[] array = new Integer[vals.length];
-			for (int i = 0; i < array.length; i++) {
-				long val = vals[i];
-				if (val < Integer.MIN_VALUE || val > Integer.MAX_VALUE)
-					throw new VEntityError("Integer value overflow or underflow");
-				array[i] = (int) val;
-			}
-			return array;
-		}
-
-		throw new VEntityError("Cannot convert input value");
+		VArrayOfInt arr = VArrayOfInt.valueOf(value);
+		Integer[] array = new Integer[arr.getLength()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = arr.values.get(i);
+		return array;
 	}
 
 	/**
@@ -21,7 +21,7 @@
 package org.versile.vse.container;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.LongBuffer;
 import java.util.Vector;
 
 import org.versile.common.util.VCombiner;
@@ -35,11 +35,19 @@ import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VTagged;
 import org.versile.orb.module.VModuleDecoder;
 import org.versile.orb.module.VModuleError;
+import org.versile.vse.VSEResolver;
 import org.versile.vse.VSECode;
 
 
 /**
  * Implements the VArrayOfLong VSE type.
+ *
+ * <p>Elements are held as primitive values. An array decoded from serialized
+ * data holds a view of the serialized data, which is also re-used if the
+ * array is serialized again. Elements can be retrieved without boxing with
+ * {@link #getLong(int)} and {@link #toLongArray()}, and native
+ * conversion produces long[] if enabled by
+ * {@link org.versile.vse.VSEResolver#enablePrimitiveArrays(boolean)}.</p>
  */
 public class VArrayOfLong extends VArrayOf<Long> {
 
@@ -50,26 +58,105 @@ public class VArrayOfLong extends VArrayOf<Long> {
 							              new VInteger[] {new VInteger(0), new VInteger(8)},
 							              new VObjectIdentifier(1, 5));
 
+	LongBuffer values;                  // elements, position always zero
+	byte[] data = null;                 // serialized elements (or null)
+
 	/**
 	 * Create array with provided elements.
 	 *
 	 * @param array array elements
 	 */
 	public VArrayOfLong(Long[] array) {
-		super(array);
+		super();
+		long[] _values = new long[array.length];
+		for (int i = 0; i < _values.length; i++)
+			_values[i] = array[i];
+		values = LongBuffer.wrap(_values);
+	}
+
+	/**
+	 * Create array with provided elements.
+	 *
+	 * @param array array elements (copied)
+	 */
+	public VArrayOfLong(long[] array) {
+		super();
+		values = LongBuffer.wrap(array.clone());
+	}
+
+	// Creates array which holds provided elements without copying
+	VArrayOfLong(LongBuffer values) {
+		super();
+		this.values = values;
+	}
+
+	// Creates array as a view of serialized elements
+	VArrayOfLong(byte[] data) {
+		super();
+		this.values = ByteBuffer.wrap(data).asLongBuffer();
+		this.data = data;
+	}
+
+	@Override
+	public int getLength() {
+		return values.limit();
+	}
+
+	@Override
+	public Long getElement(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array element at index.
+	 *
+	 * @param index array index
+	 * @return array element
+	 */
+	public long getLong(int index) {
+		return values.get(index);
+	}
+
+	/**
+	 * Get array elements.
+	 *
+	 * @return copy of array elements
+	 */
+	public long[] toLongArray() {
+		long[] result = new long[values.limit()];
+		values.duplicate().get(result);
+		return result;
 	}
 
 	@Override
 	public VTagged _v_as_tagged(VIOContext ctx) {
 		VEntity[] tags = VArrayOfLong.VSE_CODE.getTags(ctx);
-		ByteBuffer buf = ByteBuffer.allocate(8*array.length);
-		buf.order(ByteOrder.BIG_ENDIAN);
-		for (int i = 0; i < array.length; i++)
-			buf.putLong(i*8, array[i]);
-		VEntity value = new VBytes(buf.array());
+		byte[] _data = data;
+		if (_data == null) {
+			ByteBuffer buf = ByteBuffer.allocate(8*values.limit());
+			buf.asLongBuffer().put(values.duplicate());
+			_data = buf.array();
+		}
+		VEntity value = new VBytes(_data);
 		return new VTagged(value, tags);
 	}
 
+	@Override
+	public VCombiner.Pair _v_native_converter() {
+		Object result;
+		if (VSEResolver.primitiveArrays())
+			result = this.toLongArray();
+		else {
+			Long[] _result = new Long[values.limit()];
+			for (int i = 0; i < _result.length; i++)
+				_result[i] = values.get(i);
+			result = _result;
+		}
+		Vector<Object> comb_items = new Vector<Object>();
+		comb_items.add(result);
+		return new VCombiner.Pair(VCombiner.identity(), comb_items);
+	}
+
 	/**
 	 * Get VSE decoder for tag data.
 	 *
@@ -92,13 +179,7 @@ public class VArrayOfLong extends VArrayOf<Long> {
 				if (data.length % 8 != 0)
 					throw new VModuleError("VSE encoded byte array must be multiple of 8");
 
-				int len = data.length/8;
-				Long[] array = new Long[len];
-				ByteBuffer buf = ByteBuffer.wrap(data);
-				buf.order(ByteOrder.BIG_ENDIAN);
-				for (int i = 0; i < len; i++)
-					array[i] = buf.getLong(i*8);
-				VArrayOfLong result = new VArrayOfLong(array);
+				VArrayOfLong result = new VArrayOfLong(data);
 
 				Vector<Object> comb_items = new Vector<Object>();
 				comb_items.add(result);
@@ -111,8 +192,8 @@ public class VArrayOfLong extends VArrayOf<Long> {
 	/**
 	 * Converts input to a {@link VArrayOfLong}.
 	 *
-	 * <p>{@link VArrayOfLong} is returned as-is, {@link VArrayOfLong}, Long[] or Integer[] is
-	 * converted to the return type. Any other input raises an exception.</p>
+	 * <p>{@link VArrayOfLong} is returned as-is, and {@link VArrayOfInt}, Long[], long[],
+	 * Integer[] or int[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -125,15 +206,24 @@ public class VArrayOfLong extends VArrayOf<Long> {
 
 		if (value instanceof Long[])
 			return new VArrayOfLong((Long[]) value);
+		if (value instanceof long[])
+			return new VArrayOfLong((long[]) value);
 
-		if (value instanceof VArrayOfInt)
-			value = VArrayOfInt.nativeOf(value);
 		if (value instanceof Integer[]) {
 			Integer[] vals = (Integer[]) value;
-			Long[] array = new Long[vals.length];
+			long[] array = new long[vals.length];
+			for (int i = 0; i < array.length; i++)
+				array[i] = vals[i];
+			return new VArrayOfLong(LongBuffer.wrap(array));
+		}
+		if (value instanceof VArrayOfInt)
+			value = ((VArrayOfInt)value).toIntArray();
+		if (value instanceof int[]) {
+			int[] vals = (int[]) value;
+			long[] array = new long[vals.length];
 			for (int i = 0; i < array.length; i++)
-				array[i] = Long.valueOf(vals[i]);
-			return new VArrayOfLong(array);
+				array[i] = vals[i];
+			return new VArrayOfLong(LongBuffer.wrap(array));
 		}
 
 		throw new VEntityError("Cannot convert input value");
@@ -142,8 +232,8 @@ public class VArrayOfLong extends VArrayOf<Long> {
 	/**
 	 * Converts input to a Long[].
 	 *
-	 * <p>Long[] is returned as-is, and {@link VArrayOfLong}, {@link VArrayOfInt} or Integer[] is
-	 * converted to the return type. Any other input raises an exception.</p>
+	 * <p>Long[] is returned as-is, and {@link VArrayOfInt}, {@link VArrayOfLong}, long[],
+	 * Integer[] or int[] is converted to the return type. Any other input raises an exception.</p>
 	 *
 	 * @param value value to convert
 	 * @return converted value
@@ -154,26 +244,11 @@ public class VArrayOfLong extends VArrayOf<Long> {
 		if (value instanceof Long[])
 			return (Long[]) value;
 
-		if (value instanceof VArrayOfLong) {
-			VArrayOfLong arr = (VArrayOfLong) value;
-			Long[] array = new Long[arr.getLength()];
-			int index = 0;
-			for (Long l: arr)
-				array[index++] = l;
-			return array;
-		}
-
-		if (value instanceof VArrayOfInt)
-			value = VArrayOfInt.nativeOf(value);
-		if (value instanceof Integer[]) {
-			Integer[] vals = (Integer[]) value;
-			Long[] array = new Long[vals.length];
-			for (int i = 0; i < array.length; i++)
-				array[i] = Long.valueOf(vals[i]);
-			return array;
-		}
-
-		throw new VEntityError("Cannot convert input value");
+		VArrayOfLong arr = VArrayOfLong.valueOf(value);
+		Long[] array = new Long[arr.getLength()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = arr.values.get(i);
+		return array;
 	}
 
 	/**
@@ -196,5 +271,4 @@ public class VArrayOfLong extends VArrayOf<Long> {
 	protected Long[] createArray(int length) {
 		return new Long[length];
 	}
-
 }
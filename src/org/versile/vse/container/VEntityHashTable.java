@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.container;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.versile.orb.entity.VEntity;
+
+
+/**
+ * Immutable open-addressing hash table of VEntity keys and (optional) values.
+ *
+ * <p>Entries are held in flat arrays in insertion order together with their
+ * precomputed hashes, and a power-of-two slot table with linear probing maps
+ * hashes to entry indexes. The table is populated during construction of the
+ * owning container and is not modified afterwards, so it can be read
+ * concurrently without synchronization.</p>
+ */
+final class VEntityHashTable {
+
+	VEntity[] keys;           // keys in insertion order
+	VEntity[] values;         // values matching keys, or null for a set
+	int[] hashes;             // spread hash codes of keys
+	int[] slots;              // entry index plus one, zero for an empty slot
+	int size = 0;
+
+	/**
+	 * Set up an empty table.
+	 *
+	 * @param capacity max number of entries
+	 * @param withValues if true hold a value for each key
+	 */
+	VEntityHashTable(int capacity, boolean withValues) {
+		keys = new VEntity[capacity];
+		if (withValues)
+			values = new VEntity[capacity];
+		hashes = new int[capacity];
+		int num_slots = 2;
+		while (num_slots < 2*capacity)
+			num_slots <<= 1;
+		slots = new int[num_slots];
+	}
+
+	/**
+	 * Adds an entry, replacing the value of any existing entry with an equal key.
+	 *
+	 * @param key entry key
+	 * @param value entry value (ignored for a set)
+	 * @throws NullPointerException key is null, or value is null for a dictionary
+	 */
+	void put(VEntity key, VEntity value) {
+		if (key == null)
+			throw new NullPointerException("Key cannot be null");
+		if (values != null && value == null)
+			throw new NullPointerException("Value cannot be null");
+		int hash = VEntityHashTable.spread(key.hashCode());
+		int mask = slots.length - 1;
+		int pos = hash & mask;
+		while (true) {
+			int slot = slots[pos];
+			if (slot == 0)
+				break;
+			int index = slot - 1;
+			if (hashes[index] == hash && keys[index].equals(key)) {
+				if (values != null)
+					values[index] = value;
+				return;
+			}
+			pos = (pos + 1) & mask;
+		}
+		keys[size] = key;
+		if (values != null)
+			values[size] = value;
+		hashes[size] = hash;
+		slots[pos] = ++size;
+	}
+
+	/**
+	 * Releases unused capacity after all entries have been added.
+	 */
+	void trim() {
+		if (size < keys.length) {
+			keys = Arrays.copyOf(keys, size);
+			if (values != null)
+				values = Arrays.copyOf(values, size);
+			hashes = Arrays.copyOf(hashes, size);
+		}
+	}
+
+	/**
+	 * Look up the entry index of a key.
+	 *
+	 * @param key key to look up
+	 * @return entry index, or -1 if not found
+	 */
+	int indexOf(Object key) {
+		if (key == null)
+			return -1;
+		int hash = VEntityHashTable.spread(key.hashCode());
+		int mask = slots.length - 1;
+		int pos = hash & mask;
+		while (true) {
+			int slot = slots[pos];
+			if (slot == 0)
+				return -1;
+			int index = slot - 1;
+			if (hashes[index] == hash && keys[index].equals(key))
+				return index;
+			pos = (pos + 1) & mask;
+		}
+	}
+
+	/**
+	 * Get a read-only set view of table keys.
+	 *
+	 * @return key set
+	 */
+	KeySet keySet() {
+		return new KeySet();
+	}
+
+	// Spreads higher bits of hash code to the probed lower bits
+	static int spread(int hash) {
+		hash *= 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Read-only set view of table keys.
+	 */
+	class KeySet extends AbstractSet<VEntity> {
+		@Override
+		public Iterator<VEntity> iterator() {
+			return new KeyIterator();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return (indexOf(o) >= 0);
+		}
+	}
+
+	/**
+	 * Read-only iterator over table keys.
+	 */
+	class KeyIterator implements Iterator<VEntity> {
+		int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return (next < size);
+		}
+
+		@Override
+		public VEntity next() {
+			if (next >= size)
+				throw new NoSuchElementException();
+			return keys[next++];
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
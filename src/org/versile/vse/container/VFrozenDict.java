@@ -21,8 +21,7 @@
 package org.versile.vse.container;
 
 import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
@@ -48,6 +47,11 @@ import org.versile.vse.VSECode;
 
 /**
  * A dictionary of VEntity keys and values.
+ *
+ * <p>Entries are held in a compact immutable hash table with flat key and
+ * value arrays, which is built directly from decoded data. The dictionary
+ * can be used as a key, as it implements value equality and caches its
+ * hash code.</p>
  */
 public class VFrozenDict extends VEntity {
 
@@ -58,12 +62,31 @@ public class VFrozenDict extends VEntity {
 							              new VInteger[] {new VInteger(0), new VInteger(8)},
 							              new VObjectIdentifier(1, 2));
 
-	Map<VEntity, VEntity> dict;
+	VEntityHashTable dict;
+	int hash_code = 0;               // cached hash code, zero if not computed
 
 	public VFrozenDict(Map<? extends VEntity, ? extends VEntity> dict) {
-		this.dict = new Hashtable<VEntity, VEntity>();
-		for (VEntity key: dict.keySet())
-			this.dict.put(key, dict.get(key));
+		this.dict = new VEntityHashTable(dict.size(), true);
+		for (Map.Entry<? extends VEntity, ? extends VEntity> entry: dict.entrySet())
+			this.dict.put(entry.getKey(), entry.getValue());
+		this.dict.trim();
+	}
+
+	// Creates dictionary from a list of alternating keys and values
+	VFrozenDict(List<?> items)
+			throws VEntityError {
+		if ((items.size() % 2) != 0)
+			throw new VEntityError("Dictionary data must have an even number of items");
+		int num_entries = items.size() / 2;
+		dict = new VEntityHashTable(num_entries, true);
+		for (int i = 0; i < num_entries; i++)
+			dict.put(VFrozenDict.asEntity(items.get(2*i)), VFrozenDict.asEntity(items.get(2*i+1)));
+		dict.trim();
+	}
+
+	// Creates dictionary which holds provided table without copying
+	VFrozenDict(VEntityHashTable dict) {
+		this.dict = dict;
 	}
 
 	/**
@@ -73,8 +96,8 @@ public class VFrozenDict extends VEntity {
 	 */
 	public Map<VEntity, VEntity> getValue() {
 		Map<VEntity, VEntity> result = new Hashtable<VEntity, VEntity>();
-		for (VEntity key: dict.keySet())
-			result.put(key, dict.get(key));
+		for (int i = 0; i < dict.size; i++)
+			result.put(dict.keys[i], dict.values[i]);
 		return result;
 	}
 
@@ -86,12 +109,12 @@ public class VFrozenDict extends VEntity {
 	 */
 	public VTagged _v_as_tagged(VIOContext ctx) {
 		VEntity[] tags = VFrozenDict.VSE_CODE.getTags(ctx);
-		LinkedList<VEntity> _elements = new LinkedList<VEntity>();
-		for (VEntity key: dict.keySet()) {
-			_elements.addLast(key);
-			_elements.addLast(dict.get(key));
+		VEntity[] _elements = new VEntity[2*dict.size];
+		for (int i = 0; i < dict.size; i++) {
+			_elements[2*i] = dict.keys[i];
+			_elements[2*i+1] = dict.values[i];
 		}
-		VEntity value = new VTuple(_elements);
+		VEntity value = VTuple._v_wrap(_elements);
 		return new VTagged(value, tags);
 	}
 
@@ -109,22 +132,11 @@ public class VFrozenDict extends VEntity {
 					@Override
 					public Object combine(Vector<Object> objects)
 							throws CombineException {
-						VTuple elements = null;
 						try {
-							elements = VTuple.valueOf(objects);
+							return new VFrozenDict(objects);
 						} catch (VEntityError e) {
 							throw new CombineException();
 						}
-						if ((elements.length() % 2) != 0)
-							throw new CombineException();
-						Map<VEntity, VEntity> dict = new Hashtable<VEntity, VEntity>();
-						Iterator<VEntity> iter = elements.iterator();
-						while (iter.hasNext()) {
-							VEntity key = iter.next();
-							VEntity val = iter.next();
-							dict.put(key, val);
-						}
-						return new VFrozenDict(dict);
 					}
 				}
 				if (tags.length > 0)
@@ -135,7 +147,7 @@ public class VFrozenDict extends VEntity {
 				} catch (VEntityError e) {
 					throw new VModuleError();
 				}
-				Vector<Object> comb_items = new Vector<Object>();
+				Vector<Object> comb_items = new Vector<Object>(elements.length());
 				for (Object obj: elements)
 					comb_items.add(obj);
 				return new VCombiner.Pair(new Combiner(), comb_items);
@@ -178,31 +190,20 @@ public class VFrozenDict extends VEntity {
 			@Override
 			public Object combine(Vector<Object> objects)
 					throws CombineException {
-				VTuple elements = null;
 				try {
-					elements = VTuple.valueOf(objects);
+					return new VFrozenDict(objects);
 				} catch (VEntityError e) {
 					throw new CombineException();
 				}
-				if ((elements.length() % 2) != 0)
-					throw new CombineException();
-				Map<VEntity, VEntity> dict = new Hashtable<VEntity, VEntity>();
-				Iterator<VEntity> iter = elements.iterator();
-				while (iter.hasNext()) {
-					VEntity key = iter.next();
-					VEntity val = iter.next();
-					dict.put(key, val);
-				}
-				return new VFrozenDict(dict);
 			}
 		}
 		if (!(obj instanceof Map<?, ?>))
 			throw new VEntityError("Input type is not a Map");
 		Map<?, ?> d_obj = (Map<?, ?>)obj;
-		Vector<Object> comb_items = new Vector<Object>();
-		for (Object key: d_obj.keySet()) {
-			comb_items.add(key);
-			comb_items.add(d_obj.get(key));
+		Vector<Object> comb_items = new Vector<Object>(2*d_obj.size());
+		for (Map.Entry<?, ?> entry: d_obj.entrySet()) {
+			comb_items.add(entry.getKey());
+			comb_items.add(entry.getValue());
 		}
 		return new VCombiner.Pair(new Combiner(), comb_items);
 	}
@@ -214,19 +215,15 @@ public class VFrozenDict extends VEntity {
 			public Object combine(Vector<Object> objects)
 					throws CombineException {
 				Map<Object, Object> result = new Hashtable<Object, Object>();
-				Iterator<Object> iter = objects.iterator();
-				while (iter.hasNext()) {
-					Object key = iter.next();
-					Object val = iter.next();
-					result.put(key, val);
-				}
+				for (int i = 0; i < objects.size(); i += 2)
+					result.put(objects.get(i), objects.get(i+1));
 				return result;
 			}
 		}
-		Vector<Object> comb_items = new Vector<Object>();
-		for (VEntity key: dict.keySet()) {
-			comb_items.add(key);
-			comb_items.add(dict.get(key));
+		Vector<Object> comb_items = new Vector<Object>(2*dict.size);
+		for (int i = 0; i < dict.size; i++) {
+			comb_items.add(dict.keys[i]);
+			comb_items.add(dict.values[i]);
 		}
 		return new VCombiner.Pair(new Combiner(), comb_items);
 	}
@@ -240,7 +237,7 @@ public class VFrozenDict extends VEntity {
 	/**
 	 * Get a set view of dictionary keys.
 	 *
-	 * @return dictionary keys
+	 * @return dictionary keys (read-only)
 	 */
 	public Set<VEntity> keys() {
 		return dict.keySet();
@@ -253,12 +250,77 @@ public class VFrozenDict extends VEntity {
 	 * @return resulting value (or null if key not found)
 	 */
 	public VEntity get(VEntity key) {
-		return dict.get(key);
+		int index = dict.indexOf(key);
+		if (index < 0)
+			return null;
+		return dict.values[index];
+	}
+
+	/**
+	 * Check whether dictionary has a key.
+	 *
+	 * @param key dictionary key to look up
+	 * @return true if dictionary has key
+	 */
+	public boolean containsKey(VEntity key) {
+		return (dict.indexOf(key) >= 0);
+	}
+
+	/**
+	 * Get number of dictionary entries.
+	 *
+	 * @return number of entries
+	 */
+	public int size() {
+		return dict.size;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == this)
+			return true;
+		if (!(other instanceof VFrozenDict))
+			return false;
+		VFrozenDict _other = (VFrozenDict)other;
+		if (_other.dict.size != dict.size || _other.hashCode() != this.hashCode())
+			return false;
+		for (int i = 0; i < dict.size; i++) {
+			int index = _other.dict.indexOf(dict.keys[i]);
+			if (index < 0 || !_other.dict.values[index].equals(dict.values[i]))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = hash_code;
+		if (result == 0) {
+			// Same as java.util.Map hash code of the held entries
+			for (int i = 0; i < dict.size; i++)
+				result += dict.keys[i].hashCode() ^ dict.values[i].hashCode();
+			hash_code = result;
+		}
+		return result;
 	}
 
 	@Override
 	public String toString() {
-		return dict.toString();
+		StringBuilder result = new StringBuilder("{");
+		for (int i = 0; i < dict.size; i++) {
+			if (i > 0)
+				result.append(", ");
+			result.append(dict.keys[i]).append("=").append(dict.values[i]);
+		}
+		return result.append("}").toString();
+	}
+
+	// Returns item as a VEntity, lazy-converting if required
+	static VEntity asEntity(Object item)
+			throws VEntityError {
+		if (item instanceof VEntity)
+			return (VEntity)item;
+		return VEntity._v_lazy(item);
 	}
 
 	/**
@@ -295,13 +357,14 @@ public class VFrozenDict extends VEntity {
 		if (value instanceof VFrozenDict)
 			return (VFrozenDict) value;
 		else if (value instanceof Map<?, ?>) {
-			Map<VEntity, VEntity> _elements = new Hashtable<VEntity, VEntity>();
 			Map<?, ?> _dict = (Map<?, ?>)value;
-			for (Object key: _dict.keySet()) {
+			VEntityHashTable _elements = new VEntityHashTable(_dict.size(), true);
+			for (Map.Entry<?, ?> entry: _dict.entrySet()) {
 				// Throws VEntityError if conversion fails
-				Object val = _dict.get(key);
-				_elements.put(VEntity._v_lazy(key, parser), VEntity._v_lazy(val, parser));
+				VEntity key = VEntity._v_lazy(entry.getKey(), parser);
+				_elements.put(key, VEntity._v_lazy(entry.getValue(), parser));
 			}
+			_elements.trim();
 			return new VFrozenDict(_elements);
 		}
 		else
@@ -362,11 +425,11 @@ public class VFrozenDict extends VEntity {
 		if (value instanceof Map<?, ?>)
 			return (Map<?, ?>)value;
 		else if (value instanceof VFrozenDict) {
-			VFrozenDict _dict = (VFrozenDict) value;
+			VEntityHashTable _dict = ((VFrozenDict) value).dict;
 			Map<Object, Object> result = new Hashtable<Object, Object>();
-			for (VEntity _key: _dict.keys()) {
-				Object key = VEntity._v_lazy_native(_key, parser);
-				Object val = VEntity._v_lazy_native(_dict.get(_key), parser);
+			for (int i = 0; i < _dict.size; i++) {
+				Object key = VEntity._v_lazy_native(_dict.keys[i], parser);
+				Object val = VEntity._v_lazy_native(_dict.values[i], parser);
 				result.put(key, val);
 			}
 			return result;
@@ -45,6 +45,10 @@ import org.versile.vse.VSECode;
  *
  * <p>Differs from {@link VMultiArray} in that frozen multi-array element references
  * cannot be changed.</p>
+ *
+ * <p>Encoded data which holds elements as a single packed numeric array
+ * (as generated by {@link VMultiArrayOf} types) is decoded as the
+ * corresponding {@link VMultiArrayOf} type.</p>
  */
 public class VFrozenMultiArray extends VEntity {
 
@@ -170,6 +174,21 @@ public class VFrozenMultiArray extends VEntity {
 						}
 					}
 				}
+				class PackedCombiner extends VCombiner {
+					int[] dim;
+					public PackedCombiner(int[] dim) {
+						this.dim = dim;
+					}
+					@Override
+					public Object combine(Vector<Object> objects)
+							throws CombineException {
+						try {
+							return VMultiArrayOf.fromPacked(dim, objects.get(0));
+						} catch (VEntityError e) {
+							throw new CombineException();
+						}
+					}
+				}
 				if (tags.length == 0)
 					throw new VModuleError("Invalid residual tag data (no dimensions set)");
 				int[] dim = new int[tags.length];
@@ -183,13 +202,20 @@ public class VFrozenMultiArray extends VEntity {
 						throw new VModuleError("Invalid residual tag data (zero or negative dimension)");
 				}
 
+				// Packed array data is decoded as a primitive multi-array view
+				if (value instanceof VTagged) {
+					Vector<Object> comb_items = new Vector<Object>();
+					comb_items.add(value);
+					return new VCombiner.Pair(new PackedCombiner(dim), comb_items);
+				}
+
 				VTuple elements = null;
 				try {
 					elements = VTuple.valueOf(value);
 				} catch (VEntityError e) {
 					throw new VModuleError();
 				}
-				Vector<Object> comb_items = new Vector<Object>();
+				Vector<Object> comb_items = new Vector<Object>(elements.length());
 				for (Object obj: elements)
 					comb_items.add(obj);
 				return new VCombiner.Pair(new Combiner(dim), comb_items);
@@ -20,9 +20,10 @@
 
 package org.versile.vse.container;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 
@@ -47,6 +48,10 @@ import org.versile.vse.VSECode;
 
 /**
  * A set of VEntity data.
+ *
+ * <p>Elements are held in a compact immutable hash table with a flat element
+ * array, which is built directly from decoded data. The set can be used as a
+ * key, as it implements value equality and caches its hash code.</p>
  */
 public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 
@@ -57,18 +62,40 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 							              new VInteger[] {new VInteger(0), new VInteger(8)},
 							              new VObjectIdentifier(1, 3));
 
-	Set<VEntity> elements;
+	VEntityHashTable elements;
+	int hash_code = 0;               // cached hash code, zero if not computed
 
 	public VFrozenSet(Iterable<? extends VEntity> elements) {
-		this.elements = new HashSet<VEntity>();
-		for (VEntity item: elements)
-			this.elements.add(item);
+		if (elements instanceof Collection<?>) {
+			this.elements = new VEntityHashTable(((Collection<?>)elements).size(), false);
+			for (VEntity item: elements)
+				this.elements.put(item, null);
+		}
+		else {
+			List<VEntity> _elements = new Vector<VEntity>();
+			for (VEntity item: elements)
+				_elements.add(item);
+			this.elements = new VEntityHashTable(_elements.size(), false);
+			for (VEntity item: _elements)
+				this.elements.put(item, null);
+		}
+		this.elements.trim();
 	}
 
 	public VFrozenSet(VEntity[] elements) {
-		this.elements = new HashSet<VEntity>();
+		this.elements = new VEntityHashTable(elements.length, false);
 		for (VEntity item: elements)
-			this.elements.add(item);
+			this.elements.put(item, null);
+		this.elements.trim();
+	}
+
+	// Creates set from a list of elements
+	VFrozenSet(List<?> items)
+			throws VEntityError {
+		elements = new VEntityHashTable(items.size(), false);
+		for (Object item: items)
+			elements.put(VFrozenDict.asEntity(item), null);
+		elements.trim();
 	}
 
 	/**
@@ -78,11 +105,30 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 	 */
 	public Set<VEntity> getValue() {
 		Set<VEntity> result = new HashSet<VEntity>();
-		for (VEntity item: elements)
-			result.add(item);
+		for (int i = 0; i < elements.size; i++)
+			result.add(elements.keys[i]);
 		return result;
 	}
 
+	/**
+	 * Check whether set has an element.
+	 *
+	 * @param element element to look up
+	 * @return true if set has element
+	 */
+	public boolean contains(VEntity element) {
+		return (elements.indexOf(element) >= 0);
+	}
+
+	/**
+	 * Get number of set elements.
+	 *
+	 * @return number of elements
+	 */
+	public int size() {
+		return elements.size;
+	}
+
 	/**
 	 * Get a Versile Entity Representation of this object.
 	 *
@@ -91,7 +137,8 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 	 */
 	public VTagged _v_as_tagged(VIOContext ctx) {
 		VEntity[] tags = VFrozenSet.VSE_CODE.getTags(ctx);
-		VEntity value = new VTuple(elements);
+		// Copied, as the key array is held by the table
+		VEntity value = new VTuple(elements.keys);
 		return new VTagged(value, tags);
 	}
 
@@ -109,13 +156,11 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 					@Override
 					public Object combine(Vector<Object> objects)
 							throws CombineException {
-						VTuple elements = null;
 						try {
-							elements = VTuple.valueOf(objects);
+							return new VFrozenSet(objects);
 						} catch (VEntityError e) {
 							throw new CombineException();
 						}
-						return new VFrozenSet(elements);
 					}
 				}
 				if (tags.length > 0)
@@ -126,7 +171,7 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 				} catch (VEntityError e) {
 					throw new VModuleError();
 				}
-				Vector<Object> comb_items = new Vector<Object>();
+				Vector<Object> comb_items = new Vector<Object>(elements.length());
 				for (Object obj: elements)
 					comb_items.add(obj);
 				return new VCombiner.Pair(new Combiner(), comb_items);
@@ -169,19 +214,17 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 			@Override
 			public Object combine(Vector<Object> objects)
 					throws CombineException {
-				VTuple elements = null;
 				try {
-					elements = VTuple.valueOf(objects);
+					return new VFrozenSet(objects);
 				} catch (VEntityError e) {
 					throw new CombineException();
 				}
-				return new VFrozenSet(elements);
 			}
 		}
 		if (!(obj instanceof Set<?>))
 			throw new VEntityError("Input type is not a Set");
 		Set<?> s_obj = (Set<?>)obj;
-		Vector<Object> comb_items = new Vector<Object>();
+		Vector<Object> comb_items = new Vector<Object>(s_obj.size());
 		for (Object item: s_obj)
 			comb_items.add(item);
 		return new VCombiner.Pair(new Combiner(), comb_items);
@@ -199,9 +242,9 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 				return result;
 			}
 		}
-		Vector<Object> comb_items = new Vector<Object>();
-		for (Object item: elements)
-			comb_items.add(item);
+		Vector<Object> comb_items = new Vector<Object>(elements.size);
+		for (int i = 0; i < elements.size; i++)
+			comb_items.add(elements.keys[i]);
 		return new VCombiner.Pair(new Combiner(), comb_items);
 	}
 
@@ -211,14 +254,47 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 		return this._v_as_tagged(ctx)._v_encode(ctx, explicit);
 	}
 
+	@Override
+	public boolean equals(Object other) {
+		if (other == this)
+			return true;
+		if (!(other instanceof VFrozenSet))
+			return false;
+		VFrozenSet _other = (VFrozenSet)other;
+		if (_other.elements.size != elements.size || _other.hashCode() != this.hashCode())
+			return false;
+		for (int i = 0; i < elements.size; i++)
+			if (_other.elements.indexOf(elements.keys[i]) < 0)
+				return false;
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = hash_code;
+		if (result == 0) {
+			// Same as java.util.Set hash code of the held elements
+			for (int i = 0; i < elements.size; i++)
+				result += elements.keys[i].hashCode();
+			hash_code = result;
+		}
+		return result;
+	}
+
 	@Override
 	public String toString() {
-		return elements.toString();
+		StringBuilder result = new StringBuilder("[");
+		for (int i = 0; i < elements.size; i++) {
+			if (i > 0)
+				result.append(", ");
+			result.append(elements.keys[i]);
+		}
+		return result.append("]").toString();
 	}
 
 	@Override
 	public Iterator<VEntity> iterator() {
-		return elements.iterator();
+		return elements.keySet().iterator();
 	}
 
 	/**
@@ -255,10 +331,12 @@ public class VFrozenSet extends VEntity implements Iterable<VEntity> {
 		if (value instanceof VFrozenSet)
 			return (VFrozenSet) value;
 		else if (value instanceof Set<?>) {
-			LinkedList<VEntity> elements = new LinkedList<VEntity>();
-			for (Object obj: (Set<?>)value) {
+			Set<?> _set = (Set<?>)value;
+			VEntity[] elements = new VEntity[_set.size()];
+			int i = 0;
+			for (Object obj: _set) {
 				// Throws VEntityError if conversion fails
-				elements.addLast(VEntity._v_lazy(obj, parser));
+				elements[i++] = VEntity._v_lazy(obj, parser);
 			}
 			return new VFrozenSet(elements);
 		}
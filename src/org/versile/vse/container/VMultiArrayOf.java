@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.container;
+
+import org.versile.orb.entity.VEncoderData;
+import org.versile.orb.entity.VEntity;
+import org.versile.orb.entity.VEntityError;
+import org.versile.orb.entity.VEntityWriterException;
+import org.versile.orb.entity.VIOContext;
+import org.versile.orb.entity.VInteger;
+import org.versile.orb.entity.VTagged;
+
+
+/**
+ * Base class for frozen N-dimensional arrays of primitive numeric elements.
+ *
+ * <p>Elements are held in a primitive buffer, and element positions are
+ * resolved from per-dimension strides and an offset into the buffer, so
+ * {@link #slice(int, int, int)} returns a view which shares elements with
+ * the sliced array. Flattened element data follows the same layout as
+ * {@link VFrozenMultiArray} (first index varies fastest).</p>
+ *
+ * <p>The array is encoded as a {@link VFrozenMultiArray} whose value is a
+ * single packed array of the corresponding VSE array type (e.g.
+ * {@link VArrayOfDouble}) rather than a tuple of individual elements, and it
+ * is decoded as a view of the received packed array.</p>
+ *
+ * @param <T> local associated (boxed) type
+ */
+public abstract class VMultiArrayOf<T> extends VEntity {
+
+	int[] dim;
+	int[] strides;
+	int offset;
+	int num_elements;
+
+	/**
+	 * Set up array structure.
+	 *
+	 * @param dim array dimensions
+	 * @param strides buffer distance between elements of each dimension (or null for flattened layout)
+	 * @param offset buffer position of first element
+	 * @throws IllegalArgumentException invalid dimensions
+	 */
+	VMultiArrayOf(int[] dim, int[] strides, int offset)
+			throws IllegalArgumentException {
+		if (dim.length == 0)
+			throw new IllegalArgumentException("Must have at least one dimension");
+		long num_elements = 1;
+		for (int d: dim) {
+			if (d < 1)
+				throw new IllegalArgumentException("Dimensions must be positive");
+			num_elements *= d;
+			if (num_elements > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Number of elements exceeds max array size");
+		}
+		this.dim = dim.clone();
+		if (strides == null) {
+			strides = new int[dim.length];
+			int mul = 1;
+			for (int i = 0; i < dim.length; i++) {
+				strides[i] = mul;
+				mul *= dim[i];
+			}
+		}
+		this.strides = strides;
+		this.offset = offset;
+		this.num_elements = (int)num_elements;
+	}
+
+	/**
+	 * Get array dimensions.
+	 *
+	 * @return dimensions
+	 */
+	public int[] getDimensions() {
+		return dim.clone();
+	}
+
+	/**
+	 * Get number of array elements.
+	 *
+	 * @return number of elements
+	 */
+	public int getNumElements() {
+		return num_elements;
+	}
+
+	/**
+	 * Get an array element.
+	 *
+	 * @param index array index
+	 * @return element at index
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public T getElement(int... index)
+			throws ArrayIndexOutOfBoundsException {
+		return this.elementAt(this.position(index));
+	}
+
+	/**
+	 * Get a slice of the array along one dimension.
+	 *
+	 * <p>The returned array is a view which holds the same elements as this
+	 * array, no elements are copied.</p>
+	 *
+	 * @param dimension dimension to slice
+	 * @param start first index of slice (inclusive)
+	 * @param end last index of slice (exclusive)
+	 * @return array slice
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public VMultiArrayOf<T> slice(int dimension, int start, int end)
+			throws ArrayIndexOutOfBoundsException {
+		if (dimension < 0 || dimension >= dim.length)
+			throw new ArrayIndexOutOfBoundsException("Invalid dimension");
+		if (start < 0 || end > dim[dimension] || start >= end)
+			throw new ArrayIndexOutOfBoundsException("Invalid slice range");
+		int[] s_dim = dim.clone();
+		s_dim[dimension] = end - start;
+		return this.createView(s_dim, strides, offset + start*strides[dimension]);
+	}
+
+	/**
+	 * Get a Versile Entity Representation of this object.
+	 *
+	 * @param ctx I/O context
+	 * @return VER representation
+	 */
+	public VTagged _v_as_tagged(VIOContext ctx) {
+		VEntity[] code_tags = VFrozenMultiArray.VSE_CODE.getTags(ctx);
+		VEntity[] tags = new VEntity[code_tags.length + dim.length];
+		for (int i = 0; i < code_tags.length; i++)
+			tags[i] = code_tags[i];
+		for (int i = 0; i < dim.length; i++)
+			tags[code_tags.length + i] = new VInteger(dim[i]);
+		return new VTagged(this.packed(), tags);
+	}
+
+	@Override
+	public VEncoderData _v_encode(VIOContext ctx, boolean explicit)
+			throws VEntityWriterException {
+		return this._v_as_tagged(ctx)._v_encode(ctx, explicit);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder("[\n");
+		int[] index = new int[dim.length];
+		int pos = offset;
+		for (int n = 0; n < num_elements; n++) {
+			result.append("  ");
+			for (int i = 0; i < index.length; i++) {
+				if (i > 0)
+					result.append(", ");
+				result.append(index[i]);
+			}
+			result.append(": ").append(this.elementAt(pos)).append("\n");
+			pos = this.nextPosition(index, pos);
+		}
+		result.append("]\n");
+		return result.toString();
+	}
+
+	/**
+	 * Creates a multi-array from a packed array.
+	 *
+	 * <p>Intended primarily for internal use by the Versile Java framework. Accepts
+	 * {@link VArrayOfDouble}, {@link VArrayOfLong} or {@link VArrayOfInt} (which are
+	 * viewed without copying), or the corresponding primitive or boxed Java arrays.</p>
+	 *
+	 * @param dim array dimensions
+	 * @param data packed array data
+	 * @return multi-array
+	 * @throws VEntityError cannot convert data
+	 */
+	public static VMultiArrayOf<?> fromPacked(int[] dim, Object data)
+			throws VEntityError {
+		try {
+			if (data instanceof VArrayOfDouble)
+				return new VMultiArrayOfDouble(dim, (VArrayOfDouble)data);
+			else if (data instanceof double[] || data instanceof Double[])
+				return new VMultiArrayOfDouble(dim, VArrayOfDouble.valueOf(data));
+			else if (data instanceof VArrayOfLong)
+				return new VMultiArrayOfLong(dim, (VArrayOfLong)data);
+			else if (data instanceof long[] || data instanceof Long[])
+				return new VMultiArrayOfLong(dim, VArrayOfLong.valueOf(data));
+			else if (data instanceof VArrayOfInt)
+				return new VMultiArrayOfInt(dim, (VArrayOfInt)data);
+			else if (data instanceof int[] || data instanceof Integer[])
+				return new VMultiArrayOfInt(dim, VArrayOfInt.valueOf(data));
+		} catch (IllegalArgumentException e) {
+			throw new VEntityError("Invalid array dimensions or packed data length");
+		}
+		throw new VEntityError("Unsupported packed array type");
+	}
+
+	/**
+	 * Resolves buffer position of an array index.
+	 *
+	 * @param index array index
+	 * @return buffer position
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	int position(int[] index)
+			throws ArrayIndexOutOfBoundsException {
+		if (index.length != dim.length)
+			throw new ArrayIndexOutOfBoundsException("Invalid number of dimensions");
+		int pos = offset;
+		for (int i = 0; i < index.length; i++) {
+			if (index[i] < 0 || index[i] >= dim[i])
+				throw new ArrayIndexOutOfBoundsException("Invalid index");
+			pos += index[i]*strides[i];
+		}
+		return pos;
+	}
+
+	/**
+	 * Advances an index to the next element in flattened layout.
+	 *
+	 * @param index index to advance (updated)
+	 * @param pos buffer position of index
+	 * @return buffer position of advanced index
+	 */
+	int nextPosition(int[] index, int pos) {
+		for (int i = 0; i < index.length; i++) {
+			pos += strides[i];
+			if (++index[i] < dim[i])
+				break;
+			pos -= strides[i]*dim[i];
+			index[i] = 0;
+		}
+		return pos;
+	}
+
+	/**
+	 * Checks whether elements are held in flattened layout from the start of the buffer.
+	 *
+	 * @param length buffer length
+	 * @return true if flattened layout
+	 */
+	boolean isPacked(int length) {
+		if (offset != 0 || length != num_elements)
+			return false;
+		int mul = 1;
+		for (int i = 0; i < dim.length; i++) {
+			if (strides[i] != mul)
+				return false;
+			mul *= dim[i];
+		}
+		return true;
+	}
+
+	/**
+	 * Get element at a buffer position.
+	 *
+	 * @param pos buffer position
+	 * @return element
+	 */
+	abstract T elementAt(int pos);
+
+	/**
+	 * Creates an array which views elements of this array.
+	 *
+	 * @param dim view dimensions
+	 * @param strides view strides
+	 * @param offset view offset
+	 * @return view
+	 */
+	abstract VMultiArrayOf<T> createView(int[] dim, int[] strides, int offset);
+
+	/**
+	 * Get array elements as a packed VSE array in flattened layout.
+	 *
+	 * @return packed array
+	 */
+	abstract VArrayOf<T> packed();
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.container;
+
+import java.nio.IntBuffer;
+
+
+/**
+ * Frozen N-dimensional array of int elements.
+ *
+ * <p>Elements are held in a primitive buffer, see {@link VMultiArrayOf}. An
+ * array decoded from serialized data holds a view of the received
+ * {@link VArrayOfInt} data, and a packed array is re-used as-is if the array
+ * is serialized again. If the array is received via native conversion, enabling
+ * {@link org.versile.vse.VSEResolver#enablePrimitiveArrays(boolean)} avoids
+ * boxing of elements during decoding.</p>
+ */
+public class VMultiArrayOfInt extends VMultiArrayOf<Integer> {
+
+	IntBuffer values;           // elements, position always zero
+	VArrayOfInt source = null;  // packed array viewed by values (or null)
+
+	/**
+	 * Constructs an initialized multi-dimensional array.
+	 *
+	 * <p>The provided data must have the same layout as the VFrozenMultiArray
+	 * Versile Entity Representation encoding layout, and must have the same
+	 * length as the number of array elements.</p>
+	 *
+	 * @param dim array dimensions
+	 * @param data array input data (following VER layout, copied)
+	 * @throws IllegalArgumentException
+	 */
+	public VMultiArrayOfInt(int[] dim, int[] data)
+			throws IllegalArgumentException {
+		super(dim, null, 0);
+		if (data.length != num_elements)
+			throw new IllegalArgumentException("Invalid length of provided data");
+		values = IntBuffer.wrap(data.clone());
+	}
+
+	/**
+	 * Constructs a filled multi-dimensional array.
+	 *
+	 * @param dim array dimensions
+	 * @param fill value to set for all array elements
+	 * @throws IllegalArgumentException
+	 */
+	public VMultiArrayOfInt(int[] dim, int fill)
+			throws IllegalArgumentException {
+		super(dim, null, 0);
+		int[] data = new int[num_elements];
+		for (int i = 0; i < data.length; i++)
+			data[i] = fill;
+		values = IntBuffer.wrap(data);
+	}
+
+	/**
+	 * Constructs a multi-dimensional array which views a packed array.
+	 *
+	 * <p>The packed array must follow the VER encoding layout, and must have
+	 * the same length as the number of array elements.</p>
+	 *
+	 * @param dim array dimensions
+	 * @param array packed array (elements are not copied)
+	 * @throws IllegalArgumentException
+	 */
+	public VMultiArrayOfInt(int[] dim, VArrayOfInt array)
+			throws IllegalArgumentException {
+		super(dim, null, 0);
+		if (array.getLength() != num_elements)
+			throw new IllegalArgumentException("Invalid length of provided data");
+		values = array.values;
+		source = array;
+	}
+
+	// Creates a view of provided elements
+	VMultiArrayOfInt(int[] dim, int[] strides, int offset, IntBuffer values) {
+		super(dim, strides, offset);
+		this.values = values;
+	}
+
+	/**
+	 * Get an array element.
+	 *
+	 * @param index array index
+	 * @return element at index
+	 * @throws ArrayIndexOutOfBoundsException
+	 */
+	public int getInt(int... index)
+			throws ArrayIndexOutOfBoundsException {
+		return values.get(this.position(index));
+	}
+
+	/**
+	 * Get a flattened representation.
+	 *
+	 * <p>Generates a representation which complies with the Versile
+	 * Entity Representation encoded format.</p>
+	 *
+	 * @return flattened array data
+	 */
+	public int[] toIntArray() {
+		int[] result = new int[num_elements];
+		if (this.isPacked(values.limit()))
+			values.duplicate().get(result);
+		else {
+			int[] index = new int[dim.length];
+			int pos = offset;
+			for (int i = 0; i < result.length; i++) {
+				result[i] = values.get(pos);
+				pos = this.nextPosition(index, pos);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public VMultiArrayOfInt slice(int dimension, int start, int end)
+			throws ArrayIndexOutOfBoundsException {
+		return (VMultiArrayOfInt)super.slice(dimension, start, end);
+	}
+
+	@Override
+	Integer elementAt(int pos) {
+		return values.get(pos);
+	}
+
+	@Override
+	VMultiArrayOfInt createView(int[] dim, int[] strides, int offset) {
+		return new VMultiArrayOfInt(dim, strides, offset, values);
+	}
+
+	@Override
+	VArrayOfInt packed() {
+		if (source != null && this.isPacked(values.limit()))
+			return source;
+		return new VArrayOfInt(IntBuffer.wrap(this.toIntArray()));
+	}
+}
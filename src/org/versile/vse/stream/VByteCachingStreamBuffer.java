@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.stream;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Caching stream buffer for byte data.
+ *
+ * <p>When a context is set up with 'canCache' set, data received by the
+ * buffer is also held in a cache of byte chunks indexed by stream position.
+ * When a later context which allows caching starts inside a cached range,
+ * {@link #fillFromCache()} makes the contiguous cached data from that position
+ * available for reading, so a stream peer only needs to request data from
+ * the end of the cached range. This allows re-reading data and seeking
+ * within already received data without fetching data from the peer
+ * streamer again.</p>
+ *
+ * <p>The cache holds at most 'maxCache' bytes. When the limit is exceeded,
+ * the least recently used chunks are evicted. Data written through the buffer
+ * replaces overlapping cached data, and a context which does not allow
+ * caching discards all cached data.</p>
+ */
+public class VByteCachingStreamBuffer extends VByteStreamBuffer {
+
+	long max_cache;
+	boolean caching = false;
+	TreeMap<Long, byte[]> cache;                // Cached chunks by start position
+	LinkedHashMap<Long, byte[]> lru;            // Cached chunks in access order
+	long cache_size = 0;
+
+	/**
+	 * Set up buffer.
+	 *
+	 * @param maxCache max bytes of cached data
+	 */
+	public VByteCachingStreamBuffer(long maxCache) {
+		max_cache = maxCache;
+		cache = new TreeMap<Long, byte[]>();
+		lru = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+		copy_chunks = true;
+	}
+
+	@Override
+	public synchronized void newContext(long pos, boolean canCache) {
+		super.newContext(pos, canCache);
+		caching = canCache;
+		if (!canCache)
+			this.clearCache();
+	}
+
+	@Override
+	public synchronized long fillFromCache() {
+		if (!caching)
+			return write_pos;
+		while (true) {
+			Map.Entry<Long, byte[]> entry = cache.floorEntry(write_pos);
+			if (entry == null)
+				break;
+			long start = entry.getKey();
+			byte[] chunk = entry.getValue();
+			long offset = write_pos - start;
+			if (offset >= chunk.length)
+				break;
+			lru.get(start);
+			int length = chunk.length - (int)offset;
+			if (offset > 0) {
+				if (chunks.isEmpty())
+					chunk_pos = (int)offset;
+				else
+					chunk = Arrays.copyOfRange(chunk, (int)offset, chunk.length);
+			}
+			chunks.addLast(chunk);
+			num_elements += length;
+			write_pos += length;
+		}
+		return write_pos;
+	}
+
+	@Override
+	public synchronized void clearCache() {
+		cache.clear();
+		lru.clear();
+		cache_size = 0;
+	}
+
+	@Override
+	public synchronized void writeBytes(byte[] data, boolean advance) {
+		if (data.length > 0) {
+			if (advance)
+				this.remove(write_pos, write_pos + data.length);
+			else if (caching)
+				this.insert(write_pos, data);
+		}
+		super.writeBytes(data, advance);
+	}
+
+	/**
+	 * Get max bytes of cached data.
+	 *
+	 * @return max cached bytes
+	 */
+	public long getMaxCache() {
+		return max_cache;
+	}
+
+	/**
+	 * Get current bytes of cached data.
+	 *
+	 * @return cached bytes
+	 */
+	public synchronized long getCacheSize() {
+		return cache_size;
+	}
+
+	// Adds a chunk to the cache, replacing any overlapping data
+	void insert(long start, byte[] data) {
+		this.remove(start, start + data.length);
+		if (data.length > max_cache)
+			return;
+		cache.put(start, data);
+		lru.put(start, data);
+		cache_size += data.length;
+
+		// Evict least recently used chunks
+		Iterator<Map.Entry<Long, byte[]>> iter = lru.entrySet().iterator();
+		while (cache_size > max_cache && iter.hasNext()) {
+			Map.Entry<Long, byte[]> entry = iter.next();
+			cache.remove(entry.getKey());
+			cache_size -= entry.getValue().length;
+			iter.remove();
+		}
+	}
+
+	// Removes cached chunks which overlap the range [start, end)
+	void remove(long start, long end) {
+		if (cache.isEmpty())
+			return;
+		Long first = cache.floorKey(start);
+		if (first == null || first + cache.get(first).length <= start)
+			first = start;
+		Iterator<Map.Entry<Long, byte[]>> iter = cache.subMap(first, end).entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<Long, byte[]> entry = iter.next();
+			lru.remove(entry.getKey());
+			cache_size -= entry.getValue().length;
+			iter.remove();
+		}
+	}
+}
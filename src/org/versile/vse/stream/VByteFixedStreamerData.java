@@ -26,12 +26,23 @@ package org.versile.vse.stream;
  *
  * <p>Operates on byte data.</p>
  */
-public class VByteFixedStreamerData extends VFixedStreamerData<Byte> {
+public class VByteFixedStreamerData extends VFixedStreamerData<Byte> implements VByteStreamerDataAccess {
 
 	public VByteFixedStreamerData(Byte[] data) {
 		super(data);
 	}
 
+	@Override
+	public synchronized byte[] readBytes(int maxNum) throws VStreamError, VStreamFailure {
+		Byte[] _data = this.read(maxNum);
+		return VByteStreamBuffer.unbox(_data);
+	}
+
+	@Override
+	public void writeBytes(byte[] data) throws VStreamError, VStreamFailure {
+		this.write(VByteStreamBuffer.box(data));
+	}
+
 	@Override
 	public Byte[] createArray(int len) {
 		return new Byte[len];
@@ -20,6 +20,7 @@
 
 package org.versile.vse.stream;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 
 
@@ -92,11 +93,9 @@ public class VByteStream extends VStream<Byte> {
 	 */
 	public byte[] recv(int maxNum, long timeout, int ntimeout)
 			throws VStreamTimeout, VStreamError {
-		Byte[] data = _stream.recv(maxNum, timeout, ntimeout);
-		byte[] result = new byte[data.length];
-		for (int i = 0; i < data.length; i++)
-			result[i] = data[i];
-		return result;
+		if (_stream instanceof VByteStreamPeer)
+			return ((VByteStreamPeer)_stream).recvBytes(maxNum, timeout, ntimeout);
+		return VByteStreamBuffer.unbox(_stream.recv(maxNum, timeout, ntimeout));
 	}
 
 	/**
@@ -173,11 +172,12 @@ public class VByteStream extends VStream<Byte> {
 			num_read += data.length;
 		}
 
+		if (chunks.size() == 1)
+			return chunks.getFirst();
 		byte[] result = new byte[num_read];
 		int pos = 0;
 		for (byte[] chunk: chunks) {
-			for (int i = 0; i < chunk.length; i++)
-				result[pos+i] = chunk[i];
+			System.arraycopy(chunk, 0, result, pos, chunk.length);
 			pos += chunk.length;
 		}
 		return result;
@@ -239,10 +239,9 @@ public class VByteStream extends VStream<Byte> {
 	 */
 	public int send(byte[] data, long timeout, int ntimeout)
 			throws VStreamTimeout, VStreamError {
-		Byte[] send_data = new Byte[data.length];
-		for (int i = 0; i < data.length; i++)
-			send_data[i] = data[i];
-		return _stream.send(send_data, timeout, ntimeout);
+		if (_stream instanceof VByteStreamPeer)
+			return ((VByteStreamPeer)_stream).sendBytes(data, timeout, ntimeout);
+		return _stream.send(VByteStreamBuffer.box(data), timeout, ntimeout);
 	}
 
 	/**
@@ -277,10 +276,7 @@ public class VByteStream extends VStream<Byte> {
 			num_unsent -= sent;
 			if (num_unsent == 0)
 				break;
-			byte[] _data = new byte[num_unsent];
-			for (int i = 0; i < num_unsent; i++)
-				_data[i] = send_data[sent+i];
-			send_data = _data;
+			send_data = Arrays.copyOfRange(send_data, sent, send_data.length);
 		}
 	}
 }
@@ -20,14 +20,161 @@
 
 package org.versile.vse.stream;
 
+import java.util.LinkedList;
+
 
 /**
  * Simple non-caching stream buffer for byte data.
+ *
+ * <p>Data is held as primitive byte[] chunks. Byte data can be written and
+ * read without conversion to or from Byte[] with {@link #writeBytes(byte[], boolean)}
+ * and {@link #readBytes(int)}, which are used by {@link VByteStreamPeer} and
+ * {@link VByteStreamer}.</p>
  */
-public class VByteStreamBuffer extends VSimpleStreamBuffer<Byte> {
+public class VByteStreamBuffer extends VStreamBuffer<Byte> {
+
+	LinkedList<byte[]> chunks;
+	int chunk_pos = 0;
+	long num_elements = 0;
+	long read_pos = 0;
+	long write_pos = 0;
+	boolean copy_chunks = false;	// If true never pass on buffered chunks without copy
+
+	public VByteStreamBuffer() {
+		chunks = new LinkedList<byte[]>();
+	}
+
+	@Override
+	public synchronized void newContext(long pos, boolean canCache) {
+		read_pos = pos;
+		write_pos = pos;
+		this.clear();
+	}
+
+	@Override
+	public synchronized void endContext() {
+		read_pos = 0;
+		write_pos = 0;
+		this.clear();
+	}
+
+	@Override
+	public void write(Byte[] data, boolean advance) {
+		this.writeBytes(VByteStreamBuffer.unbox(data), advance);
+	}
+
+	/**
+	 * Write data onto the buffer's current write position.
+	 *
+	 * <p>The buffer takes ownership of 'data' which should not be modified
+	 * after it has been written.</p>
+	 *
+	 * @param data data to write
+	 * @param advance if true advance read position to write position
+	 */
+	public synchronized void writeBytes(byte[] data, boolean advance) {
+		write_pos += data.length;
+		if (advance) {
+			read_pos = write_pos;
+			this.clear();
+		}
+		else if (data.length > 0) {
+			chunks.addLast(data);
+			num_elements += data.length;
+		}
+	}
+
+	@Override
+	public Byte[] read(int maxRead) {
+		return VByteStreamBuffer.box(this.readBytes(maxRead));
+	}
+
+	/**
+	 * Read data from current read position.
+	 *
+	 * <p>See {@link #read(int)}. If the requested data is held in a single
+	 * buffered chunk, that chunk is returned without copying.</p>
+	 *
+	 * @param maxRead max elements to read
+	 * @return data read
+	 */
+	public synchronized byte[] readBytes(int maxRead) {
+		int num_read = maxRead;
+		if (num_read > num_elements)
+			num_read = (int) num_elements;
+		if (num_read <= 0)
+			return new byte[0];
+
+		byte[] result;
+		byte[] first = chunks.getFirst();
+		if (chunk_pos == 0 && first.length == num_read && !copy_chunks) {
+			result = chunks.removeFirst();
+			num_elements -= num_read;
+		}
+		else {
+			result = new byte[num_read];
+			int r_pos = 0;
+			while (num_read > 0) {
+				byte[] chunk = chunks.getFirst();
+				int c_num = chunk.length - chunk_pos;
+				if (c_num > num_read)
+					c_num = num_read;
+				System.arraycopy(chunk, chunk_pos, result, r_pos, c_num);
+				r_pos += c_num;
+				chunk_pos += c_num;
+				num_elements -= c_num;
+				num_read -= c_num;
+				if (chunk_pos == chunk.length) {
+					chunks.removeFirst();
+					chunk_pos = 0;
+				}
+			}
+		}
+		read_pos += result.length;
+		if (write_pos < read_pos)
+			write_pos = read_pos;
+		return result;
+	}
+
+	@Override
+	public synchronized long getMaxRead() {
+		return num_elements;
+	}
+
+	@Override
+	public synchronized long getReadPosition() {
+		return read_pos;
+	}
+
+	@Override
+	public synchronized long getWritePosition() {
+		return write_pos;
+	}
 
 	@Override
 	public Byte[] createArray(int len) {
 		return new Byte[len];
 	}
+
+	void clear() {
+		chunks.clear();
+		chunk_pos = 0;
+		num_elements = 0;
+	}
+
+	// Converts byte[] to Byte[]
+	static Byte[] box(byte[] data) {
+		Byte[] result = new Byte[data.length];
+		for (int i = 0; i < data.length; i++)
+			result[i] = data[i];
+		return result;
+	}
+
+	// Converts Byte[] to byte[]
+	static byte[] unbox(Byte[] data) {
+		byte[] result = new byte[data.length];
+		for (int i = 0; i < data.length; i++)
+			result[i] = data[i];
+		return result;
+	}
 }
@@ -30,12 +30,40 @@ package org.versile.vse.stream;
  * <ul>
  *   <li><i>maxReadPkgSize</i> is max size of a read package, default is 100000.</li>
  *   <li><i>maxWritePkgSize</i> is max size of a write package, default is 100000.</li>
+ *   <li><i>minPkgSize</i> is the min package size when auto-tuning, default is 4096.</li>
+ *   <li><i>readCacheSize</i> is the max bytes of received data which is cached for
+ *   streams which allow caching, see {@link VByteCachingStreamBuffer}. If zero
+ *   no data is cached. Default is 0.</li>
  * </ul>
  */
 public class VByteStreamConfig extends VStreamConfig {
 
+	// When adding fields remember to update copyTo()
+	long readCacheSize = 0;
+
 	public VByteStreamConfig() {
 		this.setMaxReadPkgSize(100000);
 		this.setMaxWritePkgSize(100000);
+		this.setMinPkgSize(4096);
+	}
+
+	@Override
+	public VByteStreamConfig clone() {
+		VByteStreamConfig result = new VByteStreamConfig();
+		this.copyTo(result);
+		return result;
+	}
+
+	public long getReadCacheSize() {
+		return readCacheSize;
+	}
+
+	public void setReadCacheSize(long readCacheSize) {
+		this.readCacheSize = readCacheSize;
+	}
+
+	protected void copyTo(VByteStreamConfig config) {
+		super.copyTo(config);
+		config.readCacheSize = readCacheSize;
 	}
 }
@@ -20,6 +20,8 @@
 
 package org.versile.vse.stream;
 
+import java.util.Arrays;
+
 import org.versile.orb.entity.VCallError;
 import org.versile.orb.entity.VProxy;
 import org.versile.orb.external.Publish;
@@ -47,10 +49,13 @@ public class VByteStreamPeer extends VStreamPeer<Byte> {
 	/**
 	 * Set up stream peer.
 	 *
+	 * <p>If 'config' is a {@link VByteStreamConfig} with a positive read cache size,
+	 * the stream peer uses a {@link VByteCachingStreamBuffer}.</p>
+	 *
 	 * @param config link configuration parameters
 	 */
 	public VByteStreamPeer(VStreamConfig config) {
-		super(new VByteStreamBuffer(), config);
+		super(VByteStreamPeer.createBuffer(config), config);
 	}
 
 	/**
@@ -93,35 +98,65 @@ public class VByteStreamPeer extends VStreamPeer<Byte> {
 				throw new VCallError();
 			}
 
-			// Convert data to a Byte[] representation
-			Byte[] _data = new Byte[data.length];
-			for (int i = 0; i < data.length; i++)
-				_data[i] = data[i];
-
 			class Call extends VSequenceCallQueue.LocalCall {
 				long read_ctx;
-				Byte[] data;
+				byte[] data;
 				boolean eos;
-				public Call(long read_ctx, Byte[] _data, boolean eos) {
+				public Call(long read_ctx, byte[] _data, boolean eos) {
 					this.read_ctx = read_ctx;
 					this.data = _data;
 					this.eos = eos;
 				}
 				@Override
 				public Object execute() throws Exception {
-					_peer_rpush(read_ctx, data, eos);
+					_peer_rpush_bytes(read_ctx, data, eos);
 					return null;
 				}
 			}
+			// The peer frees the read package slot when this call returns
 			try {
-				_calls.queue(msg_id, new Call(read_ctx, _data, eos));
+				_calls.queue(msg_id, new Call(read_ctx, data, eos));
 			} catch (VSequenceCallException e) {
 				this._fail("Call sequencing error");
 				throw new VCallError();
+			} finally {
+				_r_pending -= 1;
 			}
 		}
 	}
 
+	synchronized byte[] recvBytes(int maxNum, long timeout, int ntimeout)
+			throws VStreamTimeout, VStreamError {
+		this._recv_wait(maxNum, timeout, ntimeout);
+		byte[] data = ((VByteStreamBuffer)_buf).readBytes(maxNum);
+		this._recv_done(data.length);
+		return data;
+	}
+
+	synchronized int sendBytes(byte[] data, long timeout, int ntimeout)
+			throws VStreamTimeout, VStreamError {
+		long max_send = this._send_wait((data.length > 0), timeout, ntimeout);
+		if (data.length == 0)
+			return 0;
+
+		if (data.length > max_send)
+			data = Arrays.copyOf(data, (int)max_send);
+		else
+			data = data.clone();
+		((VByteStreamBuffer)_buf).writeBytes(data, true);
+		this._send_push(data, data.length);
+		return data.length;
+	}
+
+	synchronized void _peer_rpush_bytes(long read_ctx, byte[] data, boolean eos)
+			throws VCallError {
+		if (!this._rpush_check(read_ctx, data.length))
+			return;
+		boolean had_data = (_buf.getMaxRead() > 0);
+		((VByteStreamBuffer)_buf).writeBytes(data, false);
+		this._rpush_done(data.length, eos, had_data);
+	}
+
 	/**
 	 * Connect the stream to a peer streamer.
 	 *
@@ -140,6 +175,16 @@ public class VByteStreamPeer extends VStreamPeer<Byte> {
 		return new VByteStream(this);
 	}
 
+	// Creates a stream buffer for a configuration
+	static VByteStreamBuffer createBuffer(VStreamConfig config) {
+		if (config instanceof VByteStreamConfig) {
+			long cache_size = ((VByteStreamConfig)config).getReadCacheSize();
+			if (cache_size > 0)
+				return new VByteCachingStreamBuffer(cache_size);
+		}
+		return new VByteStreamBuffer();
+	}
+
 	@Override
 	protected VStream<Byte> createStream(VStreamPeer<Byte> peer) {
 		return new VByteStream(peer);
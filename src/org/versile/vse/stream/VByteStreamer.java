@@ -120,31 +120,74 @@ public class VByteStreamer extends VStreamer<Byte> {
 			this._fail("Write package too big");
 			throw new VCallError();
 		}
-		Byte[] _data = new Byte[data.length];
-		for (int i = 0; i < _data.length; i++)
-			_data[i] = data[i];
 
 		class Call extends VSequenceCallQueue.LocalCall {
 			long write_ctx;
-			Byte[] data;
-			public Call(long write_ctx, Byte[] data) {
+			byte[] data;
+			public Call(long write_ctx, byte[] data) {
 				this.write_ctx = write_ctx;
 				this.data = data;
 			}
 			@Override
 			public Object execute() throws Exception {
-				_peer_wpush(write_ctx, data);
+				_peer_wpush_bytes(write_ctx, data);
 				return null;
 			}
 		}
+		// The peer frees the write package slot when this call returns
 		try {
-			this._calls.queue(callID, new Call(writeCtx, _data));
+			this._calls.queue(callID, new Call(writeCtx, data));
 		} catch (VSequenceCallException e) {
 			this._fail("Internal peer_write_push processing error");
 			throw new VCallError();
+		} finally {
+			_w_pending -= 1;
 		}
 	}
 
+	@Override
+	protected Object _read_data(int maxNum)
+			throws VStreamError, VStreamFailure {
+		if (_streamdata instanceof VByteStreamerDataAccess)
+			return ((VByteStreamerDataAccess)_streamdata).readBytes(maxNum);
+		return VByteStreamBuffer.unbox(_streamdata.read(maxNum));
+	}
+
+	@Override
+	protected int _data_length(Object data) {
+		return ((byte[])data).length;
+	}
+
+	/**
+	 * Internal handler for peer_wpush call from peer.
+	 *
+	 * <p>Same as {@link #_peer_wpush(long, Object[])} for byte[] data.</p>
+	 *
+	 * @param write_ctx write context
+	 * @param data pushed data
+	 * @throws VCallError
+	 */
+	protected synchronized void _peer_wpush_bytes(long write_ctx, byte[] data)
+			throws VCallError {
+		if (!this._wpush_check(write_ctx, data.length))
+			return;
+
+		try {
+			if (_streamdata instanceof VByteStreamerDataAccess)
+				((VByteStreamerDataAccess)_streamdata).writeBytes(data);
+			else
+				_streamdata.write(VByteStreamBuffer.box(data));
+		} catch (VStreamFailure e) {
+			this._fail("Streamer write fail");
+			throw new VCallError();
+		} catch (VStreamError e) {
+			this._fail("Streamer write fail");
+			throw new VCallError();
+		}
+		((VByteStreamBuffer)_buf).writeBytes(data, false);
+		this._wpush_done(data.length);
+	}
+
 	/**
 	 * Creates a fixed-data streamer.
 	 *
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.stream;
+
+
+/**
+ * Primitive byte[] access to byte streamer data.
+ *
+ * <p>Byte streamer data which implements this interface is read and written
+ * by a {@link VByteStreamer} with byte[] data, instead of the boxed Byte[]
+ * data of {@link VStreamerData#read(int)} and {@link VStreamerData#write(Object[])}.
+ * The methods must have the same effect as the corresponding boxed methods.</p>
+ */
+public interface VByteStreamerDataAccess {
+
+	/**
+	 * Reads data from current position.
+	 *
+	 * <p>See {@link VStreamerData#read(int)}.</p>
+	 *
+	 * @param maxNum max elements to read
+	 * @return data read
+	 * @throws VStreamError operation error
+	 * @throws VStreamFailure general streamer data failure
+	 */
+	public byte[] readBytes(int maxNum)
+			throws VStreamError, VStreamFailure;
+
+	/**
+	 * Writes data at current position.
+	 *
+	 * <p>See {@link VStreamerData#write(Object[])}.</p>
+	 *
+	 * @param data data to write
+	 * @throws VStreamError operation error
+	 * @throws VStreamFailure general streamer data failure
+	 */
+	public void writeBytes(byte[] data)
+			throws VStreamError, VStreamFailure;
+}
@@ -134,11 +134,14 @@ public class VEntityStreamer extends VStreamer<VEntity> {
 				return null;
 			}
 		}
+		// The peer frees the write package slot when this call returns
 		try {
 			this._calls.queue(callID, new Call(writeCtx, data));
 		} catch (VSequenceCallException e) {
 			this._fail("Internal peer_write_push processing error");
 			throw new VCallError();
+		} finally {
+			_w_pending -= 1;
 		}
 	}
 
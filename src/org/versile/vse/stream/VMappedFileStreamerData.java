@@ -0,0 +1,517 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.stream;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.versile.vse.stream.VStream.PosBase;
+
+
+/**
+ * Streamer data interface to a file channel.
+ *
+ * <p>Reads and writes are positional operations on a {@link FileChannel}, so
+ * seek operations only change the position held by the streamer data object,
+ * and the file channel's own position is not used. Data is read directly into
+ * the returned data array without any intermediate buffer. For streamer data
+ * which is not writable, reads are served from memory-mapped regions of the
+ * file, which are mapped as they are accessed. At most
+ * {@link Config#getMaxRegions()} regions of {@link Config#getRegionSize()}
+ * bytes are held, with least recently used regions being released first.</p>
+ *
+ * <p>Additional streamer data objects for the same file channel can be created
+ * with {@link #duplicate()}. Each object has its own position and can be
+ * connected to a separate streamer, while they share the file channel and
+ * mapped regions. This allows multiple readers to access a file concurrently
+ * at independent positions. The file channel is closed when all streamer data
+ * objects sharing it have been closed.</p>
+ *
+ * <p>Similar to {@link VSimpleFileStreamerData}, the streamer data assumes it
+ * has full control of the file, and if it is writable then no other streamer
+ * data object (including duplicates) should be writing to the same file. The
+ * streamer data does not allow seeking past the current end-of-file, however
+ * for a writable file it allows moving the end-point by writing past the
+ * current end-point.</p>
+ */
+public class VMappedFileStreamerData extends VStreamerData<Byte> implements VByteStreamerDataAccess {
+
+	Channel channel;
+	Config config;
+	VStreamMode req_mode;
+	VStreamMode req_mask;
+	VStreamMode opt_mode;
+	long pos;
+	boolean closed = false;
+	boolean failed = false;
+
+	/**
+	 * Set up streamer data which access a file.
+	 *
+	 * @param file file accessed by streamer data
+	 * @param config file access configuration
+	 * @throws VStreamError
+	 */
+	public VMappedFileStreamerData(RandomAccessFile file, Config config)
+			throws VStreamError {
+		this(file.getChannel(), config);
+	}
+
+	/**
+	 * Set up streamer data which access a file channel.
+	 *
+	 * <p>The initial position of the streamer data is the current position of
+	 * the file channel.</p>
+	 *
+	 * @param channel file channel accessed by streamer data
+	 * @param config file access configuration
+	 * @throws VStreamError
+	 */
+	public VMappedFileStreamerData(FileChannel channel, Config config)
+			throws VStreamError {
+		long pos;
+		try {
+			pos = channel.position();
+		} catch (IOException e) {
+			throw new VStreamError(e);
+		}
+		this.init(new Channel(channel, config), config.clone(), pos);
+	}
+
+	// Sets up streamer data on a shared channel
+	VMappedFileStreamerData(Channel channel, Config config, long pos) {
+		this.init(channel, config, pos);
+	}
+
+	/**
+	 * Creates streamer data for the same file.
+	 *
+	 * <p>The returned streamer data shares file channel and configuration with
+	 * this object, and is initially at the same position.</p>
+	 *
+	 * @return streamer data for the same file
+	 * @throws VStreamError streamer data was closed
+	 */
+	public synchronized VMappedFileStreamerData duplicate()
+			throws VStreamError {
+		if (closed)
+			throw new VStreamError("Streamer data was closed");
+		channel.retain();
+		return new VMappedFileStreamerData(channel, config, pos);
+	}
+
+	@Override
+	public Byte[] read(int maxNum) throws VStreamError, VStreamFailure {
+		return VByteStreamBuffer.box(this.readBytes(maxNum));
+	}
+
+	@Override
+	public synchronized byte[] readBytes(int maxNum) throws VStreamError, VStreamFailure {
+		this.check_closed_or_failed();
+
+		if (!opt_mode.readable()) {
+			throw new VStreamError("Stream not readable");
+		}
+
+		byte[] result;
+		try {
+			long num = channel.size() - pos;
+			if (num > maxNum)
+				num = maxNum;
+			if (num < 0)
+				num = 0;
+			result = new byte[(int)num];
+			if (opt_mode.writable())
+				channel.read(result, pos);
+			else
+				channel.readMapped(result, pos);
+		} catch (IOException e) {
+			this.set_failed();
+			throw new VStreamFailure(e);
+		}
+		pos += result.length;
+		return result;
+	}
+
+	@Override
+	public void write(Byte[] data) throws VStreamError, VStreamFailure {
+		this.writeBytes(VByteStreamBuffer.unbox(data));
+	}
+
+	@Override
+	public synchronized void writeBytes(byte[] data) throws VStreamError, VStreamFailure {
+		this.check_closed_or_failed();
+
+		if (!opt_mode.writable()) {
+			throw new VStreamError("Stream not writable");
+		}
+
+		try {
+			channel.write(data, pos);
+		} catch (IOException e) {
+			this.set_failed();
+			throw new VStreamFailure(e);
+		}
+		pos += data.length;
+	}
+
+	@Override
+	public synchronized long seek(long pos, PosBase posRef)
+				throws VStreamError, VStreamFailure {
+		this.check_closed_or_failed();
+
+		long target_pos = 0;
+		long file_len;
+		try {
+			file_len = channel.size();
+		} catch (IOException e) {
+			this.set_failed();
+			throw new VStreamFailure(e);
+		}
+
+		if (posRef == VStream.PosBase.ABS || posRef == VStream.PosBase.START)
+			target_pos = pos;
+		else if (posRef == VStream.PosBase.END)
+			target_pos = file_len + pos;
+		else
+			target_pos = this.pos + pos;
+
+		if (target_pos < 0)
+			throw new VStreamError("Cannot seek to negative position");
+		else if (target_pos > file_len)
+			throw new VStreamError("Cannot seek past end of file");
+		if (target_pos > this.pos && !opt_mode.seekFwd())
+			throw new VStreamError("Streamer data does not allow forward seek");
+		if (target_pos < this.pos && !opt_mode.seekRew())
+			throw new VStreamError("Streamer data does not allow rewind seek");
+
+		this.pos = target_pos;
+		return target_pos;
+	}
+
+	@Override
+	public synchronized void truncateBefore() throws VStreamError, VStreamFailure {
+		// Illegal operation
+		this.set_failed();
+		throw new VStreamFailure("Illegal operation");
+	}
+
+	@Override
+	public synchronized void truncateAfter() throws VStreamError, VStreamFailure {
+		this.check_closed_or_failed();
+		try {
+			channel.truncate(pos);
+		} catch (IOException e) {
+			this.set_failed();
+			throw new VStreamFailure(e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			channel.release();
+		}
+	}
+
+	@Override
+	public synchronized long getPosition() throws VStreamError, VStreamFailure {
+		this.check_closed_or_failed();
+		return pos;
+	}
+
+	@Override
+	public org.versile.vse.stream.VStreamerData.Endpoint[] getEndpoints()
+			throws VStreamError, VStreamFailure {
+		this.check_closed_or_failed();
+		Endpoint[] result = new Endpoint[2];
+		result[0] = new Endpoint(true, 0);
+		try {
+			result[1] = new Endpoint(true, channel.size());
+		} catch (IOException e) {
+			this.set_failed();
+			throw new VStreamFailure(e);
+		}
+		return result;
+	}
+
+	@Override
+	public VStreamMode[] getRequiredMode() {
+		return new VStreamMode[] {req_mode.clone(), req_mask.clone()};
+	}
+
+	@Override
+	public VStreamMode getOptionalMode() {
+		return opt_mode.clone();
+	}
+
+	void init(Channel channel, Config config, long pos) {
+		this.channel = channel;
+		this.config = config;
+		this.pos = pos;
+
+		req_mode = new VStreamMode();
+		req_mode.setStartBounded(true);
+		req_mode.setEndBounded(true);
+
+		VStreamMode _req_none = new VStreamMode();
+		_req_none.setStartCanInc(true);
+		_req_none.setStartCanDec(true);
+		_req_none.setCanMoveStart(true);
+
+		opt_mode = new VStreamMode();
+		opt_mode.setDataLock(true);
+		opt_mode.setStartLock(true);
+		opt_mode.setEndLock(true);
+
+		if (config.isReadable())
+			opt_mode.setReadable(true);
+		else
+			_req_none.setReadable(true);
+
+		VStreamMode _w_set;
+		if (config.isWritable())
+			_w_set = opt_mode;
+		else
+			_w_set = _req_none;
+		_w_set.setWritable(true);
+		_w_set.setEndCanDec(true);
+		_w_set.setEndCanInc(true);
+		_w_set.setCanMoveEnd(true);
+
+		if (config.isCanSeekRew())
+			opt_mode.setSeekRew(true);
+		else
+			_req_none.setSeekRew(true);
+
+		if (config.isCanSeekFwd())
+			opt_mode.setSeekFwd(true);
+		else
+			_req_none.setSeekFwd(true);
+
+		req_mask = req_mode.orWith(_req_none);
+	}
+
+	void set_failed() {
+		failed = true;
+		if (!closed) {
+			closed = true;
+			channel.release();
+		}
+	}
+
+	void check_closed_or_failed()
+			throws VStreamError, VStreamFailure {
+		if (closed)
+			if (failed)
+				throw new VStreamFailure("Streamer data had a failure");
+			else
+				throw new VStreamError("Streamer data error");
+	}
+
+	/**
+	 * File channel streamer configuration.
+	 *
+	 * <p>If true, 'readable', 'writable', 'canSeekRew' and 'canSeekFwd' enable
+	 * the corresponding properties on a file streamer. Default has none of
+	 * the properties set.</p>
+	 *
+	 * <p>'regionSize' is the size of memory-mapped file regions, default is
+	 * 16MB. 'maxRegions' is the max number of regions which are held, default
+	 * is 16.</p>
+	 */
+	public static class Config {
+		// When adding fields remember to update copyTo()
+		int regionSize = 16*1024*1024;
+		int maxRegions = 16;
+		boolean readable = false;
+		boolean writable = false;
+		boolean canSeekRew = false;
+		boolean canSeekFwd = false;
+
+		@Override
+		public Config clone() {
+			Config result = new Config();
+			this.copyTo(result);
+			return result;
+		}
+
+		/**
+		 * Enables all file access options.
+		 */
+		public void enableAll() {
+			readable = true;
+			writable = true;
+			canSeekRew = true;
+			canSeekFwd = true;
+		}
+		public int getRegionSize() {
+			return regionSize;
+		}
+		public void setRegionSize(int regionSize) {
+			this.regionSize = regionSize;
+		}
+		public int getMaxRegions() {
+			return maxRegions;
+		}
+		public void setMaxRegions(int maxRegions) {
+			this.maxRegions = maxRegions;
+		}
+		public boolean isReadable() {
+			return readable;
+		}
+		public void setReadable(boolean readable) {
+			this.readable = readable;
+		}
+		public boolean isWritable() {
+			return writable;
+		}
+		public void setWritable(boolean writable) {
+			this.writable = writable;
+		}
+		public boolean isCanSeekRew() {
+			return canSeekRew;
+		}
+		public void setCanSeekRew(boolean canSeekRew) {
+			this.canSeekRew = canSeekRew;
+		}
+		public boolean isCanSeekFwd() {
+			return canSeekFwd;
+		}
+		public void setCanSeekFwd(boolean canSeekFwd) {
+			this.canSeekFwd = canSeekFwd;
+		}
+
+		protected void copyTo(Config config) {
+			config.regionSize = regionSize;
+			config.maxRegions = maxRegions;
+			config.readable = readable;
+			config.writable = writable;
+			config.canSeekRew = canSeekRew;
+			config.canSeekFwd = canSeekFwd;
+		}
+	}
+
+	// File channel and mapped regions shared by streamer data objects
+	static class Channel {
+		FileChannel channel;
+		int region_size;
+		int max_regions;
+		LinkedHashMap<Long, MappedByteBuffer> regions;
+		int ref_count = 1;
+
+		public Channel(FileChannel channel, Config config) {
+			this.channel = channel;
+			region_size = Math.max(config.getRegionSize(), 4096);
+			max_regions = Math.max(config.getMaxRegions(), 1);
+			final int _max_regions = max_regions;
+			regions = new LinkedHashMap<Long, MappedByteBuffer>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, MappedByteBuffer> eldest) {
+					return this.size() > _max_regions;
+				}
+			};
+		}
+
+		public long size()
+				throws IOException {
+			return channel.size();
+		}
+
+		// Reads from file at a position, file must hold the requested data
+		public void read(byte[] data, long pos)
+				throws IOException {
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			while (buf.hasRemaining()) {
+				int num_read = channel.read(buf, pos + buf.position());
+				if (num_read < 0)
+					throw new IOException("Unexpected end-of-file");
+			}
+		}
+
+		// Reads from mapped regions, file must hold the requested data
+		public void readMapped(byte[] data, long pos)
+				throws IOException {
+			int r_pos = 0;
+			while (r_pos < data.length) {
+				long index = (pos + r_pos)/region_size;
+				int offset = (int)(pos + r_pos - index*region_size);
+				int num = Math.min(data.length - r_pos, region_size - offset);
+				ByteBuffer region = this.getRegion(index, offset + num);
+				region.position(offset);
+				region.get(data, r_pos, num);
+				r_pos += num;
+			}
+		}
+
+		public synchronized void write(byte[] data, long pos)
+				throws IOException {
+			ByteBuffer buf = ByteBuffer.wrap(data);
+			while (buf.hasRemaining())
+				channel.write(buf, pos + buf.position());
+			regions.clear();
+		}
+
+		public synchronized void truncate(long pos)
+				throws IOException {
+			channel.truncate(pos);
+			regions.clear();
+		}
+
+		public synchronized void retain() {
+			ref_count += 1;
+		}
+
+		public synchronized void release() {
+			ref_count -= 1;
+			if (ref_count == 0) {
+				regions.clear();
+				try {
+					channel.close();
+				} catch (IOException e) {
+					// SILENT
+				}
+			}
+		}
+
+		// Returns an independent view of a region holding at least 'minLen' bytes
+		synchronized ByteBuffer getRegion(long index, int minLen)
+				throws IOException {
+			MappedByteBuffer region = regions.get(index);
+			if (region == null || region.capacity() < minLen) {
+				long start = index*region_size;
+				long len = Math.min(channel.size() - start, region_size);
+				if (len < minLen)
+					throw new IOException("Unexpected end-of-file");
+				region = channel.map(FileChannel.MapMode.READ_ONLY, start, len);
+				regions.put(index, region);
+			}
+			return region.duplicate();
+		}
+	}
+}
@@ -298,9 +298,11 @@ public class VObjectStream<T> extends VStream<T> implements Iterable<T> {
 	 * be readable.</p>
 	 *
 	 * <p>The iterator reads elements one element at at time until
-	 * end-of-stream is reached. Read-ahead should be enabled on the stream
+	 * end-of-stream is reached. Either prefetching (see
+	 * {@link VStreamConfig}) or read-ahead should be enabled on the stream
 	 * (otherwise latency of single-element read will significantly
-	 * affect performance).</p>
+	 * affect performance). As the iterator reads sequentially, prefetching
+	 * is normally sufficient.</p>
 	 *
 	 * <p>The iterator assumes it has complete control of stream I/O, and no other
 	 * methods should be called on this stream object until the iterator has
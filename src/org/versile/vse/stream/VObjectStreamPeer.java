@@ -113,11 +113,14 @@ public class VObjectStreamPeer extends VStreamPeer<Object> {
 					return null;
 				}
 			}
+			// The peer frees the read package slot when this call returns
 			try {
 				_calls.queue(msg_id, new Call(read_ctx, data, eos));
 			} catch (VSequenceCallException e) {
 				this._fail("Call sequencing error");
 				throw new VCallError();
+			} finally {
+				_r_pending -= 1;
 			}
 		}
 	}
@@ -135,11 +135,14 @@ public class VObjectStreamer extends VStreamer<Object> {
 				return null;
 			}
 		}
+		// The peer frees the write package slot when this call returns
 		try {
 			this._calls.queue(callID, new Call(writeCtx, data));
 		} catch (VSequenceCallException e) {
 			this._fail("Internal peer_write_push processing error");
 			throw new VCallError();
+		} finally {
+			_w_pending -= 1;
 		}
 	}
 
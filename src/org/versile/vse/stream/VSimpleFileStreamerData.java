@@ -22,6 +22,7 @@ package org.versile.vse.stream;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.LinkedList;
 
 import org.versile.vse.stream.VStream.PosBase;
@@ -42,7 +43,7 @@ import org.versile.vse.stream.VStream.PosBase;
  * However, for a writable file it allows moving the end-point by writing past
  * the current end-point.</p>
  */
-public class VSimpleFileStreamerData extends VStreamerData<Byte> {
+public class VSimpleFileStreamerData extends VStreamerData<Byte> implements VByteStreamerDataAccess {
 
 	RandomAccessFile file;
 	boolean readable;
@@ -119,7 +120,12 @@ public class VSimpleFileStreamerData extends VStreamerData<Byte> {
 	}
 
 	@Override
-	public synchronized Byte[] read(int maxNum) throws VStreamError, VStreamFailure {
+	public Byte[] read(int maxNum) throws VStreamError, VStreamFailure {
+		return VByteStreamBuffer.box(this.readBytes(maxNum));
+	}
+
+	@Override
+	public synchronized byte[] readBytes(int maxNum) throws VStreamError, VStreamFailure {
 		this.check_closed_or_failed();
 
 		if (!opt_mode.readable()) {
@@ -143,46 +149,47 @@ public class VSimpleFileStreamerData extends VStreamerData<Byte> {
 			}
 			if (num_read < 0)
 				break;
-			byte[] chunk = new byte[num_read];
-			for (int i = 0; i < num_read; i++)
-				chunk[i] = buffer[i];
-			chunks.addLast(chunk);
+			chunks.addLast(Arrays.copyOf(buffer, num_read));
 			maxNum -= num_read;
 			tot_read += num_read;
 		}
-		Byte[] result = new Byte[tot_read];
-		int _spos = 0;
-		while (!chunks.isEmpty()) {
-			byte[] chunk = chunks.removeFirst();
-			for (int i = 0; i < chunk.length; i++)
-				result[_spos+i] = chunk[i];
-			_spos += chunk.length;
+		byte[] result;
+		if (chunks.size() == 1)
+			result = chunks.removeFirst();
+		else {
+			result = new byte[tot_read];
+			int _spos = 0;
+			for (byte[] chunk: chunks) {
+				System.arraycopy(chunk, 0, result, _spos, chunk.length);
+				_spos += chunk.length;
+			}
 		}
 		pos += result.length;
 		return result;
 	}
 
 	@Override
-	public synchronized void write(Byte[] data) throws VStreamError, VStreamFailure {
+	public void write(Byte[] data) throws VStreamError, VStreamFailure {
+		this.writeBytes(VByteStreamBuffer.unbox(data));
+	}
+
+	@Override
+	public synchronized void writeBytes(byte[] data) throws VStreamError, VStreamFailure {
 		this.check_closed_or_failed();
 
 		if (!opt_mode.writable()) {
 			throw new VStreamError("Stream not writable");
 		}
 
-
-		byte[] _data = new byte[data.length];
-		for (int i = 0; i < data.length; i++)
-			_data[i] = data[i];
 		try {
-			file.write(_data);
+			file.write(data);
 		} catch (IOException e) {
 			failed = true;
 			file = null;
 			buffer = null;
 			throw new VStreamFailure(e);
 		}
-		pos += _data.length;
+		pos += data.length;
 	}
 
 	@Override
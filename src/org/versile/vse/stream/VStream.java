@@ -306,6 +306,8 @@ public abstract class VStream<T> {
 	/**
 	 * Enables read-ahead on read contexts.
 	 *
+	 * <p>While read-ahead is enabled, read limits are not set by the
+	 * stream's prefetching of sequential reads.</p>
 	 */
 	public void enableReadahead() {
 		_stream.enableReadahead();
@@ -319,6 +321,66 @@ public abstract class VStream<T> {
 		_stream.disableReadahead();
 	}
 
+	/**
+	 * Get current max outstanding read packages.
+	 *
+	 * <p>If the stream was configured with auto-tuning this is the current
+	 * tuned value, otherwise it is the configured limit.</p>
+	 *
+	 * @return max outstanding read packages
+	 */
+	public int getReadPackages() {
+		return _stream.getReadPackages();
+	}
+
+	/**
+	 * Get current max read package size.
+	 *
+	 * <p>If the stream was configured with auto-tuning this is the current
+	 * tuned value, otherwise it is the configured limit.</p>
+	 *
+	 * @return max read package size
+	 */
+	public int getReadPkgSize() {
+		return _stream.getReadPkgSize();
+	}
+
+	/**
+	 * Get current max outstanding write packages.
+	 *
+	 * <p>If the stream was configured with auto-tuning this is the current
+	 * tuned value, otherwise it is the negotiated limit.</p>
+	 *
+	 * @return max outstanding write packages (negative if not connected)
+	 */
+	public int getWritePackages() {
+		return _stream.getWritePackages();
+	}
+
+	/**
+	 * Get current max write package size.
+	 *
+	 * <p>If the stream was configured with auto-tuning this is the current
+	 * tuned value, otherwise it is the negotiated limit.</p>
+	 *
+	 * @return max write package size (negative if not connected)
+	 */
+	public int getWritePkgSize() {
+		return _stream.getWritePkgSize();
+	}
+
+	/**
+	 * Get estimated round-trip time to the streamer.
+	 *
+	 * <p>Round-trip times are only measured on streams configured with
+	 * auto-tuning.</p>
+	 *
+	 * @return round-trip time in nanoseconds (negative if no estimate)
+	 */
+	public long getRoundTripTime() {
+		return _stream.getRoundTripTime();
+	}
+
 	/**
 	 * Seeks to a new stream position and starts a new read context (blocking).
 	 *
@@ -60,6 +60,35 @@ public abstract class VStreamBuffer<T> {
 	 */
 	public abstract void endContext();
 
+	/**
+	 * Makes cached data following the write position available for reading.
+	 *
+	 * <p>Should only be called directly after {@link #newContext} for a context
+	 * which allows caching. If the buffer holds cached data for the
+	 * current write position, the cached data is made available for reading
+	 * and the write position is moved to the end of the contiguous cached
+	 * data.</p>
+	 *
+	 * <p>Default does nothing, derived classes can override.</p>
+	 *
+	 * @return resulting write position
+	 */
+	public long fillFromCache() {
+		return this.getWritePosition();
+	}
+
+	/**
+	 * Discards any cached data.
+	 *
+	 * <p>Should be called when data which may have been cached is modified
+	 * other than by writing through the buffer, e.g. by truncating a
+	 * stream.</p>
+	 *
+	 * <p>Default does nothing, derived classes can override.</p>
+	 */
+	public void clearCache() {
+	}
+
 	/**
 	 * Write data onto the buffer's current write position.
 	 *
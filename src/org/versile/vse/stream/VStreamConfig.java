@@ -48,6 +48,27 @@ package org.versile.vse.stream;
  *   <li><i>requestEOS</i> defines whether a stream is set up with end-of-stream notification
  *   on read streams, default is true.</li>
  *
+ *   <li><i>autoTune</i> if true then package size and outstanding packages are
+ *   adjusted to fill the bandwidth-delay product measured on the stream, within
+ *   the bounds set by <i>minPkgSize</i> and the configured max values for
+ *   packages and package size. Read tuning applies to the read-ahead window,
+ *   replacing limits set with {@link VStream#setReadahead(long, long)}. Default
+ *   is false.</li>
+ *
+ *   <li><i>minPkgSize</i> is the min package size when auto-tuning, default is 100.</li>
+ *
+ *   <li><i>prefetch</i> if true then sequential reading is detected and read
+ *   limits are extended ahead of the consumer, scaled to its consumption
+ *   rate. Prefetching ends on seek operations, and does not apply when
+ *   read-ahead is enabled. Default is true.</li>
+ *
+ *   <li><i>multiplex</i> if true then stream protocol calls to the peer are sent
+ *   through the link's {@link VStreamMux}, which combines calls of many streams
+ *   into batches. The peer must support "peer_batch". Default is false.</li>
+ *
+ *   <li><i>muxWeight</i> is the scheduling weight of the stream when
+ *   multiplexing, default is 1.</li>
+ *
  * </ul>
  */
 public class VStreamConfig {
@@ -60,6 +81,11 @@ public class VStreamConfig {
 	VStreamMode requiredMode = null;
 	boolean readAhead = false;
 	boolean requestEOS = true;
+	boolean autoTune = false;
+	int minPkgSize = 100;
+	boolean prefetch = true;
+	boolean multiplex = false;
+	int muxWeight = 1;
 
 	@Override
 	public VStreamConfig clone() {
@@ -135,6 +161,46 @@ public class VStreamConfig {
 		this.requestEOS = requestEOS;
 	}
 
+	public boolean isAutoTune() {
+		return autoTune;
+	}
+
+	public void setAutoTune(boolean autoTune) {
+		this.autoTune = autoTune;
+	}
+
+	public int getMinPkgSize() {
+		return minPkgSize;
+	}
+
+	public void setMinPkgSize(int minPkgSize) {
+		this.minPkgSize = minPkgSize;
+	}
+
+	public boolean isPrefetch() {
+		return prefetch;
+	}
+
+	public void setPrefetch(boolean prefetch) {
+		this.prefetch = prefetch;
+	}
+
+	public boolean isMultiplex() {
+		return multiplex;
+	}
+
+	public void setMultiplex(boolean multiplex) {
+		this.multiplex = multiplex;
+	}
+
+	public int getMuxWeight() {
+		return muxWeight;
+	}
+
+	public void setMuxWeight(int muxWeight) {
+		this.muxWeight = muxWeight;
+	}
+
 	protected void copyTo(VStreamConfig config) {
 		config.maxReadPackages = maxReadPackages;
 		config.maxReadPkgSize = maxReadPkgSize;
@@ -143,5 +209,10 @@ public class VStreamConfig {
 		config.maxCalls = maxCalls;
 		config.readAhead = readAhead;
 		config.requestEOS = requestEOS;
+		config.autoTune = autoTune;
+		config.minPkgSize = minPkgSize;
+		config.prefetch = prefetch;
+		config.multiplex = multiplex;
+		config.muxWeight = muxWeight;
 	}
 }
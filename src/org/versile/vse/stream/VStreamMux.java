@@ -0,0 +1,351 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.stream;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.versile.common.call.VCall;
+import org.versile.common.call.VCallExceptionHandler;
+import org.versile.common.call.VCallResultHandler;
+import org.versile.orb.entity.VBytes;
+import org.versile.orb.entity.VCallContext;
+import org.versile.orb.entity.VCallError;
+import org.versile.orb.entity.VObject;
+import org.versile.orb.entity.VProxy;
+import org.versile.orb.entity.VReference;
+import org.versile.orb.entity.VString;
+import org.versile.orb.entity.VTuple;
+import org.versile.orb.link.VLink;
+
+
+/**
+ * Multiplexer for stream protocol calls of many streams over a single link.
+ *
+ * <p>Streams which are set up for multiplexing (see {@link VStreamConfig})
+ * queue their remote calls on a {@link Channel} of the link's multiplexer
+ * instead of calling the peer directly. The multiplexer combines calls from
+ * all channels into batches which are sent as a single "peer_batch" remote
+ * call, and the receiving stream object performs the calls of the batch
+ * locally in order.</p>
+ *
+ * <p>Channels are scheduled by deficit round-robin, where each turn grants a
+ * channel {@link #QUANTUM} times the channel weight of call cost, and the
+ * cost of a call is one plus the number of data elements in its arguments. A
+ * batch is limited to {@link #MAX_BATCH_CALLS} calls and
+ * {@link #MAX_BATCH_COST} total cost, and up to {@link #MAX_BATCHES}
+ * batches may be pending. A call is sent immediately if fewer batches are
+ * pending, so batching only takes place when calls are produced faster than
+ * the link completes them.</p>
+ *
+ * <p>Per-stream flow control is unchanged, calls are queued on a channel
+ * only when allowed by the stream's call limits and read/write limits.</p>
+ *
+ * <p>The peer of a multiplexed stream must support "peer_batch", which is
+ * implemented by {@link VStreamer} and {@link VStreamPeer}.</p>
+ */
+public class VStreamMux {
+
+	/**
+	 * Max pending batches.
+	 */
+	public static final int MAX_BATCHES = 4;
+
+	/**
+	 * Max calls in a batch.
+	 */
+	public static final int MAX_BATCH_CALLS = 256;
+
+	/**
+	 * Max total call cost of a batch.
+	 */
+	public static final long MAX_BATCH_COST = 1000000L;
+
+	/**
+	 * Call cost granted per weight unit per round-robin turn.
+	 */
+	public static final long QUANTUM = 65536L;
+
+	static Map<VLink, VStreamMux> _shared = new WeakHashMap<VLink, VStreamMux>();
+
+	LinkedList<Channel> _active;                // channels with queued calls
+	int _batches = 0;                           // pending batches
+
+	public VStreamMux() {
+		_active = new LinkedList<Channel>();
+	}
+
+	/**
+	 * Get the shared multiplexer of a link.
+	 *
+	 * <p>Creates a multiplexer the first time it is called for a link, and
+	 * returns the same multiplexer on later calls.</p>
+	 *
+	 * @param link link
+	 * @return multiplexer for link
+	 */
+	public static VStreamMux forLink(VLink link) {
+		synchronized(_shared) {
+			VStreamMux result = _shared.get(link);
+			if (result == null) {
+				result = new VStreamMux();
+				_shared.put(link, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Creates a channel for multiplexing calls.
+	 *
+	 * @param weight scheduling weight (1 or higher)
+	 * @return channel
+	 */
+	public Channel createChannel(int weight) {
+		return new Channel(this, weight);
+	}
+
+	/**
+	 * Performs the calls of a batch.
+	 *
+	 * <p>Called internally by "peer_batch" implementations. Each call is a tuple
+	 * (object, method name, arguments) which is performed as a local call on the
+	 * object, which must be a local object. The result is a tuple with an entry
+	 * (true, result) for each call which completed and (false, None) for each
+	 * call which raised an exception.</p>
+	 *
+	 * @param calls calls to perform
+	 * @param ctx call context
+	 * @return call results
+	 * @throws VCallError invalid batch
+	 */
+	public static Object[] dispatch(Object[] calls, VCallContext ctx)
+			throws VCallError {
+		if (calls == null)
+			throw new VCallError();
+		Object[] result = new Object[calls.length];
+		for (int i = 0; i < calls.length; i++) {
+			Object[] call = VStreamMux._as_array(calls[i]);
+			if (call == null || call.length != 3)
+				throw new VCallError();
+
+			VObject obj = null;
+			if (call[0] instanceof VProxy)
+				obj = ((VProxy)call[0]).get();
+			else if (call[0] instanceof VObject)
+				obj = (VObject)call[0];
+			if (obj == null || obj instanceof VReference)
+				throw new VCallError();
+			Object[] args = VStreamMux._as_array(call[2]);
+			if (args == null)
+				throw new VCallError();
+
+			LinkedList<Object> _args = new LinkedList<Object>();
+			_args.addLast(call[1]);
+			for (Object arg: args)
+				_args.addLast(arg);
+			try {
+				Object _result = obj._v_call(_args, VObject._v_CallType.NORMAL, ctx);
+				result[i] = new Object[] {true, _result};
+			} catch (Exception e) {
+				result[i] = new Object[] {false, null};
+			}
+		}
+		return result;
+	}
+
+	// Sends batches while batch slots are available
+	void _send() {
+		while (true) {
+			LinkedList<Pending> batch;
+			synchronized(this) {
+				if (_batches >= MAX_BATCHES || _active.isEmpty())
+					return;
+				batch = this._schedule();
+				_batches += 1;
+			}
+			this._send_batch(batch);
+		}
+	}
+
+	// Collects a batch from active channels by deficit round-robin
+	LinkedList<Pending> _schedule() {
+		LinkedList<Pending> batch = new LinkedList<Pending>();
+		long cost = 0;
+		while (!_active.isEmpty() && batch.size() < MAX_BATCH_CALLS && cost < MAX_BATCH_COST) {
+			Channel channel = _active.getFirst();
+			if (!channel.in_turn) {
+				channel.deficit += QUANTUM*channel.weight;
+				channel.in_turn = true;
+			}
+			while (!channel.queue.isEmpty() && channel.queue.getFirst().cost <= channel.deficit
+				   && batch.size() < MAX_BATCH_CALLS && cost < MAX_BATCH_COST) {
+				Pending call = channel.queue.removeFirst();
+				channel.deficit -= call.cost;
+				cost += call.cost;
+				batch.addLast(call);
+			}
+			if (channel.queue.isEmpty()) {
+				channel.deficit = 0;
+				channel.in_turn = false;
+				_active.removeFirst();
+			}
+			else if (channel.queue.getFirst().cost > channel.deficit) {
+				channel.in_turn = false;
+				_active.addLast(_active.removeFirst());
+			}
+			// Otherwise the batch is full, channel resumes its turn with next batch
+		}
+		return batch;
+	}
+
+	void _send_batch(final LinkedList<Pending> batch) {
+		Object[] calls = new Object[batch.size()];
+		int i = 0;
+		for (Pending call: batch)
+			calls[i++] = new Object[] {call.target, new VString(call.name), call.args};
+
+		class ResultHandler implements VCallResultHandler<Object> {
+			@Override
+			public void callback(Object result) {
+				_batch_done(batch, result);
+			}
+		}
+		class ExceptionHandler implements VCallExceptionHandler {
+			@Override
+			public void callback(Exception e) {
+				_batch_done(batch, null);
+			}
+		}
+		VCall<Object> call = batch.getFirst().target.nowait("peer_batch", (Object)calls);
+		call.addHandlerPair(new ResultHandler(), new ExceptionHandler());
+	}
+
+	// Passes batch results to calls, null result means batch failed
+	void _batch_done(LinkedList<Pending> batch, Object result) {
+		Object[] results = VStreamMux._as_array(result);
+		if (results != null && results.length != batch.size())
+			results = null;
+		int i = 0;
+		for (Pending call: batch) {
+			Object[] _result = (results != null) ? VStreamMux._as_array(results[i++]) : null;
+			if (_result != null && _result.length == 2 && Boolean.TRUE.equals(_result[0]))
+				call.result.silentPushResult(_result[1]);
+			else
+				call.result.silentPushException(new VCallError());
+		}
+		synchronized(this) {
+			_batches -= 1;
+		}
+		this._send();
+	}
+
+	// Returns a tuple or array as an array, or null
+	static Object[] _as_array(Object obj) {
+		if (obj instanceof Object[])
+			return (Object[])obj;
+		else if (obj instanceof VTuple)
+			return ((VTuple)obj).getValue();
+		else if (obj instanceof List<?>)
+			return ((List<?>)obj).toArray();
+		return null;
+	}
+
+	// Returns cost of a call, one plus number of data elements in arguments
+	static long _cost(Object[] args) {
+		long result = 1;
+		for (Object arg: args) {
+			if (arg instanceof byte[])
+				result += ((byte[])arg).length;
+			else if (arg instanceof VBytes)
+				result += ((VBytes)arg).length();
+			else if (arg instanceof Object[])
+				result += ((Object[])arg).length;
+			else if (arg instanceof VTuple)
+				result += ((VTuple)arg).length();
+		}
+		return result;
+	}
+
+	/**
+	 * A stream's queue of calls on a multiplexer.
+	 */
+	public static class Channel {
+		VStreamMux mux;
+		int weight;
+		long deficit = 0;                       // call cost available in current turn
+		boolean in_turn = false;                // if true deficit granted for current turn
+		LinkedList<Pending> queue;
+
+		Channel(VStreamMux mux, int weight) {
+			this.mux = mux;
+			this.weight = Math.max(weight, 1);
+			queue = new LinkedList<Pending>();
+		}
+
+		/**
+		 * Queues a remote call on the channel.
+		 *
+		 * @param target remote object
+		 * @param name remote method name
+		 * @param args remote method arguments
+		 * @return reference to call result
+		 */
+		public VCall<Object> call(VProxy target, String name, Object... args) {
+			Pending call = new Pending(target, name, args);
+			synchronized(mux) {
+				if (queue.isEmpty())
+					mux._active.addLast(this);
+				queue.addLast(call);
+			}
+			mux._send();
+			return call.result;
+		}
+
+		/**
+		 * Get the channel's scheduling weight.
+		 *
+		 * @return weight
+		 */
+		public int getWeight() {
+			return weight;
+		}
+	}
+
+	// A queued call
+	static class Pending {
+		VProxy target;
+		String name;
+		Object[] args;
+		long cost;
+		VCall<Object> result;
+
+		public Pending(VProxy target, String name, Object[] args) {
+			this.target = target;
+			this.name = name;
+			this.args = args;
+			cost = VStreamMux._cost(args);
+			result = new VCall<Object>();
+		}
+	}
+}
@@ -29,6 +29,7 @@ import org.versile.common.call.VCall;
 import org.versile.common.call.VCallExceptionHandler;
 import org.versile.common.call.VCallResultHandler;
 import org.versile.orb.entity.VBoolean;
+import org.versile.orb.entity.VCallContext;
 import org.versile.orb.entity.VCallError;
 import org.versile.orb.entity.VEntity;
 import org.versile.orb.entity.VEntityError;
@@ -38,6 +39,8 @@ import org.versile.orb.entity.VProxy;
 import org.versile.orb.entity.VTuple;
 import org.versile.orb.external.Publish;
 import org.versile.orb.external.VExternal;
+import org.versile.orb.link.VLink;
+import org.versile.orb.link.VLinkException;
 import org.versile.orb.util.VSequenceCallException;
 import org.versile.orb.util.VSequenceCallQueue;
 import org.versile.orb.util.VSequenceCaller;
@@ -116,6 +119,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 	long _rel_pos = 0;                          // relative position in current context
 	boolean _have_spos = false;                 // true if _spos holds a confirmed start position
 	long _spos = 0;                             // start position current context
+	long _r_skip = 0;                           // cached elements read before peer read context start
 
 	boolean _r_ahead;                           // if true perform read-ahead
 	long _r_ahead_lim = 0;                      // limit on read-ahead
@@ -136,6 +140,18 @@ public abstract class VStreamPeer<T> extends VExternal {
 	int _local_w_num;
 	int _local_w_size;
 
+	boolean _auto_tune;                         // if true auto-tune package limits
+	int _min_pkg_size;                          // min package size for auto-tuning
+	VStreamTuner _r_tune = null;                // read window tuner if auto-tuning
+	VStreamTuner _w_tune = null;                // write window tuner if auto-tuning
+
+	boolean _multiplex;                         // if true multiplex calls to peer
+	int _mux_weight;                            // multiplexing weight
+	VStreamMux.Channel _mux = null;             // multiplexing channel (or null)
+
+	VStreamPrefetcher _r_prefetch = null;       // sequential read detection if prefetching
+	boolean _r_stall = false;                   // true if last read waited for data
+
 	Set<WeakReference<VStreamObserver<T>>> _observers;
 
 	/**
@@ -155,6 +171,14 @@ public abstract class VStreamPeer<T> extends VExternal {
 		_local_w_size = config.getMaxWritePkgSize();
 		_r_request_eos = config.isRequestEOS();
 		_r_ahead = config.isReadAhead();
+		_auto_tune = config.isAutoTune();
+		_min_pkg_size = config.getMinPkgSize();
+		_multiplex = config.isMultiplex();
+		_mux_weight = config.getMuxWeight();
+		if (_auto_tune)
+			_r_tune = new VStreamTuner(_r_num, _r_size, _min_pkg_size);
+		if (config.isPrefetch())
+			_r_prefetch = new VStreamPrefetcher((long)_r_num*_r_size, _min_pkg_size);
 
 		_call_lim = _r_num + config.getMaxCalls();
 		_calls = new VSequenceCallQueue(_call_lim);
@@ -167,6 +191,23 @@ public abstract class VStreamPeer<T> extends VExternal {
 		this.setReadahead(read_ahead_size, read_ahead_step);
 	}
 
+	/**
+	 * Performs a batch of calls sent through a {@link VStreamMux}.
+	 *
+	 * <p>See {@link VStreamMux#dispatch(Object[], VCallContext)}. The batch
+	 * may include calls on other stream objects of the same link.</p>
+	 *
+	 * @param ctx call context
+	 * @param calls calls to perform
+	 * @return call results
+	 * @throws VCallError
+	 */
+	@Publish(show=true, ctx=true)
+	public Object[] peer_batch(VCallContext ctx, Object[] calls)
+			throws VCallError {
+		return VStreamMux.dispatch(calls, ctx);
+	}
+
 	/**
 	 * Notify of streamer's start position of the current context.
 	 *
@@ -390,6 +431,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 		else if (_failed || _done)
 			throw new VStreamError("Stream already done or failed");
 		this._peer = peer;
+		this._init_mux();
 		VCall<Object> call = _peer.nowait("peer_connect", this, _call_lim, _r_num, _r_size);
 		class ResultHandler implements VCallResultHandler<Object> {
 			@Override
@@ -469,8 +511,50 @@ public abstract class VStreamPeer<T> extends VExternal {
 		_r_ahead = false;
 	}
 
+	synchronized int getReadPackages() {
+		if (_r_tune != null)
+			return _r_tune.getPackages();
+		return _r_num;
+	}
+
+	synchronized int getReadPkgSize() {
+		if (_r_tune != null)
+			return _r_tune.getPackageSize();
+		return _r_size;
+	}
+
+	synchronized int getWritePackages() {
+		if (_w_tune != null)
+			return _w_tune.getPackages();
+		return _w_num;
+	}
+
+	synchronized int getWritePkgSize() {
+		if (_w_tune != null)
+			return _w_tune.getPackageSize();
+		return _w_size;
+	}
+
+	synchronized long getRoundTripTime() {
+		long result = -1L;
+		for (VStreamTuner tuner: new VStreamTuner[] {_r_tune, _w_tune})
+			if (tuner != null && tuner.getRoundTripTime() >= 0)
+				if (result < 0 || tuner.getRoundTripTime() < result)
+					result = tuner.getRoundTripTime();
+		return result;
+	}
+
 	synchronized T[] recv(int maxNum, long timeout, int ntimeout)
 			throws VStreamTimeout, VStreamError {
+		this._recv_wait(maxNum, timeout, ntimeout);
+		T[] data = _buf.read(maxNum);
+		this._recv_done(data.length);
+		return data;
+	}
+
+	// Waits until read buffer has data or end-of-stream was reached
+	void _recv_wait(int maxNum, long timeout, int ntimeout)
+			throws VStreamTimeout, VStreamError {
 		if (_failed)
 			throw new VStreamFailure();
 		if (_done)
@@ -482,28 +566,13 @@ public abstract class VStreamPeer<T> extends VExternal {
 			throw VStreamError.createFromCode(_ctx_err_code, "Error condition on read context");
 
 		// If read buffer is empty, lazy-send new read limits to peer
+		_r_stall = false;
 		if (_buf.getMaxRead() == 0) {
-			if (_r_ahead)
-				this._update_rlim();
-			else if (_r_rel_lim - _rel_pos < maxNum) {
-				_r_rel_lim = _rel_pos + maxNum;
-				class Call extends VSequenceCaller.RemoteCall {
-					long lim;
-					public Call(long lim) {
-						this.lim = lim;
-					}
-					@Override
-					public VCall<Object> execute(long callID) {
-						return _peer.nowait("peer_read_lim", callID, lim);
-					}
-				}
-				class ExceptionHandler extends VSequenceCaller.Failback {
-					@Override
-					public void callback(long callID, Exception e) {
-						_fail("Could not perform remote call");
-					}
-				}
-				_caller.call(new Call(_r_rel_lim), null, new ExceptionHandler());
+			_r_stall = true;
+			this._update_rlim();
+			if (!_r_ahead && _r_rel_lim - (_rel_pos - _r_skip) < maxNum) {
+				_r_rel_lim = _rel_pos - _r_skip + maxNum;
+				this._send_rlim(_r_rel_lim);
 			}
 		}
 
@@ -525,14 +594,8 @@ public abstract class VStreamPeer<T> extends VExternal {
 				throw new VStreamError("Stream was closed");
 			else if (_ctx_err)
 				throw VStreamError.createFromCode(_ctx_err_code);
-			T[] data = _buf.read(maxNum);
-			if (data.length > 0) {
-				_rel_pos += data.length;
-				this._update_rlim();
-				return data;
-			}
-			else if (_r_eos)
-				return _buf.emptyData();
+			else if (_buf.getMaxRead() > 0 || _r_eos)
+				return;
 			try {
 				if (timeout < 0)
 					wait();
@@ -549,8 +612,37 @@ public abstract class VStreamPeer<T> extends VExternal {
 		}
 	}
 
+	// Updates state after 'len' elements were read from read buffer
+	void _recv_done(int len) {
+		if (len > 0) {
+			_rel_pos += len;
+			if (_r_prefetch != null && !_r_ahead)
+				_r_prefetch.onRead(len, _r_stall, System.nanoTime());
+			this._update_rlim();
+		}
+	}
+
 	synchronized int send(T[] data, long timeout, int ntimeout)
 			throws VStreamTimeout, VStreamError {
+		// If 'data' is empty, just start context and return
+		long max_send = this._send_wait((data.length > 0), timeout, ntimeout);
+		if (data.length == 0)
+			return 0;
+
+		if (data.length > max_send) {
+			T[] _data = _buf.createArray((int)max_send);
+			for (int i = 0; i < _data.length; i++)
+				_data[i] = data[i];
+			data = _data;
+		}
+		_buf.write(data, true);
+		this._send_push(data, data.length);
+		return data.length;
+	}
+
+	// Waits until data can be sent, returns max elements which can be sent
+	long _send_wait(boolean hasData, long timeout, int ntimeout)
+			throws VStreamTimeout, VStreamError {
 		if (_failed)
 			throw new VStreamFailure();
 		else if (_done)
@@ -561,8 +653,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 		else if (_ctx_err)
 			throw VStreamError.createFromCode(_ctx_err_code, "Error condition on read context");
 
-		// If 'data' is empty, just return
-		if (data.length == 0)
+		if (!hasData)
 			return 0;
 
 		// Enter wait loop for sending data
@@ -585,59 +676,16 @@ public abstract class VStreamPeer<T> extends VExternal {
 				throw VStreamError.createFromCode(_ctx_err_code);
 
 			long max_send = _w_rel_lim - _w_sent;
-			if (max_send < 0)
-				max_send = 0;
-			if (_w_pending < _w_num && max_send > 0 && _have_spos) {
-				if (data.length > max_send) {
-					T[] _data = _buf.createArray((int)max_send);
-					for (int i = 0; i < _data.length; i++)
-						_data[i] = data[i];
-					data = _data;
-				}
-				class Call extends VSequenceCaller.RemoteCall {
-					long ctx;
-					T[] data;
-					public Call(long ctx, T[] data) {
-						this.ctx = ctx;
-						this.data = data;
-					}
-					@Override
-					public VCall<Object> execute(long callID) {
-						return _peer.nowait("peer_write_push", callID, ctx, data);
-					}
-				}
-				class Callback extends VSequenceCaller.Callback {
-					VStreamPeer<T> stream_peer;
-					public Callback(VStreamPeer<T> stream_peer) {
-						this.stream_peer = stream_peer;
-					}
-					@Override
-					public void callback(long callID, Object result) {
-						synchronized(stream_peer) {
-							if (_failed || _done)
-								return;
-							boolean was_peak = (_w_pending == _w_num);
-							_w_pending -= 1;
-							if (_ctx_mode == ContextMode.WRITING && was_peak)
-								stream_peer.notifyAll();
-						}
-					}
-				}
-				class Failback extends VSequenceCaller.Failback {
-					@Override
-					public void callback(long callID, Exception e) {
-						_fail("Could not perform remote call");
-					}
-				}
-				_caller.call(new Call(_ctx, data), new Callback(this), new Failback());
-
-				_buf.write(data, true);
-				_w_pending += 1;
-				int num_sent = data.length;
-				_rel_pos += num_sent;
-				_w_sent += num_sent;
-				return num_sent;
+			int w_num = _w_num;
+			if (_w_tune != null) {
+				w_num = _w_tune.getPackages();
+				if (max_send > _w_tune.getPackageSize())
+					max_send = _w_tune.getPackageSize();
 			}
+			if (max_send > _w_size)
+				max_send = _w_size;
+			if (_w_pending < w_num && max_send > 0 && _have_spos)
+				return max_send;
 
 			try {
 				if (timeout < 0)
@@ -655,13 +703,69 @@ public abstract class VStreamPeer<T> extends VExternal {
 		}
 	}
 
+	// Pushes 'len' elements of data to peer, data must be within send limits
+	void _send_push(Object data, int len) {
+		class Call extends VSequenceCaller.RemoteCall {
+			long ctx;
+			Object data;
+			public Call(long ctx, Object data) {
+				this.ctx = ctx;
+				this.data = data;
+			}
+			@Override
+			public VCall<Object> execute(long callID) {
+				return _peer_call("peer_write_push", callID, ctx, data);
+			}
+		}
+		class Callback extends VSequenceCaller.Callback {
+			VStreamPeer<T> stream_peer;
+			int len;
+			long sent_t;
+			public Callback(VStreamPeer<T> stream_peer, int len, long sent_t) {
+				this.stream_peer = stream_peer;
+				this.len = len;
+				this.sent_t = sent_t;
+			}
+			@Override
+			public void callback(long callID, Object result) {
+				synchronized(stream_peer) {
+					if (_failed || _done)
+						return;
+					int w_num = _w_num;
+					if (_w_tune != null) {
+						long now = System.nanoTime();
+						_w_tune.onRtt(now - sent_t);
+						_w_tune.onDelivered(len, now);
+						w_num = _w_tune.getPackages();
+					}
+					boolean was_peak = (_w_pending >= w_num);
+					_w_pending -= 1;
+					if (_ctx_mode == ContextMode.WRITING && (was_peak || _w_tune != null))
+						stream_peer.notifyAll();
+				}
+			}
+		}
+		class Failback extends VSequenceCaller.Failback {
+			@Override
+			public void callback(long callID, Exception e) {
+				_fail("Could not perform remote call");
+			}
+		}
+		// Update state before the call, as the callback may be performed immediately
+		_w_pending += 1;
+		_rel_pos += len;
+		_w_sent += len;
+
+		_caller.call(new Call(_ctx, data), new Callback(this, len, System.nanoTime()), new Failback());
+	}
+
 	synchronized void _close() {
 		_done = true;
 		notifyAll();
 		class Call extends VSequenceCaller.RemoteCall {
 			@Override
 			public VCall<Object> execute(long callID) {
-				return _peer.nowait("peer_close", callID);
+				return _peer_call("peer_close", callID);
 			}
 		}
 		class Failback extends VSequenceCaller.Failback {
@@ -761,6 +865,9 @@ public abstract class VStreamPeer<T> extends VExternal {
 		else if (_ctx_err)
 			throw VStreamError.createFromCode(_ctx_err_code, "Error condition on context");
 
+		// Truncation modifies data which may have been cached
+		_buf.clearCache();
+
 		long w_ctx = _ctx;
 		long start_time = 0L;
 		long end_time = 0L;
@@ -800,7 +907,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 		class Call extends VSequenceCaller.RemoteCall {
 			@Override
 			public VCall<Object> execute(long callID) {
-				return _peer.nowait("peer_trunc_before", callID);
+				return _peer_call("peer_trunc_before", callID);
 			}
 		}
 		class Failback extends VSequenceCaller.Failback {
@@ -829,6 +936,9 @@ public abstract class VStreamPeer<T> extends VExternal {
 		else if (_ctx_err)
 			throw VStreamError.createFromCode(_ctx_err_code, "Error condition on context");
 
+		// Truncation modifies data which may have been cached
+		_buf.clearCache();
+
 		long w_ctx = _ctx;
 		long start_time = 0L;
 		long end_time = 0L;
@@ -868,7 +978,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 		class Call extends VSequenceCaller.RemoteCall {
 			@Override
 			public VCall<Object> execute(long callID) {
-				return _peer.nowait("peer_trunc_after", callID);
+				return _peer_call("peer_trunc_after", callID);
 			}
 		}
 		class Failback extends VSequenceCaller.Failback {
@@ -922,24 +1032,41 @@ public abstract class VStreamPeer<T> extends VExternal {
 			return;
 		}
 		if (_ctx == ctx) {
+			if (_r_skip > 0) {
+				// Buffer was set up with cached data before peer start position
+				if (pos != _spos + _r_skip) {
+					this._fail("Unexpected start position");
+					return;
+				}
+			}
+			else {
+				_spos = pos;
+				boolean can_cache = _mode.fixedData() || _mode.dataLock();
+				_buf.newContext(pos, can_cache);
+			}
 			_have_spos = true;
-			_spos = pos;
-			boolean can_cache = _mode.fixedData() || _mode.dataLock();
-			_buf.newContext(pos, can_cache);
 			notifyAll();
 		}
 	}
 
 	synchronized void _peer_rpush(long read_ctx, T[] data, boolean eos)
 			throws VCallError {
-		if (_failed || _done || _ctx_err)
+		if (!this._rpush_check(read_ctx, data.length))
 			return;
+		boolean had_data = (_buf.getMaxRead() > 0);
+		_buf.write(data);
+		this._rpush_done(data.length, eos, had_data);
+	}
 
-		_r_pending -= 1;
+	// Validates a read push of 'len' elements, returns false if push should be ignored
+	boolean _rpush_check(long read_ctx, int len)
+			throws VCallError {
+		if (_failed || _done || _ctx_err)
+			return false;
 
 		// Validate context
 		if (read_ctx != _ctx)
-			return;
+			return false;
 		if (_ctx_mode != ContextMode.READING) {
 			this._fail("Read push without read mode");
 			throw new VCallError();
@@ -958,21 +1085,24 @@ public abstract class VStreamPeer<T> extends VExternal {
 		}
 
 		// Check data or overflow
-		if (_r_recv + data.length > _r_rel_lim) {
+		if (_r_recv + len > _r_rel_lim) {
 			this._fail("Read push limit exceeded");
-			return;
+			return false;
 		}
+		return true;
+	}
 
-		// Push data to buffer and send I/O notification
-		boolean had_data = (_buf.getMaxRead() > 0);
-		_buf.write(data);
-		_r_recv += data.length;
+	// Updates state and sends I/O notification after pushing 'len' elements to buffer
+	void _rpush_done(int len, boolean eos, boolean had_data) {
+		_r_recv += len;
+		if (_r_tune != null && len > 0)
+			_r_tune.onDelivered(len, System.nanoTime());
 		if (eos)
 			_r_eos = true;
 		notifyAll();
 
 		// Notify any stream observers
-		if (!_observers.isEmpty() && data.length > 0 && !had_data) {
+		if (!_observers.isEmpty() && len > 0 && !had_data) {
 			Iterator<WeakReference<VStreamObserver<T>>> iter = _observers.iterator();
 			while(iter.hasNext()) {
 				WeakReference<VStreamObserver<T>> w_obs = iter.next();
@@ -1104,7 +1234,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 						}
 						@Override
 						public VCall<Object> execute(long callID) {
-							return _peer.nowait("peer_fail", callID, msg);
+							return _peer_call("peer_fail", callID, msg);
 						}
 					}
 					_caller.call(new Call(msg), null, null);
@@ -1129,8 +1259,32 @@ public abstract class VStreamPeer<T> extends VExternal {
 	// Set up a read context. Position must be alread translated ('current' not allowed)
 	synchronized void _start_read_ctx(boolean havePos, long pos,
 									  VStream.PosBase pos_base, boolean eos) {
+		// Any new read context other than one which resumes at the current
+		// position is a seek which ends sequential reading
+		if (_r_prefetch != null) {
+			if (!(havePos && pos_base == VStream.PosBase.ABS && _ctx_mode == ContextMode.READING
+				  && _have_spos && pos == _spos + _rel_pos))
+				_r_prefetch.onSeek();
+		}
+
 		this._clear_ctx_data();
 		_ctx_mode = ContextMode.READING;
+
+		// If buffer holds cached data from an absolute position, start the
+		// peer read context at the end of the cached data
+		if (havePos && pos_base == VStream.PosBase.ABS && _mode != null
+			&& (_mode.fixedData() || _mode.dataLock())) {
+			_buf.newContext(pos, true);
+			long cache_end = _buf.fillFromCache();
+			if (cache_end > pos) {
+				_spos = pos;
+				_r_skip = cache_end - pos;
+				pos = cache_end;
+			}
+			else
+				_buf.endContext();
+		}
+
 		class Call extends VSequenceCaller.RemoteCall {
 			VEntity pos;
 			VEntity pos_base;
@@ -1143,7 +1297,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 			@Override
 			public VCall<Object> execute(long callID) {
 				_have_spos = false;
-				return _peer.nowait("peer_read_start", callID, pos, pos_base, eos);
+				return _peer_call("peer_read_start", callID, pos, pos_base, eos);
 			}
 		}
 		class Failback extends VSequenceCaller.Failback {
@@ -1177,7 +1331,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 			@Override
 			public VCall<Object> execute(long callID) {
 				_have_spos = false;
-				return _peer.nowait("peer_write_start", callID, pos, pos_base);
+				return _peer_call("peer_write_start", callID, pos, pos_base);
 			}
 		}
 		class Failback extends VSequenceCaller.Failback {
@@ -1216,32 +1370,71 @@ public abstract class VStreamPeer<T> extends VExternal {
 	}
 
 	/**
-	 * Lazy-performs read limit update based on read-ahead.
+	 * Lazy-performs read limit update based on read-ahead or prefetching.
 	 */
 	synchronized void _update_rlim() {
-		if (_ctx_mode != ContextMode.READING || !_r_ahead)
+		if (_ctx_mode != ContextMode.READING)
 			return;
-		long lim = _rel_pos + _r_ahead_lim;
+		if (!_r_ahead) {
+			this._prefetch_rlim();
+			return;
+		}
+		if (_r_tune != null) {
+			_r_ahead_lim = _r_tune.getWindow();
+			_r_ahead_step = _r_tune.getPackageSize();
+		}
+		long lim = _rel_pos - _r_skip + _r_ahead_lim;
 		lim -= lim % _r_ahead_step;
 		if (lim > _r_rel_lim) {
 			_r_rel_lim = lim;
-			class Call extends VSequenceCaller.RemoteCall {
-				long lim;
-				public Call(long lim) {
-					this.lim = lim;
-				}
-				@Override
-				public VCall<Object> execute(long callID) {
-					return _peer.nowait("peer_read_lim", callID, lim);
-				}
+			this._send_rlim(_r_rel_lim);
+		}
+	}
+
+	// Extends read limit ahead of consumer if reading is sequential
+	void _prefetch_rlim() {
+		if (_r_prefetch == null)
+			return;
+		long window = _r_prefetch.getWindow();
+		if (window <= 0)
+			return;
+		// Only extend after half the window was consumed, to limit the number of calls
+		long lim = _rel_pos - _r_skip + window;
+		if (lim - _r_rel_lim >= window/2 + window%2) {
+			_r_rel_lim = lim;
+			this._send_rlim(_r_rel_lim);
+		}
+	}
+
+	// Sends a new read limit to peer
+	void _send_rlim(long lim) {
+		class Call extends VSequenceCaller.RemoteCall {
+			long lim;
+			public Call(long lim) {
+				this.lim = lim;
 			}
-			class Failback extends VSequenceCaller.Failback {
-				public void callback(long callID, Exception e) {
-					_fail("Could not perform remote call");
-				}
+			@Override
+			public VCall<Object> execute(long callID) {
+				return _peer_call("peer_read_lim", callID, lim);
 			}
-			_caller.call(new Call(_r_rel_lim), null, new Failback());
 		}
+		class Callback extends VSequenceCaller.Callback {
+			long sent_t;
+			public Callback(long sent_t) {
+				this.sent_t = sent_t;
+			}
+			@Override
+			public void callback(long callID, Object result) {
+				if (_r_tune != null)
+					_r_tune.onRtt(System.nanoTime() - sent_t);
+			}
+		}
+		class Failback extends VSequenceCaller.Failback {
+			public void callback(long callID, Exception e) {
+				_fail("Could not perform remote call");
+			}
+		}
+		_caller.call(new Call(lim), new Callback(System.nanoTime()), new Failback());
 	}
 
 	synchronized void _connect_callback(Object result) {
@@ -1303,6 +1496,9 @@ public abstract class VStreamPeer<T> extends VExternal {
 		if (_local_w_size >= 0 && _w_size > _local_w_size)
 			_w_size = _local_w_size;
 
+		if (_auto_tune)
+			_w_tune = new VStreamTuner(_w_num, _w_size, _min_pkg_size);
+
 		_connected = true;
 		_caller.setLimit(clim);
 		notifyAll();
@@ -1319,6 +1515,7 @@ public abstract class VStreamPeer<T> extends VExternal {
 		_ctx_err = false;
 		_ctx_err_code = 0;
 		_spos = 0;
+		_r_skip = 0;
 		_have_spos = false;
 		_rel_pos = 0;
 		_r_rel_lim = 0;
@@ -1329,6 +1526,24 @@ public abstract class VStreamPeer<T> extends VExternal {
 		_buf.endContext();
 	}
 
+	// Performs a remote call on the peer, through the multiplexer if enabled
+	VCall<Object> _peer_call(String name, Object... args) {
+		if (_mux != null)
+			return _mux.call(_peer, name, args);
+		return _peer.nowait(name, args);
+	}
+
+	// Sets up multiplexing for a connected peer if enabled
+	void _init_mux() {
+		if (!_multiplex)
+			return;
+		try {
+			_mux = VStreamMux.forLink(VLink.forProxy(_peer)).createChannel(_mux_weight);
+		} catch (VLinkException e) {
+			// Peer is not a link object, calls are made directly
+		}
+	}
+
 	void _cleanup() {
 		this._clear_ctx_data();
 		_peer = null;
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.stream;
+
+
+/**
+ * Sequential access detection and prefetch window for stream reading.
+ *
+ * <p>Reading is considered sequential after {@link #SEQ_READS} reads without
+ * a seek. While reading is sequential the prefetcher provides a window of
+ * elements which should be requested ahead of the consumer. The window starts
+ * at the min window, doubles every time the consumer has to wait for data, and
+ * is at least the number of elements the consumer reads during
+ * {@link #HORIZON} nanoseconds at its observed consumption rate. The window is
+ * kept within the max window.</p>
+ *
+ * <p>A seek ends sequential reading and halves the window, so random access
+ * does not prefetch data which is not read, while a consumer which resumes
+ * sequential reading quickly regains a large window.</p>
+ */
+class VStreamPrefetcher {
+
+	/**
+	 * Number of reads without a seek before reading is sequential.
+	 */
+	public static final int SEQ_READS = 3;
+
+	/**
+	 * Time of consumption covered by the prefetch window (ns).
+	 */
+	public static final long HORIZON = 50000000L;
+
+	/**
+	 * Min duration of a consumption rate sample (ns).
+	 */
+	public static final long MIN_INTERVAL = 10000000L;
+
+	long max_window;
+	long min_window;
+
+	long window = 0;                        // Prefetch window (elements), zero if none
+	int seq_reads = 0;                      // Reads since last seek
+
+	float rate = 0.0f;                      // Smoothed consumption rate (elements/ns)
+	long sample_start = -1;                 // Start time of current rate sample
+	long sample_read = 0;                   // Elements read in current rate sample
+
+	/**
+	 * Set up prefetcher.
+	 *
+	 * @param maxWindow max prefetch window
+	 * @param minWindow min prefetch window
+	 */
+	public VStreamPrefetcher(long maxWindow, long minWindow) {
+		max_window = Math.max(maxWindow, 1);
+		min_window = Math.max(Math.min(minWindow, max_window), 1);
+	}
+
+	/**
+	 * Registers elements read by the consumer.
+	 *
+	 * @param num number of elements read
+	 * @param stalled true if the consumer had to wait for data
+	 * @param now current time in nanoseconds
+	 */
+	public synchronized void onRead(long num, boolean stalled, long now) {
+		if (sample_start < 0)
+			sample_start = now;
+		sample_read += num;
+		if (now - sample_start >= MIN_INTERVAL) {
+			float sample = sample_read/(float)(now - sample_start);
+			if (rate > 0)
+				rate = 0.75f*rate + 0.25f*sample;
+			else
+				rate = sample;
+			sample_start = now;
+			sample_read = 0;
+		}
+
+		if (seq_reads < SEQ_READS) {
+			seq_reads += 1;
+			if (seq_reads < SEQ_READS)
+				return;
+			if (window <= 0)
+				window = Math.max(min_window, num);
+		}
+		else if (stalled)
+			window *= 2;
+
+		window = Math.max(window, (long)(rate*HORIZON));
+		window = Math.min(window, max_window);
+	}
+
+	/**
+	 * Registers a seek, ending sequential reading.
+	 */
+	public synchronized void onSeek() {
+		seq_reads = 0;
+		window /= 2;
+		if (window < min_window)
+			window = 0;
+		sample_start = -1;
+		sample_read = 0;
+	}
+
+	/**
+	 * Get prefetch window.
+	 *
+	 * @return window (number of elements), zero if reading is not sequential
+	 */
+	public synchronized long getWindow() {
+		if (seq_reads < SEQ_READS)
+			return 0;
+		return window;
+	}
+}
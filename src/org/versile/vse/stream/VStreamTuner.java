@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2012-2013 Versile AS
+ *
+ * This file is part of Versile Java.
+ *
+ * Versile Java is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/>.
+ */
+
+package org.versile.vse.stream;
+
+
+/**
+ * Auto-tuning of stream transfer window and package size.
+ *
+ * <p>Measures delivery rate once per round, where a round lasts at least one
+ * round-trip time and at least {@link #MIN_ROUND} nanoseconds. The tuner
+ * starts by growing the window by a factor {@link #GAIN} each round until the
+ * delivery rate stops growing. After that the window is set to whichever is
+ * larger of the window which achieved the max delivery rate of the recent
+ * {@link #RATE_WINDOW} rounds, and {@link #GAIN} times the bandwidth-delay
+ * product estimated from that rate and the min round-trip time. Once every
+ * {@link #RATE_WINDOW} rounds the window is increased by
+ * {@link #PROBE_GAIN} in order to probe for a higher delivery rate. The
+ * window shrinks when a lower delivery rate persists for
+ * {@link #RATE_WINDOW} rounds.</p>
+ *
+ * <p>Package size is half the window, so at least two packages are in
+ * transit, and outstanding packages is the number of packages required to
+ * fill the window. Both are kept within the limits the tuner was set up
+ * with.</p>
+ */
+class VStreamTuner {
+
+	/**
+	 * Window growth per round during startup, and window gain relative to
+	 * estimated bandwidth-delay product.
+	 */
+	public static final float GAIN = 2.0f;
+
+	/**
+	 * Window gain for probing rounds.
+	 */
+	public static final float PROBE_GAIN = 1.25f;
+
+	/**
+	 * Number of rounds covered by the delivery rate filter.
+	 */
+	public static final int RATE_WINDOW = 8;
+
+	/**
+	 * Min duration of a round (ns).
+	 */
+	public static final long MIN_ROUND = 10000000L;
+
+	/**
+	 * Initial window as number of min size packages.
+	 */
+	public static final int INITIAL_PACKAGES = 4;
+
+	int max_num;
+	int max_size;
+	int min_size;
+
+	long window;                            // Transfer window (elements)
+	int pkg_size;                           // Package size (elements)
+	int pkg_num;                            // Max outstanding packages
+
+	boolean startup = true;                 // If true window grows every round
+	float full_rate = 0.0f;                 // Delivery rate at last startup growth check
+	int full_count = 0;                     // Rounds without startup growth
+
+	long min_rtt = -1;                      // Min round-trip time (ns), negative if none
+	float[] rate_samples;                   // Per-round delivery rates (elements/ns)
+	long[] window_samples;                  // Window in effect for rate samples
+	int round_count = 0;                    // Number of completed rounds
+	long round_start = -1;                  // Start time of current round
+	long round_delivered = 0;               // Elements delivered in current round
+
+	/**
+	 * Set up tuner.
+	 *
+	 * @param maxNum max outstanding packages
+	 * @param maxSize max package size
+	 * @param minSize min package size
+	 */
+	public VStreamTuner(int maxNum, int maxSize, int minSize) {
+		max_num = Math.max(maxNum, 1);
+		max_size = Math.max(maxSize, 1);
+		min_size = Math.max(Math.min(minSize, max_size), 1);
+		rate_samples = new float[RATE_WINDOW];
+		window_samples = new long[RATE_WINDOW];
+		this.setWindow((long)min_size*INITIAL_PACKAGES);
+	}
+
+	/**
+	 * Registers a round-trip time sample.
+	 *
+	 * @param rtt round-trip time in nanoseconds
+	 */
+	public synchronized void onRtt(long rtt) {
+		if (rtt >= 0 && (min_rtt < 0 || rtt < min_rtt))
+			min_rtt = rtt;
+	}
+
+	/**
+	 * Registers delivered data.
+	 *
+	 * @param num number of elements delivered
+	 * @param now current time in nanoseconds
+	 */
+	public synchronized void onDelivered(long num, long now) {
+		if (round_start < 0)
+			round_start = now;
+		round_delivered += num;
+		if (now - round_start < Math.max(min_rtt, MIN_ROUND))
+			return;
+
+		int idx = round_count % RATE_WINDOW;
+		rate_samples[idx] = round_delivered/(float)(now - round_start);
+		window_samples[idx] = window;
+		round_count += 1;
+		round_start = now;
+		round_delivered = 0;
+
+		int best = 0;
+		for (int i = 1; i < RATE_WINDOW; i++)
+			if (rate_samples[i] > rate_samples[best])
+				best = i;
+		float rate = rate_samples[best];
+
+		if (startup) {
+			if (rate >= full_rate*1.25f) {
+				full_rate = rate;
+				full_count = 0;
+				this.setWindow((long)(window*GAIN));
+				return;
+			}
+			else if (++full_count < 3)
+				return;
+			startup = false;
+		}
+
+		long target = window_samples[best];
+		if (min_rtt >= 0)
+			target = Math.max(target, (long)(GAIN*rate*min_rtt));
+		if (round_count % RATE_WINDOW == 0)
+			target = (long)(target*PROBE_GAIN);
+		this.setWindow(target);
+	}
+
+	/**
+	 * Get transfer window.
+	 *
+	 * @return window (number of elements)
+	 */
+	public synchronized long getWindow() {
+		return window;
+	}
+
+	/**
+	 * Get package size.
+	 *
+	 * @return package size (number of elements)
+	 */
+	public synchronized int getPackageSize() {
+		return pkg_size;
+	}
+
+	/**
+	 * Get max outstanding packages.
+	 *
+	 * @return number of packages
+	 */
+	public synchronized int getPackages() {
+		return pkg_num;
+	}
+
+	/**
+	 * Get estimated round-trip time.
+	 *
+	 * @return round-trip time in nanoseconds (negative if no estimate)
+	 */
+	public synchronized long getRoundTripTime() {
+		return min_rtt;
+	}
+
+	// Sets window and derived package parameters within limits
+	void setWindow(long num) {
+		long max_window = (long)max_num*max_size;
+		long min_window = 2L*min_size;
+		if (num < min_window)
+			num = min_window;
+		if (num > max_window)
+			num = max_window;
+		window = num;
+		pkg_size = (int)Math.max(Math.min(num/2, max_size), min_size);
+		pkg_num = (int)Math.min((num + pkg_size - 1)/pkg_size, max_num);
+	}
+}
@@ -21,6 +21,7 @@
 package org.versile.vse.stream;
 
 import org.versile.common.call.VCall;
+import org.versile.orb.entity.VCallContext;
 import org.versile.orb.entity.VCallError;
 import org.versile.orb.entity.VEntity;
 import org.versile.orb.entity.VEntityError;
@@ -31,6 +32,8 @@ import org.versile.orb.entity.VString;
 import org.versile.orb.entity.VTuple;
 import org.versile.orb.external.Publish;
 import org.versile.orb.external.VExternal;
+import org.versile.orb.link.VLink;
+import org.versile.orb.link.VLinkException;
 import org.versile.orb.util.VSequenceCallException;
 import org.versile.orb.util.VSequenceCallQueue;
 import org.versile.orb.util.VSequenceCaller;
@@ -94,6 +97,10 @@ public abstract class VStreamer<T> extends VExternal {
 	long _peer_r_num = 0;
 	long _peer_r_size = 0;
 
+	boolean _multiplex;                         // if true multiplex calls to peer
+	int _mux_weight;                            // multiplexing weight
+	VStreamMux.Channel _mux = null;             // multiplexing channel (or null)
+
 	int _local_r_num;
 	int _local_r_size;
 
@@ -148,6 +155,8 @@ public abstract class VStreamer<T> extends VExternal {
 
 		_local_r_num = config.getMaxReadPackages();
 		_local_r_size = config.getMaxReadPkgSize();
+		_multiplex = config.isMultiplex();
+		_mux_weight = config.getMuxWeight();
 
 		// Initializes _w_buf_lim and _w_buf_step
 		this.setWriteBuffering(config.getWriteLim(), config.getWriteStep());
@@ -194,6 +203,7 @@ public abstract class VStreamer<T> extends VExternal {
 			throw new VCallError("Can only connect once");
 		_peer = peer;
 		_caller.setLimit(maxCalls);
+		this._init_mux();
 
 		_peer_r_num = maxReadPkg;
 		_r_num = maxReadPkg;
@@ -211,6 +221,23 @@ public abstract class VStreamer<T> extends VExternal {
 		                                 new VInteger(_w_size)});
 	}
 
+	/**
+	 * Performs a batch of calls sent through a {@link VStreamMux}.
+	 *
+	 * <p>See {@link VStreamMux#dispatch(Object[], VCallContext)}. The batch
+	 * may include calls on other stream objects of the same link.</p>
+	 *
+	 * @param ctx call context
+	 * @param calls calls to perform
+	 * @return call results
+	 * @throws VCallError
+	 */
+	@Publish(show=true, ctx=true)
+	public Object[] peer_batch(VCallContext ctx, Object[] calls)
+			throws VCallError {
+		return VStreamMux.dispatch(calls, ctx);
+	}
+
 	/**
 	 * Initiate a read context.
 	 *
@@ -739,7 +766,7 @@ public abstract class VStreamer<T> extends VExternal {
 			}
 			@Override
 			public VCall<Object> execute(long callID) {
-				return _peer.nowait("peer_set_start_pos", callID, ctx, ctx_spos);
+				return _peer_call("peer_set_start_pos", callID, ctx, ctx_spos);
 			}
 
 		}
@@ -831,7 +858,7 @@ public abstract class VStreamer<T> extends VExternal {
 			}
 			@Override
 			public VCall<Object> execute(long callID) {
-				return _peer.nowait("peer_set_start_pos", callID, ctx, ctx_spos);
+				return _peer_call("peer_set_start_pos", callID, ctx, ctx_spos);
 			}
 		}
 		this._caller.call(new Call(_ctx, _ctx_spos), null, null);
@@ -866,37 +893,77 @@ public abstract class VStreamer<T> extends VExternal {
 	 */
 	protected synchronized void _peer_wpush(long write_ctx, T[] data)
 			throws VCallError {
-		if (_failed || _done || _ctx_err)
+		if (!this._wpush_check(write_ctx, data.length))
 			return;
 
-		_w_pending -= 1;
+		try {
+			_streamdata.write(data);
+		} catch (VStreamFailure e) {
+			this._fail("Streamer write fail");
+			throw new VCallError();
+		} catch (VStreamError e) {
+			this._fail("Streamer write fail");
+			throw new VCallError();
+		}
+		_buf.write(data);
+		this._wpush_done(data.length);
+	}
+
+	/**
+	 * Internal call to read data for a read push to the peer.
+	 *
+	 * <p>Returns data in the representation which is passed to the peer's
+	 * peer_read_push. Default reads data with {@link VStreamerData#read(int)},
+	 * derived classes can override together with {@link #_data_length(Object)}
+	 * in order to push another (equivalent) representation.</p>
+	 *
+	 * @param maxNum max elements to read
+	 * @return data read
+	 * @throws VStreamError operation error
+	 * @throws VStreamFailure general streamer data failure
+	 */
+	protected Object _read_data(int maxNum)
+			throws VStreamError, VStreamFailure {
+		return _streamdata.read(maxNum);
+	}
+
+	/**
+	 * Internal call to get number of elements of data returned by {@link #_read_data(int)}.
+	 *
+	 * @param data data
+	 * @return number of elements
+	 */
+	protected int _data_length(Object data) {
+		return ((Object[])data).length;
+	}
+
+	// Validates a write push of 'len' elements, returns false if push should be ignored
+	boolean _wpush_check(long write_ctx, int len)
+			throws VCallError {
+		if (_failed || _done || _ctx_err)
+			return false;
 
 		// Validate context
 		if (write_ctx != _ctx)
-			return;
+			return false;
 		if (_ctx_mode != ContextMode.WRITING) {
 			this._fail("Write push without write mode");
 			throw new VCallError();
 		}
 
-		// Push data onto write buffer unless data overflow
-		if (_w_recv + data.length > _w_rel_lim) {
+		// Check data overflow
+		if (_w_recv + len > _w_rel_lim) {
 			this._fail("Write limit exceeded");
 			throw new VCallError();
 		}
+		return true;
+	}
 
-		try {
-			_streamdata.write(data);
-		} catch (VStreamFailure e) {
-			this._fail("Streamer write fail");
-			throw new VCallError();
-		} catch (VStreamError e) {
-			this._fail("Streamer write fail");
-			throw new VCallError();
-		}
-		_buf.write(data);
-		_w_recv += data.length;
-		_ctx_rpos += data.length;
+	// Updates state after 'len' elements of a write push were written
+	void _wpush_done(int len)
+			throws VCallError {
+		_w_recv += len;
+		_ctx_rpos += len;
 
 		// Update endpoint informoation
 		this._poll_endpoints();
@@ -969,7 +1036,7 @@ public abstract class VStreamer<T> extends VExternal {
 		class Call extends VSequenceCaller.RemoteCall {
 			@Override
 			public VCall<Object> execute(long callID) {
-				return _peer.nowait("peer_closed", callID);
+				return _peer_call("peer_closed", callID);
 			}
 		}
 		_caller.call(new Call(), null, null);
@@ -1007,9 +1074,9 @@ public abstract class VStreamer<T> extends VExternal {
 				break;
 
 			// Read data for sending to peer
-			T[] data;
+			Object data;
 			try {
-				data = _streamdata.read((int)max_push);
+				data = this._read_data((int)max_push);
 			} catch (VStreamFailure e) {
 				this._fail("Read operation failure");
 				throw new VCallError();
@@ -1017,23 +1084,24 @@ public abstract class VStreamer<T> extends VExternal {
 				this._set_error(VStream.ERR_GENERAL_ERROR);
 				break;
 			}
-			if (data.length < max_push)
+			int data_len = this._data_length(data);
+			if (data_len < max_push)
 				end_of_data = true;
 
 			boolean eos = (end_of_data && _r_eos);
-			if (data.length > 0 || eos) {
+			if (data_len > 0 || eos) {
 				class Call extends VSequenceCaller.RemoteCall {
 					long ctx;
-					T[] data;
+					Object data;
 					boolean eos;
-					public Call(long ctx, T[] data, boolean eos) {
+					public Call(long ctx, Object data, boolean eos) {
 						this.ctx = ctx;
 						this.data = data;
 						this.eos = eos;
 					}
 					@Override
 					public VCall<Object> execute(long callID) {
-						return _peer.nowait("peer_read_push", callID, ctx, data, eos);
+						return _peer_call("peer_read_push", callID, ctx, data, eos);
 					}
 				}
 				class Callback extends VSequenceCaller.Callback {
@@ -1048,12 +1116,13 @@ public abstract class VStreamer<T> extends VExternal {
 						_fail("Could not perform remote call");
 					}
 				}
-				this._caller.call(new Call(_ctx, data, eos), new Callback(), new Failback());
-
-				_ctx_rpos += data.length;
+				// Update state before the call, as the callback may be performed immediately
+				_ctx_rpos += data_len;
 				_r_pending += 1;
 				if (eos)
 					_r_sent_eos = true;
+
+				this._caller.call(new Call(_ctx, data, eos), new Callback(), new Failback());
 			}
 			this._poll_endpoints();
 		}
@@ -1084,7 +1153,7 @@ public abstract class VStreamer<T> extends VExternal {
 				}
 				@Override
 				public VCall<Object> execute(long callID) {
-					return _peer.nowait("peer_error", callID, _ctx, code);
+					return _peer_call("peer_error", callID, _ctx, code);
 				}
 			}
 			this._caller.call(new Call(code), null, null);
@@ -1118,7 +1187,7 @@ public abstract class VStreamer<T> extends VExternal {
 				}
 				@Override
 				public VCall<Object> execute(long callID) {
-					return _peer.nowait("peer_write_lim", callID, ctx, lim);
+					return _peer_call("peer_write_lim", callID, ctx, lim);
 				}
 			}
 			this._caller.call(new Call(_ctx, _w_rel_lim), null, null);
@@ -1174,6 +1243,24 @@ public abstract class VStreamer<T> extends VExternal {
 		_w_recv = 0;
 	}
 
+	// Performs a remote call on the peer, through the multiplexer if enabled
+	VCall<Object> _peer_call(String name, Object... args) {
+		if (_mux != null)
+			return _mux.call(_peer, name, args);
+		return _peer.nowait(name, args);
+	}
+
+	// Sets up multiplexing for a connected peer if enabled
+	void _init_mux() {
+		if (!_multiplex)
+			return;
+		try {
+			_mux = VStreamMux.forLink(VLink.forProxy(_peer)).createChannel(_mux_weight);
+		} catch (VLinkException e) {
+			// Peer is not a link object, calls are made directly
+		}
+	}
+
 	void _cleanup() {
 		this._clear_ctx_data();
 		if (_streamdata != null)
@@ -1197,7 +1284,7 @@ public abstract class VStreamer<T> extends VExternal {
 						}
 						@Override
 						public VCall<Object> execute(long callID) {
-							return _peer.nowait("peer_fail", callID, msg);
+							return _peer_call("peer_fail", callID, msg);
 						}
 					}
 					_caller.call(new Call(msg), null, null);
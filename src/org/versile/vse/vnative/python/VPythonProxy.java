@@ -22,13 +22,17 @@ package org.versile.vse.vnative.python;
 
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
+import org.versile.common.call.VCall;
+import org.versile.common.call.VCallException;
 import org.versile.common.util.VExceptionProxy;
 import org.versile.orb.entity.VCallError;
 import org.versile.orb.entity.VEntity;
 import org.versile.orb.entity.VEntityError;
+import org.versile.orb.entity.VInteger;
 import org.versile.orb.entity.VProxy;
 import org.versile.orb.entity.VString;
 import org.versile.vse.vnative.VNativeException;
@@ -40,6 +44,16 @@ import org.versile.vse.vnative.VNativeProxy;
  */
 public abstract class VPythonProxy extends VNativeProxy {
 
+	/**
+	 * Initial number of elements per batch when iterating.
+	 */
+	public static final int MIN_ITER_BATCH = 16;
+
+	/**
+	 * Default max number of elements per batch when iterating.
+	 */
+	public static final int MAX_ITER_BATCH = 1000;
+
 	/**
 	 * Set up proxy to native python object.
 	 *
@@ -190,22 +204,64 @@ public abstract class VPythonProxy extends VNativeProxy {
 	/**
 	 * Requests an iterator for the python object.
 	 *
-	 * <p>Calls "__iter__" on the remote object to generate an iterator, and internally calls
-	 * "__next__" on the remote-generated iterator when moving to the next element.</p>
+	 * <p>See {@link #iter(int)}. Uses {@link #MAX_ITER_BATCH} as the max batch size.</p>
 	 *
 	 * @return iterator
 	 * @throws VCallError
 	 */
 	public Iterator<?> iter()
+		throws VCallError {
+		return this.iter(MAX_ITER_BATCH);
+	}
+
+	/**
+	 * Requests an iterator for the python object.
+	 *
+	 * <p>Calls "__iter__" on the remote object to generate an iterator. If the
+	 * remote-generated iterator has a "next_batch" attribute, elements are retrieved
+	 * in batches by calling it with a max number of elements, which should return a
+	 * tuple of up to that number of elements, or an empty tuple when there are no
+	 * more elements. The batch size starts at {@link #MIN_ITER_BATCH} and doubles
+	 * for each batch up to 'batchSize', and the next batch is requested when a batch
+	 * is received so retrieval overlaps with processing elements.</p>
+	 *
+	 * <p>If the remote-generated iterator raises AttributeError for "next_batch" (as
+	 * standard python iterators do), the iterator instead calls "__next__" on the
+	 * remote-generated iterator when moving to the next element, which requires one
+	 * round-trip per element. Both attributes are looked up concurrently so the
+	 * check does not add a round-trip.</p>
+	 *
+	 * <p>The resulting iterator throws IllegalStateException if its hasNext or next
+	 * operation has an unexpected failure.</p>
+	 *
+	 * @param batchSize max elements to retrieve per call
+	 * @return iterator
+	 * @throws VCallError
+	 */
+	public Iterator<?> iter(int batchSize)
 		throws VCallError {
 		class Iter implements Iterator<Object> {
 			VPythonProxy proxy;
+			int max_batch;
 			VPythonProxy next_callable = null;
 			boolean got_next = false;
 			Object next_val = null;
 
-			public Iter(VPythonProxy proxy) {
+			VCall<Object> batch_lookup;     // pending "next_batch" lookup (or null)
+			VCall<Object> next_lookup;      // pending "__next__" lookup (or null)
+			VPythonProxy batch_callable = null;
+			boolean done = false;           // true if no more remote elements
+			int batch_size = MIN_ITER_BATCH;
+			LinkedList<Object> batch = new LinkedList<Object>();
+			VCall<Object> pending = null;   // pending batch request (or null)
+
+			public Iter(VPythonProxy proxy, int maxBatch) {
 				this.proxy = proxy;
+				max_batch = Math.max(maxBatch, 1);
+				if (batch_size > max_batch)
+					batch_size = max_batch;
+				batch_lookup = proxy._v_proxy.nowait("getattribute", new VString("next_batch"));
+				next_lookup = proxy._v_proxy.nowait("getattribute", new VString("__next__"));
 			}
 
 			@Override
@@ -232,43 +288,131 @@ public abstract class VPythonProxy extends VNativeProxy {
 
 			// Return false if no more elements, throw IllegalStateException if other error
 			boolean getNext() {
+				if (batch_lookup != null)
+					this.lookupBatch();
+				if (batch.isEmpty() && !done && batch_callable != null)
+					this.getBatch();
+				if (!batch.isEmpty()) {
+					next_val = batch.removeFirst();
+					return true;
+				}
+				else if (done)
+					return false;
+				return this.getSingle();
+			}
+
+			// Resolves whether the remote iterator supports batch retrieval
+			void lookupBatch() {
+				VCall<Object> lookup = batch_lookup;
+				batch_lookup = null;
+				try {
+					batch_callable = (VPythonProxy)proxy.activateResult(lookup.getResult());
+				} catch (VCallException e) {
+					if (VPythonProxy.isPythonException(e.getException(), "exceptions.AttributeError"))
+						return;
+					throw new IllegalStateException(e.getException());
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+				next_lookup = null;
+				pending = this.requestBatch();
+			}
+
+			// Receives the pending batch and requests the next batch
+			void getBatch() {
+				Object result;
+				try {
+					result = pending.getResult();
+				} catch (VCallException e) {
+					throw new IllegalStateException(e.getException());
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+				pending = null;
+
+				Object[] elements;
+				try {
+					elements = (Object[])result;
+				} catch (Exception e) {
+					throw new IllegalStateException();
+				}
+				if (elements.length == 0) {
+					done = true;
+					return;
+				}
+				for (Object element: elements)
+					batch.addLast(proxy.activateResult(element));
+
+				batch_size = Math.min(2*batch_size, max_batch);
+				pending = this.requestBatch();
+			}
+
+			// Requests a batch of elements from the remote iterator
+			VCall<Object> requestBatch() {
+				Object[] args = new Object[] {new VInteger(batch_size)};
+				return batch_callable._v_proxy.nowait("call", args, new Hashtable<String, Object>());
+			}
+
+			// Retrieves a single element by calling __next__
+			boolean getSingle() {
 				Object result = null;
 				try {
 					if (next_callable == null) {
-						next_callable = (VPythonProxy)proxy.getattr("__next__");
-					}
-					result = next_callable.call();
-				} catch (VExceptionProxy e) {
-					if (e.getValue() instanceof VPythonException) {
-						VPythonException p_exc = (VPythonException) e.getValue();
-						if (p_exc.getArgs().length() >= 1) {
+						if (next_lookup != null) {
+							VCall<Object> lookup = next_lookup;
+							next_lookup = null;
 							try {
-								String e_name = VString.nativeOf(p_exc.getArgs().get(0));
-								if (e_name.equals("exceptions.StopIteration"))
-									return false;
-							} catch (VEntityError e1) {
-								throw new IllegalStateException();
+								next_callable = (VPythonProxy)proxy.activateResult(lookup.getResult());
+							} catch (VCallException e) {
+								throw e.getException();
 							}
 						}
 						else
-							throw new IllegalStateException();
+							next_callable = (VPythonProxy)proxy.getattr("__next__");
 					}
-					else
-						throw new IllegalStateException();
+					result = next_callable.call();
+				} catch (VExceptionProxy e) {
+					if (VPythonProxy.isPythonException(e, "exceptions.StopIteration"))
+						return false;
+					throw new IllegalStateException();
 				} catch (Exception e) {
 					throw new IllegalStateException();
 				}
-				got_next = true;
 				next_val = result;
 				return true;
 			}
 		}
 		try {
 			VPythonProxy python_iterator = (VPythonProxy) this.methodCall("__iter__", new Object[0]);
-			return new Iter(python_iterator);
+			return new Iter(python_iterator, batchSize);
 		} catch (Exception e) {
 			throw new VCallError(e);
 		}
 	}
 
+	// Activates a remote call result if this proxy is active
+	Object activateResult(Object result) {
+		if (_v_active && result instanceof VNativeProxy)
+			((VNativeProxy)result)._v_activate();
+		return result;
+	}
+
+	// Checks whether an exception was raised as a python exception with the given name
+	static boolean isPythonException(Exception e, String name) {
+		if (!(e instanceof VExceptionProxy))
+			return false;
+		Object value = ((VExceptionProxy)e).getValue();
+		if (!(value instanceof VPythonException))
+			return false;
+		VPythonException p_exc = (VPythonException)value;
+		p_exc._v_activate();
+		if (p_exc.getArgs().length() < 1)
+			return false;
+		try {
+			return VString.nativeOf(p_exc.getArgs().get(0)).equals(name);
+		} catch (VEntityError e1) {
+			return false;
+		}
+	}
+
 }